@@ -0,0 +1,116 @@
+package com.virtualclipboard;
+
+import java.awt.Color;
+import java.awt.Font;
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/** Deterministic sample content shared by the benchmarks. */
+final class BenchmarkData {
+    private static final String PROSE = "The quick brown fox jumps over the lazy dog while the clipboard keeps "
+            + "every word it sees. ";
+    private static final String CODE = "public int add(int a, int b) {\n    return a + b; // sum\n}\n";
+    private static final String JSON_ENTRY = "{\"id\": 12345, \"name\": \"clip\", \"tags\": [\"a\", \"b\"], "
+            + "\"pinned\": false}";
+
+    private BenchmarkData() {
+    }
+
+    /**
+     * {@code kind} is one of prose, code or json. Prose and code are cut to exactly
+     * {@code length} chars; JSON stops at the last whole entry so it stays valid.
+     */
+    static String text(String kind, int length) {
+        StringBuilder sb = new StringBuilder(length);
+        if (kind.equals("json")) {
+            sb.append('[').append(JSON_ENTRY);
+            while (sb.length() + JSON_ENTRY.length() + 3 <= length) {
+                sb.append(",\n").append(JSON_ENTRY);
+            }
+            return sb.append(']').toString();
+        }
+        String unit = kind.equals("code") ? CODE : PROSE;
+        while (sb.length() < length) {
+            sb.append(unit);
+        }
+        sb.setLength(length);
+        return sb.toString();
+    }
+
+    /**
+     * A history of {@code count} items with the mix a real one tends to have:
+     * mostly short text, some URLs, code and JSON, and the odd long paste.
+     */
+    static List<ClipboardItem> history(int count) {
+        Random random = new Random(42);
+        List<ClipboardItem> items = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            int roll = random.nextInt(100);
+            String text;
+            if (roll < 50) {
+                text = text("prose", 20 + random.nextInt(180)) + " #" + i;
+            } else if (roll < 65) {
+                text = "https://example.com/articles/" + i + "?ref=clip";
+            } else if (roll < 80) {
+                text = text("code", 100 + random.nextInt(600));
+            } else if (roll < 95) {
+                text = text("json", 100 + random.nextInt(600));
+            } else {
+                text = text("prose", 2000 + random.nextInt(6000));
+            }
+            items.add(new ClipboardItem(text));
+        }
+        return items;
+    }
+
+    static ClipboardTab tab(String name, List<ClipboardItem> items) {
+        ClipboardTab tab = new ClipboardTab(name);
+        tab.items.addAll(items);
+        return tab;
+    }
+
+    /** Noise image, so neither comparison nor encoding gets an easy ride. */
+    static BufferedImage image(int width, int height) {
+        Random random = new Random(7);
+        BufferedImage image = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+        int[] row = new int[width];
+        for (int y = 0; y < height; y++) {
+            for (int x = 0; x < width; x++) {
+                row[x] = random.nextInt(0xFFFFFF);
+            }
+            image.setRGB(0, y, width, 1, row, 0, width);
+        }
+        return image;
+    }
+
+    /**
+     * A text screenshot: lines of code and prose at UI size, black on white or, for
+     * {@code dark}, light gray on a dark editor background.
+     */
+    static BufferedImage screenshot(int width, int height, boolean dark) {
+        BufferedImage image = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+        Graphics2D g = image.createGraphics();
+        g.setRenderingHint(RenderingHints.KEY_TEXT_ANTIALIASING, RenderingHints.VALUE_TEXT_ANTIALIAS_ON);
+        g.setColor(dark ? new Color(0x1E1E1E) : Color.WHITE);
+        g.fillRect(0, 0, width, height);
+        g.setColor(dark ? new Color(0xD4D4D4) : Color.BLACK);
+        g.setFont(new Font(Font.MONOSPACED, Font.PLAIN, 13));
+        String[] lines = (text("code", 400) + "\n" + text("prose", 240)).split("\n");
+        int lineHeight = g.getFontMetrics().getHeight() + 4;
+        for (int y = 24, i = 0; y < height - 8; y += lineHeight, i++) {
+            g.drawString(lines[i % lines.length], 16, y);
+        }
+        g.dispose();
+        return image;
+    }
+
+    static BufferedImage copy(BufferedImage image) {
+        BufferedImage copy = new BufferedImage(image.getWidth(), image.getHeight(), image.getType());
+        copy.setData(image.getData());
+        return copy;
+    }
+}
@@ -0,0 +1,51 @@
+package com.virtualclipboard;
+
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/** Cost of turning captured text into an item: stats, classification and the whole constructor. */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@State(Scope.Benchmark)
+@Fork(1)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+public class ClipboardItemBenchmark {
+    @Param({ "64", "4096", "1048576" })
+    int length;
+
+    @Param({ "prose", "code", "json" })
+    String kind;
+
+    private String text;
+
+    @Setup
+    public void setup() {
+        text = BenchmarkData.text(kind, length);
+    }
+
+    @Benchmark
+    public ClipboardItem construct() {
+        return new ClipboardItem(text);
+    }
+
+    @Benchmark
+    public TextStats analyze() {
+        return TextAnalyzer.analyze(text);
+    }
+
+    @Benchmark
+    public ContentClassifier.Result classify() {
+        return ContentClassifier.classify(text);
+    }
+}
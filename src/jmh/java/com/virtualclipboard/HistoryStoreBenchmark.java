@@ -0,0 +1,101 @@
+package com.virtualclipboard;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Queries against a {@link HistoryStore} holding the whole history on disk,
+ * for comparison with {@link PersistenceBenchmark}'s load-everything numbers.
+ * Pages are fetched from deep in the history so they miss the item cache.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@State(Scope.Benchmark)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class HistoryStoreBenchmark {
+    private static final int PAGE = 50;
+
+    @Param({ "100000", "1000000" })
+    int items;
+
+    private Path dir;
+    private HistoryStore store;
+    private ClipboardItem probe;
+    private int page;
+
+    @Setup
+    public void setup() throws IOException {
+        dir = Files.createTempDirectory("history-bench");
+        List<ClipboardItem> history = BenchmarkData.history(Math.min(items, 10_000));
+        try (HistoryStore writer = HistoryStore.open(dir)) {
+            for (int i = 0; i < items; i++) {
+                ClipboardItem item = i < history.size() ? history.get(i) : new ClipboardItem("history item " + i);
+                writer.put(i % 10 == 0 ? "Snippets" : "Clipboard", item);
+            }
+        }
+        store = HistoryStore.open(dir);
+        probe = new ClipboardItem("history item " + (items / 2));
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        store.close();
+        try (Stream<Path> files = Files.walk(dir)) {
+            for (Path file : files.sorted(Comparator.reverseOrder()).toList()) {
+                Files.delete(file);
+            }
+        }
+    }
+
+    /** Opening from the checkpoint, which the app would do at startup. */
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    public int open() throws IOException {
+        HistoryStore opened = HistoryStore.open(dir);
+        int size = opened.size();
+        opened.close();
+        return size;
+    }
+
+    /** One page of items with their bodies, walking back through the tab. */
+    @Benchmark
+    public int pageWithItems() throws IOException {
+        int pages = store.count("Clipboard", null) / PAGE;
+        page = (page + 97) % pages;
+        int chars = 0;
+        for (HistoryStore.Entry entry : store.page("Clipboard", null, page * PAGE, PAGE)) {
+            ClipboardItem item = store.get(entry.id());
+            chars += item.getText() != null ? item.getText().length() : 0;
+        }
+        return chars;
+    }
+
+    @Benchmark
+    public List<HistoryStore.Entry> pageByType() {
+        return store.page("Snippets", ClipboardItem.Type.TEXT, items / 40, PAGE);
+    }
+
+    @Benchmark
+    public HistoryStore.Entry findByContent() {
+        return store.findByContent(probe);
+    }
+}
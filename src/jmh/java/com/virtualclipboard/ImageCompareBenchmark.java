@@ -0,0 +1,57 @@
+package com.virtualclipboard;
+
+import java.awt.image.BufferedImage;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * {@link ClipboardMonitor#imagesAreEqual}, run on every poll while an image sits
+ * on the clipboard. The worst case is two equal images that are not the same
+ * instance, so every pixel has to be compared.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@State(Scope.Benchmark)
+@Fork(1)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+public class ImageCompareBenchmark {
+    @Param({ "800x600", "1920x1080", "3840x2160" })
+    String size;
+
+    private BufferedImage original;
+    private BufferedImage equalCopy;
+    private BufferedImage lastPixelDiffers;
+
+    @Setup
+    public void setup() {
+        int x = size.indexOf('x');
+        int width = Integer.parseInt(size.substring(0, x));
+        int height = Integer.parseInt(size.substring(x + 1));
+        original = BenchmarkData.image(width, height);
+        equalCopy = BenchmarkData.copy(original);
+        lastPixelDiffers = BenchmarkData.copy(original);
+        // Not one of the sampled pixels, so the fast path can't reject it
+        lastPixelDiffers.setRGB(width - 2, height - 1, ~original.getRGB(width - 2, height - 1));
+    }
+
+    @Benchmark
+    public boolean equalImages() {
+        return ClipboardMonitor.imagesAreEqual(original, equalCopy);
+    }
+
+    @Benchmark
+    public boolean differentLastPixel() {
+        return ClipboardMonitor.imagesAreEqual(original, lastPixelDiffers);
+    }
+}
@@ -0,0 +1,82 @@
+package com.virtualclipboard;
+
+import java.awt.image.BufferedImage;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import net.sourceforge.tess4j.Tesseract;
+import net.sourceforge.tess4j.TesseractException;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * OCR of a few screenshots with and without {@link OcrPreprocessor}, plus the
+ * preprocessing on its own. Bands are read one after another on a single
+ * engine, so this measures the work and not the pool's parallelism. The
+ * language data is provisioned as the app does, so the first run may download it.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@State(Scope.Benchmark)
+@Fork(1)
+@Warmup(iterations = 2, time = 5)
+@Measurement(iterations = 3, time = 5)
+public class OcrPreprocessBenchmark {
+    @Param({ "light-800x600", "dark-1920x1080", "light-1080x6000" })
+    String fixture;
+
+    private BufferedImage image;
+    private Tesseract tesseract;
+
+    @Setup
+    public void setup() throws Exception {
+        int dash = fixture.indexOf('-');
+        int x = fixture.indexOf('x');
+        int width = Integer.parseInt(fixture.substring(dash + 1, x));
+        int height = Integer.parseInt(fixture.substring(x + 1));
+        image = BenchmarkData.screenshot(width, height, fixture.startsWith("dark"));
+
+        TessdataProvisioner.Provisioned data = new TessdataProvisioner(new ConfigManager(), "eng").provision()
+                .get(120, TimeUnit.SECONDS);
+        tesseract = new Tesseract();
+        tesseract.setDatapath(data.dataDir().toString());
+        tesseract.setLanguage("eng");
+    }
+
+    private List<BufferedImage> prepared() {
+        OcrTiler.Tiles tiles = OcrTiler.split(OcrPreprocessor.prepare(image), OcrEnginePool.defaultSize());
+        List<BufferedImage> bands = new ArrayList<>(tiles.bands().size());
+        for (BufferedImage band : tiles.bands()) {
+            bands.add(OcrPreprocessor.scale(band));
+        }
+        return bands;
+    }
+
+    @Benchmark
+    public List<BufferedImage> preprocessOnly() {
+        return prepared();
+    }
+
+    @Benchmark
+    public String ocrRaw() throws TesseractException {
+        return tesseract.doOCR(image);
+    }
+
+    @Benchmark
+    public String ocrPreprocessed() throws TesseractException {
+        List<String> texts = new ArrayList<>();
+        for (BufferedImage band : prepared()) {
+            texts.add(tesseract.doOCR(band));
+        }
+        return String.join("\n", texts);
+    }
+}
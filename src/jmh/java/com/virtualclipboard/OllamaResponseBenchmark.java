@@ -0,0 +1,43 @@
+package com.virtualclipboard;
+
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/** {@link OllamaService#extractResponse} on caption-sized and essay-sized replies. */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@State(Scope.Benchmark)
+@Fork(1)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+public class OllamaResponseBenchmark {
+    @Param({ "64", "65536" })
+    int responseLength;
+
+    private String json;
+
+    @Setup
+    public void setup() {
+        StringBuilder answer = new StringBuilder();
+        while (answer.length() < responseLength) {
+            answer.append("A \\\"quoted\\\" caption line\\n");
+        }
+        json = "{\"model\":\"llava\",\"created_at\":\"2024-01-01T00:00:00Z\",\"response\":\"" + answer
+                + "\",\"done\":true,\"context\":[1,2,3],\"total_duration\":123456789}";
+    }
+
+    @Benchmark
+    public String extract() {
+        return OllamaService.extractResponse(json);
+    }
+}
@@ -0,0 +1,61 @@
+package com.virtualclipboard;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Serializing and restoring the whole history in the old state file format,
+ * which every save used to rewrite and which is now only read to fill an empty
+ * {@link HistoryStore}. In memory so disk speed doesn't blur the numbers.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@State(Scope.Benchmark)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class PersistenceBenchmark {
+    @Param({ "1000", "10000", "100000" })
+    int items;
+
+    private List<ClipboardTab> tabs;
+    private byte[] saved;
+    private ByteArrayOutputStream buffer;
+
+    @Setup
+    public void setup() throws IOException {
+        List<ClipboardItem> history = BenchmarkData.history(items);
+        int split = items * 9 / 10;
+        tabs = List.of(BenchmarkData.tab("Clipboard", history.subList(0, split)),
+                BenchmarkData.tab("Snippets", history.subList(split, items)));
+        buffer = new ByteArrayOutputStream();
+        ClipboardEngine.writeState(buffer, tabs, 0);
+        saved = buffer.toByteArray();
+    }
+
+    @Benchmark
+    public int save() throws IOException {
+        buffer.reset();
+        ClipboardEngine.writeState(buffer, tabs, 0);
+        return buffer.size();
+    }
+
+    @Benchmark
+    public ClipboardEngine.SavedState load() throws IOException, ClassNotFoundException {
+        return ClipboardEngine.readState(new ByteArrayInputStream(saved));
+    }
+}
@@ -0,0 +1,63 @@
+package com.virtualclipboard;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * The Swing-free part of refreshUI: filtering the history against the search
+ * box and packing the surviving cards into the grid.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@State(Scope.Benchmark)
+@Fork(1)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+public class RefreshLayoutBenchmark {
+    @Param({ "100", "1000", "10000" })
+    int items;
+
+    @Param({ "", "fox", "is:json", "is:code return" })
+    String query;
+
+    @Param({ "1", "4" })
+    int columns;
+
+    private List<ClipboardItem> history;
+    private ClipboardEngine.SearchQuery search;
+    private BlobStore blobStore;
+
+    @Setup
+    public void setup() {
+        history = BenchmarkData.history(items);
+        blobStore = new BlobStore();
+        search = ClipboardEngine.SearchQuery.parse(query);
+    }
+
+    @Benchmark
+    public List<ClipboardItem> filter() {
+        List<ClipboardItem> shown = new ArrayList<>();
+        for (ClipboardItem item : history) {
+            if (ClipboardEngine.matches(item, search, blobStore))
+                shown.add(item);
+        }
+        return shown;
+    }
+
+    @Benchmark
+    public CardGrid.Placement filterAndPlace() {
+        return CardGrid.place(filter(), columns);
+    }
+}
@@ -36,15 +36,31 @@ import java.util.HashMap;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
+import java.util.Set;
 import java.util.concurrent.atomic.AtomicInteger;
 
 public class App extends JFrame {
     private final JPanel contentPanel = new JPanel(null);
     private final JScrollPane scrollPane = new JScrollPane(contentPanel);
     private final ClipboardMonitor monitor;
+    private final BlobStore blobStore = new BlobStore();
+    private final JPanel jobPanel = new JPanel(new BorderLayout(8, 0));
+    private final JProgressBar jobProgress = new JProgressBar();
+    private final JButton jobCancelButton = new JButton("Cancel");
+    private BackgroundJob<?> currentJob;
+    private FileImporter fileImporter;
+    private HistoryExporter historyExporter;
+    private RetentionEngine retentionEngine;
+    private EdtWatchdog edtWatchdog;
     private DateTimeFormatter formatter = DateTimeFormatter.ofPattern("MMM dd, HH:mm:ss");
     private final Map<ClipboardItem, AnimatedCard> cardMap = new HashMap<>();
     private Timer layoutTimer;
+    private static final String METRICS_LOG_FILE = "metrics.log";
+    private static final long METRICS_LOG_MINUTES = 5;
+    private static final int EDT_PROBE_MS = 250;
+    private static final int SAVE_DELAY_MS = 500;
+    private static final Metrics.Histogram REFRESH_TIME = Metrics.timer("ui.refresh");
+    private static final Metrics.Histogram ADD_TIME = Metrics.timer("ingest.add");
     private final Map<String, Font> fontCache = new HashMap<>();
 
     // Custom Tabs Panel with Animation Support
@@ -192,7 +208,7 @@ public class App extends JFrame {
                 }
 
                 // Update active highlight target
-                if (i == activeTabIndex) {
+                if (i == engine.getActiveTabIndex()) {
                     if (i == draggedIndex) {
                         targetHighlightBounds.setBounds(btn.getX(), btn.getY(), btn.getWidth(), btn.getHeight());
                         highlightBounds.setBounds(btn.getX(), btn.getY(), btn.getWidth(), btn.getHeight());
@@ -235,7 +251,7 @@ public class App extends JFrame {
             if (draggedIndex != -1 && draggedIndex < tabButtons.size()) {
                 JButton draggedBtn = tabButtons.get(draggedIndex);
 
-                if (draggedIndex == activeTabIndex) {
+                if (draggedIndex == engine.getActiveTabIndex()) {
                     // Dragging ACTIVE tab: It stays on top
                     // 1. Dragged Active Tab (Text) -> Z=0
                     // 2. Highlight (Background) -> Z=1
@@ -251,8 +267,9 @@ public class App extends JFrame {
                     // 2. Highlight (Background) -> Z=1
                     // 3. Dragged Inactive Tab -> Z=2
 
-                    if (activeTabIndex >= 0 && activeTabIndex < tabButtons.size()) {
-                        JButton activeBtn = tabButtons.get(activeTabIndex);
+                    int activeIndex = engine.getActiveTabIndex();
+                    if (activeIndex >= 0 && activeIndex < tabButtons.size()) {
+                        JButton activeBtn = tabButtons.get(activeIndex);
                         if (getComponentZOrder(activeBtn) != 0) {
                             setComponentZOrder(activeBtn, 0);
                         }
@@ -340,7 +357,7 @@ public class App extends JFrame {
                 addButton = createSubtleButton(new FlatSVGIcon("com/virtualclipboard/icons/plus.svg", 16, 16));
                 addButton.setToolTipText("New Tab");
                 addButton.addActionListener(e -> {
-                    tabs.add(new ClipboardTab("Tab " + (tabs.size() + 1)));
+                    engine.addTab("Tab " + (tabs.size() + 1));
                     queueTabSwitch(tabs.size() - 1);
                 });
                 addButton.setSize(30, 30); // fixed size
@@ -395,11 +412,7 @@ public class App extends JFrame {
 
             closeBtn.addActionListener(e -> {
                 showConfirmationDialog("Delete Tab", "Delete tab '" + tab.name + "' and its items?", () -> {
-                    boolean wasActive = (tabs.indexOf(tab) == activeTabIndex);
-                    tabs.remove(tab);
-                    if (activeTabIndex >= tabs.size())
-                        activeTabIndex = 0;
-
+                    boolean wasActive = engine.removeTab(tab);
                     refreshTabsUI();
 
                     if (wasActive) {
@@ -486,17 +499,26 @@ public class App extends JFrame {
             sortMenu.setBorder(new EmptyBorder(5, 10, 5, 10)); // Fix alignment
             sortMenu.getPopupMenu().setBorder(new EmptyBorder(0, 0, 0, 0)); // Ensure sub-menu has no outline
 
+            JMenuItem sortManual = new JMenuItem("Default Order");
+            sortManual.setBorder(new EmptyBorder(5, 10, 5, 10));
+            sortManual.addActionListener(e -> {
+                setSortOrder(tab, SortedViews.Order.MANUAL);
+            });
+            sortMenu.add(sortManual);
+
+            sortMenu.addSeparator();
+
             JMenuItem sortDateNewOld = new JMenuItem("Date (Newest First)");
             sortDateNewOld.setBorder(new EmptyBorder(5, 10, 5, 10));
             sortDateNewOld.addActionListener(e -> {
-                sortItems(tab, (a, b) -> b.getTimestamp().compareTo(a.getTimestamp()));
+                setSortOrder(tab, SortedViews.Order.DATE_NEWEST);
             });
             sortMenu.add(sortDateNewOld);
 
             JMenuItem sortDateOldNew = new JMenuItem("Date (Oldest First)");
             sortDateOldNew.setBorder(new EmptyBorder(5, 10, 5, 10));
             sortDateOldNew.addActionListener(e -> {
-                sortItems(tab, (a, b) -> a.getTimestamp().compareTo(b.getTimestamp()));
+                setSortOrder(tab, SortedViews.Order.DATE_OLDEST);
             });
             sortMenu.add(sortDateOldNew);
 
@@ -505,14 +527,14 @@ public class App extends JFrame {
             JMenuItem sortTypeAZ = new JMenuItem("Type (A-Z)");
             sortTypeAZ.setBorder(new EmptyBorder(5, 10, 5, 10));
             sortTypeAZ.addActionListener(e -> {
-                sortItems(tab, (a, b) -> a.getType().toString().compareTo(b.getType().toString()));
+                setSortOrder(tab, SortedViews.Order.TYPE_AZ);
             });
             sortMenu.add(sortTypeAZ);
 
             JMenuItem sortTypeZA = new JMenuItem("Type (Z-A)");
             sortTypeZA.setBorder(new EmptyBorder(5, 10, 5, 10));
             sortTypeZA.addActionListener(e -> {
-                sortItems(tab, (a, b) -> b.getType().toString().compareTo(a.getType().toString()));
+                setSortOrder(tab, SortedViews.Order.TYPE_ZA);
             });
             sortMenu.add(sortTypeZA);
 
@@ -521,20 +543,36 @@ public class App extends JFrame {
             JMenuItem sortSizeSmallLarge = new JMenuItem("Size (Smallest First)");
             sortSizeSmallLarge.setBorder(new EmptyBorder(5, 10, 5, 10));
             sortSizeSmallLarge.addActionListener(e -> {
-                sortItems(tab, (a, b) -> Long.compare(a.getSizeInBytes(), b.getSizeInBytes()));
+                setSortOrder(tab, SortedViews.Order.SIZE_SMALLEST);
             });
             sortMenu.add(sortSizeSmallLarge);
 
             JMenuItem sortSizeLargeSmall = new JMenuItem("Size (Largest First)");
             sortSizeLargeSmall.setBorder(new EmptyBorder(5, 10, 5, 10));
             sortSizeLargeSmall.addActionListener(e -> {
-                sortItems(tab, (a, b) -> Long.compare(b.getSizeInBytes(), a.getSizeInBytes()));
+                setSortOrder(tab, SortedViews.Order.SIZE_LARGEST);
             });
             sortMenu.add(sortSizeLargeSmall);
 
             tabMenu.add(sortMenu);
             tabMenu.addSeparator();
 
+            JMenuItem importFolderItem = new JMenuItem("Import Folder...");
+            importFolderItem.setBorder(new EmptyBorder(5, 10, 5, 10));
+            importFolderItem.addActionListener(e -> importFolder(tab));
+            tabMenu.add(importFolderItem);
+
+            JMenuItem exportTabItem = new JMenuItem("Export Tab...");
+            exportTabItem.setBorder(new EmptyBorder(5, 10, 5, 10));
+            exportTabItem.addActionListener(e -> exportTabs(List.of(tab)));
+            tabMenu.add(exportTabItem);
+
+            JMenuItem exportAllItem = new JMenuItem("Export All Tabs...");
+            exportAllItem.setBorder(new EmptyBorder(5, 10, 5, 10));
+            exportAllItem.addActionListener(e -> exportTabs(List.copyOf(tabs)));
+            tabMenu.add(exportAllItem);
+            tabMenu.addSeparator();
+
             JMenuItem renameItem = new JMenuItem("Rename Tab");
             renameItem.setBorder(new EmptyBorder(5, 10, 5, 10));
             renameItem.addActionListener(e -> {
@@ -551,10 +589,7 @@ public class App extends JFrame {
                 deleteItem.setBorder(new EmptyBorder(5, 10, 5, 10));
                 deleteItem.addActionListener(e -> {
                     showConfirmationDialog("Delete Tab", "Delete tab '" + tab.name + "' and its items?", () -> {
-                        boolean wasActive = (tabs.indexOf(tab) == activeTabIndex);
-                        tabs.remove(tab);
-                        if (activeTabIndex >= tabs.size())
-                            activeTabIndex = 0;
+                        boolean wasActive = engine.removeTab(tab);
 
                         refreshTabsUI();
 
@@ -602,7 +637,7 @@ public class App extends JFrame {
                         if (!hasDragged && draggedIndex != -1) {
                             // Treat as click
                             int currentIdx = getButtonIndex(tabBtn);
-                            if (activeTabIndex != currentIdx && currentIdx != -1) {
+                            if (engine.getActiveTabIndex() != currentIdx && currentIdx != -1) {
                                 queueTabSwitch(currentIdx);
                             }
                         }
@@ -634,25 +669,12 @@ public class App extends JFrame {
                                 targetIndex = Math.max(0, Math.min(targetIndex, tabButtons.size() - 1));
 
                                 if (targetIndex != draggedIndex) {
-                                    // Move item in list (not just swap) to preserve order
-                                    ClipboardTab draggedTab = tabs.remove(draggedIndex);
-                                    tabs.add(targetIndex, draggedTab);
+                                    // Move item in list (not just swap) to preserve order; the active tab follows
+                                    engine.moveTab(draggedIndex, targetIndex);
 
                                     JButton draggedBtn = tabButtons.remove(draggedIndex);
                                     tabButtons.add(targetIndex, draggedBtn);
 
-                                    // Update active index
-                                    if (activeTabIndex == draggedIndex) {
-                                        activeTabIndex = targetIndex;
-                                    } else {
-                                        // Adjust active index if it was shifted
-                                        if (draggedIndex < activeTabIndex && targetIndex >= activeTabIndex) {
-                                            activeTabIndex--;
-                                        } else if (draggedIndex > activeTabIndex && targetIndex <= activeTabIndex) {
-                                            activeTabIndex++;
-                                        }
-                                    }
-
                                     draggedIndex = targetIndex;
                                 }
                             }
@@ -672,28 +694,17 @@ public class App extends JFrame {
         }
     }
 
-    // Tabbed Structure
-    private static class ClipboardTab implements Serializable {
-        private static final long serialVersionUID = 1L;
-        String name;
-        List<ClipboardItem> items = new ArrayList<>();
-        String iconValue; // Path to SVG or Emoji text
-        boolean isEmoji;
-
-        public ClipboardTab(String name) {
-            this.name = name;
-        }
-    }
-
-    private static final String CLIPBOARD_STATE_FILE = "clipboard_state.dat";
-
-    private final List<ClipboardTab> tabs = new ArrayList<>();
-    private int activeTabIndex = 0;
+    private final ClipboardEngine engine = new ClipboardEngine(blobStore,
+            java.nio.file.Paths.get(ClipboardEngine.DEFAULT_STATE_FILE),
+            java.nio.file.Paths.get(HistoryStore.DEFAULT_DIR));
+    private final List<ClipboardTab> tabs = engine.getTabs();
+    private final Timer saveTimer = new Timer(SAVE_DELAY_MS, e -> engine.saveInBackground());
     private TabsPanel tabsPanel; // UI Container for tabs
     private JPanel searchPanel;
     private JTextField searchField;
     private JComboBox<String> searchScopeCombo;
     private String searchQuery = "";
+    private ClipboardEngine.SearchQuery search = ClipboardEngine.SearchQuery.EMPTY;
 
     // UI Components that need theme updates
     private JLabel titleLabel;
@@ -747,7 +758,7 @@ public class App extends JFrame {
     }
 
     public App() {
-        ocrService = new OcrService();
+        ocrService = new OcrService(configManager);
         ollamaService = new OllamaService(configManager);
         updateThemeUIManager();
         updateFormatter();
@@ -797,6 +808,7 @@ public class App extends JFrame {
         searchField.setCaretColor(getThemeColor("inputText"));
         searchField.setBorder(new EmptyBorder(5, 10, 5, 10));
         searchField.setFont(getAppFont(FONT_FAMILY_TEXT, Font.PLAIN, 14));
+        searchField.setToolTipText("Filter by kind with is:json, is:url, is:code, is:python, is:color, is:pinned...");
 
         // Add a placeholder-like behavior or just a label
         searchIcon = new FlatSVGIcon("com/virtualclipboard/icons/tabs/search.svg", 16, 16);
@@ -808,6 +820,7 @@ public class App extends JFrame {
             @Override
             public void keyReleased(KeyEvent e) {
                 searchQuery = searchField.getText().toLowerCase();
+                search = ClipboardEngine.SearchQuery.parse(searchQuery);
                 refreshUI();
             }
         });
@@ -827,7 +840,15 @@ public class App extends JFrame {
         // Tab Bar UI
         tabsPanel = new TabsPanel();
         // tabsPanel.setOpaque(false); // Handled in TabsPanel constructor
-        tabs.add(new ClipboardTab("Main")); // Default tab
+
+        ImageMemoryManager.shared().setBudgetBytes(configManager.getImageCacheMb() * 1024L * 1024L);
+        Metrics.gauge("heap.decoded.images", Metrics.Unit.BYTES, ImageMemoryManager.shared()::getResidentBytes);
+        Metrics.gauge("heap.used", Metrics.Unit.BYTES,
+                () -> Runtime.getRuntime().totalMemory() - Runtime.getRuntime().freeMemory());
+        retentionEngine = new RetentionEngine(blobStore, RetentionEngine.Policy.from(configManager),
+                engine::snapshot, this::removeItems);
+        engine.setReclaimer(retentionEngine::reclaim);
+        engine.setAutoSortByDate(configManager.isAutoSortByDate());
 
         // Try to restore previous clipboard state (tabs and items)
         loadClipboardState();
@@ -875,8 +896,8 @@ public class App extends JFrame {
 
         clearButton.addActionListener(e -> {
             showConfirmationDialog("Clear History",
-                    "Are you sure you want to clear all history?\nThis action cannot be undone.", () -> {
-                        getCurrentTab().items.clear();
+                    "Are you sure you want to clear all history?\nPinned items are kept. This action cannot be undone.", () -> {
+                        engine.clear(getCurrentTab());
                         refreshUI();
                     });
         });
@@ -953,15 +974,43 @@ public class App extends JFrame {
 
         add(scrollPane, BorderLayout.CENTER);
 
+        // Progress for folder imports and exports, hidden while idle
+        jobProgress.setStringPainted(true);
+        jobProgress.setBorderPainted(false);
+        jobCancelButton.setFocusPainted(false);
+        jobCancelButton.addActionListener(e -> {
+            if (currentJob != null) {
+                currentJob.cancel();
+                jobCancelButton.setEnabled(false);
+            }
+        });
+        jobPanel.setOpaque(false);
+        jobPanel.setBorder(new EmptyBorder(6, 10, 6, 10));
+        jobPanel.add(jobProgress, BorderLayout.CENTER);
+        jobPanel.add(jobCancelButton, BorderLayout.EAST);
+        jobPanel.setVisible(false);
+        add(jobPanel, BorderLayout.SOUTH);
+
         // Adaptive resize handling on frame removed in favor of viewport listener
 
-        monitor = new ClipboardMonitor(this::addNewItem);
+        monitor = new ClipboardMonitor(this::addNewItem, blobStore);
+        monitor.setCaptureLimits(CaptureLimits.from(configManager));
+        fileImporter = new FileImporter(blobStore, monitor::getCaptureLimits);
+        historyExporter = new HistoryExporter(blobStore);
+        monitor.setRichTextCapture(configManager.isCaptureRichText());
 
-        // Save clipboard state when the window is closing
+        // Write out any pending changes before the window closes the app
+        saveTimer.setRepeats(false);
         addWindowListener(new WindowAdapter() {
             @Override
             public void windowClosing(WindowEvent e) {
-                saveClipboardState();
+                saveTimer.stop();
+                engine.saveInBackground();
+                try {
+                    engine.close();
+                } catch (IOException ex) {
+                    ex.printStackTrace();
+                }
             }
         });
 
@@ -980,18 +1029,21 @@ public class App extends JFrame {
                     if (transferable.isDataFlavorSupported(DataFlavor.javaFileListFlavor)) {
                         @SuppressWarnings("unchecked")
                         List<File> files = (List<File>) transferable.getTransferData(DataFlavor.javaFileListFlavor);
-                        for (File file : files) {
-                            processDroppedFile(file);
-                        }
+                        importFiles(getCurrentTab(), files);
                     } else if (transferable.isDataFlavorSupported(DataFlavor.imageFlavor)) {
                         BufferedImage img = (BufferedImage) transferable.getTransferData(DataFlavor.imageFlavor);
                         if (img != null) {
-                            addNewItem(new ClipboardItem(img));
+                            addNewItem(ClipboardItem.fromImage(img));
                         }
                     } else if (transferable.isDataFlavorSupported(DataFlavor.stringFlavor)) {
                         String text = (String) transferable.getTransferData(DataFlavor.stringFlavor);
                         if (text != null && !text.isBlank()) {
-                            addNewItem(new ClipboardItem(text));
+                            ClipboardItem item = blobStore.ingestText(text, monitor.getCaptureLimits());
+                            if (item != null) {
+                                addNewItem(item);
+                            } else {
+                                System.out.println("Skipping dropped text over the size limit");
+                            }
                         }
                     }
                     event.dropComplete(true);
@@ -1003,86 +1055,185 @@ public class App extends JFrame {
         });
     }
 
-    private void processDroppedFile(File file) {
-        if (file.isDirectory())
+    private void importFiles(ClipboardTab tab, List<File> files) {
+        if (files.isEmpty() || isJobRunning())
             return;
-
-        String name = file.getName().toLowerCase();
-        try {
-            if (name.endsWith(".svg")) {
-                String content = new String(java.nio.file.Files.readAllBytes(file.toPath()), StandardCharsets.UTF_8);
-                addNewItem(new ClipboardItem(content));
-            } else if (name.endsWith(".gif")) {
-                byte[] gifBytes = java.nio.file.Files.readAllBytes(file.toPath());
-                BufferedImage img = javax.imageio.ImageIO.read(new ByteArrayInputStream(gifBytes));
-                if (img != null) {
-                    addNewItem(new ClipboardItem(gifBytes, img.getWidth(), img.getHeight()));
-                }
-            } else if (name.endsWith(".png") || name.endsWith(".jpg") || name.endsWith(".jpeg")
-                    || name.endsWith(".bmp")) {
-                BufferedImage img = javax.imageio.ImageIO.read(file);
-                if (img != null) {
-                    addNewItem(new ClipboardItem(img));
-                }
-            } else {
-                // Treat as text if not an image
-                String content = new String(java.nio.file.Files.readAllBytes(file.toPath()), StandardCharsets.UTF_8);
-                addNewItem(new ClipboardItem(content));
+        BackgroundJob<List<ClipboardItem>> job = fileImporter.importFiles(files, configManager.getMaxHistory(),
+                (done, total) -> SwingUtilities.invokeLater(() -> updateJobProgress("Importing", done, total)));
+        startJob(job, "Importing");
+        job.getResult().whenComplete((items, error) -> SwingUtilities.invokeLater(() -> {
+            finishJob(job);
+            if (error != null) {
+                error.printStackTrace();
+            } else if (!items.isEmpty()) {
+                // The tab may have been deleted while the import was running
+                addNewItems(tabs.contains(tab) ? tab : null, items);
             }
-        } catch (IOException e) {
-            e.printStackTrace();
+        }));
+    }
+
+    private void importFolder(ClipboardTab tab) {
+        if (isJobRunning())
+            return;
+        JFileChooser chooser = new JFileChooser();
+        chooser.setDialogTitle("Import Folder");
+        chooser.setFileSelectionMode(JFileChooser.DIRECTORIES_ONLY);
+        if (chooser.showOpenDialog(this) == JFileChooser.APPROVE_OPTION) {
+            importFiles(tab, List.of(chooser.getSelectedFile()));
         }
     }
 
-    private void sortItems(ClipboardTab tab, java.util.Comparator<ClipboardItem> comparator) {
-        tab.items.sort(comparator);
-        if (tabs.indexOf(tab) == activeTabIndex) {
+    /** Exports to a directory, or to a zip archive when the chosen name ends in .zip. */
+    private void exportTabs(List<ClipboardTab> source) {
+        if (isJobRunning())
+            return;
+        JFileChooser chooser = new JFileChooser();
+        chooser.setDialogTitle("Export to Folder or .zip");
+        chooser.setFileSelectionMode(JFileChooser.FILES_AND_DIRECTORIES);
+        chooser.setSelectedFile(new File("clipboard-export.zip"));
+        if (chooser.showSaveDialog(this) != JFileChooser.APPROVE_OPTION)
+            return;
+        File target = chooser.getSelectedFile();
+
+        List<HistoryExporter.Section> sections = new ArrayList<>();
+        for (ClipboardTab tab : source) {
+            sections.add(new HistoryExporter.Section(tab.name, List.copyOf(tab.items)));
+        }
+        BackgroundJob<Integer> job = historyExporter.export(sections, target.toPath(),
+                (done, total) -> SwingUtilities.invokeLater(() -> updateJobProgress("Exporting", done, total)));
+        startJob(job, "Exporting");
+        job.getResult().whenComplete((count, error) -> SwingUtilities.invokeLater(() -> {
+            finishJob(job);
+            if (error != null) {
+                error.printStackTrace();
+                Throwable cause = error.getCause() != null ? error.getCause() : error;
+                JOptionPane.showMessageDialog(App.this, cause.getMessage(), "Export Failed", JOptionPane.ERROR_MESSAGE);
+            } else if (!job.isCancelled()) {
+                System.out.println("Exported " + count + " items to " + target);
+            }
+        }));
+    }
+
+    private boolean isJobRunning() {
+        if (currentJob == null)
+            return false;
+        JOptionPane.showMessageDialog(this, "Another import or export is still running.", "Please Wait",
+                JOptionPane.INFORMATION_MESSAGE);
+        return true;
+    }
+
+    private void startJob(BackgroundJob<?> job, String label) {
+        currentJob = job;
+        jobCancelButton.setEnabled(true);
+        updateJobProgress(label, 0, 0);
+        jobPanel.setVisible(true);
+        revalidate();
+    }
+
+    private void finishJob(BackgroundJob<?> job) {
+        if (currentJob != job)
+            return;
+        currentJob = null;
+        jobPanel.setVisible(false);
+        revalidate();
+    }
+
+    private void updateJobProgress(String label, int done, int total) {
+        jobProgress.setIndeterminate(total == 0);
+        jobProgress.setMaximum(Math.max(1, total));
+        jobProgress.setValue(done);
+        jobProgress.setString(total == 0 ? label + "..." : label + " " + done + " / " + total);
+        jobProgress.setForeground(getThemeColor("accent"));
+        jobProgress.setBackground(getThemeColor("inputBackground"));
+        jobCancelButton.setBackground(getThemeColor("buttonBackground"));
+        jobCancelButton.setForeground(getThemeColor("buttonText"));
+    }
+
+    /** Switches the tab's display order; the items themselves stay in capture order. */
+    private void setSortOrder(ClipboardTab tab, SortedViews.Order order) {
+        tab.sortOrder = order;
+        saveClipboardState();
+        if (tabs.indexOf(tab) == engine.getActiveTabIndex()) {
             refreshUI();
         }
     }
 
     private void addNewItem(ClipboardItem item) {
+        addNewItems(null, List.of(item));
+    }
+
+    /**
+     * Inserts items at the top of {@code tab} (the current tab when null) in order,
+     * so the last one ends up first. The sort, trim, refresh and save run once for
+     * the whole batch.
+     */
+    private void addNewItems(ClipboardTab tab, List<ClipboardItem> newItems) {
         SwingUtilities.invokeLater(() -> {
-            ClipboardTab currentTab = getCurrentTab();
-            // Check for duplicates
-            if (!currentTab.items.isEmpty() && currentTab.items.get(0).equals(item)) {
+            long start = System.nanoTime();
+            ClipboardEvents.AddItem event = new ClipboardEvents.AddItem();
+            event.begin();
+            List<ClipboardItem> added = engine.add(tab, newItems);
+            if (added.isEmpty()) {
                 return;
             }
-            currentTab.items.add(0, item);
-
-            if (configManager.isAutoSortByDate()) {
-                sortItems(currentTab, (a, b) -> b.getTimestamp().compareTo(a.getTimestamp()));
-            }
-
-            int max = configManager.getMaxHistory();
-            while (currentTab.items.size() > max) {
-                currentTab.items.remove(currentTab.items.size() - 1);
-            }
 
             refreshUI();
             saveClipboardState();
+            retentionEngine.request();
+            ADD_TIME.recordSince(start);
+            event.end();
+            if (event.shouldCommit()) {
+                event.itemType = newItems.get(0).getType().name();
+                event.items = newItems.size();
+                event.added = added.size();
+                for (ClipboardItem item : added) {
+                    event.bytes += item.getSizeInBytes();
+                }
+                event.commit();
+            }
 
-            // Trigger AI Caption if enabled
-            if (configManager.isAiCaptionEnabled() && item.getType() == ClipboardItem.Type.TEXT) {
-                ollamaService.generateCaption(item.getText()).thenAccept(caption -> {
-                    if (caption != null && !caption.isEmpty()) {
-                        item.setCaption(caption);
-                        SwingUtilities.invokeLater(() -> {
-                            refreshUI();
-                            saveClipboardState();
-                        });
-                    }
-                });
+            for (ClipboardItem item : added) {
+                if (configManager.isAutoOcrEnabled()) {
+                    scheduleOcrIndexing(item);
+                }
+
+                // Trigger AI Caption if enabled
+                if (configManager.isAiCaptionEnabled() && item.getType() == ClipboardItem.Type.TEXT) {
+                    ollamaService.generateCaption(item.getText()).thenAccept(caption -> {
+                        if (caption != null && !caption.isEmpty()) {
+                            item.setCaption(caption);
+                            SwingUtilities.invokeLater(() -> {
+                                refreshUI();
+                                saveClipboardState();
+                            });
+                        }
+                    });
+                }
             }
         });
     }
 
+    /**
+     * Hand an IMAGE or GIF item to the background OCR indexer. The extracted text is
+     * stored on the item so it becomes searchable without blocking capture or the EDT.
+     */
+    private void scheduleOcrIndexing(ClipboardItem item) {
+        if (item.getType() != ClipboardItem.Type.IMAGE && item.getType() != ClipboardItem.Type.GIF)
+            return;
+        ocrService.indexInBackground(item).thenAccept(text -> {
+            if (text == null)
+                return;
+            SwingUtilities.invokeLater(() -> {
+                item.setOcrText(text);
+                saveClipboardState();
+                if (!searchQuery.isEmpty())
+                    refreshUI();
+            });
+        });
+    }
+
     private ClipboardTab getCurrentTab() {
-        if (tabs.isEmpty())
-            tabs.add(new ClipboardTab("Main"));
-        if (activeTabIndex >= tabs.size())
-            activeTabIndex = 0;
-        return tabs.get(activeTabIndex);
+        return engine.getCurrentTab();
     }
 
     // Tab Queue Logic
@@ -1175,9 +1326,9 @@ public class App extends JFrame {
     private void executeTabSwitch(int index) {
         boolean interrupted = stopActiveTransitions(); // Interrupt any ongoing transition
 
-        if (activeTabIndex == index)
+        if (engine.getActiveTabIndex() == index)
             return;
-        activeTabIndex = index;
+        engine.setActiveTabIndex(index);
         refreshTabsUI();
 
         // If interrupted, skip fade out to immediately load new tab
@@ -1227,25 +1378,20 @@ public class App extends JFrame {
 
     private void refreshTabsUI() {
         if (tabsPanel != null) {
-            tabsPanel.refresh(tabs, activeTabIndex);
+            tabsPanel.refresh(tabs, engine.getActiveTabIndex());
         }
     }
 
     private void refreshUI() {
+        long start = System.nanoTime();
+        ClipboardEvents.RefreshGrid event = new ClipboardEvents.RefreshGrid();
+        event.begin();
         // Calculate grid columns and width
         int windowWidth = scrollPane.getViewport().getWidth();
         if (windowWidth <= 0)
             windowWidth = getWidth() - 20;
 
-        int cols;
-        if (windowWidth > 1300)
-            cols = 4;
-        else if (windowWidth > 900)
-            cols = 3;
-        else if (windowWidth > 600)
-            cols = 2;
-        else
-            cols = 1;
+        int cols = CardGrid.columnsFor(windowWidth);
 
         int baseCardWidth = (windowWidth - (cols * 20)) / cols;
         // Base height 200 scaled
@@ -1257,15 +1403,9 @@ public class App extends JFrame {
 
         List<ClipboardItem> itemsToShow = new ArrayList<>();
         for (ClipboardTab tab : searchList) {
-            for (ClipboardItem item : tab.items) {
-                if (!searchQuery.isEmpty()) {
-                    if (item.getType() == ClipboardItem.Type.TEXT) {
-                        if (item.getText() == null || !item.getText().toLowerCase().contains(searchQuery))
-                            continue;
-                    } else
-                        continue;
-                }
-                itemsToShow.add(item);
+            for (ClipboardItem item : tab.displayItems(this::refreshUI)) {
+                if (ClipboardEngine.matches(item, search, blobStore))
+                    itemsToShow.add(item);
             }
         }
 
@@ -1300,43 +1440,15 @@ public class App extends JFrame {
         }
 
         // Layout calculation
-        boolean[][] occupied = new boolean[1000][cols];
-        int currentMaxRow = 0;
+        CardGrid.Placement placement = CardGrid.place(itemsToShow, cols);
+        int currentMaxRow = placement.rowCount();
 
-        for (ClipboardItem item : itemsToShow) {
+        for (int i = 0; i < itemsToShow.size(); i++) {
+            ClipboardItem item = itemsToShow.get(i);
             int itemRows = item.getRows();
             int itemCols = Math.min(item.getCols(), cols);
-
-            // Find slot
-            int gridX = 0, gridY = 0;
-            boolean found = false;
-            for (int y = 0; y < 1000 && !found; y++) {
-                for (int x = 0; x <= cols - itemCols; x++) {
-                    boolean canFit = true;
-                    for (int dy = 0; dy < itemRows; dy++) {
-                        for (int dx = 0; dx < itemCols; dx++) {
-                            if (occupied[y + dy][x + dx]) {
-                                canFit = false;
-                                break;
-                            }
-                        }
-                        if (!canFit)
-                            break;
-                    }
-                    if (canFit) {
-                        gridX = x;
-                        gridY = y;
-                        for (int dy = 0; dy < itemRows; dy++) {
-                            for (int dx = 0; dx < itemCols; dx++) {
-                                occupied[y + dy][x + dx] = true;
-                            }
-                        }
-                        currentMaxRow = Math.max(currentMaxRow, y + itemRows);
-                        found = true;
-                        break;
-                    }
-                }
-            }
+            int gridX = placement.column(i);
+            int gridY = placement.row(i);
 
             // Calculate target bounds
             // Assuming 20px gap, 10px margin
@@ -1349,6 +1461,7 @@ public class App extends JFrame {
             if (card == null) {
                 // New card
                 card = createItemCard(item, windowWidth);
+                event.created++;
                 contentPanel.add(card);
                 cardMap.put(item, card);
 
@@ -1410,19 +1523,25 @@ public class App extends JFrame {
 
         contentPanel.revalidate();
         contentPanel.repaint();
+        REFRESH_TIME.recordSince(start);
+        event.shown = itemsToShow.size();
+        event.columns = cols;
+        event.commit();
     }
 
     /**
      * Persist the current clipboard tabs and items to disk so they can be
-     * restored on next launch.
+     * restored on next launch. Changes within {@link #SAVE_DELAY_MS} of each
+     * other are saved together, and the write happens off the EDT. Safe to
+     * call from any thread.
      */
-    @SuppressWarnings("ResultOfMethodCallIgnored")
     private void saveClipboardState() {
-        try (ObjectOutputStream oos = new ObjectOutputStream(new FileOutputStream(CLIPBOARD_STATE_FILE))) {
-            oos.writeObject(tabs);
-            oos.writeInt(activeTabIndex);
-        } catch (IOException e) {
-            e.printStackTrace();
+        if (!SwingUtilities.isEventDispatchThread()) {
+            SwingUtilities.invokeLater(this::saveClipboardState);
+            return;
+        }
+        if (!saveTimer.isRunning()) {
+            saveTimer.start();
         }
     }
 
@@ -1431,54 +1550,33 @@ public class App extends JFrame {
      * If loading fails for any reason, the app will continue with the default tab.
      */
     private void loadClipboardState() {
-        File file = new File(CLIPBOARD_STATE_FILE);
-        if (!file.exists()) {
-            return;
-        }
-
-        try (ObjectInputStream ois = new ObjectInputStream(new FileInputStream(file))) {
-            Object loadedTabs = ois.readObject();
-            int loadedActiveIndex = ois.readInt();
-
-            if (loadedTabs instanceof List<?>) {
-                List<?> list = (List<?>) loadedTabs;
-                if (!list.isEmpty() && list.get(0) instanceof ClipboardTab) {
-                    tabs.clear();
-                    for (Object obj : list) {
-                        ClipboardTab tab = (ClipboardTab) obj;
-                        if (configManager.isAutoSortByDate()) {
-                            tab.items.sort((a, b) -> b.getTimestamp().compareTo(a.getTimestamp()));
+        try {
+            if (engine.load()) {
+                // Trigger AI generation for missing captions
+                if (configManager.isAiCaptionEnabled()) {
+                    System.out.println("Checking for missing captions...");
+                    List<ClipboardItem> missingCaptions = new ArrayList<>();
+                    for (ClipboardTab tab : tabs) {
+                        for (ClipboardItem item : tab.items) {
+                            if (item.getType() == ClipboardItem.Type.TEXT && item.getCaption() == null) {
+                                missingCaptions.add(item);
+                            }
                         }
-                        tabs.add(tab);
-                    }
-                    if (loadedActiveIndex >= 0 && loadedActiveIndex < tabs.size()) {
-                        activeTabIndex = loadedActiveIndex;
-                    } else {
-                        activeTabIndex = 0;
                     }
 
-                    // Trigger AI generation for missing captions
-                    if (configManager.isAiCaptionEnabled()) {
-                        System.out.println("Checking for missing captions...");
-                        List<ClipboardItem> missingCaptions = new ArrayList<>();
-                        for (ClipboardTab tab : tabs) {
-                            for (ClipboardItem item : tab.items) {
-                                if (item.getType() == ClipboardItem.Type.TEXT && item.getCaption() == null) {
-                                    missingCaptions.add(item);
-                                }
-                            }
-                        }
+                    // Sort by text length (shortest to longest)
+                    missingCaptions.sort((a, b) -> Integer.compare(
+                            a.getText() != null ? a.getText().length() : 0,
+                            b.getText() != null ? b.getText().length() : 0));
 
-                        // Sort by text length (shortest to longest)
-                        missingCaptions.sort((a, b) -> Integer.compare(
-                                a.getText() != null ? a.getText().length() : 0,
-                                b.getText() != null ? b.getText().length() : 0));
+                    triggerBulkCaptionGeneration(missingCaptions, null, () -> {
+                        System.out.println("Bulk caption generation completed on startup.");
+                    });
+                    System.out.println("Found " + missingCaptions.size() + " items missing captions.");
+                }
 
-                        triggerBulkCaptionGeneration(missingCaptions, null, () -> {
-                            System.out.println("Bulk caption generation completed on startup.");
-                        });
-                        System.out.println("Found " + missingCaptions.size() + " items missing captions.");
-                    }
+                if (configManager.isAutoOcrEnabled()) {
+                    indexAllImages();
                 }
             }
         } catch (IOException | ClassNotFoundException e) {
@@ -1486,6 +1584,16 @@ public class App extends JFrame {
         }
     }
 
+    private void indexAllImages() {
+        for (ClipboardTab tab : tabs) {
+            for (ClipboardItem item : tab.items) {
+                if (item.getOcrText() == null) {
+                    scheduleOcrIndexing(item);
+                }
+            }
+        }
+    }
+
     private JComponent createScalableImageComponent(Image img, AnimatedCard card) {
         JPanel preview = new JPanel() {
             @Override
@@ -1551,21 +1659,15 @@ public class App extends JFrame {
     }
 
     private AnimatedCard createItemCard(ClipboardItem item, int windowWidth) {
+        ClipboardEvents.CreateCard event = new ClipboardEvents.CreateCard();
+        event.begin();
         int windowHeight = getHeight();
 
         // Base dimensions relative to 1920x1080 reference
         double widthScale = (double) windowWidth / 1920.0;
         double heightScale = (double) windowHeight / 1080.0;
 
-        int cols;
-        if (windowWidth > 1300)
-            cols = 4;
-        else if (windowWidth > 900)
-            cols = 3;
-        else if (windowWidth > 600)
-            cols = 2;
-        else
-            cols = 1;
+        int cols = CardGrid.columnsFor(windowWidth);
 
         int baseCardWidth = (windowWidth - (cols * 20)) / cols;
         // Increased base height by 25% (from 160 to 200) and scaled with window height
@@ -1602,6 +1704,18 @@ public class App extends JFrame {
         JButton deleteBtn = createSubtleButton(new FlatSVGIcon("com/virtualclipboard/icons/close.svg", 16, 16),
                 "cardIcon", "cardIconHover");
 
+        JButton pinBtn = createSubtleButton(new FlatSVGIcon("com/virtualclipboard/icons/tabs/bookmark.svg", 16, 16),
+                item.isPinned() ? "accent" : "cardIcon", "cardIconHover");
+        pinBtn.setToolTipText(item.isPinned() ? "Unpin" : "Pin (pinned items are never cleaned up)");
+        pinBtn.addActionListener(e -> {
+            item.setPinned(!item.isPinned());
+            saveClipboardState();
+            // Rebuild the card so the pin state is reflected
+            cardMap.remove(item);
+            contentPanel.remove(card);
+            refreshUI();
+        });
+
         infoBtn.addActionListener(e -> showInfoPopup(item));
         deleteBtn.addActionListener(e -> {
             showConfirmationDialog("Delete Item", "Are you sure you want to delete this item?",
@@ -1616,15 +1730,15 @@ public class App extends JFrame {
             JPopupMenu moveMenu = new JPopupMenu();
             moveMenu.setBorder(new EmptyBorder(0, 0, 0, 0));
             for (int i = 0; i < tabs.size(); i++) {
-                if (i == activeTabIndex)
+                if (i == engine.getActiveTabIndex())
                     continue;
                 ClipboardTab targetTab = tabs.get(i);
                 JMenuItem menuItem = new JMenuItem("Move to " + targetTab.name);
                 menuItem.setBorder(new EmptyBorder(5, 10, 5, 10));
                 menuItem.addActionListener(ev -> {
-                    getCurrentTab().items.remove(item);
-                    targetTab.items.add(0, item);
+                    engine.moveItem(item, getCurrentTab(), targetTab);
                     refreshUI();
+                    retentionEngine.request();
                 });
                 moveMenu.add(menuItem);
             }
@@ -1637,6 +1751,8 @@ public class App extends JFrame {
             moveMenu.show(moveBtn, 0, moveBtn.getHeight());
         });
 
+        controlPanel.add(pinBtn);
+        controlPanel.add(Box.createHorizontalStrut(5));
         controlPanel.add(infoBtn);
         controlPanel.add(Box.createHorizontalStrut(5));
         controlPanel.add(moveBtn);
@@ -1653,7 +1769,7 @@ public class App extends JFrame {
 
         ClipboardItem.Type displayType = item.getType();
 
-        if (item.getType() == ClipboardItem.Type.TEXT || item.getType() == ClipboardItem.Type.URL) {
+        if (item.isTextual()) {
             contentArea.add(createTextPreviewComponent(item, itemCols, itemRows, card), BorderLayout.CENTER);
         } else if (item.getType() == ClipboardItem.Type.SVG) {
             Component previewComponent;
@@ -1743,17 +1859,23 @@ public class App extends JFrame {
         // Type Indicator (Bottom Right)
         JLabel typeIndicator;
         if (configManager.isUseSvgTypeIcons()) {
-            String iconName = "Text.svg";
+            String iconPath = "entries/Text.svg";
             if (displayType == ClipboardItem.Type.IMAGE)
-                iconName = "Image.svg";
+                iconPath = "entries/Image.svg";
             else if (displayType == ClipboardItem.Type.URL)
-                iconName = "URL.svg";
+                iconPath = "entries/URL.svg";
             else if (displayType == ClipboardItem.Type.SVG)
-                iconName = "SVG.svg";
+                iconPath = "entries/SVG.svg";
             else if (displayType == ClipboardItem.Type.GIF)
-                iconName = "GIF.svg";
-
-            FlatSVGIcon typeIcon = new FlatSVGIcon("com/virtualclipboard/icons/entries/" + iconName, 16, 16);
+                iconPath = "entries/GIF.svg";
+            else if (displayType == ClipboardItem.Type.HTML)
+                iconPath = "tabs/code.svg";
+            else if (displayType == ClipboardItem.Type.RTF)
+                iconPath = "tabs/document.svg";
+            else if (displayType == ClipboardItem.Type.FILE_LIST)
+                iconPath = "tabs/folder.svg";
+
+            FlatSVGIcon typeIcon = new FlatSVGIcon("com/virtualclipboard/icons/" + iconPath, 16, 16);
             typeIcon.setColorFilter(new FlatSVGIcon.ColorFilter(color -> getThemeColor("cardIcon")));
             typeIndicator = new JLabel(typeIcon);
         } else {
@@ -1766,6 +1888,12 @@ public class App extends JFrame {
                 typeStr = "S";
             else if (displayType == ClipboardItem.Type.GIF)
                 typeStr = "G";
+            else if (displayType == ClipboardItem.Type.HTML)
+                typeStr = "H";
+            else if (displayType == ClipboardItem.Type.RTF)
+                typeStr = "R";
+            else if (displayType == ClipboardItem.Type.FILE_LIST)
+                typeStr = "F";
 
             typeIndicator = new JLabel(typeStr);
             typeIndicator.setFont(getAppFont(FONT_FAMILY, Font.BOLD, configManager.getFontSize() + 3));
@@ -1775,6 +1903,9 @@ public class App extends JFrame {
         JPanel footerPanel = new JPanel(new BorderLayout());
         footerPanel.setOpaque(false);
         footerPanel.add(typeIndicator, BorderLayout.EAST);
+        JLabel contentHint = createContentHint(item);
+        if (contentHint != null)
+            footerPanel.add(contentHint, BorderLayout.WEST);
         card.add(footerPanel, BorderLayout.SOUTH);
 
         // Premium Interactions
@@ -1801,6 +1932,9 @@ public class App extends JFrame {
         });
 
         card.setCursor(Cursor.getPredefinedCursor(Cursor.HAND_CURSOR));
+        event.itemType = item.getType().name();
+        event.bytes = item.getSizeInBytes();
+        event.commit();
         return card;
     }
 
@@ -2108,8 +2242,17 @@ public class App extends JFrame {
 
     private void deleteEntry(ClipboardItem item, AnimatedCard card) {
         monitor.resetIfCurrent(item);
-        getCurrentTab().items.remove(item);
+        engine.removeItem(getCurrentTab(), item);
+        refreshUI();
+        saveClipboardState();
+    }
+
+    /** Applies a retention pass: drops the given items from every tab in a single sweep. */
+    private void removeItems(Set<ClipboardItem> victims) {
+        engine.removeAll(victims);
+        System.out.println("Retention removed " + victims.size() + " items");
         refreshUI();
+        saveClipboardState();
     }
 
     private void showInfoPopup(ClipboardItem item) {
@@ -2129,13 +2272,29 @@ public class App extends JFrame {
         details.add(new String[] { "Created", item.getTimestamp().format(formatter) });
         details.add(new String[] { "Type", item.getType().toString() });
         details.add(new String[] { "Size", item.getFormattedSize() });
+        if (item.isBlobBacked()) {
+            details.add(new String[] { "Storage", "On disk (preview only)" });
+        }
 
-        if (item.getType() == ClipboardItem.Type.TEXT || item.getType() == ClipboardItem.Type.URL) {
+        if (item.isTextual()) {
             details.add(new String[] { "Characters", String.valueOf(item.getCharacterCount()) });
 
             if (item.getType() != ClipboardItem.Type.URL) {
                 details.add(new String[] { "Words", String.valueOf(item.getWordCount()) });
                 details.add(new String[] { "Lines", String.valueOf(item.getLineCount()) });
+
+                TextStats stats = item.getTextStats();
+                if (stats != null && stats.getDominantScript() != null) {
+                    String script = stats.getDominantScript().replace('_', ' ');
+                    details.add(new String[] { "Script",
+                            script.charAt(0) + script.substring(1).toLowerCase() });
+                }
+                ContentClassifier.Kind kind = item.getContentKind();
+                if (kind != null && kind != ContentClassifier.Kind.PLAIN) {
+                    String language = item.getCodeLanguage();
+                    details.add(new String[] { "Content",
+                            language != null ? kind.getLabel() + " (" + language + ")" : kind.getLabel() });
+                }
             }
 
             if (item.getType() == ClipboardItem.Type.URL) {
@@ -2230,7 +2389,7 @@ public class App extends JFrame {
         mainPanel.add(topContainer, BorderLayout.NORTH);
 
         // Preview
-        boolean showAsText = item.getType() == ClipboardItem.Type.TEXT || item.getType() == ClipboardItem.Type.URL;
+        boolean showAsText = item.isTextual();
         FlatSVGIcon svgIcon = null;
 
         if (item.getType() == ClipboardItem.Type.SVG) {
@@ -2474,6 +2633,8 @@ public class App extends JFrame {
                     protected void done() {
                         try {
                             String text = get();
+                            item.setOcrText(text == null ? "" : text.trim());
+                            saveClipboardState();
                             if (text == null || text.trim().isEmpty()) {
                                 resultArea.setText("No text detected.");
                             } else {
@@ -2635,6 +2796,71 @@ public class App extends JFrame {
         dialog.setVisible(true);
     }
 
+    /** Live view of {@link Metrics}, refreshed every second while open. */
+    private void showDiagnosticsPopup(Window owner) {
+        JDialog dialog = new JDialog(owner, "Diagnostics", Dialog.ModalityType.MODELESS);
+        dialog.setLayout(new BorderLayout());
+        dialog.getContentPane().setBackground(getThemeColor("bgMain"));
+
+        JLabel headerLabel = new JLabel("Diagnostics");
+        headerLabel.setForeground(getThemeColor("textPrimary"));
+        headerLabel.setFont(getAppFont(FONT_FAMILY_TITLE, Font.BOLD, 24));
+        headerLabel.setBorder(new EmptyBorder(20, 25, 10, 25));
+        dialog.add(headerLabel, BorderLayout.NORTH);
+
+        JTextArea reportText = new JTextArea();
+        reportText.setEditable(false);
+        reportText.setOpaque(false);
+        reportText.setForeground(getThemeColor("generalText"));
+        reportText.setFont(new Font(Font.MONOSPACED, Font.PLAIN, 12));
+        reportText.setBorder(new EmptyBorder(0, 25, 10, 25));
+
+        JScrollPane scrollPane = new JScrollPane(reportText);
+        scrollPane.setBorder(null);
+        scrollPane.setOpaque(false);
+        scrollPane.getViewport().setOpaque(false);
+        dialog.add(scrollPane, BorderLayout.CENTER);
+
+        Runnable update = () -> {
+            List<String> lines = new ArrayList<>(Metrics.report());
+            if (edtWatchdog != null) {
+                lines.add("");
+                lines.addAll(edtWatchdog.report());
+            }
+            // Keep the reader's place while the text is replaced
+            Point viewPosition = scrollPane.getViewport().getViewPosition();
+            reportText.setText(lines.isEmpty() ? "Nothing recorded yet." : String.join("\n", lines));
+            SwingUtilities.invokeLater(() -> scrollPane.getViewport().setViewPosition(viewPosition));
+        };
+        update.run();
+        Timer refresher = new Timer(1000, e -> update.run());
+        refresher.start();
+        dialog.addWindowListener(new WindowAdapter() {
+            @Override
+            public void windowClosed(WindowEvent e) {
+                refresher.stop();
+            }
+        });
+
+        JButton closeBtn = new JButton("Close");
+        closeBtn.setBackground(getThemeColor("buttonBackground"));
+        closeBtn.setForeground(getThemeColor("buttonText"));
+        closeBtn.setFocusPainted(false);
+        closeBtn.setFont(getAppFont(FONT_FAMILY_TEXT, Font.BOLD, 14));
+        closeBtn.setBorder(new EmptyBorder(10, 25, 10, 25));
+        closeBtn.setCursor(Cursor.getPredefinedCursor(Cursor.HAND_CURSOR));
+        closeBtn.addActionListener(e -> dialog.dispose());
+        JPanel buttonPanel = new JPanel(new FlowLayout(FlowLayout.LEFT, 25, 15));
+        buttonPanel.setOpaque(false);
+        buttonPanel.add(closeBtn);
+        dialog.add(buttonPanel, BorderLayout.SOUTH);
+
+        dialog.setDefaultCloseOperation(WindowConstants.DISPOSE_ON_CLOSE);
+        dialog.setSize(900, 520);
+        dialog.setLocationRelativeTo(owner);
+        dialog.setVisible(true);
+    }
+
     private void showSettingsPopup() {
         Color bgMain = getThemeColor("bgMain");
         Color accent = getThemeColor("accent");
@@ -2723,6 +2949,11 @@ public class App extends JFrame {
         JCheckBox incognitoCheck = createSettingCheckbox("Use Incognito Mode", configManager.isIncognito(),
                 textPrimary);
         contentPanel.add(incognitoCheck);
+        contentPanel.add(Box.createVerticalStrut(10));
+
+        JCheckBox autoOcrCheck = createSettingCheckbox("Index Image Text in Background (OCR)",
+                configManager.isAutoOcrEnabled(), textPrimary);
+        contentPanel.add(autoOcrCheck);
         contentPanel.add(Box.createVerticalStrut(30));
 
         // Group 3: History
@@ -2732,6 +2963,47 @@ public class App extends JFrame {
         Integer[] historyLimits = { 25, 50, 100, 200, 500 };
         JComboBox<Integer> historyCombo = createStyledComboBox(historyLimits, configManager.getMaxHistory());
         contentPanel.add(historyCombo);
+        contentPanel.add(Box.createVerticalStrut(15));
+
+        contentPanel.add(createSettingLabel("Max Total Size", textSecondary));
+        String[] totalSizeOptions = { "Unlimited", "256 MB", "512 MB", "1024 MB", "4096 MB" };
+        JComboBox<String> totalSizeCombo = createStyledComboBox(totalSizeOptions,
+                configManager.getMaxTotalMb() == 0 ? "Unlimited" : configManager.getMaxTotalMb() + " MB");
+        contentPanel.add(totalSizeCombo);
+        contentPanel.add(Box.createVerticalStrut(15));
+
+        contentPanel.add(createSettingLabel("Keep Items For", textSecondary));
+        String[] ageOptions = { "Forever", "1 day", "7 days", "30 days", "90 days" };
+        int maxAgeDays = configManager.getMaxAgeDays();
+        JComboBox<String> ageCombo = createStyledComboBox(ageOptions,
+                maxAgeDays == 0 ? "Forever" : maxAgeDays == 1 ? "1 day" : maxAgeDays + " days");
+        contentPanel.add(ageCombo);
+        contentPanel.add(Box.createVerticalStrut(15));
+
+        contentPanel.add(createSettingLabel("Compress Items Unused For", textSecondary));
+        String[] coldOptions = { "Never", "7 days", "30 days", "90 days" };
+        int coldAfterDays = configManager.getColdAfterDays();
+        JComboBox<String> coldCombo = createStyledComboBox(coldOptions,
+                coldAfterDays == 0 ? "Never" : coldAfterDays + " days");
+        contentPanel.add(coldCombo);
+        contentPanel.add(Box.createVerticalStrut(15));
+
+        contentPanel.add(createSettingLabel("Max Text Size (MB)", textSecondary));
+        Integer[] textSizeLimits = { 16, 64, 256, 1024, 4096 };
+        JComboBox<Integer> textSizeCombo = createStyledComboBox(textSizeLimits, configManager.getMaxTextSizeMb());
+        contentPanel.add(textSizeCombo);
+        contentPanel.add(Box.createVerticalStrut(15));
+
+        contentPanel.add(createSettingLabel("Max Image Size (MB)", textSecondary));
+        Integer[] imageSizeLimits = { 32, 64, 128, 256, 512 };
+        JComboBox<Integer> imageSizeCombo = createStyledComboBox(imageSizeLimits, configManager.getMaxImageSizeMb());
+        contentPanel.add(imageSizeCombo);
+        contentPanel.add(Box.createVerticalStrut(15));
+
+        contentPanel.add(createSettingLabel("Decoded Image Memory (MB)", textSecondary));
+        Integer[] imageCacheLimits = { 64, 128, 256, 512, 1024 };
+        JComboBox<Integer> imageCacheCombo = createStyledComboBox(imageCacheLimits, configManager.getImageCacheMb());
+        contentPanel.add(imageCacheCombo);
         contentPanel.add(Box.createVerticalStrut(30));
 
         // Group 4: Other
@@ -2744,12 +3016,32 @@ public class App extends JFrame {
                 configManager.isAutoSortByDate(), textPrimary);
         JCheckBox use24HourTimeCheck = createSettingCheckbox("Use 24-Hour Time", configManager.isUse24HourTime(),
                 textPrimary);
+        JCheckBox richTextCheck = createSettingCheckbox("Capture Rich Text (HTML, RTF)",
+                configManager.isCaptureRichText(), textPrimary);
 
         contentPanel.add(autoStartCheck);
         contentPanel.add(Box.createVerticalStrut(10));
         contentPanel.add(autoSortCheck);
         contentPanel.add(Box.createVerticalStrut(10));
         contentPanel.add(use24HourTimeCheck);
+        contentPanel.add(Box.createVerticalStrut(10));
+        contentPanel.add(richTextCheck);
+        contentPanel.add(Box.createVerticalStrut(10));
+        JCheckBox metricsLogCheck = createSettingCheckbox("Log Performance Metrics to " + METRICS_LOG_FILE,
+                configManager.isMetricsLogEnabled(), textPrimary);
+        contentPanel.add(metricsLogCheck);
+        contentPanel.add(Box.createVerticalStrut(5));
+
+        JButton diagnosticsBtn = new JButton("Show Diagnostics");
+        diagnosticsBtn.setBackground(getThemeColor("inputBackground"));
+        diagnosticsBtn.setForeground(getThemeColor("inputText"));
+        diagnosticsBtn.setFocusPainted(false);
+        diagnosticsBtn.setFont(getAppFont(FONT_FAMILY_TEXT, Font.PLAIN, 12));
+        diagnosticsBtn.setBorder(new EmptyBorder(8, 15, 8, 15));
+        diagnosticsBtn.setCursor(Cursor.getPredefinedCursor(Cursor.HAND_CURSOR));
+        diagnosticsBtn.setAlignmentX(Component.LEFT_ALIGNMENT);
+        diagnosticsBtn.addActionListener(e -> showDiagnosticsPopup(dialog));
+        contentPanel.add(diagnosticsBtn);
 
         // AI Settings
         contentPanel.add(Box.createVerticalStrut(10));
@@ -2952,25 +3244,46 @@ public class App extends JFrame {
             configManager.setTheme((String) themeCombo.getSelectedItem());
             configManager.setFontSize((Integer) fontCombo.getSelectedItem());
             configManager.setMaxHistory((Integer) historyCombo.getSelectedItem());
+            configManager.setMaxTotalMb(parseLeadingInt((String) totalSizeCombo.getSelectedItem()));
+            configManager.setMaxAgeDays(parseLeadingInt((String) ageCombo.getSelectedItem()));
+            configManager.setColdAfterDays(parseLeadingInt((String) coldCombo.getSelectedItem()));
+            retentionEngine.setPolicy(RetentionEngine.Policy.from(configManager));
+            configManager.setMaxTextSizeMb((Integer) textSizeCombo.getSelectedItem());
+            configManager.setMaxImageSizeMb((Integer) imageSizeCombo.getSelectedItem());
+            monitor.setCaptureLimits(CaptureLimits.from(configManager));
+            configManager.setImageCacheMb((Integer) imageCacheCombo.getSelectedItem());
+            ImageMemoryManager.shared().setBudgetBytes(configManager.getImageCacheMb() * 1024L * 1024L);
             configManager.setIncognito(incognitoCheck.isSelected());
+            boolean autoOcrEnabled = autoOcrCheck.isSelected() && !configManager.isAutoOcrEnabled();
+            configManager.setAutoOcrEnabled(autoOcrCheck.isSelected());
             configManager.setAutoStart(autoStartCheck.isSelected());
             configManager.setAutoSortByDate(autoSortCheck.isSelected());
+            engine.setAutoSortByDate(autoSortCheck.isSelected());
             configManager.setUseSvgTypeIcons(useSvgIconsCheck.isSelected());
             configManager.setDynamicResizing(dynamicResizingCheck.isSelected());
             configManager.setUse24HourTime(use24HourTimeCheck.isSelected());
+            configManager.setCaptureRichText(richTextCheck.isSelected());
+            monitor.setRichTextCapture(richTextCheck.isSelected());
+            configManager.setMetricsLogEnabled(metricsLogCheck.isSelected());
+            applyMetricsLog();
             configManager.setHighContrast(highContrastCheck.isSelected());
             configManager.setAiCaptionEnabled(aiCaptionCheck.isSelected());
             configManager.setOllamaModel((String) ollamaModelCombo.getSelectedItem());
 
             if (configManager.isAutoSortByDate()) {
                 for (ClipboardTab t : tabs) {
-                    t.items.sort((a, b) -> b.getTimestamp().compareTo(a.getTimestamp()));
+                    if (!t.items.isNewestFirst()) {
+                        t.items.sort((a, b) -> b.getTimestamp().compareTo(a.getTimestamp()));
+                    }
                 }
             }
 
             configManager.save();
             applySettings();
             refreshUI();
+            if (autoOcrEnabled) {
+                indexAllImages();
+            }
             dialog.dispose();
         });
 
@@ -3028,6 +3341,78 @@ public class App extends JFrame {
         return label;
     }
 
+    /**
+     * Small footer label naming what a text card holds (JSON, the code language,
+     * an e-mail address...), with a swatch for hex colours. Plain text gets none.
+     */
+    private JLabel createContentHint(ClipboardItem item) {
+        if (item.getType() != ClipboardItem.Type.TEXT)
+            return null;
+        ContentClassifier.Kind kind = item.getContentKind();
+        if (kind == null || kind == ContentClassifier.Kind.PLAIN)
+            return null;
+        String language = item.getCodeLanguage();
+        JLabel hint = new JLabel(language != null ? language : kind.getLabel());
+        hint.setFont(getAppFont(FONT_FAMILY_TEXT, Font.PLAIN, Math.max(10, configManager.getFontSize() - 1)));
+        hint.setForeground(getThemeColor("textSecondary"));
+
+        Color swatch = kind == ContentClassifier.Kind.COLOR ? parseHexColor(item.getText().strip()) : null;
+        if (swatch != null) {
+            hint.setIcon(new Icon() {
+                @Override
+                public void paintIcon(Component c, Graphics g, int x, int y) {
+                    Graphics2D g2 = (Graphics2D) g.create();
+                    g2.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
+                    g2.setColor(swatch);
+                    g2.fillRoundRect(x, y, 14, 14, 4, 4);
+                    g2.setColor(getThemeColor("textSecondary"));
+                    g2.drawRoundRect(x, y, 13, 13, 4, 4);
+                    g2.dispose();
+                }
+
+                @Override
+                public int getIconWidth() { return 14; }
+
+                @Override
+                public int getIconHeight() { return 14; }
+            });
+        }
+        return hint;
+    }
+
+    /** #RGB, #RGBA, #RRGGBB or #RRGGBBAA; null for anything else. */
+    private static Color parseHexColor(String hex) {
+        int digits = hex.length() - 1;
+        if (!hex.startsWith("#") || (digits != 3 && digits != 4 && digits != 6 && digits != 8))
+            return null;
+        try {
+            long value = Long.parseLong(hex.substring(1), 16);
+            if (digits <= 4) {
+                // Expand each nibble: #abc -> #aabbcc
+                long expanded = 0;
+                for (int i = digits - 1; i >= 0; i--) {
+                    long nibble = (value >> (i * 4)) & 0xF;
+                    expanded = (expanded << 8) | (nibble << 4) | nibble;
+                }
+                value = expanded;
+            }
+            if (digits == 3 || digits == 6)
+                return new Color((int) value);
+            // CSS puts alpha last, Color wants it in the top byte
+            return new Color((int) ((value >> 8) | ((value & 0xFF) << 24)), true);
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
+    /** "256 MB" -> 256, "Unlimited"/"Forever" -> 0. */
+    private static int parseLeadingInt(String option) {
+        int end = 0;
+        while (end < option.length() && Character.isDigit(option.charAt(end)))
+            end++;
+        return end == 0 ? 0 : Integer.parseInt(option.substring(0, end));
+    }
+
     private <T> JComboBox<T> createStyledComboBox(T[] items, T selectedValue) {
         JComboBox<T> combo = new JComboBox<>(items);
         combo.setSelectedItem(selectedValue);
@@ -3797,7 +4182,96 @@ public class App extends JFrame {
     }
 
     private void copyToSystemClipboard(ClipboardItem item) {
-        if (item.getType() == ClipboardItem.Type.TEXT || item.getType() == ClipboardItem.Type.URL) {
+        item.markUsed();
+        if (item.getType() == ClipboardItem.Type.HTML || item.getType() == ClipboardItem.Type.RTF) {
+            // Offer the markup alongside plain text so rich editors keep the formatting
+            DataFlavor richFlavor = item.getType() == ClipboardItem.Type.HTML ? DataFlavor.allHtmlFlavor
+                    : CaptureHandlers.RTF_FLAVOR;
+            Transferable richTransferable = new Transferable() {
+                @Override
+                public DataFlavor[] getTransferDataFlavors() {
+                    return richFlavor == null ? new DataFlavor[] { DataFlavor.stringFlavor }
+                            : new DataFlavor[] { richFlavor, DataFlavor.stringFlavor };
+                }
+
+                @Override
+                public boolean isDataFlavorSupported(DataFlavor flavor) {
+                    return DataFlavor.stringFlavor.equals(flavor) || (richFlavor != null && richFlavor.equals(flavor));
+                }
+
+                @Override
+                public Object getTransferData(DataFlavor flavor) throws UnsupportedFlavorException, IOException {
+                    if (DataFlavor.stringFlavor.equals(flavor)) {
+                        return item.getText();
+                    } else if (richFlavor != null && richFlavor.equals(flavor)) {
+                        if (item.getType() == ClipboardItem.Type.RTF) {
+                            return new ByteArrayInputStream(item.getRichText().getBytes(StandardCharsets.ISO_8859_1));
+                        }
+                        return item.getRichText();
+                    }
+                    throw new UnsupportedFlavorException(flavor);
+                }
+            };
+            Toolkit.getDefaultToolkit().getSystemClipboard().setContents(richTransferable, null);
+            monitor.updateLastContent(item.getRichText());
+        } else if (item.getType() == ClipboardItem.Type.FILE_LIST) {
+            List<File> files = new ArrayList<>();
+            for (String path : item.getText().split("\n")) {
+                File file = new File(path);
+                if (file.exists())
+                    files.add(file);
+            }
+            Transferable fileTransferable = new Transferable() {
+                @Override
+                public DataFlavor[] getTransferDataFlavors() {
+                    return new DataFlavor[] { DataFlavor.javaFileListFlavor, DataFlavor.stringFlavor };
+                }
+
+                @Override
+                public boolean isDataFlavorSupported(DataFlavor flavor) {
+                    return DataFlavor.javaFileListFlavor.equals(flavor) || DataFlavor.stringFlavor.equals(flavor);
+                }
+
+                @Override
+                public Object getTransferData(DataFlavor flavor) throws UnsupportedFlavorException, IOException {
+                    if (DataFlavor.javaFileListFlavor.equals(flavor)) {
+                        return files;
+                    } else if (DataFlavor.stringFlavor.equals(flavor)) {
+                        return item.getText();
+                    }
+                    throw new UnsupportedFlavorException(flavor);
+                }
+            };
+            Toolkit.getDefaultToolkit().getSystemClipboard().setContents(fileTransferable, null);
+            monitor.updateLastContent(item.getText());
+        } else if (item.isBlobBacked()) {
+            // Offer the blob as a file and only load the text if a paste target asks for it
+            File blobFile = blobStore.pathOf(item.getBlobId()).toFile();
+            Transferable blobTransferable = new Transferable() {
+                @Override
+                public DataFlavor[] getTransferDataFlavors() {
+                    return new DataFlavor[] { DataFlavor.javaFileListFlavor, DataFlavor.stringFlavor };
+                }
+
+                @Override
+                public boolean isDataFlavorSupported(DataFlavor flavor) {
+                    return DataFlavor.javaFileListFlavor.equals(flavor) || DataFlavor.stringFlavor.equals(flavor);
+                }
+
+                @Override
+                public Object getTransferData(DataFlavor flavor) throws UnsupportedFlavorException, IOException {
+                    if (DataFlavor.javaFileListFlavor.equals(flavor)) {
+                        return List.of(blobFile);
+                    } else if (DataFlavor.stringFlavor.equals(flavor)) {
+                        return blobStore.readAll(item.getBlobId());
+                    }
+                    throw new UnsupportedFlavorException(flavor);
+                }
+            };
+            Toolkit.getDefaultToolkit().getSystemClipboard().setContents(blobTransferable, null);
+            // The monitor sees the file list first, so it never reads the whole blob back
+            monitor.updateLastContent(blobFile.getAbsolutePath());
+        } else if (item.getType() == ClipboardItem.Type.TEXT || item.getType() == ClipboardItem.Type.URL) {
             String text = item.getText();
             StringSelection selection = new StringSelection(text);
             Toolkit.getDefaultToolkit().getSystemClipboard().setContents(selection, selection);
@@ -3955,42 +4429,42 @@ public class App extends JFrame {
 
     public void start() {
         // Prevent loading the current system clipboard as a new item on startup
-        try {
-            java.awt.datatransfer.Clipboard sysClip = Toolkit.getDefaultToolkit().getSystemClipboard();
-            Transferable contents = sysClip.getContents(null);
-            if (contents != null) {
-                if (contents.isDataFlavorSupported(DataFlavor.stringFlavor)) {
-                    try {
-                        String text = (String) contents.getTransferData(DataFlavor.stringFlavor);
-                        monitor.updateLastContent(text);
-                    } catch (Exception ignored) {
-                    }
-                } else if (contents.isDataFlavorSupported(DataFlavor.imageFlavor)) {
-                    try {
-                        Image img = (Image) contents.getTransferData(DataFlavor.imageFlavor);
-                        if (img instanceof BufferedImage) {
-                            monitor.updateLastContent((BufferedImage) img);
-                        } else if (img != null) {
-                            // Convert Image to BufferedImage if necessary
-                            BufferedImage bImg = new BufferedImage(img.getWidth(null), img.getHeight(null),
-                                    BufferedImage.TYPE_INT_ARGB);
-                            Graphics g = bImg.getGraphics();
-                            g.drawImage(img, 0, 0, null);
-                            g.dispose();
-                            monitor.updateLastContent(bImg);
-                        }
-                    } catch (Exception ignored) {
-                    }
-                }
-            }
-        } catch (Exception e) {
-            // Ignore startup clipboard errors
-        }
+        monitor.prime();
 
         monitor.start();
+        retentionEngine.start();
+        retentionEngine.request();
+        startEdtProbe();
+        edtWatchdog = EdtWatchdog.install(configManager.getEdtStallMs());
+        applyMetricsLog();
         setVisible(true);
     }
 
+    /**
+     * Measures how late a repeating Swing timer fires. Anything beyond the period
+     * is time the EDT spent on other events, so this tracks UI responsiveness.
+     */
+    private void startEdtProbe() {
+        Metrics.Histogram lag = Metrics.timer("edt.lag");
+        long periodNanos = EDT_PROBE_MS * 1_000_000L;
+        long[] last = { System.nanoTime() };
+        Timer probe = new Timer(EDT_PROBE_MS, e -> {
+            long now = System.nanoTime();
+            lag.record(Math.max(0, now - last[0] - periodNanos));
+            last[0] = now;
+        });
+        probe.setCoalesce(true);
+        probe.start();
+    }
+
+    private void applyMetricsLog() {
+        if (configManager.isMetricsLogEnabled()) {
+            Metrics.startLog(java.nio.file.Paths.get(METRICS_LOG_FILE), METRICS_LOG_MINUTES);
+        } else {
+            Metrics.stopLog();
+        }
+    }
+
     public static void main(String[] args) {
         FlatDarkLaf.setup();
         UIManager.put("Button.arc", 10);
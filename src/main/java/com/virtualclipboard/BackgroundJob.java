@@ -0,0 +1,47 @@
+package com.virtualclipboard;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Function;
+
+/**
+ * A long-running import or export on its own virtual thread. Cancellation is
+ * cooperative: the body polls {@link #isCancelled()} between units of work and
+ * cleans up after itself.
+ */
+public class BackgroundJob<T> {
+
+    /** Called from the job's threads; implementations hop to the EDT themselves. */
+    public interface ProgressListener {
+        void onProgress(int done, int total);
+    }
+
+    private final CompletableFuture<T> result = new CompletableFuture<>();
+    private volatile boolean cancelled;
+
+    private BackgroundJob() {
+    }
+
+    public static <T> BackgroundJob<T> start(String name, Function<BackgroundJob<T>, T> body) {
+        BackgroundJob<T> job = new BackgroundJob<>();
+        Thread.ofVirtual().name(name).start(() -> {
+            try {
+                job.result.complete(body.apply(job));
+            } catch (Throwable t) {
+                job.result.completeExceptionally(t);
+            }
+        });
+        return job;
+    }
+
+    public void cancel() {
+        cancelled = true;
+    }
+
+    public boolean isCancelled() {
+        return cancelled;
+    }
+
+    public CompletableFuture<T> getResult() {
+        return result;
+    }
+}
@@ -0,0 +1,276 @@
+package com.virtualclipboard;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.CharBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+
+/**
+ * File-backed storage for text too large to keep in the history list. Each blob
+ * is a UTF-8 file under {@code blobs/}; the item only carries its id and a short
+ * head preview. Previews and search go through memory-mapped windows, so even
+ * multi-gigabyte payloads never have to fit on the heap.
+ */
+public class BlobStore {
+    private static final String BLOB_DIR = "blobs";
+    private static final String EXTENSION = ".txt";
+    public static final int PREVIEW_BYTES = 64 * 1024;
+    private static final long WINDOW_BYTES = 64L * 1024 * 1024;
+    private static final int SEARCH_MEMO_ENTRIES = 256;
+    private static final Metrics.Histogram INGEST_TIME = Metrics.timer("ingest.text");
+    private static final Metrics.Histogram INGEST_BYTES = Metrics.histogram("ingest.bytes", Metrics.Unit.BYTES);
+
+    private final Path blobDir;
+    private final Map<String, Boolean> searchMemo = new LinkedHashMap<>(64, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, Boolean> eldest) {
+            return size() > SEARCH_MEMO_ENTRIES;
+        }
+    };
+
+    public BlobStore() {
+        this(Paths.get(BLOB_DIR));
+    }
+
+    public BlobStore(Path blobDir) {
+        this.blobDir = blobDir;
+    }
+
+    /**
+     * Builds a text item, spilling it to a blob when it exceeds the inline limit.
+     * Returns null when the text is over the hard limit.
+     */
+    public ClipboardItem ingestText(String text, CaptureLimits limits) throws IOException {
+        long start = System.nanoTime();
+        long bytes = CaptureLimits.utf8Length(text);
+        if (!limits.isTextAllowed(bytes)) {
+            return null;
+        }
+        INGEST_BYTES.record(bytes);
+        if (!limits.shouldSpill(bytes)) {
+            ClipboardItem item = new ClipboardItem(text);
+            INGEST_TIME.recordSince(start);
+            return item;
+        }
+        String id = newId();
+        Path part = blobDir.resolve(id + EXTENSION + ".part");
+        Files.createDirectories(blobDir);
+        try (Writer writer = Files.newBufferedWriter(part, StandardCharsets.UTF_8)) {
+            writer.write(text);
+        }
+        ClipboardItem item = commit(id, part, TextAnalyzer.analyze(text));
+        INGEST_TIME.recordSince(start);
+        return item;
+    }
+
+    /**
+     * Streams a text file into the store when it is over the inline limit, or
+     * reads it normally when it is small. Returns null when it is over the hard limit.
+     */
+    public ClipboardItem ingestFile(Path file, CaptureLimits limits) throws IOException {
+        long bytes = Files.size(file);
+        if (!limits.isTextAllowed(bytes)) {
+            return null;
+        }
+        if (!limits.shouldSpill(bytes)) {
+            return new ClipboardItem(readText(file));
+        }
+        String id = newId();
+        Path part = blobDir.resolve(id + EXTENSION + ".part");
+        Files.createDirectories(blobDir);
+        Files.copy(file, part, StandardCopyOption.REPLACE_EXISTING);
+        return commit(id, part, analyze(part));
+    }
+
+    private ClipboardItem commit(String id, Path part, TextStats stats) throws IOException {
+        Path target = pathOf(id);
+        try {
+            Files.move(part, target, StandardCopyOption.ATOMIC_MOVE);
+        } catch (AtomicMoveNotSupportedException e) {
+            Files.move(part, target);
+        }
+        return new ClipboardItem(readHead(id, PREVIEW_BYTES), id, Files.size(target), stats);
+    }
+
+    /**
+     * Runs {@link TextAnalyzer} over a whole file, decoding mapped windows into one
+     * reused char buffer. A character split across windows is carried over.
+     */
+    static TextStats analyze(Path file) throws IOException {
+        TextAnalyzer analyzer = new TextAnalyzer();
+        CharsetDecoder decoder = StandardCharsets.UTF_8.newDecoder()
+                .onMalformedInput(CodingErrorAction.REPLACE)
+                .onUnmappableCharacter(CodingErrorAction.REPLACE);
+        CharBuffer chars = CharBuffer.allocate(PREVIEW_BYTES);
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            long size = channel.size();
+            long position = 0;
+            do {
+                long length = Math.min(WINDOW_BYTES, size - position);
+                MappedByteBuffer window = channel.map(FileChannel.MapMode.READ_ONLY, position, length);
+                boolean last = position + length >= size;
+                while (true) {
+                    CoderResult result = decoder.decode(window, chars, last);
+                    chars.flip();
+                    analyzer.feed(chars);
+                    chars.clear();
+                    if (result.isUnderflow())
+                        break;
+                }
+                if (last) {
+                    decoder.flush(chars);
+                    chars.flip();
+                    analyzer.feed(chars);
+                    break;
+                }
+                // Bytes of a character cut off by the window end are re-mapped with the next one
+                position += window.position();
+            } while (position < size);
+        }
+        return analyzer.finish();
+    }
+
+    public Path pathOf(String id) {
+        return blobDir.resolve(id + EXTENSION);
+    }
+
+    public String readAll(String id) throws IOException {
+        return readText(pathOf(id));
+    }
+
+    /**
+     * Reads a whole file as UTF-8. Bytes that are not valid UTF-8 (Latin-1 text,
+     * stray binary) become U+FFFD instead of failing the read, as the preview
+     * and search paths already do.
+     */
+    static String readText(Path file) throws IOException {
+        return new String(Files.readAllBytes(file), StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Decodes up to {@code maxBytes} from the start of the blob. A multi-byte
+     * character cut off by the limit is dropped rather than mangled.
+     */
+    public String readHead(String id, int maxBytes) throws IOException {
+        try (FileChannel channel = FileChannel.open(pathOf(id), StandardOpenOption.READ)) {
+            long size = channel.size();
+            int length = (int) Math.min(size, maxBytes);
+            MappedByteBuffer head = channel.map(FileChannel.MapMode.READ_ONLY, 0, length);
+            CharsetDecoder decoder = StandardCharsets.UTF_8.newDecoder()
+                    .onMalformedInput(CodingErrorAction.REPLACE)
+                    .onUnmappableCharacter(CodingErrorAction.REPLACE);
+            CharBuffer out = CharBuffer.allocate(length);
+            decoder.decode(head, out, length == size);
+            out.flip();
+            return out.toString();
+        }
+    }
+
+    /**
+     * Case-insensitive (ASCII only) search for an already lower-cased query. The
+     * blob is scanned in mapped windows that overlap by the query length, and
+     * results are memoized since the list is re-filtered on every keystroke.
+     */
+    public boolean contains(String id, String lowerCaseQuery) {
+        String memoKey = id + '\u0000' + lowerCaseQuery;
+        synchronized (searchMemo) {
+            Boolean cached = searchMemo.get(memoKey);
+            if (cached != null)
+                return cached;
+        }
+        boolean found;
+        try {
+            found = scan(pathOf(id), lowerCaseQuery.getBytes(StandardCharsets.UTF_8));
+        } catch (IOException e) {
+            System.err.println("Failed to search blob " + id + ": " + e.getMessage());
+            return false;
+        }
+        synchronized (searchMemo) {
+            searchMemo.put(memoKey, found);
+        }
+        return found;
+    }
+
+    private static boolean scan(Path file, byte[] needle) throws IOException {
+        if (needle.length == 0)
+            return true;
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            long size = channel.size();
+            long position = 0;
+            while (position < size) {
+                long length = Math.min(WINDOW_BYTES, size - position);
+                MappedByteBuffer window = channel.map(FileChannel.MapMode.READ_ONLY, position, length);
+                if (find(window, needle))
+                    return true;
+                if (position + length >= size || length <= needle.length)
+                    break;
+                // Overlap windows so a match straddling the boundary is still found
+                position += length - (needle.length - 1);
+            }
+        }
+        return false;
+    }
+
+    private static boolean find(MappedByteBuffer window, byte[] needle) {
+        int limit = window.limit() - needle.length;
+        byte first = needle[0];
+        for (int i = 0; i <= limit; i++) {
+            if (lower(window.get(i)) != first)
+                continue;
+            int j = 1;
+            while (j < needle.length && lower(window.get(i + j)) == needle[j])
+                j++;
+            if (j == needle.length)
+                return true;
+        }
+        return false;
+    }
+
+    private static byte lower(byte b) {
+        return b >= 'A' && b <= 'Z' ? (byte) (b + 32) : b;
+    }
+
+    public void delete(String id) {
+        try {
+            Files.deleteIfExists(pathOf(id));
+        } catch (IOException e) {
+            System.err.println("Failed to delete blob " + id + ": " + e.getMessage());
+        }
+    }
+
+    /** Deletes every blob (and leftover partial write) whose id is not in {@code liveIds}. */
+    public void retainOnly(Set<String> liveIds) {
+        if (!Files.isDirectory(blobDir))
+            return;
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(blobDir)) {
+            for (Path file : stream) {
+                String name = file.getFileName().toString();
+                if (name.endsWith(EXTENSION) && liveIds.contains(name.substring(0, name.length() - EXTENSION.length())))
+                    continue;
+                Files.deleteIfExists(file);
+            }
+        } catch (IOException e) {
+            System.err.println("Failed to sweep blob store: " + e.getMessage());
+        }
+    }
+
+    private static String newId() {
+        return UUID.randomUUID().toString();
+    }
+}
@@ -0,0 +1,31 @@
+package com.virtualclipboard;
+
+import java.awt.datatransfer.DataFlavor;
+import java.awt.datatransfer.Transferable;
+import java.awt.datatransfer.UnsupportedFlavorException;
+import java.io.IOException;
+
+/**
+ * Turns one clipboard {@link DataFlavor} into a {@link ClipboardItem}.
+ * {@link ClipboardMonitor} tries registered handlers from highest priority to
+ * lowest, cheapest first on ties. It only calls a handler when the clipboard
+ * reports its flavor as supported.
+ */
+public interface CaptureHandler {
+
+    DataFlavor getFlavor();
+
+    /** Handlers with a higher priority are consulted first. */
+    int getPriority();
+
+    /** Relative cost of reading the flavor; breaks ties between equal priorities. */
+    int getCost();
+
+    /**
+     * Reads the flavor and hands the result to {@link ClipboardMonitor#publish}.
+     * Returns true if the contents were handled, including when they turned out to
+     * be a duplicate. Returns false to let lower-priority handlers try.
+     */
+    boolean capture(Transferable contents, ClipboardMonitor monitor)
+            throws UnsupportedFlavorException, IOException;
+}
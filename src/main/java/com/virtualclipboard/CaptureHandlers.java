@@ -0,0 +1,251 @@
+package com.virtualclipboard;
+
+import java.awt.datatransfer.DataFlavor;
+import java.awt.datatransfer.Transferable;
+import java.awt.datatransfer.UnsupportedFlavorException;
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.List;
+import java.util.stream.Collectors;
+
+/**
+ * Built-in {@link CaptureHandler}s. File lists win over everything else, then
+ * rich text (only when enabled), then plain text, then bitmaps. Rich text keeps
+ * its markup inline, so markup over the inline text limit is left to
+ * {@link TextHandler}, which caps or spills the plain text instead.
+ */
+public final class CaptureHandlers {
+    public static final DataFlavor RTF_FLAVOR = createRtfFlavor();
+
+    private CaptureHandlers() {
+    }
+
+    public static List<CaptureHandler> defaults() {
+        return List.of(new FileListHandler(), new TextHandler(), new ImageHandler());
+    }
+
+    public static List<CaptureHandler> richText() {
+        return RTF_FLAVOR == null ? List.of(new HtmlHandler()) : List.of(new HtmlHandler(), new RtfHandler());
+    }
+
+    private static DataFlavor createRtfFlavor() {
+        try {
+            return new DataFlavor("text/rtf;class=java.io.InputStream");
+        } catch (ClassNotFoundException e) {
+            return null;
+        }
+    }
+
+    private static String plainText(Transferable contents) throws UnsupportedFlavorException, IOException {
+        if (contents.isDataFlavorSupported(DataFlavor.stringFlavor)) {
+            return (String) contents.getTransferData(DataFlavor.stringFlavor);
+        }
+        return null;
+    }
+
+    private static boolean isOversized(long markupBytes, String text, CaptureLimits limits) {
+        return limits.shouldSpill(markupBytes) || (text != null && limits.shouldSpill(CaptureLimits.utf8Length(text)));
+    }
+
+    /** Lets the plain text handler take oversized rich text, or skips it when there is no plain text. */
+    private static boolean passOversized(String kind, Object markup, String text, ClipboardMonitor monitor) {
+        if (text != null) {
+            System.out.println(kind + " item over the inline limit, capturing its plain text only");
+            return false;
+        }
+        System.out.println("Skipping " + kind + " item over the inline limit");
+        monitor.updateLastContent(markup);
+        return true;
+    }
+
+    static class FileListHandler implements CaptureHandler {
+        @Override
+        public DataFlavor getFlavor() { return DataFlavor.javaFileListFlavor; }
+
+        @Override
+        public int getPriority() { return 400; }
+
+        @Override
+        public int getCost() { return 30; }
+
+        @Override
+        @SuppressWarnings("unchecked")
+        public boolean capture(Transferable contents, ClipboardMonitor monitor)
+                throws UnsupportedFlavorException, IOException {
+            List<File> files = (List<File>) contents.getTransferData(DataFlavor.javaFileListFlavor);
+            if (files == null || files.isEmpty())
+                return false;
+
+            // Oversized single files fall through to a plain file reference
+            if (files.size() == 1 && monitor.getCaptureLimits().isImageAllowed(files.get(0).length())) {
+                File file = files.get(0);
+                String name = file.getName().toLowerCase();
+                if (name.endsWith(".svg")) {
+                    try {
+                        String svgContent = Files.readString(file.toPath());
+                        if (!monitor.isLastContent(svgContent)) {
+                            System.out.println("New SVG file detected");
+                            monitor.publish(svgContent, new ClipboardItem(svgContent));
+                        }
+                        return true;
+                    } catch (IOException e) {
+                        // Fall through to a plain file reference
+                    }
+                } else if (name.endsWith(".gif")) {
+                    try {
+                        byte[] gifBytes = Files.readAllBytes(file.toPath());
+                        if (!monitor.isLastContent(gifBytes)) {
+                            BufferedImage img = javax.imageio.ImageIO.read(new java.io.ByteArrayInputStream(gifBytes));
+                            if (img != null) {
+                                System.out.println("New GIF file detected");
+                                monitor.publish(gifBytes, new ClipboardItem(gifBytes, img.getWidth(), img.getHeight()));
+                            }
+                        }
+                        return true;
+                    } catch (IOException e) {
+                        // Fall through to a plain file reference
+                    }
+                }
+            }
+
+            String paths = files.stream().map(File::getAbsolutePath).collect(Collectors.joining("\n"));
+            if (!monitor.isLastContent(paths)) {
+                System.out.println("New file list detected (" + files.size() + " files)");
+                monitor.publish(paths, new ClipboardItem(ClipboardItem.Type.FILE_LIST, paths, null));
+            }
+            return true;
+        }
+    }
+
+    static class HtmlHandler implements CaptureHandler {
+        @Override
+        public DataFlavor getFlavor() { return DataFlavor.allHtmlFlavor; }
+
+        @Override
+        public int getPriority() { return 300; }
+
+        @Override
+        public int getCost() { return 20; }
+
+        @Override
+        public boolean capture(Transferable contents, ClipboardMonitor monitor)
+                throws UnsupportedFlavorException, IOException {
+            String html = (String) contents.getTransferData(DataFlavor.allHtmlFlavor);
+            if (html == null || html.isBlank())
+                return false;
+            if (!monitor.isLastContent(html)) {
+                String text = plainText(contents);
+                if (isOversized(CaptureLimits.utf8Length(html), text, monitor.getCaptureLimits()))
+                    return passOversized("HTML", html, text, monitor);
+                System.out.println("New HTML item detected");
+                monitor.publish(html, new ClipboardItem(ClipboardItem.Type.HTML, text != null ? text : html, html));
+            }
+            return true;
+        }
+    }
+
+    static class RtfHandler implements CaptureHandler {
+        @Override
+        public DataFlavor getFlavor() { return RTF_FLAVOR; }
+
+        @Override
+        public int getPriority() { return 250; }
+
+        @Override
+        public int getCost() { return 20; }
+
+        @Override
+        public boolean capture(Transferable contents, ClipboardMonitor monitor)
+                throws UnsupportedFlavorException, IOException {
+            long limit = monitor.getCaptureLimits().getInlineTextBytes();
+            byte[] bytes;
+            try (InputStream in = (InputStream) contents.getTransferData(RTF_FLAVOR)) {
+                // One byte past the limit is enough to tell it is over; an oversized copy is known by that head
+                bytes = in.readNBytes((int) Math.min(limit + 1, Integer.MAX_VALUE - 8));
+            }
+            // RTF is 7-bit ASCII with escapes for everything else
+            String rtf = new String(bytes, StandardCharsets.ISO_8859_1);
+            if (rtf.isBlank())
+                return false;
+            if (!monitor.isLastContent(rtf)) {
+                String text = plainText(contents);
+                if (isOversized(bytes.length, text, monitor.getCaptureLimits()))
+                    return passOversized("RTF", rtf, text, monitor);
+                System.out.println("New RTF item detected");
+                monitor.publish(rtf, new ClipboardItem(ClipboardItem.Type.RTF, text != null ? text : rtf, rtf));
+            }
+            return true;
+        }
+    }
+
+    static class TextHandler implements CaptureHandler {
+        @Override
+        public DataFlavor getFlavor() { return DataFlavor.stringFlavor; }
+
+        @Override
+        public int getPriority() { return 200; }
+
+        @Override
+        public int getCost() { return 10; }
+
+        @Override
+        public boolean capture(Transferable contents, ClipboardMonitor monitor)
+                throws UnsupportedFlavorException, IOException {
+            String text = (String) contents.getTransferData(DataFlavor.stringFlavor);
+            if (text == null)
+                return false;
+            if (!monitor.isLastContent(text)) {
+                if (monitor.isPriming()) {
+                    // Nothing is emitted while priming, so don't spill a blob nobody will reference
+                    monitor.publishText(text, null);
+                    return true;
+                }
+                ClipboardItem item = monitor.getBlobStore().ingestText(text, monitor.getCaptureLimits());
+                if (item == null) {
+                    System.out.println("Skipping text item over the size limit (" + text.length() + " chars)");
+                } else if (item.isBlobBacked()) {
+                    System.out.println("New large text item detected, stored as blob " + item.getBlobId());
+                } else {
+                    System.out.println("New text item detected");
+                }
+                monitor.publishText(text, item);
+            }
+            return true;
+        }
+    }
+
+    static class ImageHandler implements CaptureHandler {
+        @Override
+        public DataFlavor getFlavor() { return DataFlavor.imageFlavor; }
+
+        @Override
+        public int getPriority() { return 100; }
+
+        @Override
+        public int getCost() { return 50; }
+
+        @Override
+        public boolean capture(Transferable contents, ClipboardMonitor monitor)
+                throws UnsupportedFlavorException, IOException {
+            BufferedImage image = (BufferedImage) contents.getTransferData(DataFlavor.imageFlavor);
+            if (image == null)
+                return false;
+            if (!monitor.isLastContent(image)) {
+                long pixelBytes = (long) image.getWidth() * image.getHeight() * 4;
+                if (!monitor.getCaptureLimits().isImageAllowed(pixelBytes)) {
+                    System.out.println("Skipping image over the size limit (" + image.getWidth() + "x"
+                            + image.getHeight() + ")");
+                    monitor.updateLastContent(image);
+                    return true;
+                }
+                System.out.println("New image item detected");
+                monitor.publish(image, ClipboardItem.fromImage(image));
+            }
+            return true;
+        }
+    }
+}
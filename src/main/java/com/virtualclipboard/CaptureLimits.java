@@ -0,0 +1,66 @@
+package com.virtualclipboard;
+
+/**
+ * Per-type size caps applied before anything is read into memory. Text above
+ * the inline limit is spilled to a {@link BlobStore} and only a preview is kept
+ * on the item; text above the hard limit and images above theirs are skipped.
+ * For image files the cap applies to the file size, for clipboard bitmaps to
+ * the decoded pixel data.
+ */
+public final class CaptureLimits {
+    public static final CaptureLimits DEFAULT = new CaptureLimits(1024L * 1024, 256L * 1024 * 1024,
+            128L * 1024 * 1024);
+
+    private final long inlineTextBytes;
+    private final long maxTextBytes;
+    private final long maxImageBytes;
+
+    public CaptureLimits(long inlineTextBytes, long maxTextBytes, long maxImageBytes) {
+        this.inlineTextBytes = inlineTextBytes;
+        this.maxTextBytes = maxTextBytes;
+        this.maxImageBytes = maxImageBytes;
+    }
+
+    public static CaptureLimits from(ConfigManager configManager) {
+        return new CaptureLimits(configManager.getInlineTextLimitKb() * 1024L,
+                configManager.getMaxTextSizeMb() * 1024L * 1024L,
+                configManager.getMaxImageSizeMb() * 1024L * 1024L);
+    }
+
+    public boolean isTextAllowed(long bytes) {
+        return bytes <= maxTextBytes;
+    }
+
+    /** True when text of this size should live on disk rather than in the history list. */
+    public boolean shouldSpill(long bytes) {
+        return bytes > inlineTextBytes;
+    }
+
+    public boolean isImageAllowed(long bytes) {
+        return bytes <= maxImageBytes;
+    }
+
+    public long getInlineTextBytes() {
+        return inlineTextBytes;
+    }
+
+    /** UTF-8 length of {@code text} without encoding it. */
+    static long utf8Length(CharSequence text) {
+        long bytes = 0;
+        int length = text.length();
+        for (int i = 0; i < length; i++) {
+            char c = text.charAt(i);
+            if (c < 0x80) {
+                bytes++;
+            } else if (c < 0x800) {
+                bytes += 2;
+            } else if (Character.isHighSurrogate(c) && i + 1 < length && Character.isLowSurrogate(text.charAt(i + 1))) {
+                bytes += 4;
+                i++;
+            } else {
+                bytes += 3;
+            }
+        }
+        return bytes;
+    }
+}
@@ -0,0 +1,79 @@
+package com.virtualclipboard;
+
+import java.util.List;
+
+/**
+ * Packs history cards into the main grid. Each card spans
+ * {@link ClipboardItem#getCols()} by {@link ClipboardItem#getRows()} cells and
+ * goes into the first free slot scanning rows top to bottom, left to right.
+ * Kept free of Swing so the layout can be measured on its own.
+ */
+final class CardGrid {
+    static final int MAX_ROWS = 1000;
+
+    /** Grid cell of every card, in the order they were placed. */
+    record Placement(int[] cells, int rowCount) {
+        int column(int index) { return cells[index * 2]; }
+        int row(int index) { return cells[index * 2 + 1]; }
+    }
+
+    private CardGrid() {
+    }
+
+    static int columnsFor(int windowWidth) {
+        if (windowWidth > 1300)
+            return 4;
+        if (windowWidth > 900)
+            return 3;
+        if (windowWidth > 600)
+            return 2;
+        return 1;
+    }
+
+    /**
+     * Places {@code items} in order. A card that finds no room within
+     * {@link #MAX_ROWS} rows is put at the origin.
+     */
+    static Placement place(List<ClipboardItem> items, int cols) {
+        boolean[][] occupied = new boolean[MAX_ROWS][cols];
+        int[] cells = new int[items.size() * 2];
+        int rowCount = 0;
+
+        for (int i = 0; i < items.size(); i++) {
+            ClipboardItem item = items.get(i);
+            int itemRows = item.getRows();
+            int itemCols = Math.min(item.getCols(), cols);
+
+            boolean found = false;
+            for (int y = 0; y < MAX_ROWS && !found; y++) {
+                for (int x = 0; x <= cols - itemCols; x++) {
+                    if (fits(occupied, x, y, itemCols, itemRows)) {
+                        cells[i * 2] = x;
+                        cells[i * 2 + 1] = y;
+                        for (int dy = 0; dy < itemRows; dy++) {
+                            for (int dx = 0; dx < itemCols; dx++) {
+                                occupied[y + dy][x + dx] = true;
+                            }
+                        }
+                        rowCount = Math.max(rowCount, y + itemRows);
+                        found = true;
+                        break;
+                    }
+                }
+            }
+        }
+        return new Placement(cells, rowCount);
+    }
+
+    private static boolean fits(boolean[][] occupied, int x, int y, int itemCols, int itemRows) {
+        for (int dy = 0; dy < itemRows; dy++) {
+            if (y + dy >= MAX_ROWS)
+                return false;
+            for (int dx = 0; dx < itemCols; dx++) {
+                if (occupied[y + dy][x + dx])
+                    return false;
+            }
+        }
+        return true;
+    }
+}
@@ -0,0 +1,275 @@
+package com.virtualclipboard;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Command-line client for {@link ClipboardEngine}. It works on the history
+ * store in the current directory, the same one the app uses, and never opens
+ * a window. Run it while the app is closed when changing anything, since both
+ * append to the same log.
+ *
+ * <pre>
+ * java -cp virtual-clipboard.jar com.virtualclipboard.ClipboardCli tabs
+ * ... ClipboardCli list [tab] [-n count]
+ * ... ClipboardCli search [--tab name] query...     (supports is:json, is:code, ...)
+ * ... ClipboardCli show tab index                   (prints the full text)
+ * ... ClipboardCli add [--tab name] text...         ("-" reads stdin)
+ * ... ClipboardCli history [--tab name] [--type type] [-n count] [--page p]
+ * ... ClipboardCli compact
+ * </pre>
+ * {@code history} pages through the {@link HistoryStore} by type across all
+ * tabs; {@code compact} drops deleted items from its log.
+ */
+public class ClipboardCli {
+    private static final int PREVIEW_CHARS = 80;
+    private static final DateTimeFormatter TIME = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm");
+
+    private final ClipboardEngine engine;
+    private final ConfigManager configManager;
+    private final PrintStream out;
+
+    ClipboardCli(ClipboardEngine engine, ConfigManager configManager, PrintStream out) {
+        this.engine = engine;
+        this.configManager = configManager;
+        this.out = out;
+    }
+
+    public static void main(String[] args) {
+        ConfigManager configManager = new ConfigManager();
+        ClipboardEngine engine = new ClipboardEngine();
+        engine.setAutoSortByDate(configManager.isAutoSortByDate());
+        int status;
+        try (engine) {
+            engine.load();
+            status = new ClipboardCli(engine, configManager, System.out).run(args);
+        } catch (IOException | ClassNotFoundException e) {
+            System.err.println("Failed to read clipboard history: " + e.getMessage());
+            status = 1;
+        }
+        System.exit(status);
+    }
+
+    /** Runs one command and returns the process exit code. */
+    int run(String[] args) throws IOException {
+        if (args.length == 0)
+            return usage();
+        List<String> rest = new ArrayList<>(Arrays.asList(args).subList(1, args.length));
+        switch (args[0]) {
+            case "tabs":
+                return tabs();
+            case "list":
+                return list(rest);
+            case "search":
+                return search(rest);
+            case "show":
+                return show(rest);
+            case "add":
+                return add(rest);
+            case "history":
+                return history(rest);
+            case "compact":
+                return compact();
+            default:
+                return usage();
+        }
+    }
+
+    private int tabs() {
+        List<ClipboardTab> tabs = engine.getTabs();
+        for (int i = 0; i < tabs.size(); i++) {
+            ClipboardTab tab = tabs.get(i);
+            String marker = i == engine.getActiveTabIndex() ? "*" : " ";
+            out.printf("%s %-20s %6d items%n", marker, tab.getName(), tab.getItems().size());
+        }
+        return 0;
+    }
+
+    private int list(List<String> args) {
+        int limit = takeIntOption(args, "-n", 20);
+        ClipboardTab tab = args.isEmpty() ? engine.getCurrentTab() : engine.findTab(String.join(" ", args));
+        if (tab == null)
+            return fail("No such tab: " + String.join(" ", args));
+        List<ClipboardItem> items = tab.getItems();
+        for (int i = 0; i < items.size() && i < limit; i++) {
+            print(i, items.get(i));
+        }
+        return 0;
+    }
+
+    private int search(List<String> args) {
+        String tabName = takeOption(args, "--tab");
+        if (args.isEmpty())
+            return usage();
+        ClipboardEngine.SearchQuery query = ClipboardEngine.SearchQuery.parse(String.join(" ", args));
+        List<ClipboardTab> scope;
+        if (tabName != null) {
+            ClipboardTab tab = engine.findTab(tabName);
+            if (tab == null)
+                return fail("No such tab: " + tabName);
+            scope = List.of(tab);
+        } else {
+            scope = engine.getTabs();
+        }
+        int matches = 0;
+        for (ClipboardTab tab : scope) {
+            List<ClipboardItem> items = tab.getItems();
+            for (int i = 0; i < items.size(); i++) {
+                if (ClipboardEngine.matches(items.get(i), query, engine.getBlobStore())) {
+                    out.print(tab.getName() + " ");
+                    print(i, items.get(i));
+                    matches++;
+                }
+            }
+        }
+        return matches > 0 ? 0 : 1;
+    }
+
+    private int show(List<String> args) throws IOException {
+        if (args.size() < 2)
+            return usage();
+        ClipboardTab tab = engine.findTab(String.join(" ", args.subList(0, args.size() - 1)));
+        if (tab == null)
+            return fail("No such tab: " + String.join(" ", args.subList(0, args.size() - 1)));
+        int index;
+        try {
+            index = Integer.parseInt(args.get(args.size() - 1));
+        } catch (NumberFormatException e) {
+            return usage();
+        }
+        if (index < 0 || index >= tab.getItems().size())
+            return fail("No item " + index + " in " + tab.getName());
+        ClipboardItem item = tab.getItems().get(index);
+        if (item.isBlobBacked()) {
+            out.println(engine.getBlobStore().readAll(item.getBlobId()));
+        } else if (item.getText() != null) {
+            out.println(item.getText());
+        } else {
+            return fail(item.getType() + " items have no text (" + item.getWidth() + "x" + item.getHeight() + ")");
+        }
+        return 0;
+    }
+
+    private int add(List<String> args) throws IOException {
+        String tabName = takeOption(args, "--tab");
+        if (args.isEmpty())
+            return usage();
+        ClipboardTab tab = null;
+        if (tabName != null) {
+            tab = engine.findTab(tabName);
+            if (tab == null)
+                tab = engine.addTab(tabName);
+        }
+        String text = args.equals(List.of("-"))
+                ? new String(System.in.readAllBytes(), StandardCharsets.UTF_8)
+                : String.join(" ", args);
+        ClipboardItem item = engine.getBlobStore().ingestText(text, CaptureLimits.from(configManager));
+        if (item == null)
+            return fail("Text is over the configured size limit");
+        if (engine.add(tab, List.of(item)).isEmpty()) {
+            out.println("Already the newest item, nothing added");
+            return 0;
+        }
+        engine.save();
+        return 0;
+    }
+
+    private int history(List<String> args) throws IOException {
+        String tabName = takeOption(args, "--tab");
+        String typeName = takeOption(args, "--type");
+        int limit = takeIntOption(args, "-n", 20);
+        int page = takeIntOption(args, "--page", 1);
+        if (!args.isEmpty() || limit <= 0 || page < 1)
+            return usage();
+        ClipboardItem.Type type = null;
+        if (typeName != null) {
+            try {
+                type = ClipboardItem.Type.valueOf(typeName.toUpperCase());
+            } catch (IllegalArgumentException e) {
+                return fail("No such type: " + typeName);
+            }
+        }
+        // The store files items under tab keys, which stay the same when a tab is renamed
+        String tabKey = null;
+        if (tabName != null) {
+            ClipboardTab tab = engine.findTab(tabName);
+            if (tab == null)
+                return fail("No such tab: " + tabName);
+            tabKey = tab.getKey();
+        }
+        Map<String, String> names = new HashMap<>();
+        for (ClipboardTab tab : engine.getTabs()) {
+            names.put(tab.getKey(), tab.getName());
+        }
+        HistoryStore store = engine.getHistoryStore();
+        int offset = (page - 1) * limit;
+        List<HistoryStore.Entry> entries = store.page(tabKey, type, offset, limit);
+        for (int i = 0; i < entries.size(); i++) {
+            HistoryStore.Entry entry = entries.get(i);
+            out.print(names.getOrDefault(entry.tab(), "?") + " ");
+            print(offset + i, store.get(entry.id()));
+        }
+        out.println("Page " + page + " of " + Math.max(1, (store.count(tabKey, type) + limit - 1) / limit));
+        return 0;
+    }
+
+    private int compact() throws IOException {
+        HistoryStore store = engine.getHistoryStore();
+        long before = store.getGarbageBytes();
+        store.compact();
+        out.println("Reclaimed " + Metrics.format(before - store.getGarbageBytes(), Metrics.Unit.BYTES));
+        return 0;
+    }
+
+    private void print(int index, ClipboardItem item) {
+        String preview;
+        if (item.getText() != null) {
+            preview = item.getText().strip().replaceAll("\\s+", " ");
+            if (preview.length() > PREVIEW_CHARS)
+                preview = preview.substring(0, PREVIEW_CHARS - 3) + "...";
+        } else {
+            preview = "[" + item.getWidth() + "x" + item.getHeight() + "]";
+        }
+        ContentClassifier.Kind kind = item.getContentKind();
+        String type = kind != null && kind != ContentClassifier.Kind.PLAIN ? kind.getFacet() : item.getType().name();
+        out.printf("%4d  %s  %-9s %8s  %s%n", index, item.getTimestamp().format(TIME), type.toLowerCase(),
+                item.getFormattedSize(), preview);
+    }
+
+    private static String takeOption(List<String> args, String name) {
+        int i = args.indexOf(name);
+        if (i < 0 || i + 1 >= args.size())
+            return null;
+        String value = args.get(i + 1);
+        args.subList(i, i + 2).clear();
+        return value;
+    }
+
+    private static int takeIntOption(List<String> args, String name, int fallback) {
+        String value = takeOption(args, name);
+        try {
+            return value != null ? Integer.parseInt(value) : fallback;
+        } catch (NumberFormatException e) {
+            return fallback;
+        }
+    }
+
+    private int fail(String message) {
+        System.err.println(message);
+        return 1;
+    }
+
+    private int usage() {
+        System.err.println("Usage: ClipboardCli tabs | list [tab] [-n count] | search [--tab name] query..."
+                + " | show tab index | add [--tab name] text... (- for stdin)"
+                + " | history [--tab name] [--type type] [-n count] [--page p] | compact");
+        return 2;
+    }
+}
@@ -0,0 +1,462 @@
+package com.virtualclipboard;
+
+import java.io.BufferedInputStream;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.ObjectStreamClass;
+import java.io.ObjectStreamField;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.function.Consumer;
+
+/**
+ * The clipboard history without a UI: tabs, ingestion with duplicate
+ * suppression, search, removal and persistence. {@link App} is one client; the
+ * {@link ClipboardCli} and the benchmarks drive it headless.
+ * <p>
+ * The history is kept in a {@link HistoryStore}. Saving appends what changed
+ * since the last save, and loading reads every tab back in from the store.
+ * The state file older versions rewrote on every save is only read once, to
+ * fill an empty store.
+ * <p>
+ * Every item still lives in memory once loaded: the grid, search, retention
+ * and sorted views all work on the full tab lists. Images stay encoded until
+ * shown, but a history of a million items does not fit this design; that
+ * needs the grid to page through {@link HistoryStore#page} instead.
+ * <p>
+ * The engine is not thread-safe. All calls must come from one thread: the EDT
+ * in the Swing app, the main thread in the CLI. Background work such as
+ * capture, OCR and retention planning hands its results to that thread first.
+ */
+public class ClipboardEngine implements Closeable {
+    public static final String DEFAULT_STATE_FILE = "clipboard_state.dat";
+    private static final String LEGACY_TAB_CLASS = "com.virtualclipboard.App$ClipboardTab";
+    private static final Metrics.Histogram LOAD_TIME = Metrics.timer("persist.load");
+
+    /** Tabs and the selected tab as stored in the state file. */
+    record SavedState(List<ClipboardTab> tabs, int activeTabIndex) {
+    }
+
+    /**
+     * A parsed search box query: {@code is:kind} facets that must all match, plus
+     * lower-cased free text looked up in the item's text, blob or OCR text.
+     */
+    public record SearchQuery(String text, List<String> facets) {
+        public static final SearchQuery EMPTY = new SearchQuery("", List.of());
+
+        public static SearchQuery parse(String query) {
+            String lower = query.toLowerCase();
+            if (!lower.contains("is:"))
+                return new SearchQuery(lower, List.of());
+            List<String> facets = new ArrayList<>();
+            StringBuilder text = new StringBuilder();
+            for (String token : lower.trim().split("\\s+")) {
+                if (token.startsWith("is:") && token.length() > 3) {
+                    facets.add(token.substring(3));
+                } else if (!token.isEmpty()) {
+                    if (text.length() > 0)
+                        text.append(' ');
+                    text.append(token);
+                }
+            }
+            return new SearchQuery(text.toString(), List.copyOf(facets));
+        }
+
+        public boolean isEmpty() {
+            return text.isEmpty() && facets.isEmpty();
+        }
+    }
+
+    private final BlobStore blobStore;
+    private final Path stateFile;
+    private final Path historyDir;
+    private final List<ClipboardTab> tabs = new ArrayList<>();
+    private int activeTabIndex = 0;
+    private boolean autoSortByDate = true;
+    private Consumer<List<ClipboardItem>> reclaimer;
+    private StateWriter writer;
+    private HistorySync history;
+
+    /** {@code stateFile} is the old snapshot to import from; the history is kept in {@code historyDir}. */
+    public ClipboardEngine(BlobStore blobStore, Path stateFile, Path historyDir) {
+        this.blobStore = blobStore;
+        this.stateFile = stateFile;
+        this.historyDir = historyDir;
+        this.reclaimer = this::deleteBlobs;
+        tabs.add(new ClipboardTab("Main"));
+    }
+
+    public ClipboardEngine() {
+        this(new BlobStore(), Paths.get(DEFAULT_STATE_FILE), Paths.get(HistoryStore.DEFAULT_DIR));
+    }
+
+    public BlobStore getBlobStore() {
+        return blobStore;
+    }
+
+    /** When set, new items go in by timestamp instead of always at the top. */
+    public void setAutoSortByDate(boolean autoSortByDate) {
+        this.autoSortByDate = autoSortByDate;
+    }
+
+    /**
+     * Receives items that are gone from every tab so their storage can be freed.
+     * By default blobs are deleted on the calling thread.
+     */
+    public void setReclaimer(Consumer<List<ClipboardItem>> reclaimer) {
+        this.reclaimer = reclaimer;
+    }
+
+    // ---- Tabs ----
+
+    /**
+     * The live tab list. Clients may reorder it in place (the Swing tab bar does
+     * while dragging) but should add and remove tabs through the engine.
+     */
+    public List<ClipboardTab> getTabs() {
+        return tabs;
+    }
+
+    public ClipboardTab getCurrentTab() {
+        if (tabs.isEmpty())
+            tabs.add(new ClipboardTab("Main"));
+        if (activeTabIndex >= tabs.size())
+            activeTabIndex = 0;
+        return tabs.get(activeTabIndex);
+    }
+
+    public int getActiveTabIndex() {
+        return activeTabIndex;
+    }
+
+    public void setActiveTabIndex(int index) {
+        activeTabIndex = index >= 0 && index < tabs.size() ? index : 0;
+    }
+
+    /** Case-insensitive lookup; null when no tab has that name. */
+    public ClipboardTab findTab(String name) {
+        for (ClipboardTab tab : tabs) {
+            if (tab.name != null && tab.name.equalsIgnoreCase(name))
+                return tab;
+        }
+        return null;
+    }
+
+    public ClipboardTab addTab(String name) {
+        ClipboardTab tab = new ClipboardTab(name);
+        tabs.add(tab);
+        return tab;
+    }
+
+    /** Deletes a tab and reclaims its items. Returns whether it was the active tab. */
+    public boolean removeTab(ClipboardTab tab) {
+        int index = tabs.indexOf(tab);
+        if (index < 0)
+            return false;
+        boolean wasActive = index == activeTabIndex;
+        tabs.remove(index);
+        if (index < activeTabIndex)
+            activeTabIndex--;
+        if (activeTabIndex >= tabs.size())
+            activeTabIndex = 0;
+        reclaimer.accept(new ArrayList<>(tab.items));
+        return wasActive;
+    }
+
+    /** Moves a tab to a new position; the active tab stays active. */
+    public void moveTab(int from, int to) {
+        ClipboardTab moved = tabs.remove(from);
+        tabs.add(to, moved);
+        if (activeTabIndex == from) {
+            activeTabIndex = to;
+        } else if (from < activeTabIndex && to >= activeTabIndex) {
+            activeTabIndex--;
+        } else if (from > activeTabIndex && to <= activeTabIndex) {
+            activeTabIndex++;
+        }
+    }
+
+    // ---- Items ----
+
+    /**
+     * Inserts items at the top of {@code tab} (the current tab when null) in order,
+     * so the last one ends up first. An item equal to the tab's current top item
+     * is dropped as a duplicate. Returns the items that were actually added.
+     */
+    public List<ClipboardItem> add(ClipboardTab tab, List<ClipboardItem> newItems) {
+        ClipboardTab target = tab != null ? tab : getCurrentTab();
+        List<ClipboardItem> added = new ArrayList<>(newItems.size());
+        for (ClipboardItem item : newItems) {
+            if (!target.items.isEmpty() && target.items.get(0).equals(item)) {
+                continue;
+            }
+            insert(target, item);
+            added.add(item);
+        }
+        return added;
+    }
+
+    public void moveItem(ClipboardItem item, ClipboardTab from, ClipboardTab to) {
+        if (from.items.remove(item)) {
+            insert(to, item);
+        }
+    }
+
+    private void insert(ClipboardTab tab, ClipboardItem item) {
+        if (autoSortByDate) {
+            tab.items.insertByTimestamp(item);
+        } else {
+            tab.items.add(0, item);
+        }
+    }
+
+    public boolean removeItem(ClipboardTab tab, ClipboardItem item) {
+        if (!tab.items.remove(item))
+            return false;
+        reclaimer.accept(List.of(item));
+        return true;
+    }
+
+    /** Empties a tab except for pinned items. Returns what was removed. */
+    public List<ClipboardItem> clear(ClipboardTab tab) {
+        List<ClipboardItem> cleared = new ArrayList<>();
+        tab.items.removeIf(item -> !item.isPinned() && cleared.add(item));
+        reclaimer.accept(cleared);
+        return cleared;
+    }
+
+    /**
+     * Drops the given items from every tab in one sweep. Storage is not reclaimed
+     * here; {@link RetentionEngine} does that after applying a pass.
+     */
+    public void removeAll(Set<ClipboardItem> victims) {
+        for (ClipboardTab tab : tabs) {
+            tab.items.removeIf(victims::contains);
+        }
+    }
+
+    /** Copies of every tab's item list, for planning work off the owning thread. */
+    public List<List<ClipboardItem>> snapshot() {
+        List<List<ClipboardItem>> snapshot = new ArrayList<>(tabs.size());
+        for (ClipboardTab tab : tabs) {
+            snapshot.add(new ArrayList<>(tab.items));
+        }
+        return snapshot;
+    }
+
+    private void deleteBlobs(List<ClipboardItem> removed) {
+        for (ClipboardItem item : removed) {
+            if (item.isBlobBacked())
+                blobStore.delete(item.getBlobId());
+        }
+    }
+
+    // ---- Search ----
+
+    /** Matching items in capture order, from the current tab or all of them. */
+    public List<ClipboardItem> search(SearchQuery query, boolean allTabs) {
+        List<ClipboardItem> results = new ArrayList<>();
+        for (ClipboardTab tab : allTabs ? tabs : List.of(getCurrentTab())) {
+            for (ClipboardItem item : tab.items) {
+                if (matches(item, query, blobStore))
+                    results.add(item);
+            }
+        }
+        return results;
+    }
+
+    /**
+     * Whether an item passes a query: every facet has to match, then the text is
+     * looked up in the item's text, blob or OCR text.
+     */
+    static boolean matches(ClipboardItem item, SearchQuery query, BlobStore blobStore) {
+        for (String facet : query.facets()) {
+            if (!item.hasFacet(facet))
+                return false;
+        }
+        String text = query.text();
+        if (text.isEmpty())
+            return true;
+        if (item.isBlobBacked())
+            return blobStore.contains(item.getBlobId(), text);
+        if (item.isTextual() && item.getType() != ClipboardItem.Type.URL)
+            return item.getText() != null && item.getText().toLowerCase().contains(text);
+        if (item.getType() == ClipboardItem.Type.IMAGE || item.getType() == ClipboardItem.Type.GIF) {
+            // Screenshots are searchable by their OCR'd content
+            return item.getOcrText() != null && item.getOcrText().toLowerCase().contains(text);
+        }
+        return false;
+    }
+
+    // ---- Persistence ----
+
+    /** The store the history is kept in, opened on first use. */
+    public HistoryStore getHistoryStore() throws IOException {
+        return history().getStore();
+    }
+
+    private HistorySync history() throws IOException {
+        if (history == null)
+            history = new HistorySync(HistoryStore.open(historyDir));
+        return history;
+    }
+
+    /** Writes the changes since the last save on the calling thread, as {@link #saveInBackground} does. */
+    public void save() throws IOException {
+        StateWriter.write(history(), new SavedState(tabs, activeTabIndex));
+    }
+
+    /**
+     * Copies the tab lists and hands them to a writer thread. Copying is linear
+     * in the number of items but does no I/O or serialization. Items themselves
+     * are shared; the fields that change after capture (caption, OCR text, pin,
+     * last use) bump the item's revision, which is how the writer finds them.
+     */
+    public void saveInBackground() {
+        if (writer == null) {
+            try {
+                writer = new StateWriter(history());
+            } catch (IOException e) {
+                System.err.println("Failed to open clipboard history: " + e.getMessage());
+                return;
+            }
+        }
+        List<ClipboardTab> copies = new ArrayList<>(tabs.size());
+        for (ClipboardTab tab : tabs) {
+            copies.add(tab.copy());
+        }
+        writer.submit(new SavedState(copies, activeTabIndex));
+    }
+
+    /** Waits for background saves to reach the disk. */
+    public void flush() {
+        if (writer != null)
+            writer.flush();
+    }
+
+    /** Waits for background saves and closes the store. Nothing can be saved afterwards. */
+    @Override
+    public void close() throws IOException {
+        flush();
+        if (history != null)
+            history.close();
+    }
+
+    /**
+     * Replaces the tabs with the ones in the store. The first time, while the
+     * store has never been written, they are imported from the state file,
+     * which is left in place. Returns false, leaving the engine untouched, when
+     * there is nothing to load. Blobs no saved item refers to any more are
+     * deleted.
+     */
+    public boolean load() throws IOException, ClassNotFoundException {
+        long start = System.nanoTime();
+        ClipboardEvents.LoadState event = new ClipboardEvents.LoadState();
+        event.begin();
+        HistorySync sync = history();
+        SavedState state = sync.read();
+        if (state == null && Files.exists(stateFile)) {
+            try (InputStream in = new BufferedInputStream(Files.newInputStream(stateFile))) {
+                state = readState(in);
+            }
+            if (state != null)
+                StateWriter.write(sync, state);
+        }
+        LOAD_TIME.recordSince(start);
+        event.end();
+        if (event.shouldCommit()) {
+            event.bytes = sync.getStore().getBytes();
+            if (state != null) {
+                event.tabs = state.tabs().size();
+                for (ClipboardTab tab : state.tabs()) {
+                    event.items += tab.items.size();
+                }
+            }
+            event.commit();
+        }
+        if (state == null || state.tabs().isEmpty())
+            return false;
+
+        tabs.clear();
+        for (ClipboardTab tab : state.tabs()) {
+            // Saved tabs are normally already in order; only sort the ones that are not
+            if (autoSortByDate && !tab.items.isNewestFirst()) {
+                tab.items.sort((a, b) -> b.getTimestamp().compareTo(a.getTimestamp()));
+            }
+            tabs.add(tab);
+        }
+        setActiveTabIndex(state.activeTabIndex());
+
+        // Blobs of items that were deleted or trimmed since the last run
+        Set<String> liveBlobs = new HashSet<>();
+        for (ClipboardTab tab : tabs) {
+            for (ClipboardItem item : tab.items) {
+                if (item.isBlobBacked())
+                    liveBlobs.add(item.getBlobId());
+            }
+        }
+        blobStore.retainOnly(liveBlobs);
+        return true;
+    }
+
+    static void writeState(OutputStream out, List<ClipboardTab> tabs, int activeTabIndex) throws IOException {
+        ObjectOutputStream oos = new ObjectOutputStream(out);
+        oos.writeObject(tabs);
+        oos.writeInt(activeTabIndex);
+        oos.flush();
+    }
+
+    /** Returns null when the stream does not hold a tab list. */
+    static SavedState readState(InputStream in) throws IOException, ClassNotFoundException {
+        ObjectInputStream ois = new StateInputStream(in);
+        Object loadedTabs = ois.readObject();
+        int loadedActiveIndex = ois.readInt();
+        if (!(loadedTabs instanceof List<?> list) || list.isEmpty() || !(list.get(0) instanceof ClipboardTab))
+            return null;
+        List<ClipboardTab> loaded = new ArrayList<>(list.size());
+        for (Object obj : list) {
+            loaded.add((ClipboardTab) obj);
+        }
+        return new SavedState(loaded, loadedActiveIndex);
+    }
+
+    /**
+     * Reads state files written while tabs were {@code App.ClipboardTab}. The old
+     * class is mapped to whichever local class has the same field layout.
+     */
+    private static final class StateInputStream extends ObjectInputStream {
+        StateInputStream(InputStream in) throws IOException {
+            super(in);
+        }
+
+        @Override
+        protected ObjectStreamClass readClassDescriptor() throws IOException, ClassNotFoundException {
+            ObjectStreamClass descriptor = super.readClassDescriptor();
+            if (!descriptor.getName().equals(LEGACY_TAB_CLASS))
+                return descriptor;
+            ObjectStreamClass current = ObjectStreamClass.lookup(ClipboardTab.class);
+            return sameFields(descriptor, current) ? current : ObjectStreamClass.lookup(ClipboardTab.Legacy.class);
+        }
+
+        private static boolean sameFields(ObjectStreamClass a, ObjectStreamClass b) {
+            ObjectStreamField[] fa = a.getFields();
+            ObjectStreamField[] fb = b.getFields();
+            if (fa.length != fb.length)
+                return false;
+            for (int i = 0; i < fa.length; i++) {
+                if (!fa[i].getName().equals(fb[i].getName()) || fa[i].getTypeCode() != fb[i].getTypeCode())
+                    return false;
+            }
+            return true;
+        }
+    }
+}
@@ -0,0 +1,175 @@
+package com.virtualclipboard;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Timespan;
+
+/**
+ * Flight Recorder events for capture, persistence, rendering, OCR and
+ * captions, plus the EDT stalls found by {@link EdtWatchdog}. They cost next to nothing unless a recording is running, e.g.
+ *
+ * <pre>
+ * jcmd &lt;pid&gt; JFR.start name=clip settings=profile duration=2m filename=clip.jfr
+ * jfr print --categories "Virtual Clipboard" clip.jfr
+ * </pre>
+ *
+ * Call sites construct the event, {@code begin()}, do the work and
+ * {@code commit()}. Fields that take work to compute, such as item counts, are
+ * only filled in when {@code shouldCommit()} is true. Stack traces are
+ * disabled; the event names already say where they fired.
+ */
+final class ClipboardEvents {
+    private static final String CATEGORY = "Virtual Clipboard";
+
+    private ClipboardEvents() {
+    }
+
+    @Name("com.virtualclipboard.Capture")
+    @Label("Clipboard Capture")
+    @Description("One clipboard poll that found content and handed it to a capture handler")
+    @Category({ CATEGORY, "Capture" })
+    @StackTrace(false)
+    static final class Capture extends Event {
+        @Label("Handler")
+        String handler;
+
+        @Label("Captured")
+        boolean captured;
+    }
+
+    @Name("com.virtualclipboard.AddItem")
+    @Label("Add Item")
+    @Description("Adding captured items to a tab, including refresh and save")
+    @Category({ CATEGORY, "Capture" })
+    @StackTrace(false)
+    static final class AddItem extends Event {
+        @Label("Item Type")
+        String itemType;
+
+        @Label("Items")
+        int items;
+
+        @Label("Added")
+        int added;
+
+        @Label("Size")
+        @DataAmount
+        long bytes;
+    }
+
+    @Name("com.virtualclipboard.SaveState")
+    @Label("Save History")
+    @Category({ CATEGORY, "Persistence" })
+    @StackTrace(false)
+    static final class SaveState extends Event {
+        @Label("Tabs")
+        int tabs;
+
+        @Label("Items")
+        int items;
+
+        @Label("Bytes Written")
+        @DataAmount
+        long bytes;
+    }
+
+    @Name("com.virtualclipboard.LoadState")
+    @Label("Load History")
+    @Category({ CATEGORY, "Persistence" })
+    @StackTrace(false)
+    static final class LoadState extends Event {
+        @Label("Tabs")
+        int tabs;
+
+        @Label("Items")
+        int items;
+
+        @Label("File Size")
+        @DataAmount
+        long bytes;
+    }
+
+    @Name("com.virtualclipboard.RefreshGrid")
+    @Label("Refresh Grid")
+    @Description("Filtering and laying out the history grid")
+    @Category({ CATEGORY, "Rendering" })
+    @StackTrace(false)
+    static final class RefreshGrid extends Event {
+        @Label("Shown Items")
+        int shown;
+
+        @Label("New Cards")
+        int created;
+
+        @Label("Columns")
+        int columns;
+    }
+
+    @Name("com.virtualclipboard.CreateCard")
+    @Label("Create Card")
+    @Category({ CATEGORY, "Rendering" })
+    @StackTrace(false)
+    static final class CreateCard extends Event {
+        @Label("Item Type")
+        String itemType;
+
+        @Label("Item Size")
+        @DataAmount
+        long bytes;
+    }
+
+    @Name("com.virtualclipboard.EdtStall")
+    @Label("EDT Stall")
+    @Description("An event dispatch that blocked the Swing thread past the watchdog threshold")
+    @Category({ CATEGORY, "Rendering" })
+    @StackTrace(false)
+    static final class EdtStall extends Event {
+        @Label("Call Site")
+        String site;
+
+        @Label("Event")
+        String event;
+
+        @Label("Stall")
+        @Timespan
+        long stall;
+    }
+
+    @Name("com.virtualclipboard.Ocr")
+    @Label("OCR")
+    @Category({ CATEGORY, "OCR" })
+    @StackTrace(false)
+    static final class Ocr extends Event {
+        @Label("Width")
+        int width;
+
+        @Label("Height")
+        int height;
+
+        @Label("Cached")
+        boolean cached;
+
+        @Label("Text Length")
+        int chars;
+    }
+
+    @Name("com.virtualclipboard.Caption")
+    @Label("AI Caption")
+    @Category({ CATEGORY, "Ollama" })
+    @StackTrace(false)
+    static final class Caption extends Event {
+        @Label("Model")
+        String model;
+
+        @Label("Input Length")
+        int inputChars;
+
+        @Label("Succeeded")
+        boolean succeeded;
+    }
+}
@@ -15,6 +15,7 @@ import javax.imageio.metadata.IIOMetadataNode;
 import javax.imageio.stream.ImageInputStream;
 import java.awt.image.BufferedImage;
 import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.ObjectInputStream;
 import java.io.ObjectOutputStream;
@@ -28,15 +29,29 @@ import java.util.Objects;
 public class ClipboardItem implements Serializable {
     private static final long serialVersionUID = 1L;
     public enum Type {
-        TEXT, IMAGE, URL, SVG, GIF
+        TEXT, IMAGE, URL, SVG, GIF, HTML, RTF, FILE_LIST
     }
 
     private final Type type;
-    private final String text;
+    // Both are only a decoded cache while the item is cold; see ColdStorage
+    private volatile String text;
+    private volatile String richText; // HTML or RTF source, text holds the plain-text rendition
+    private volatile byte[] coldText; // Packed text of a cold item
+    private volatile byte[] coldRichText;
+    private volatile LocalDateTime lastUsed; // Last copied back to the clipboard, null if never
+    private boolean compactPng; // The PNG has been re-encoded for the cold tier
     private String urlDomain;
     private String urlProtocol;
     private String caption;
-    private transient BufferedImage image;
+    private String ocrText;
+    private boolean pinned; // Exempt from every retention policy
+    private String blobId; // Set when the full text lives in the BlobStore and text is only a preview
+    private TextStats textStats; // Computed once at ingestion; for blobs it covers the whole blob, not the preview
+    private ContentClassifier.Kind contentKind; // Finer-grained than type for TEXT items; drives facets and card hints
+    private String codeLanguage;
+    private transient BufferedImage image; // Decoded lazily and dropped by ImageMemoryManager under pressure
+    private transient byte[] encodedImage; // PNG, the durable form of an IMAGE item
+    private transient volatile int revision; // Bumped by every change that needs the item stored again
     private byte[] gifData;
     private final LocalDateTime timestamp;
     private final long sizeInBytes;
@@ -52,26 +67,83 @@ public class ClipboardItem implements Serializable {
         this.width = 0;
         this.height = 0;
         this.timestamp = LocalDateTime.now();
-        this.sizeInBytes = text == null ? 0 : text.getBytes().length;
-        
-        if (text != null && (text.startsWith("http://") || text.startsWith("https://"))) {
+        this.textStats = text == null ? null : TextAnalyzer.analyze(text);
+        this.sizeInBytes = textStats == null ? 0 : textStats.getUtf8Bytes();
+
+        ContentClassifier.Result content = ContentClassifier.classify(text, textStats);
+        this.contentKind = content.kind();
+        this.codeLanguage = content.language();
+        if (content.kind() == ContentClassifier.Kind.URL) {
             this.type = Type.URL;
             try {
-                URL url = new URI(text).toURL();
+                URL url = new URI(text.strip()).toURL();
                 this.urlDomain = url.getHost();
                 this.urlProtocol = url.getProtocol();
             } catch (Exception e) {
                 this.urlDomain = "N/A";
                 this.urlProtocol = "N/A";
             }
-        } else if (text != null && text.trim().startsWith("<svg") && text.trim().endsWith("</svg>")) {
+        } else if (content.kind() == ContentClassifier.Kind.SVG) {
             this.type = Type.SVG;
         } else {
             this.type = Type.TEXT;
         }
     }
 
-    public ClipboardItem(BufferedImage image) {
+    /**
+     * Rich text (HTML, RTF) or a file list. {@code text} is the plain-text rendition
+     * used for previews, search and copy fallbacks; {@code richText} keeps the markup.
+     */
+    public ClipboardItem(Type type, String text, String richText) {
+        this.type = type;
+        this.text = text;
+        this.richText = richText;
+        this.image = null;
+        this.gifData = null;
+        this.width = 0;
+        this.height = 0;
+        this.timestamp = LocalDateTime.now();
+        this.textStats = text == null ? null : TextAnalyzer.analyze(text);
+        if (richText != null) {
+            this.sizeInBytes = CaptureLimits.utf8Length(richText);
+        } else {
+            this.sizeInBytes = textStats == null ? 0 : textStats.getUtf8Bytes();
+        }
+    }
+
+    /**
+     * Text too large to keep in memory; {@code preview} is the head of the blob and
+     * {@code stats} were taken over the full blob.
+     */
+    public ClipboardItem(String preview, String blobId, long sizeInBytes, TextStats stats) {
+        this.type = Type.TEXT;
+        this.text = preview;
+        this.blobId = blobId;
+        this.image = null;
+        this.gifData = null;
+        this.width = 0;
+        this.height = 0;
+        this.timestamp = LocalDateTime.now();
+        this.sizeInBytes = sizeInBytes;
+        this.textStats = stats;
+        ContentClassifier.Result content = ContentClassifier.classify(preview, stats, isPreviewTruncated());
+        // Only the head is in memory, so markup that has to be closed at the end can't be confirmed
+        this.contentKind = content.kind() == ContentClassifier.Kind.SVG ? ContentClassifier.Kind.CODE : content.kind();
+        this.codeLanguage = content.language();
+    }
+
+    /**
+     * An IMAGE item holding freshly captured pixels. They are handed to
+     * {@link ImageMemoryManager} once the item is fully built, which encodes
+     * them in the background and may drop them under memory pressure.
+     */
+    public static ClipboardItem fromImage(BufferedImage image) {
+        ClipboardItem item = new ClipboardItem(image);
+        ImageMemoryManager.shared().register(item);
+        return item;
+    }
+
+    private ClipboardItem(BufferedImage image) {
         this.type = Type.IMAGE;
         this.image = image;
         this.text = null;
@@ -84,6 +156,29 @@ public class ClipboardItem implements Serializable {
         this.gifData = null;
     }
 
+    private ClipboardItem(byte[] png, int width, int height, Type type) {
+        this.type = type;
+        this.encodedImage = png;
+        this.text = null;
+        this.timestamp = LocalDateTime.now();
+        this.width = width;
+        this.height = height;
+        this.sizeInBytes = 0; // Same placeholder as a captured image
+    }
+
+    /**
+     * An IMAGE item held only as PNG bytes, as if loaded from history. The pixels
+     * are decoded when it is first shown.
+     */
+    static ClipboardItem fromPng(byte[] png, int width, int height) {
+        return new ClipboardItem(png, width, height, Type.IMAGE);
+    }
+
+    /** Whether the pixels are currently decoded in memory. */
+    synchronized boolean hasDecodedImage() {
+        return image != null;
+    }
+
     public ClipboardItem(byte[] gifData, int width, int height) {
         this.type = Type.GIF;
         this.gifData = gifData;
@@ -99,23 +194,43 @@ public class ClipboardItem implements Serializable {
     }
 
     private void writeObject(ObjectOutputStream out) throws IOException {
-        out.defaultWriteObject();
-        if (type == Type.IMAGE && image != null) {
-            ImageIO.write(image, "png", out);
+        synchronized (this) {
+            // A cold item is saved packed only; hide the decoded copies from the default form
+            String plain = text;
+            String rich = richText;
+            if (coldText != null)
+                text = null;
+            if (coldRichText != null)
+                richText = null;
+            try {
+                out.defaultWriteObject();
+            } finally {
+                text = plain;
+                richText = rich;
+            }
+        }
+        if (type == Type.IMAGE) {
+            byte[] png = getEncodedImage();
+            if (png != null) {
+                out.write(png);
+            }
         }
     }
 
     private void readObject(ObjectInputStream in) throws IOException, ClassNotFoundException {
         in.defaultReadObject();
         if (type == Type.IMAGE) {
-            image = ImageIO.read(in);
+            // The PNG is the rest of this object's custom data; decode it only when it is first shown
+            byte[] png = in.readAllBytes();
+            encodedImage = png.length > 0 ? png : null;
         } else if (type == Type.GIF) {
             parseGifMetadata();
         } else if (type == Type.URL) {
             String domain = "N/A";
             String protocol = "N/A";
             try {
-                String spec = text.startsWith("http") ? text : "http://" + text;
+                String plain = getText();
+                String spec = plain.startsWith("http") ? plain : "http://" + plain;
                 URL url = new URI(spec).toURL();
                 domain = url.getHost();
                 protocol = url.getProtocol();
@@ -126,7 +241,7 @@ public class ClipboardItem implements Serializable {
         }
     }
 
-    private void parseGifMetadata() {
+    void parseGifMetadata() {
         if (gifData == null) return;
         
         try (ImageInputStream iis = ImageIO.createImageInputStream(new ByteArrayInputStream(gifData))) {
@@ -167,10 +282,219 @@ public class ClipboardItem implements Serializable {
     }
 
     public Type getType() { return type; }
-    public String getText() { return text; }
+    public String getText() {
+        String plain = text;
+        if (plain != null)
+            return plain;
+        if (coldText == null)
+            return text; // Not cold, or thawed since the first read
+        synchronized (this) {
+            if (text == null && coldText != null)
+                text = ColdStorage.unpack(coldText);
+            return text;
+        }
+    }
+
+    public String getRichText() {
+        String rich = richText;
+        if (rich != null)
+            return rich;
+        if (coldRichText == null)
+            return richText;
+        synchronized (this) {
+            if (richText == null && coldRichText != null)
+                richText = ColdStorage.unpack(coldRichText);
+            return richText;
+        }
+    }
     public String getUrlDomain() { return urlDomain; }
     public String getUrlProtocol() { return urlProtocol; }
-    public BufferedImage getImage() { return image; }
+    public BufferedImage getImage() {
+        if (type != Type.IMAGE) return image;
+        BufferedImage decoded;
+        synchronized (this) {
+            decoded = image;
+            if (decoded == null && encodedImage != null) {
+                try {
+                    decoded = ImageIO.read(new ByteArrayInputStream(encodedImage));
+                } catch (IOException e) {
+                    e.printStackTrace();
+                }
+                image = decoded;
+            }
+        }
+        if (decoded != null) {
+            ImageMemoryManager.shared().touch(this);
+        }
+        return decoded;
+    }
+
+    /** PNG bytes of an IMAGE item, encoding them on first use. Null for other types. */
+    public byte[] getEncodedImage() {
+        BufferedImage source;
+        synchronized (this) {
+            if (encodedImage != null || image == null)
+                return encodedImage;
+            source = image;
+        }
+        // Encode outside the lock so the EDT can keep reading the decoded image meanwhile
+        ByteArrayOutputStream png = new ByteArrayOutputStream();
+        try {
+            ImageIO.write(source, "png", png);
+        } catch (IOException e) {
+            e.printStackTrace();
+            return null;
+        }
+        synchronized (this) {
+            if (encodedImage == null)
+                encodedImage = png.toByteArray();
+            return encodedImage;
+        }
+    }
+
+    /** Drops the decoded pixels if they can be restored from PNG. Returns false otherwise. */
+    synchronized boolean releaseDecodedImage() {
+        if (encodedImage == null)
+            return image == null;
+        image = null;
+        return true;
+    }
+
+    long getDecodedImageBytes() {
+        return (long) width * height * 4;
+    }
+
+    /**
+     * What the item costs to keep: PNG size for images, packed size for cold
+     * text, payload size (in memory or on disk) otherwise.
+     */
+    public synchronized long getRetainedBytes() {
+        if (type == Type.IMAGE) {
+            return encodedImage != null ? encodedImage.length : getDecodedImageBytes();
+        }
+        if (coldText == null && coldRichText == null)
+            return sizeInBytes;
+        long bytes = coldRichText != null ? coldRichText.length : 0;
+        if (coldText != null)
+            bytes += coldText.length;
+        else if (richText == null && textStats != null)
+            bytes += textStats.getUtf8Bytes();
+        return bytes;
+    }
+
+    /** When the item was last copied back, or captured if it never was. Drives the cold tier. */
+    public LocalDateTime getLastUsed() {
+        LocalDateTime used = lastUsed;
+        return used != null ? used : timestamp;
+    }
+
+    /** Doesn't change the revision: the history store records uses on their own, see {@link HistoryStore#markUsed}. */
+    public void markUsed() {
+        lastUsed = LocalDateTime.now();
+    }
+
+    void restoreLastUsed(LocalDateTime used) {
+        lastUsed = used;
+    }
+
+    /**
+     * Changes whenever what is saved with the item changes after capture,
+     * entering or leaving the cold tier included. Use is tracked apart.
+     */
+    int getRevision() {
+        return revision;
+    }
+
+    /**
+     * Moves the item into the cold tier: packs its text, or re-encodes its PNG.
+     * On an item that is already cold, drops the text decoded since. Returns
+     * the bytes saved by packing, 0 when nothing was packed.
+     */
+    long freeze() {
+        if (type == Type.IMAGE)
+            return compactImage();
+        if (type == Type.GIF || isBlobBacked())
+            return 0;
+        String plain;
+        String rich;
+        synchronized (this) {
+            if (coldText != null || coldRichText != null) {
+                if (coldText != null)
+                    text = null;
+                if (coldRichText != null)
+                    richText = null;
+                return 0;
+            }
+            plain = text;
+            rich = richText;
+        }
+        // Pack outside the lock so the EDT can keep reading the text meanwhile
+        byte[] packedText = packIfSmaller(plain);
+        byte[] packedRich = packIfSmaller(rich);
+        if (packedText == null && packedRich == null)
+            return 0;
+        long saved = 0;
+        synchronized (this) {
+            if (packedText != null) {
+                saved += CaptureLimits.utf8Length(plain) - packedText.length;
+                coldText = packedText;
+                text = null;
+            }
+            if (packedRich != null) {
+                saved += CaptureLimits.utf8Length(rich) - packedRich.length;
+                coldRichText = packedRich;
+                richText = null;
+            }
+            revision++;
+        }
+        return saved;
+    }
+
+    private static byte[] packIfSmaller(String value) {
+        if (value == null || value.length() < ColdStorage.MIN_CHARS)
+            return null;
+        byte[] packed = ColdStorage.pack(value);
+        return packed.length < CaptureLimits.utf8Length(value) ? packed : null;
+    }
+
+    private long compactImage() {
+        synchronized (this) {
+            if (compactPng)
+                return 0;
+        }
+        byte[] png = getEncodedImage();
+        if (png == null)
+            return 0;
+        byte[] packed = ColdStorage.recompressPng(png);
+        synchronized (this) {
+            encodedImage = packed;
+            compactPng = true;
+            revision++;
+        }
+        return png.length - packed.length;
+    }
+
+    /**
+     * Takes a cold text item back out of the cold tier. Re-encoded PNGs stay
+     * as they are, since they decode just as fast. Returns false if there was
+     * nothing to thaw.
+     */
+    synchronized boolean thaw() {
+        if (coldText == null && coldRichText == null)
+            return false;
+        if (coldText != null) {
+            if (text == null)
+                text = ColdStorage.unpack(coldText);
+            coldText = null;
+        }
+        if (coldRichText != null) {
+            if (richText == null)
+                richText = ColdStorage.unpack(coldRichText);
+            coldRichText = null;
+        }
+        revision++;
+        return true;
+    }
     public byte[] getGifData() { return gifData; }
     public LocalDateTime getTimestamp() { return timestamp; }
     public long getSizeInBytes() { return sizeInBytes; }
@@ -180,7 +504,16 @@ public class ClipboardItem implements Serializable {
     public int getDurationMs() { return durationMs; }
     
     public String getCaption() { return caption; }
-    public void setCaption(String caption) { this.caption = caption; }
+    public void setCaption(String caption) { this.caption = caption; revision++; }
+
+    public String getOcrText() { return ocrText; }
+    public void setOcrText(String ocrText) { this.ocrText = ocrText; revision++; }
+
+    public boolean isPinned() { return pinned; }
+    public void setPinned(boolean pinned) { this.pinned = pinned; revision++; }
+
+    public String getBlobId() { return blobId; }
+    public boolean isBlobBacked() { return blobId != null; }
 
     public String getFormattedSize() {
         if (sizeInBytes < 1024) return sizeInBytes + " B";
@@ -188,22 +521,103 @@ public class ClipboardItem implements Serializable {
         return String.format("%.1f MB", sizeInBytes / (1024.0 * 1024.0));
     }
 
-    public int getCharacterCount() {
-        return text == null ? 0 : text.length();
+    /**
+     * Counts and hints for the text. Items saved before stats were recorded get
+     * them on first access; they are persisted again with the next save.
+     */
+    public TextStats getTextStats() {
+        if (textStats == null) {
+            String plain = getText();
+            if (plain != null)
+                textStats = TextAnalyzer.analyze(plain);
+        }
+        return textStats;
     }
 
-    public int getWordCount() {
-        if (text == null || text.isEmpty()) return 0;
-        return text.split("\\s+").length;
+    /**
+     * What a {@link Type#TEXT}, URL or SVG item contains, or null for other types.
+     * Items saved before classification existed are classified on first access.
+     */
+    public ContentClassifier.Kind getContentKind() {
+        if (contentKind == null && (type == Type.TEXT || type == Type.URL || type == Type.SVG)) {
+            ContentClassifier.Result content = ContentClassifier.classify(getText(), getTextStats(),
+                    isPreviewTruncated());
+            contentKind = type == Type.TEXT ? content.kind()
+                    : type == Type.URL ? ContentClassifier.Kind.URL : ContentClassifier.Kind.SVG;
+            codeLanguage = content.language();
+        }
+        return contentKind;
     }
 
-    public int getLineCount() {
-        if (text == null || text.isEmpty()) return 0;
-        return text.split("\r\n|\r|\n").length;
+    /** Whether {@link #getText()} is only the head of a blob rather than all of it. */
+    private boolean isPreviewTruncated() {
+        return blobId != null && sizeInBytes > BlobStore.PREVIEW_BYTES;
+    }
+
+    /** Best guess at the programming language when the content kind is CODE, otherwise null. */
+    public String getCodeLanguage() {
+        return getContentKind() == ContentClassifier.Kind.CODE ? codeLanguage : null;
+    }
+
+    /**
+     * Whether the item matches an {@code is:} search facet: a content kind
+     * ({@code is:json}), a code language ({@code is:python}) or one of
+     * {@code pinned}, {@code image}, {@code gif}, {@code html}, {@code rtf},
+     * {@code files} and {@code large}. {@code facet} must be lower case.
+     */
+    public boolean hasFacet(String facet) {
+        switch (facet) {
+            case "pinned":
+                return pinned;
+            case "image":
+                return type == Type.IMAGE || getContentKind() == ContentClassifier.Kind.BASE64_IMAGE;
+            case "gif":
+                return type == Type.GIF;
+            case "html":
+                return type == Type.HTML || "HTML".equals(getCodeLanguage());
+            case "rtf":
+                return type == Type.RTF;
+            case "file":
+            case "files":
+                return type == Type.FILE_LIST;
+            case "large":
+                return isBlobBacked();
+            default:
+                break;
+        }
+        ContentClassifier.Kind kind = getContentKind();
+        if (kind == null)
+            return false;
+        if (kind.getFacet().equals(facet))
+            return true;
+        String language = getCodeLanguage();
+        if (language != null) {
+            // "C/C++" answers to both is:c and is:c++
+            for (String name : language.split("/")) {
+                if (name.equalsIgnoreCase(facet))
+                    return true;
+            }
+        }
+        return false;
+    }
+
+    public long getCharacterCount() {
+        TextStats stats = getTextStats();
+        return stats == null ? 0 : stats.getChars();
+    }
+
+    public long getWordCount() {
+        TextStats stats = getTextStats();
+        return stats == null ? 0 : stats.getWords();
+    }
+
+    public long getLineCount() {
+        TextStats stats = getTextStats();
+        return stats == null ? 0 : stats.getLines();
     }
 
     public BufferedImage getAsImage() {
-        if (type == Type.IMAGE) return image;
+        if (type == Type.IMAGE) return getImage();
         if (type == Type.GIF && gifData != null) {
             try {
                 return ImageIO.read(new ByteArrayInputStream(gifData));
@@ -214,12 +628,18 @@ public class ClipboardItem implements Serializable {
         return null;
     }
 
+    /** True for every type whose content is carried as text rather than pixels. */
+    public boolean isTextual() {
+        return type == Type.TEXT || type == Type.URL || type == Type.HTML || type == Type.RTF
+                || type == Type.FILE_LIST;
+    }
+
     public int getCols() {
         if (type == Type.IMAGE || type == Type.GIF || type == Type.SVG) {
              if (width > height * 1.5) return 2;
              return 1;
         }
-        if (text != null && text.length() > 200) return 2;
+        if (getTextLength() > 200) return 2;
         return 1;
     }
 
@@ -228,10 +648,18 @@ public class ClipboardItem implements Serializable {
              if (height > width * 1.5) return 2;
              return 1;
         }
-        if (text != null && text.length() > 400) return 2;
+        if (getTextLength() > 400) return 2;
         return 1;
     }
 
+    /** Length of the text without unpacking a cold item. */
+    private long getTextLength() {
+        String plain = text;
+        if (plain != null)
+            return plain.length();
+        return coldText != null ? getCharacterCount() : 0;
+    }
+
     public String getAspectRatio() {
         if (width == 0 || height == 0) return "N/A";
         int gcd = gcd(width, height);
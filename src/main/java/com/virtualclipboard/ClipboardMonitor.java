@@ -3,9 +3,9 @@ package com.virtualclipboard;
 import java.awt.*;
 import java.awt.datatransfer.*;
 import java.awt.image.BufferedImage;
-import java.io.File;
 import java.io.IOException;
-import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Comparator;
 import java.util.List;
 import java.util.concurrent.Executors;
 import java.util.concurrent.ScheduledExecutorService;
@@ -13,27 +13,164 @@ import java.util.concurrent.TimeUnit;
 import java.util.function.Consumer;
 
 public class ClipboardMonitor {
+    private static final Metrics.Histogram POLL_TIME = Metrics.timer("capture.poll");
+    private static final Metrics.Histogram CAPTURE_TIME = Metrics.timer("capture.latency");
+    private static final Metrics.Counter CAPTURED = Metrics.counter("capture.items");
+
     private final ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor();
     private final Consumer<ClipboardItem> onNewItem;
+    private final BlobStore blobStore;
+    private volatile List<CaptureHandler> handlers;
+    private volatile CaptureLimits captureLimits = CaptureLimits.DEFAULT;
     private Object lastContent = null;
+    private boolean priming = false;
+
+    /**
+     * Stands in for text too large to hold on to as {@code lastContent}. Only the
+     * length and hash are kept. Each poll brings a new String whose hash has to be
+     * computed again, so the length is compared first to skip that pass whenever
+     * the size changed.
+     */
+    private record LargeText(int length, int hash, String blobId) {
+        boolean matches(String text) {
+            return text.length() == length && text.hashCode() == hash;
+        }
+    }
 
     public ClipboardMonitor(Consumer<ClipboardItem> onNewItem) {
+        this(onNewItem, new BlobStore());
+    }
+
+    public ClipboardMonitor(Consumer<ClipboardItem> onNewItem, BlobStore blobStore) {
         this.onNewItem = onNewItem;
+        this.blobStore = blobStore;
+        this.handlers = chain(CaptureHandlers.defaults());
+    }
+
+    /**
+     * Adds a handler to the chain. The chain is kept sorted by priority (highest
+     * first) and cost (cheapest first), and replaced wholesale so the polling
+     * thread never sees a half-updated list.
+     */
+    public synchronized void register(CaptureHandler handler) {
+        List<CaptureHandler> updated = new ArrayList<>(handlers);
+        updated.add(handler);
+        handlers = chain(updated);
+    }
+
+    private static List<CaptureHandler> chain(List<CaptureHandler> handlers) {
+        List<CaptureHandler> sorted = new ArrayList<>(handlers);
+        sorted.sort(Comparator.comparingInt(CaptureHandler::getPriority).reversed()
+                .thenComparingInt(CaptureHandler::getCost));
+        return List.copyOf(sorted);
+    }
+
+    public synchronized void unregister(Class<? extends CaptureHandler> type) {
+        List<CaptureHandler> updated = new ArrayList<>(handlers);
+        updated.removeIf(type::isInstance);
+        handlers = List.copyOf(updated);
+    }
+
+    /** HTML and RTF capture is opt-in so the common plain-text path stays untouched. */
+    public void setRichTextCapture(boolean enabled) {
+        unregister(CaptureHandlers.HtmlHandler.class);
+        unregister(CaptureHandlers.RtfHandler.class);
+        if (enabled) {
+            for (CaptureHandler handler : CaptureHandlers.richText()) {
+                register(handler);
+            }
+        }
+    }
+
+    public void setCaptureLimits(CaptureLimits captureLimits) {
+        this.captureLimits = captureLimits;
+    }
+
+    public CaptureLimits getCaptureLimits() {
+        return captureLimits;
+    }
+
+    boolean isPriming() {
+        return priming;
+    }
+
+    BlobStore getBlobStore() {
+        return blobStore;
     }
 
     public void updateLastContent(Object content) {
         this.lastContent = content;
     }
 
+    /** True when {@code content} is what was captured (or copied back) most recently. */
+    boolean isLastContent(Object content) {
+        if (content instanceof byte[]) {
+            return lastContent instanceof byte[] && java.util.Arrays.equals((byte[]) content, (byte[]) lastContent);
+        }
+        if (content instanceof BufferedImage) {
+            return lastContent instanceof BufferedImage && imagesAreEqual((BufferedImage) content, (BufferedImage) lastContent);
+        }
+        if (content instanceof String && lastContent instanceof LargeText) {
+            return ((LargeText) lastContent).matches((String) content);
+        }
+        return content.equals(lastContent);
+    }
+
+    /** Records {@code content} as the latest clipboard state and emits the item for it. */
+    void publish(Object content, ClipboardItem item) {
+        lastContent = content;
+        if (!priming) {
+            onNewItem.accept(item);
+        }
+    }
+
+    /**
+     * Like {@link #publish} for text, but remembers oversized text only by length
+     * and hash so the monitor does not pin it in memory. {@code item} may be null
+     * when the text was over the size limit and is being skipped.
+     */
+    void publishText(String text, ClipboardItem item) {
+        if (CaptureLimits.utf8Length(text) > captureLimits.getInlineTextBytes()) {
+            lastContent = new LargeText(text.length(), text.hashCode(), item != null ? item.getBlobId() : null);
+        } else {
+            lastContent = text;
+        }
+        if (!priming && item != null) {
+            onNewItem.accept(item);
+        }
+    }
+
+    /**
+     * Runs the handler chain once without emitting anything, so whatever is on the
+     * clipboard at startup is not captured as a new item.
+     */
+    public void prime() {
+        priming = true;
+        try {
+            checkClipboard();
+        } finally {
+            priming = false;
+        }
+    }
+
     public void resetIfCurrent(ClipboardItem item) {
         if (item == null || lastContent == null) return;
 
         boolean match = false;
         
-        if (item.getType() == ClipboardItem.Type.TEXT || item.getType() == ClipboardItem.Type.URL || item.getType() == ClipboardItem.Type.SVG) {
+        if (item.isBlobBacked()) {
+            if (lastContent instanceof LargeText && item.getBlobId().equals(((LargeText) lastContent).blobId())) {
+                match = true;
+            }
+        } else if (item.getType() == ClipboardItem.Type.TEXT || item.getType() == ClipboardItem.Type.URL
+                || item.getType() == ClipboardItem.Type.SVG || item.getType() == ClipboardItem.Type.FILE_LIST) {
             if (lastContent instanceof String && item.getText().equals(lastContent)) {
                 match = true;
             }
+        } else if (item.getType() == ClipboardItem.Type.HTML || item.getType() == ClipboardItem.Type.RTF) {
+            if (lastContent instanceof String && item.getRichText().equals(lastContent)) {
+                match = true;
+            }
         } else if (item.getType() == ClipboardItem.Type.GIF) {
             if (lastContent instanceof byte[] && java.util.Arrays.equals(item.getGifData(), (byte[]) lastContent)) {
                 match = true;
@@ -63,6 +200,9 @@ public class ClipboardMonitor {
     }
 
     private void checkClipboard() {
+        long start = System.nanoTime();
+        ClipboardEvents.Capture event = new ClipboardEvents.Capture();
+        event.begin();
         try {
             Clipboard clipboard = Toolkit.getDefaultToolkit().getSystemClipboard();
             Transferable contents = clipboard.getContents(null);
@@ -70,63 +210,32 @@ public class ClipboardMonitor {
             if (contents == null)
                 return;
 
-            if (contents.isDataFlavorSupported(DataFlavor.javaFileListFlavor)) {
-                List<File> files = (List<File>) contents.getTransferData(DataFlavor.javaFileListFlavor);
-                if (files != null && !files.isEmpty()) {
-                    File file = files.get(0);
-                    if (file.getName().toLowerCase().endsWith(".svg")) {
-                        try {
-                            String svgContent = Files.readString(file.toPath());
-                            if (!svgContent.equals(lastContent)) {
-                                lastContent = svgContent;
-                                System.out.println("New SVG file detected");
-                                onNewItem.accept(new ClipboardItem(svgContent));
-                            }
-                            return; // Priority given to SVG file over other flavors
-                        } catch (IOException e) {
-                            // Fallback to other flavors if reading fails
-                        }
-                    } else if (file.getName().toLowerCase().endsWith(".gif")) {
-                        try {
-                            byte[] gifBytes = Files.readAllBytes(file.toPath());
-                            if (!(lastContent instanceof byte[]) || !java.util.Arrays.equals(gifBytes, (byte[]) lastContent)) {
-                                lastContent = gifBytes;
-                                System.out.println("New GIF file detected");
-                                BufferedImage img = javax.imageio.ImageIO.read(new java.io.ByteArrayInputStream(gifBytes));
-                                if (img != null) {
-                                    onNewItem.accept(new ClipboardItem(gifBytes, img.getWidth(), img.getHeight()));
-                                }
-                            }
-                            return;
-                        } catch (IOException e) {
-                            // Fallback
-                        }
+            for (CaptureHandler handler : handlers) {
+                if (!contents.isDataFlavorSupported(handler.getFlavor()))
+                    continue;
+                event.handler = handler.getClass().getSimpleName();
+                try {
+                    if (handler.capture(contents, this)) {
+                        event.captured = true;
+                        CAPTURE_TIME.recordSince(start);
+                        CAPTURED.increment();
+                        return;
                     }
+                } catch (UnsupportedFlavorException | IOException e) {
+                    // Flavor vanished or could not be read, let the next handler try
                 }
             }
-
-            if (contents.isDataFlavorSupported(DataFlavor.stringFlavor)) {
-                String text = (String) contents.getTransferData(DataFlavor.stringFlavor);
-                if (!text.equals(lastContent)) {
-                    lastContent = text;
-                    System.out.println("New text item detected");
-                    onNewItem.accept(new ClipboardItem(text));
-                }
-            } else if (contents.isDataFlavorSupported(DataFlavor.imageFlavor)) {
-                BufferedImage image = (BufferedImage) contents.getTransferData(DataFlavor.imageFlavor);
-                if (lastContent == null || !(lastContent instanceof BufferedImage)
-                        || !imagesAreEqual(image, (BufferedImage) lastContent)) {
-                    lastContent = image;
-                    System.out.println("New image item detected");
-                    onNewItem.accept(new ClipboardItem(image));
-                }
-            }
-        } catch (UnsupportedFlavorException | IOException | IllegalStateException e) {
+        } catch (IllegalStateException e) {
             // Clipboard might be busy or flavor not available anymore
+        } finally {
+            POLL_TIME.recordSince(start);
+            // Idle polls are not worth an event
+            if (event.handler != null)
+                event.commit();
         }
     }
 
-    private boolean imagesAreEqual(BufferedImage img1, BufferedImage img2) {
+    static boolean imagesAreEqual(BufferedImage img1, BufferedImage img2) {
         if (img1 == img2)
             return true;
         if (img1 == null || img2 == null)
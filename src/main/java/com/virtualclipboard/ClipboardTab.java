@@ -0,0 +1,123 @@
+package com.virtualclipboard;
+
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.ObjectStreamField;
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * A named history list. Items are kept in capture order in an
+ * {@link ItemTimeline}; {@link #displayItems} serves the tab's chosen sort order.
+ * <p>
+ * This class used to be nested in {@link App}. {@link ClipboardEngine} maps the
+ * old {@code App$ClipboardTab} stream class onto this one, or onto
+ * {@link Legacy} for files written before tabs had a sort order.
+ */
+public class ClipboardTab implements Serializable {
+    private static final long serialVersionUID = 1L;
+    // Keep the original on-disk layout, where items was a plain List
+    private static final ObjectStreamField[] serialPersistentFields = {
+            new ObjectStreamField("name", String.class),
+            new ObjectStreamField("items", List.class),
+            new ObjectStreamField("iconValue", String.class),
+            new ObjectStreamField("isEmoji", boolean.class),
+            new ObjectStreamField("sortOrder", String.class) };
+
+    String name;
+    ItemTimeline items = new ItemTimeline();
+    String iconValue; // Path to SVG or Emoji text
+    boolean isEmoji;
+    SortedViews.Order sortOrder = SortedViews.Order.MANUAL;
+    String key; // Files the tab's items in the HistoryStore; unlike the name it never changes
+    private transient SortedViews views;
+
+    public ClipboardTab(String name) {
+        this.name = name;
+    }
+
+    public String getName() { return name; }
+
+    /** Items in capture order, newest first unless the user reordered them. */
+    public List<ClipboardItem> getItems() { return items; }
+
+    public SortedViews.Order getSortOrder() { return sortOrder; }
+
+    String getKey() {
+        if (key == null)
+            key = UUID.randomUUID().toString();
+        return key;
+    }
+
+    /** Items in this tab's chosen display order. Call from one thread only (the EDT in the app). */
+    List<ClipboardItem> displayItems(Runnable onReorder) {
+        if (views == null)
+            views = new SortedViews(items);
+        return views.get(sortOrder, onReorder);
+    }
+
+    /** A copy sharing this tab's items, for writing out while the tab keeps changing. */
+    ClipboardTab copy() {
+        ClipboardTab copy = new ClipboardTab(name);
+        copy.key = getKey();
+        copy.items = new ItemTimeline(items);
+        copy.iconValue = iconValue;
+        copy.isEmoji = isEmoji;
+        copy.sortOrder = sortOrder;
+        return copy;
+    }
+
+    private void writeObject(ObjectOutputStream out) throws IOException {
+        ObjectOutputStream.PutField fields = out.putFields();
+        fields.put("name", name);
+        fields.put("items", new ArrayList<>(items));
+        fields.put("iconValue", iconValue);
+        fields.put("isEmoji", isEmoji);
+        fields.put("sortOrder", sortOrder.name());
+        out.writeFields();
+    }
+
+    private void readObject(ObjectInputStream in) throws IOException, ClassNotFoundException {
+        ObjectInputStream.GetField fields = in.readFields();
+        readCommonFields(fields);
+        String order = (String) fields.get("sortOrder", null);
+        try {
+            sortOrder = order != null ? SortedViews.Order.valueOf(order) : SortedViews.Order.MANUAL;
+        } catch (IllegalArgumentException e) {
+            sortOrder = SortedViews.Order.MANUAL;
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private void readCommonFields(ObjectInputStream.GetField fields) throws IOException, ClassNotFoundException {
+        name = (String) fields.get("name", null);
+        List<ClipboardItem> stored = (List<ClipboardItem>) fields.get("items", null);
+        items = stored != null ? new ItemTimeline(stored) : new ItemTimeline();
+        iconValue = (String) fields.get("iconValue", null);
+        isEmoji = fields.get("isEmoji", false);
+    }
+
+    /** The original four-field layout. Only ever read, and replaced by a ClipboardTab. */
+    static final class Legacy implements Serializable {
+        private static final long serialVersionUID = 1L;
+        private static final ObjectStreamField[] serialPersistentFields = {
+                new ObjectStreamField("name", String.class),
+                new ObjectStreamField("items", List.class),
+                new ObjectStreamField("iconValue", String.class),
+                new ObjectStreamField("isEmoji", boolean.class) };
+
+        private transient ClipboardTab tab;
+
+        private void readObject(ObjectInputStream in) throws IOException, ClassNotFoundException {
+            tab = new ClipboardTab(null);
+            tab.readCommonFields(in.readFields());
+        }
+
+        private Object readResolve() {
+            return tab;
+        }
+    }
+}
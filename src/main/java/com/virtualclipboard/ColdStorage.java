@@ -0,0 +1,268 @@
+package com.virtualclipboard;
+
+import java.awt.image.BufferedImage;
+import java.awt.image.IndexColorModel;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+import javax.imageio.IIOImage;
+import javax.imageio.ImageIO;
+import javax.imageio.ImageWriteParam;
+import javax.imageio.ImageWriter;
+import javax.imageio.stream.ImageOutputStream;
+
+/**
+ * The compressed tier for items nobody has used in a while. Cold text is
+ * deflated on its own against a preset dictionary of fragments common on a
+ * clipboard (JSON, markup, code, URLs, English), so even short snippets
+ * shrink; the item keeps only those bytes and inflates them again on access.
+ * Cold images are re-encoded as PNG at full compression, as a palette image
+ * when they have few colours and without alpha when they are opaque.
+ * <p>
+ * {@link RetentionEngine} calls {@link #sweep} after each retention pass.
+ * Items used again within the window are thawed by the next sweep.
+ */
+final class ColdStorage {
+    /** Text shorter than this costs more in bookkeeping than it saves. */
+    static final int MIN_CHARS = 128;
+
+    // Stored as the first byte of every packed block, so the dictionary can change without breaking old blocks
+    private static final byte DICTIONARY_V1 = 1;
+    private static final byte[] DICTIONARY = dictionary();
+
+    private static final Metrics.Counter FROZEN = Metrics.counter("cold.frozen");
+    private static final Metrics.Counter THAWED = Metrics.counter("cold.thawed");
+    private static final Metrics.Counter SAVED_BYTES = Metrics.counter("cold.saved.bytes");
+    private static final Metrics.Histogram INFLATE_TIME = Metrics.timer("cold.inflate");
+
+    private ColdStorage() {
+    }
+
+    /**
+     * Moves items untouched for longer than {@code after} into the cold tier,
+     * and items used since back out of it. {@code skip} holds items about to
+     * be removed. Runs off the EDT, items guard their own state. Returns the
+     * number of items frozen.
+     */
+    static int sweep(List<List<ClipboardItem>> tabs, Duration after, LocalDateTime now, Set<ClipboardItem> skip) {
+        LocalDateTime cutoff = after != null ? now.minus(after) : null;
+        Set<ClipboardItem> seen = Collections.newSetFromMap(new IdentityHashMap<>());
+        int frozen = 0;
+        for (List<ClipboardItem> tab : tabs) {
+            for (ClipboardItem item : tab) {
+                if (!seen.add(item) || skip.contains(item))
+                    continue;
+                if (cutoff == null || !item.getLastUsed().isBefore(cutoff)) {
+                    if (item.thaw())
+                        THAWED.increment();
+                } else {
+                    long saved = item.freeze();
+                    if (saved > 0) {
+                        frozen++;
+                        FROZEN.increment();
+                        SAVED_BYTES.add(saved);
+                    }
+                }
+            }
+        }
+        return frozen;
+    }
+
+    /** Deflates {@code text} against the shared dictionary. */
+    static byte[] pack(String text) {
+        byte[] raw = text.getBytes(StandardCharsets.UTF_8);
+        Deflater deflater = new Deflater(Deflater.BEST_COMPRESSION);
+        try {
+            deflater.setDictionary(DICTIONARY);
+            deflater.setInput(raw);
+            deflater.finish();
+            ByteArrayOutputStream out = new ByteArrayOutputStream(raw.length / 3 + 16);
+            out.write(DICTIONARY_V1);
+            byte[] buffer = new byte[8192];
+            while (!deflater.finished()) {
+                out.write(buffer, 0, deflater.deflate(buffer));
+            }
+            return out.toByteArray();
+        } finally {
+            deflater.end();
+        }
+    }
+
+    /** Reverses {@link #pack}. */
+    static String unpack(byte[] packed) {
+        long start = System.nanoTime();
+        if (packed[0] != DICTIONARY_V1)
+            throw new IllegalStateException("Unknown cold text format " + packed[0]);
+        Inflater inflater = new Inflater();
+        try {
+            inflater.setInput(packed, 1, packed.length - 1);
+            ByteArrayOutputStream out = new ByteArrayOutputStream(packed.length * 4);
+            byte[] buffer = new byte[8192];
+            while (!inflater.finished()) {
+                int n = inflater.inflate(buffer);
+                if (n == 0) {
+                    if (inflater.needsDictionary()) {
+                        inflater.setDictionary(DICTIONARY);
+                    } else if (inflater.needsInput() && !inflater.finished()) {
+                        throw new IllegalStateException("Cold text is cut short");
+                    }
+                }
+                out.write(buffer, 0, n);
+            }
+            INFLATE_TIME.recordSince(start);
+            return out.toString(StandardCharsets.UTF_8);
+        } catch (DataFormatException e) {
+            throw new IllegalStateException("Cold text is corrupt", e);
+        } finally {
+            inflater.end();
+        }
+    }
+
+    /**
+     * Re-encodes a PNG as small as it losslessly gets. Returns the original
+     * bytes when the result is not smaller.
+     */
+    static byte[] recompressPng(byte[] png) {
+        try {
+            BufferedImage image = ImageIO.read(new ByteArrayInputStream(png));
+            if (image == null)
+                return png;
+            byte[] packed = writePng(reduce(image));
+            return packed.length < png.length ? packed : png;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /** The same pixels with a palette when there are at most 256 colours, or without alpha when opaque. */
+    static BufferedImage reduce(BufferedImage image) {
+        int width = image.getWidth();
+        int height = image.getHeight();
+        int[] pixels = image.getRGB(0, 0, width, height, null, 0, width);
+        boolean opaque = true;
+        Map<Integer, Integer> palette = new HashMap<>();
+        for (int argb : pixels) {
+            opaque &= (argb >>> 24) == 0xFF;
+            if (palette != null && !palette.containsKey(argb)) {
+                if (palette.size() == 256)
+                    palette = null;
+                else
+                    palette.put(argb, palette.size());
+            }
+        }
+
+        if (palette != null) {
+            int size = palette.size();
+            byte[] r = new byte[size], g = new byte[size], b = new byte[size], a = new byte[size];
+            for (Map.Entry<Integer, Integer> e : palette.entrySet()) {
+                int argb = e.getKey();
+                int i = e.getValue();
+                a[i] = (byte) (argb >>> 24);
+                r[i] = (byte) (argb >> 16);
+                g[i] = (byte) (argb >> 8);
+                b[i] = (byte) argb;
+            }
+            IndexColorModel model = opaque ? new IndexColorModel(8, size, r, g, b)
+                    : new IndexColorModel(8, size, r, g, b, a);
+            BufferedImage indexed = new BufferedImage(width, height, BufferedImage.TYPE_BYTE_INDEXED, model);
+            byte[] indices = new byte[pixels.length];
+            for (int i = 0; i < pixels.length; i++) {
+                indices[i] = (byte) (int) palette.get(pixels[i]);
+            }
+            indexed.getRaster().setDataElements(0, 0, width, height, indices);
+            return indexed;
+        }
+        if (opaque && image.getColorModel().hasAlpha()) {
+            BufferedImage rgb = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+            rgb.setRGB(0, 0, width, height, pixels, 0, width);
+            return rgb;
+        }
+        return image;
+    }
+
+    private static byte[] writePng(BufferedImage image) throws IOException {
+        Iterator<ImageWriter> writers = ImageIO.getImageWritersByFormatName("png");
+        if (!writers.hasNext())
+            throw new IOException("No PNG writer");
+        ImageWriter writer = writers.next();
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try (ImageOutputStream stream = ImageIO.createImageOutputStream(out)) {
+            writer.setOutput(stream);
+            ImageWriteParam param = writer.getDefaultWriteParam();
+            if (param.canWriteCompressed()) {
+                param.setCompressionMode(ImageWriteParam.MODE_EXPLICIT);
+                param.setCompressionQuality(0f); // Quality 0 is deflate level 9 for the JDK's writer
+            }
+            writer.write(null, new IIOImage(image, null, null), param);
+        } finally {
+            writer.dispose();
+        }
+        return out.toByteArray();
+    }
+
+    /**
+     * Fragments that recur in clipboard text. Deflate finds matches nearer the
+     * end of the dictionary more cheaply, so the most common ones come last.
+     * Never edit this in place: add a new version byte and dictionary instead,
+     * or items frozen with the old one can no longer be read.
+     */
+    private static byte[] dictionary() {
+        String[] fragments = {
+                // Markup and styling
+                "<!DOCTYPE html><html lang=\"en\"><head><meta charset=\"utf-8\"><title></title></head><body>",
+                "</body></html>", "<div class=\"", "</div>", "<span class=\"", "</span>", "<p>", "</p>",
+                "<a href=\"https://", "</a>", "<img src=\"", "<br>", "<li>", "</li>", "<ul>", "</ul>",
+                "<table>", "<tr>", "<td>", "</td>", "</tr>", "style=\"", "font-family:", "font-size:",
+                "color:", "margin:", "padding:", "display:flex;", "width:100%;", "{\\rtf1\\ansi",
+                "\\par ", "\\fs24 ",
+                "<svg xmlns=\"http://www.w3.org/2000/svg\" viewBox=\"0 0 24 24\"><path d=\"", "\"/></svg>",
+                // Shell, logs and stack traces
+                "sudo apt-get install ", "git commit -m \"", "git checkout ", "docker run ", "npm install ",
+                "pip install ", "cd ~/", "./gradlew ", "mvn ", "ERROR ", "WARN ", "INFO ", "DEBUG ",
+                "Exception in thread \"main\" ", "java.lang.", "Caused by: ", "\tat java.base/",
+                "\tat org.", "\tat com.", "Traceback (most recent call last):\n  File \"",
+                // Code
+                "#include <stdio.h>\n", "using namespace std;", "SELECT * FROM ", " WHERE ", " ORDER BY ",
+                "INSERT INTO ", " VALUES (", "def __init__(self", "import numpy as np\n",
+                "from typing import ", "if __name__ == \"__main__\":\n", "console.log(", "document.",
+                "export default ", "const ", "let ", "async ", "await ", "function ", "=> {\n",
+                "package ", "import java.util.", "public static void main(String[] args) {\n",
+                "private final ", "public class ", "@Override\n    public ", "throws IOException",
+                "new ArrayList<>()", "String ", "return ", "null", "this.", "else {\n", "} else ",
+                "if (", "for (", "while (", "int i = 0; i < ", ".length", ".size()", "++) {\n",
+                "true", "false", "();\n", ");\n", "    }\n", "        ", "    ",
+                // URLs
+                "https://github.com/", "https://stackoverflow.com/questions/", "https://www.youtube.com/watch?v=",
+                "https://docs.google.com/", "https://en.wikipedia.org/wiki/", "https://www.google.com/search?q=",
+                "utm_source=", "&utm_medium=", ".html", ".php?", "index", "?id=", "&amp;", "http://",
+                "https://www.", ".com/", ".org/",
+                // JSON
+                "\"id\":", "\"name\":", "\"type\":", "\"value\":", "\"data\":", "\"status\":", "\"message\":",
+                "\"url\":", "\"created_at\":\"", "\"description\":", "\"items\":[", "null,", "true,", "false,",
+                "{\n  \"", "\",\n  \"", "\": \"", "\": ", "\"}", "\"},{\"", "\":\"", "\",\"", "},\n", "],\n",
+                // English prose
+                "Please let me know if you have any questions.", "Thank you for your ", "Best regards,\n",
+                "Hi ", "Hello ", "I would like to ", "I think ", "could you ", "would be ", "we will ",
+                "information", "following", "because ", "however, ", "should ", "which ", "there ",
+                "their ", "about ", "would ", "these ", "other ", "were ", "from ", "have ", "that ",
+                "with ", "this ", "will ", "your ", "not ", "are ", "for ", "you ", "was ", "but ",
+                "and ", "the ", "of the ", "in the ", "to the ", "on the ", "is ", "it ", "to ", "of ",
+                "in ", "a ", ". The ", ", and ", ". ", ", ", "\n\n", "\r\n", "\n",
+        };
+        return String.join("", fragments).getBytes(StandardCharsets.UTF_8);
+    }
+}
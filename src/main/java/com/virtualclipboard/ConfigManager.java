@@ -5,6 +5,8 @@ import java.util.Properties;
 
 public class ConfigManager {
     private static final String CONFIG_FILE = "config.properties";
+    // eng.traineddata from tessdata_fast, 4,113,088 bytes, as TessdataProvisioner downloads it
+    static final String DEFAULT_TESSDATA_SHA256 = "7d4322bd2a7749724879683fc3912cb542f19906c83bcc1a52132556427170b2";
     private final Properties properties = new Properties();
 
     public ConfigManager() {
@@ -106,6 +108,36 @@ public class ConfigManager {
         properties.setProperty("aiCaptionEnabled", String.valueOf(enabled));
     }
 
+    public boolean isAutoOcrEnabled() {
+        return Boolean.parseBoolean(properties.getProperty("autoOcrEnabled", "false"));
+    }
+
+    public void setAutoOcrEnabled(boolean enabled) {
+        properties.setProperty("autoOcrEnabled", String.valueOf(enabled));
+    }
+
+    /**
+     * SHA-256 the Tesseract language data must match, whether side-loaded, bundled
+     * or downloaded. Defaults to the tessdata_fast eng.traineddata the app
+     * downloads; set it to another model's checksum to side-load that model, or
+     * to an empty value to accept any file.
+     */
+    public String getTessdataSha256() {
+        return properties.getProperty("tessdataSha256", DEFAULT_TESSDATA_SHA256).trim();
+    }
+
+    /**
+     * Endpoint used to host images for reverse image search. Must accept the
+     * catbox.moe multipart form (reqtype=fileupload, fileToUpload) and reply with the URL.
+     */
+    public String getImageUploadUrl() {
+        return properties.getProperty("imageUploadUrl", "https://catbox.moe/user/api.php");
+    }
+
+    public void setImageUploadUrl(String url) {
+        properties.setProperty("imageUploadUrl", url);
+    }
+
     public String getOllamaModel() {
         return properties.getProperty("ollamaModel", "llama3");
     }
@@ -122,6 +154,71 @@ public class ConfigManager {
         properties.setProperty("autoSortByDate", String.valueOf(enabled));
     }
 
+    public int getInlineTextLimitKb() {
+        return Integer.parseInt(properties.getProperty("inlineTextLimitKb", "1024"));
+    }
+
+    public int getMaxTextSizeMb() {
+        return Integer.parseInt(properties.getProperty("maxTextSizeMb", "256"));
+    }
+
+    public void setMaxTextSizeMb(int mb) {
+        properties.setProperty("maxTextSizeMb", String.valueOf(mb));
+    }
+
+    public int getMaxImageSizeMb() {
+        return Integer.parseInt(properties.getProperty("maxImageSizeMb", "128"));
+    }
+
+    public void setMaxImageSizeMb(int mb) {
+        properties.setProperty("maxImageSizeMb", String.valueOf(mb));
+    }
+
+    public int getMaxTotalMb() {
+        return Integer.parseInt(properties.getProperty("maxTotalMb", "0"));
+    }
+
+    public void setMaxTotalMb(int mb) {
+        properties.setProperty("maxTotalMb", String.valueOf(mb));
+    }
+
+    public int getMaxAgeDays() {
+        return Integer.parseInt(properties.getProperty("maxAgeDays", "0"));
+    }
+
+    public void setMaxAgeDays(int days) {
+        properties.setProperty("maxAgeDays", String.valueOf(days));
+    }
+
+    /** Days an item can go unused before its content is compressed; 0 = never. */
+    public int getColdAfterDays() {
+        return Integer.parseInt(properties.getProperty("coldAfterDays", "30"));
+    }
+
+    public void setColdAfterDays(int days) {
+        properties.setProperty("coldAfterDays", String.valueOf(days));
+    }
+
+    public String getTypeQuotas() {
+        return properties.getProperty("typeQuotas", "");
+    }
+
+    public int getImageCacheMb() {
+        return Integer.parseInt(properties.getProperty("imageCacheMb", "256"));
+    }
+
+    public void setImageCacheMb(int mb) {
+        properties.setProperty("imageCacheMb", String.valueOf(mb));
+    }
+
+    public boolean isCaptureRichText() {
+        return Boolean.parseBoolean(properties.getProperty("captureRichText", "false"));
+    }
+
+    public void setCaptureRichText(boolean enabled) {
+        properties.setProperty("captureRichText", String.valueOf(enabled));
+    }
+
     public boolean isUseSvgTypeIcons() {
         return Boolean.parseBoolean(properties.getProperty("useSvgTypeIcons", "true"));
     }
@@ -146,6 +243,19 @@ public class ConfigManager {
         properties.setProperty("dynamicResizing", String.valueOf(enabled));
     }
 
+    public boolean isMetricsLogEnabled() {
+        return Boolean.parseBoolean(properties.getProperty("metricsLog", "false"));
+    }
+
+    public void setMetricsLogEnabled(boolean enabled) {
+        properties.setProperty("metricsLog", String.valueOf(enabled));
+    }
+
+    /** Event dispatches longer than this are reported as EDT stalls. Only set in the properties file. */
+    public int getEdtStallMs() {
+        return Integer.parseInt(properties.getProperty("edtStallMs", "100"));
+    }
+
     public boolean isHighContrast() {
         return Boolean.parseBoolean(properties.getProperty("highContrast", "false"));
     }
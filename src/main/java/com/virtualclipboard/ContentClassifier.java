@@ -0,0 +1,366 @@
+package com.virtualclipboard;
+
+/**
+ * Works out what a piece of copied text is: a URL, an e-mail address, JSON, code
+ * (with a language guess), a colour, a file path, SVG markup or a base64 data
+ * URI image. A hand-written scanner looks at no more than {@link #PREFIX_CHARS}
+ * from the start plus trailing whitespace at the end, so classifying a
+ * multi-megabyte paste costs the same as classifying a short one. Nothing is
+ * trimmed or copied.
+ */
+public final class ContentClassifier {
+    static final int PREFIX_CHARS = 4096;
+    private static final int MAX_TOKEN_CHARS = 2048;
+    private static final int MIN_LANGUAGE_SCORE = 6;
+
+    public enum Kind {
+        PLAIN("text", "Text"),
+        URL("url", "URL"),
+        EMAIL("email", "E-mail"),
+        JSON("json", "JSON"),
+        CODE("code", "Code"),
+        COLOR("color", "Colour"),
+        FILE_PATH("path", "Path"),
+        SVG("svg", "SVG"),
+        BASE64_IMAGE("image", "Data URI");
+
+        private final String facet;
+        private final String label;
+
+        Kind(String facet, String label) {
+            this.facet = facet;
+            this.label = label;
+        }
+
+        /** Name used by {@code is:} search facets. */
+        public String getFacet() { return facet; }
+        public String getLabel() { return label; }
+    }
+
+    /** Classification of one text; {@code language} is only set for {@link Kind#CODE}. */
+    public record Result(Kind kind, String language) {
+        static final Result PLAIN = new Result(Kind.PLAIN, null);
+    }
+
+    private record Keyword(String word, int language, int weight) {
+    }
+
+    private static final String[] LANGUAGES = { "Java", "Python", "JavaScript", "C/C++", "C#", "Go", "Rust", "SQL",
+            "Shell" };
+
+    // Words only count as whole identifiers; SQL keywords only in upper case
+    private static final Keyword[] KEYWORDS = {
+            kw("package", "Java", 1), kw("import", "Java", 1), kw("extends", "Java", 2),
+            kw("implements", "Java", 4), kw("throws", "Java", 4), kw("boolean", "Java", 3),
+            kw("void", "Java", 2), kw("public", "Java", 1), kw("private", "Java", 1),
+            kw("final", "Java", 2), kw("String", "Java", 1), kw("System", "Java", 2),
+            kw("def", "Python", 4), kw("elif", "Python", 5), kw("self", "Python", 2),
+            kw("None", "Python", 3), kw("lambda", "Python", 2), kw("import", "Python", 1),
+            kw("from", "Python", 1), kw("__init__", "Python", 5), kw("print", "Python", 1),
+            kw("function", "JavaScript", 3), kw("const", "JavaScript", 2), kw("let", "JavaScript", 1),
+            kw("var", "JavaScript", 2), kw("undefined", "JavaScript", 4), kw("console", "JavaScript", 3),
+            kw("require", "JavaScript", 2), kw("export", "JavaScript", 2), kw("document", "JavaScript", 1),
+            kw("include", "C/C++", 3), kw("printf", "C/C++", 3), kw("struct", "C/C++", 2),
+            kw("std", "C/C++", 3), kw("nullptr", "C/C++", 5), kw("sizeof", "C/C++", 4),
+            kw("unsigned", "C/C++", 3), kw("typedef", "C/C++", 4), kw("char", "C/C++", 2),
+            kw("namespace", "C#", 3), kw("using", "C#", 2), kw("Console", "C#", 4),
+            kw("readonly", "C#", 2), kw("string", "C#", 1),
+            kw("func", "Go", 4), kw("chan", "Go", 5), kw("defer", "Go", 5), kw("fmt", "Go", 4),
+            kw("fn", "Rust", 4), kw("mut", "Rust", 5), kw("impl", "Rust", 5), kw("pub", "Rust", 3),
+            kw("crate", "Rust", 5), kw("println", "Rust", 2),
+            kw("SELECT", "SQL", 3), kw("FROM", "SQL", 2), kw("WHERE", "SQL", 3), kw("INSERT", "SQL", 3),
+            kw("INTO", "SQL", 2), kw("UPDATE", "SQL", 2), kw("JOIN", "SQL", 3), kw("VALUES", "SQL", 3),
+            kw("CREATE", "SQL", 2), kw("TABLE", "SQL", 2),
+            kw("echo", "Shell", 2), kw("sudo", "Shell", 4), kw("fi", "Shell", 5), kw("esac", "Shell", 5),
+            kw("grep", "Shell", 3), kw("cd", "Shell", 2), kw("npm", "Shell", 3), kw("git", "Shell", 2),
+    };
+
+    private ContentClassifier() {
+    }
+
+    public static Result classify(String text) {
+        return classify(text, null);
+    }
+
+    /**
+     * {@code stats}, when already known, lets code without a recognisable language
+     * still classify as {@link Kind#CODE}.
+     */
+    public static Result classify(String text, TextStats stats) {
+        return classify(text, stats, false);
+    }
+
+    /**
+     * Like {@link #classify(String, TextStats)}, where {@code truncated} says that
+     * {@code text} is only the head of something longer, such as the preview of a
+     * blob. Checks that need to see the end of the text are then skipped, and
+     * JSON is recognised from a well-formed opening part.
+     */
+    public static Result classify(String text, TextStats stats, boolean truncated) {
+        if (text == null)
+            return Result.PLAIN;
+        int start = 0;
+        int end = text.length();
+        while (start < end && Character.isWhitespace(text.charAt(start)))
+            start++;
+        while (end > start && Character.isWhitespace(text.charAt(end - 1)))
+            end--;
+        if (start == end)
+            return Result.PLAIN;
+
+        int scanEnd = Math.min(end, start + PREFIX_CHARS);
+        boolean prefixIsWhole = scanEnd == end && !truncated;
+        boolean hasSpace = false;
+        boolean hasLineBreak = false;
+        for (int i = start; i < scanEnd; i++) {
+            char c = text.charAt(i);
+            if (c == '\n' || c == '\r') {
+                hasLineBreak = true;
+                break;
+            }
+            if (c == ' ' || c == '\t')
+                hasSpace = true;
+        }
+        boolean singleToken = !hasSpace && !hasLineBreak && !truncated && end - start <= MAX_TOKEN_CHARS;
+
+        if (startsWith(text, start, "data:image/") && isBase64DataUri(text, start, scanEnd))
+            return new Result(Kind.BASE64_IMAGE, null);
+        if ((startsWith(text, start, "http://") || startsWith(text, start, "https://")) && !hasSpace && !hasLineBreak)
+            return new Result(Kind.URL, null);
+        if (isSvg(text, start, end, scanEnd))
+            return new Result(Kind.SVG, null);
+        if (singleToken && isEmail(text, start, end))
+            return new Result(Kind.EMAIL, null);
+        if (!hasLineBreak && prefixIsWhole && isColor(text, start, end))
+            return new Result(Kind.COLOR, null);
+        if (!hasLineBreak && prefixIsWhole && isFilePath(text, start, end))
+            return new Result(Kind.FILE_PATH, null);
+        if (isJson(text, start, end, scanEnd, truncated))
+            return new Result(Kind.JSON, null);
+
+        char first = text.charAt(start);
+        if (first == '<' && text.charAt(end - 1) == '>') {
+            return new Result(Kind.CODE, startsWithIgnoreCase(text, start, "<?xml") ? "XML" : "HTML");
+        }
+        String language = guessLanguage(text, start, scanEnd);
+        if (language != null || (stats != null && stats.isLikelyCode()))
+            return new Result(Kind.CODE, language);
+        return Result.PLAIN;
+    }
+
+    private static boolean startsWith(String text, int offset, String prefix) {
+        return text.startsWith(prefix, offset);
+    }
+
+    private static boolean startsWithIgnoreCase(String text, int offset, String prefix) {
+        return text.regionMatches(true, offset, prefix, 0, prefix.length());
+    }
+
+    private static boolean isBase64DataUri(String text, int start, int scanEnd) {
+        int marker = indexOf(text, ";base64,", start, Math.min(scanEnd, start + 64));
+        if (marker < 0)
+            return false;
+        for (int i = marker + 8; i < scanEnd; i++) {
+            char c = text.charAt(i);
+            boolean base64 = (c >= 'A' && c <= 'Z') || (c >= 'a' && c <= 'z') || (c >= '0' && c <= '9')
+                    || c == '+' || c == '/' || c == '=' || c == '\n' || c == '\r';
+            if (!base64)
+                return false;
+        }
+        return marker + 8 < scanEnd;
+    }
+
+    private static boolean isSvg(String text, int start, int end, int scanEnd) {
+        if (!text.regionMatches(end - 6, "</svg>", 0, 6))
+            return false;
+        if (startsWith(text, start, "<svg"))
+            return true;
+        // An XML prolog, doctype or comment may come before the root element
+        if (text.charAt(start) != '<')
+            return false;
+        return indexOf(text, "<svg", start, scanEnd) >= 0;
+    }
+
+    /** Like {@link String#indexOf(String, int)} but never looks past {@code limit}. */
+    private static int indexOf(String text, String needle, int from, int limit) {
+        for (int i = from; i + needle.length() <= limit; i++) {
+            if (text.startsWith(needle, i))
+                return i;
+        }
+        return -1;
+    }
+
+    private static boolean isEmail(String text, int start, int end) {
+        int at = -1;
+        int lastDot = -1;
+        for (int i = start; i < end; i++) {
+            char c = text.charAt(i);
+            if (c == '@') {
+                if (at >= 0)
+                    return false;
+                at = i;
+            } else if (c == '.') {
+                if (at >= 0)
+                    lastDot = i;
+            } else if (!(Character.isLetterOrDigit(c) || c == '-' || c == '_' || c == '+' || (at < 0 && c == '%'))) {
+                return false;
+            }
+        }
+        return at > start && lastDot > at + 1 && lastDot < end - 2;
+    }
+
+    private static boolean isColor(String text, int start, int end) {
+        int length = end - start;
+        char first = text.charAt(start);
+        if (first == '#') {
+            if (length != 4 && length != 5 && length != 7 && length != 9)
+                return false;
+            for (int i = start + 1; i < end; i++) {
+                if (Character.digit(text.charAt(i), 16) < 0)
+                    return false;
+            }
+            return true;
+        }
+        if (length > 48 || text.charAt(end - 1) != ')')
+            return false;
+        return startsWithIgnoreCase(text, start, "rgb(") || startsWithIgnoreCase(text, start, "rgba(")
+                || startsWithIgnoreCase(text, start, "hsl(") || startsWithIgnoreCase(text, start, "hsla(");
+    }
+
+    private static boolean isFilePath(String text, int start, int end) {
+        int length = end - start;
+        if (length < 2 || length > 1024)
+            return false;
+        char first = text.charAt(start);
+        char second = text.charAt(start + 1);
+        boolean windowsDrive = length >= 3 && Character.isLetter(first) && second == ':'
+                && (text.charAt(start + 2) == '\\' || text.charAt(start + 2) == '/');
+        boolean unc = first == '\\' && second == '\\';
+        boolean home = first == '~' && second == '/';
+        boolean unix = first == '/' && second != '/' && second != '*' && text.indexOf('/', start + 1) > 0
+                && text.indexOf('/', start + 1) < end;
+        if (!windowsDrive && !unc && !home && !unix)
+            return false;
+        for (int i = start; i < end; i++) {
+            char c = text.charAt(i);
+            if (c == '<' || c == '>' || c == '"' || c == '|' || c == '*' || c == '?' || c < ' ')
+                return false;
+        }
+        return true;
+    }
+
+    /**
+     * Checks the prefix against JSON's lexical rules: strings with escapes, numbers,
+     * the three literals and punctuation, with brackets nesting correctly. Text
+     * past the prefix is trusted as long as the closing bracket matches; when the
+     * text itself is {@code truncated} there is no closing bracket to check.
+     */
+    private static boolean isJson(String text, int start, int end, int scanEnd, boolean truncated) {
+        char open = text.charAt(start);
+        if (open != '{' && open != '[')
+            return false;
+        char close = text.charAt(end - 1);
+        if (!truncated && !((open == '{' && close == '}') || (open == '[' && close == ']')))
+            return false;
+        int depth = 0;
+        boolean inString = false;
+        boolean sawColon = open == '[';
+        for (int i = start; i < scanEnd; i++) {
+            char c = text.charAt(i);
+            if (inString) {
+                if (c == '\\') {
+                    i++;
+                } else if (c == '"') {
+                    inString = false;
+                } else if (c == '\n') {
+                    return false;
+                }
+                continue;
+            }
+            switch (c) {
+                case '"':
+                    inString = true;
+                    break;
+                case '{':
+                case '[':
+                    depth++;
+                    break;
+                case '}':
+                case ']':
+                    if (--depth < 0)
+                        return false;
+                    break;
+                case ':':
+                    sawColon = true;
+                    break;
+                case ',': case ' ': case '\t': case '\n': case '\r':
+                case '-': case '+': case '.': case 'e': case 'E':
+                    break;
+                default:
+                    if (c >= '0' && c <= '9')
+                        break;
+                    if (matchesLiteral(text, i, "true") || matchesLiteral(text, i, "null")) {
+                        i += 3;
+                        break;
+                    }
+                    if (matchesLiteral(text, i, "false")) {
+                        i += 4;
+                        break;
+                    }
+                    return false;
+            }
+        }
+        return sawColon && (truncated || scanEnd < end || (depth == 0 && !inString));
+    }
+
+    private static boolean matchesLiteral(String text, int offset, String literal) {
+        return text.startsWith(literal, offset);
+    }
+
+    /** Scores whole identifiers in the prefix against {@link #KEYWORDS}. */
+    private static String guessLanguage(String text, int start, int scanEnd) {
+        int[] scores = new int[LANGUAGES.length];
+        if (startsWith(text, start, "#!/"))
+            scores[indexOf("Shell")] += MIN_LANGUAGE_SCORE;
+        if (startsWith(text, start, "<?php"))
+            return "PHP";
+
+        int i = start;
+        while (i < scanEnd) {
+            char c = text.charAt(i);
+            if (!Character.isJavaIdentifierStart(c) || c == '$') {
+                i++;
+                continue;
+            }
+            int wordStart = i;
+            while (i < scanEnd && Character.isJavaIdentifierPart(text.charAt(i)))
+                i++;
+            int wordLength = i - wordStart;
+            for (Keyword keyword : KEYWORDS) {
+                if (keyword.word().length() == wordLength
+                        && text.regionMatches(wordStart, keyword.word(), 0, wordLength)) {
+                    scores[keyword.language()] += keyword.weight();
+                }
+            }
+        }
+
+        int best = -1;
+        for (int l = 0; l < scores.length; l++) {
+            if (scores[l] >= MIN_LANGUAGE_SCORE && (best < 0 || scores[l] > scores[best]))
+                best = l;
+        }
+        return best >= 0 ? LANGUAGES[best] : null;
+    }
+
+    private static Keyword kw(String word, String language, int weight) {
+        return new Keyword(word, indexOf(language), weight);
+    }
+
+    private static int indexOf(String language) {
+        for (int i = 0; i < LANGUAGES.length; i++) {
+            if (LANGUAGES[i].equals(language))
+                return i;
+        }
+        throw new IllegalArgumentException(language);
+    }
+}
@@ -0,0 +1,235 @@
+package com.virtualclipboard;
+
+import java.awt.AWTEvent;
+import java.awt.EventQueue;
+import java.awt.Toolkit;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Finds out what blocks the Swing event thread. A pushed {@link EventQueue}
+ * times every dispatch, and a sampler thread grabs the EDT's stack while a
+ * dispatch runs past the threshold. Each stall is attributed to the innermost
+ * app frame seen most often in those samples, so a slow {@code createItemCard}
+ * shows up as that method rather than as {@code EventQueue.dispatchEvent}.
+ * <p>
+ * The most recent stalls and a per call site tally are kept in memory for the
+ * diagnostics window; each stall is also printed to stderr and emitted as a
+ * Flight Recorder event.
+ * <p>
+ * Time spent waiting inside a nested event loop (a modal dialog) does not
+ * count towards the dispatch that opened it.
+ */
+public final class EdtWatchdog {
+    private static final long SAMPLE_INTERVAL_MS = 20;
+    private static final int RECENT_STALLS = 50;
+    private static final int STACK_DEPTH = 24;
+    private static final String APP_PACKAGE = "com.virtualclipboard.";
+    private static final DateTimeFormatter TIME = DateTimeFormatter.ofPattern("HH:mm:ss");
+
+    private static final Metrics.Histogram DISPATCH_TIME = Metrics.timer("edt.dispatch");
+    private static final Metrics.Histogram STALL_TIME = Metrics.timer("edt.stall");
+    private static final Metrics.Counter STALLS = Metrics.counter("edt.stalls");
+
+    /** One dispatch that ran over the threshold. */
+    public record Stall(LocalDateTime when, long durationNanos, String event, String site, StackTraceElement[] stack) {
+    }
+
+    private static final class Site {
+        long count;
+        long totalNanos;
+        long maxNanos;
+    }
+
+    private final long thresholdNanos;
+    private final WatchedQueue queue = new WatchedQueue();
+    private volatile Thread edt;
+    // nanoTime when the current dispatch started, 0 while the EDT waits for events
+    private volatile long dispatchStart;
+
+    // Guarded by this
+    private long sampledStart;
+    private final List<StackTraceElement[]> samples = new ArrayList<>();
+    private final Deque<Stall> recent = new ArrayDeque<>();
+    private final Map<String, Site> sites = new HashMap<>();
+
+    private EdtWatchdog(long thresholdMs) {
+        this.thresholdNanos = thresholdMs * 1_000_000L;
+    }
+
+    /** Starts watching. Safe to call from any thread. */
+    public static EdtWatchdog install(long thresholdMs) {
+        EdtWatchdog watchdog = new EdtWatchdog(thresholdMs);
+        Toolkit.getDefaultToolkit().getSystemEventQueue().push(watchdog.queue);
+        Thread sampler = new Thread(watchdog::sampleLoop, "edt-watchdog");
+        sampler.setDaemon(true);
+        sampler.start();
+        return watchdog;
+    }
+
+    private final class WatchedQueue extends EventQueue {
+        private int depth;
+
+        @Override
+        public AWTEvent getNextEvent() throws InterruptedException {
+            dispatchStart = 0;
+            return super.getNextEvent();
+        }
+
+        @Override
+        protected void dispatchEvent(AWTEvent event) {
+            if (edt == null)
+                edt = Thread.currentThread();
+            depth++;
+            dispatchStart = System.nanoTime();
+            try {
+                super.dispatchEvent(event);
+            } finally {
+                depth--;
+                long now = System.nanoTime();
+                long start = dispatchStart;
+                if (start != 0) {
+                    long duration = now - start;
+                    DISPATCH_TIME.record(duration);
+                    if (duration > thresholdNanos)
+                        recordStall(start, duration, event);
+                }
+                // An enclosing dispatch carries on from here
+                dispatchStart = depth > 0 ? now : 0;
+            }
+        }
+    }
+
+    private void sampleLoop() {
+        while (true) {
+            try {
+                Thread.sleep(SAMPLE_INTERVAL_MS);
+            } catch (InterruptedException e) {
+                return;
+            }
+            Thread thread = edt;
+            long start = dispatchStart;
+            if (thread == null || start == 0 || System.nanoTime() - start < thresholdNanos)
+                continue;
+            StackTraceElement[] stack = thread.getStackTrace();
+            synchronized (this) {
+                if (sampledStart != start) {
+                    sampledStart = start;
+                    samples.clear();
+                }
+                samples.add(stack);
+            }
+        }
+    }
+
+    private void recordStall(long start, long duration, AWTEvent event) {
+        STALLS.increment();
+        STALL_TIME.record(duration);
+        String eventName = describe(event);
+        Stall stall;
+        synchronized (this) {
+            List<StackTraceElement[]> taken = sampledStart == start ? new ArrayList<>(samples) : List.of();
+            samples.clear();
+            sampledStart = 0;
+            stall = attribute(duration, eventName, taken);
+
+            recent.addFirst(stall);
+            if (recent.size() > RECENT_STALLS)
+                recent.removeLast();
+            Site site = sites.computeIfAbsent(stall.site(), s -> new Site());
+            site.count++;
+            site.totalNanos += duration;
+            site.maxNanos = Math.max(site.maxNanos, duration);
+        }
+
+        System.err.println("EDT stall " + Metrics.format(duration, Metrics.Unit.NANOS) + " in " + stall.site()
+                + " (" + eventName + ")");
+        ClipboardEvents.EdtStall jfrEvent = new ClipboardEvents.EdtStall();
+        if (jfrEvent.shouldCommit()) {
+            jfrEvent.site = stall.site();
+            jfrEvent.event = eventName;
+            jfrEvent.stall = duration;
+            jfrEvent.commit();
+        }
+    }
+
+    /** Picks the call site seen in most samples, and the latest stack showing it. */
+    private static Stall attribute(long duration, String eventName, List<StackTraceElement[]> samples) {
+        if (samples.isEmpty())
+            return new Stall(LocalDateTime.now(), duration, eventName, "(not sampled) " + eventName,
+                    new StackTraceElement[0]);
+        Map<String, Integer> votes = new HashMap<>();
+        String best = null;
+        StackTraceElement[] bestStack = null;
+        for (StackTraceElement[] stack : samples) {
+            String site = callSite(stack);
+            int count = votes.merge(site, 1, Integer::sum);
+            if (best == null || count >= votes.get(best)) {
+                best = site;
+                bestStack = stack;
+            }
+        }
+        StackTraceElement[] trimmed = new StackTraceElement[Math.min(bestStack.length, STACK_DEPTH)];
+        System.arraycopy(bestStack, 0, trimmed, 0, trimmed.length);
+        return new Stall(LocalDateTime.now(), duration, eventName, best, trimmed);
+    }
+
+    /** Innermost frame in app code, or the top frame when the EDT is elsewhere entirely. */
+    static String callSite(StackTraceElement[] stack) {
+        for (StackTraceElement frame : stack) {
+            if (frame.getClassName().startsWith(APP_PACKAGE)
+                    && !frame.getClassName().startsWith(EdtWatchdog.class.getName()))
+                return shortName(frame);
+        }
+        return stack.length > 0 ? shortName(stack[0]) : "(unknown)";
+    }
+
+    private static String shortName(StackTraceElement frame) {
+        String className = frame.getClassName();
+        return className.substring(className.lastIndexOf('.') + 1) + "." + frame.getMethodName() + "("
+                + frame.getFileName() + ":" + frame.getLineNumber() + ")";
+    }
+
+    private static String describe(AWTEvent event) {
+        String name = event.getClass().getSimpleName();
+        return event.getSource() != null ? name + " on " + event.getSource().getClass().getSimpleName() : name;
+    }
+
+    public synchronized List<Stall> getRecentStalls() {
+        return new ArrayList<>(recent);
+    }
+
+    /** Call sites by total stall time, then the latest stalls with their stacks. */
+    public synchronized List<String> report() {
+        List<String> lines = new ArrayList<>();
+        if (sites.isEmpty()) {
+            lines.add("No EDT stalls over " + Metrics.format(thresholdNanos, Metrics.Unit.NANOS) + ".");
+            return lines;
+        }
+        lines.add("EDT stalls over " + Metrics.format(thresholdNanos, Metrics.Unit.NANOS) + " by call site:");
+        List<Map.Entry<String, Site>> bySite = new ArrayList<>(sites.entrySet());
+        bySite.sort((a, b) -> Long.compare(b.getValue().totalNanos, a.getValue().totalNanos));
+        for (Map.Entry<String, Site> e : bySite) {
+            Site site = e.getValue();
+            lines.add(String.format("  %5d x  total=%-10s max=%-10s %s", site.count,
+                    Metrics.format(site.totalNanos, Metrics.Unit.NANOS),
+                    Metrics.format(site.maxNanos, Metrics.Unit.NANOS), e.getKey()));
+        }
+        lines.add("");
+        lines.add("Recent stalls:");
+        for (Stall stall : recent) {
+            lines.add("  " + stall.when().format(TIME) + "  " + Metrics.format(stall.durationNanos(), Metrics.Unit.NANOS)
+                    + "  " + stall.event());
+            for (StackTraceElement frame : stall.stack()) {
+                lines.add("      at " + frame);
+            }
+        }
+        return lines;
+    }
+}
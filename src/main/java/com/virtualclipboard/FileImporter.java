@@ -0,0 +1,256 @@
+package com.virtualclipboard;
+
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+import javax.imageio.ImageIO;
+
+/**
+ * Turns dropped files and folders into clipboard items off the UI thread.
+ * Folders are walked recursively. Each file is read, decoded and hashed on its
+ * own virtual thread, but only a bounded number run at once. A decoded image is
+ * encoded to PNG and its pixels dropped before the next file may start, so a
+ * large drop holds at most that many decoded images at a time and every
+ * imported image waits in the result as compressed bytes, like an image loaded
+ * from history. Results keep the order of the input and exact duplicates
+ * within one import are collapsed. Hidden files and folders, such as a
+ * {@code .git} folder, are left out, and so is any other file that is not an
+ * image and holds a NUL byte near its start, since that is no text file.
+ */
+public class FileImporter {
+    static final int MAX_IN_FLIGHT = Math.max(2, Runtime.getRuntime().availableProcessors());
+    private static final int SNIFF_BYTES = 8192;
+    // Images held decoded right now, and how many were held as each one was decoded
+    private static final AtomicLong DECODED_IMAGES = Metrics.gauge("import.decoded.images", Metrics.Unit.COUNT);
+    static final Metrics.Histogram DECODED_HELD = Metrics.histogram("import.decoded.held", Metrics.Unit.COUNT);
+
+    /** An imported item and the key that collapses duplicates within one import. */
+    private record Loaded(ClipboardItem item, String key) {
+    }
+
+    private final BlobStore blobStore;
+    private final Supplier<CaptureLimits> limits;
+
+    public FileImporter(BlobStore blobStore, Supplier<CaptureLimits> limits) {
+        this.blobStore = blobStore;
+        this.limits = limits;
+    }
+
+    /**
+     * Imports {@code sources} (files or folders). Only the last {@code maxItems}
+     * files are read, since anything before them would be trimmed from history
+     * right away. A cancelled job completes with an empty list.
+     */
+    public BackgroundJob<List<ClipboardItem>> importFiles(List<File> sources, int maxItems,
+            BackgroundJob.ProgressListener progress) {
+        List<File> snapshot = List.copyOf(sources);
+        return BackgroundJob.start("file-import", job -> runImport(job, snapshot, maxItems, progress));
+    }
+
+    private List<ClipboardItem> runImport(BackgroundJob<?> job, List<File> sources, int maxItems,
+            BackgroundJob.ProgressListener progress) {
+        List<File> files = expand(job, sources);
+        if (files.size() > maxItems) {
+            System.out.println("Importing the last " + maxItems + " of " + files.size() + " files");
+            files = files.subList(files.size() - maxItems, files.size());
+        }
+        List<File> toLoad = files;
+        int total = toLoad.size();
+        Loaded[] loaded = new Loaded[total];
+        Semaphore inFlight = new Semaphore(MAX_IN_FLIGHT);
+        AtomicInteger done = new AtomicInteger();
+
+        try (ExecutorService workers = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (int i = 0; i < total && !job.isCancelled(); i++) {
+                try {
+                    inFlight.acquire();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    break;
+                }
+                int index = i;
+                workers.submit(() -> {
+                    File file = toLoad.get(index);
+                    try {
+                        loaded[index] = load(file);
+                    } catch (IOException | RuntimeException e) {
+                        System.err.println("Failed to import " + file.getName() + ": " + e.getMessage());
+                    } finally {
+                        inFlight.release();
+                        progress.onProgress(done.incrementAndGet(), total);
+                    }
+                });
+            }
+        }
+
+        if (job.isCancelled()) {
+            return List.of();
+        }
+
+        List<ClipboardItem> result = new ArrayList<>(total);
+        Set<String> seen = new HashSet<>();
+        for (Loaded entry : loaded) {
+            if (entry != null && seen.add(entry.key())) {
+                result.add(entry.item());
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Replaces folders with the regular files below them, in path order, without
+     * descending into hidden folders.
+     */
+    private static List<File> expand(BackgroundJob<?> job, List<File> sources) {
+        List<File> files = new ArrayList<>();
+        for (File source : sources) {
+            if (job.isCancelled())
+                break;
+            if (!source.isDirectory()) {
+                files.add(source);
+                continue;
+            }
+            Path root = source.toPath();
+            List<Path> found = new ArrayList<>();
+            try {
+                Files.walkFileTree(root, new SimpleFileVisitor<>() {
+                    @Override
+                    public FileVisitResult preVisitDirectory(Path dir, BasicFileAttributes attrs) {
+                        if (job.isCancelled())
+                            return FileVisitResult.TERMINATE;
+                        return !dir.equals(root) && isHidden(dir) ? FileVisitResult.SKIP_SUBTREE
+                                : FileVisitResult.CONTINUE;
+                    }
+
+                    @Override
+                    public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) {
+                        if (Files.isRegularFile(file) && !isHidden(file))
+                            found.add(file);
+                        return FileVisitResult.CONTINUE;
+                    }
+
+                    @Override
+                    public FileVisitResult visitFileFailed(Path file, IOException e) {
+                        System.err.println("Failed to read " + file + ": " + e.getMessage());
+                        return FileVisitResult.CONTINUE;
+                    }
+                });
+            } catch (IOException e) {
+                System.err.println("Failed to read folder " + source + ": " + e.getMessage());
+            }
+            found.sort(null);
+            for (Path path : found) {
+                files.add(path.toFile());
+            }
+        }
+        return files;
+    }
+
+    private static boolean isHidden(Path path) {
+        try {
+            return path.getFileName().toString().startsWith(".") || Files.isHidden(path);
+        } catch (IOException e) {
+            return false;
+        }
+    }
+
+    /** Whether the head of {@code file} holds a NUL byte, which UTF-8 text never does. */
+    private static boolean looksBinary(Path file) throws IOException {
+        try (InputStream in = Files.newInputStream(file)) {
+            for (byte b : in.readNBytes(SNIFF_BYTES)) {
+                if (b == 0)
+                    return true;
+            }
+        }
+        return false;
+    }
+
+    /** Reads one file into an item, or returns null if it is skipped. */
+    private Loaded load(File file) throws IOException {
+        if (file.isDirectory())
+            return null;
+
+        String name = file.getName().toLowerCase();
+        CaptureLimits captureLimits = limits.get();
+        boolean isImageFile = name.endsWith(".svg") || name.endsWith(".gif") || name.endsWith(".png")
+                || name.endsWith(".jpg") || name.endsWith(".jpeg") || name.endsWith(".bmp");
+        if (isImageFile && !captureLimits.isImageAllowed(file.length())) {
+            System.out.println("Skipping " + file.getName() + ": over the image size limit");
+            return null;
+        }
+
+        ClipboardItem item;
+        if (name.endsWith(".svg")) {
+            item = new ClipboardItem(BlobStore.readText(file.toPath()));
+        } else if (name.endsWith(".gif")) {
+            byte[] gifBytes = Files.readAllBytes(file.toPath());
+            BufferedImage img = ImageIO.read(new ByteArrayInputStream(gifBytes));
+            if (img == null)
+                return null;
+            return new Loaded(new ClipboardItem(gifBytes, img.getWidth(), img.getHeight()), "gif:" + sha256(gifBytes));
+        } else if (name.endsWith(".png") || name.endsWith(".jpg") || name.endsWith(".jpeg")
+                || name.endsWith(".bmp")) {
+            return loadImage(file);
+        } else {
+            // Treat as text if not an image; large files are streamed into the blob store
+            if (looksBinary(file.toPath())) {
+                System.out.println("Skipping " + file.getName() + ": not a text file");
+                return null;
+            }
+            item = blobStore.ingestFile(file.toPath(), captureLimits);
+            if (item == null) {
+                System.out.println("Skipping " + file.getName() + ": over the text size limit");
+                return null;
+            }
+        }
+        String key = item.isBlobBacked() ? "blob:" + item.getBlobId()
+                : "text:" + sha256(item.getText().getBytes(StandardCharsets.UTF_8));
+        return new Loaded(item, key);
+    }
+
+    /** Decodes, hashes and PNG-encodes one image; the pixels are unreachable once it returns. */
+    private Loaded loadImage(File file) throws IOException {
+        DECODED_HELD.record(DECODED_IMAGES.incrementAndGet());
+        try {
+            BufferedImage img = ImageIO.read(file);
+            if (img == null)
+                return null;
+            String key = "image:" + ImageHasher.sha256(img);
+            ByteArrayOutputStream png = new ByteArrayOutputStream();
+            ImageIO.write(img, "png", png);
+            return new Loaded(ClipboardItem.fromPng(png.toByteArray(), img.getWidth(), img.getHeight()), key);
+        } finally {
+            DECODED_IMAGES.decrementAndGet();
+        }
+    }
+
+    private static String sha256(byte[] data) {
+        try {
+            return HexFormat.of().formatHex(MessageDigest.getInstance("SHA-256").digest(data));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+}
@@ -0,0 +1,239 @@
+package com.virtualclipboard;
+
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.DirectoryNotEmptyException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.FileTime;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+/**
+ * Writes tabs out as plain files, either into a directory or a zip archive
+ * (chosen by a {@code .zip} extension on the target). Every tab becomes a
+ * folder; text is written as UTF-8, images as PNG, GIFs and blobs byte for byte.
+ * Items are streamed one at a time, so memory use does not grow with the size
+ * of the export.
+ */
+public class HistoryExporter {
+    private static final DateTimeFormatter FILE_TIME = DateTimeFormatter.ofPattern("yyyyMMdd-HHmmss");
+
+    /** One tab's worth of items, snapshotted on the EDT before the job starts. */
+    public record Section(String name, List<ClipboardItem> items) {
+    }
+
+    private final BlobStore blobStore;
+
+    public HistoryExporter(BlobStore blobStore) {
+        this.blobStore = blobStore;
+    }
+
+    /**
+     * Completes with the number of items written. A cancelled or failed export
+     * leaves nothing behind: a zip is written to a side file first, and a
+     * directory export deletes the files and folders it created.
+     */
+    public BackgroundJob<Integer> export(List<Section> sections, Path target, BackgroundJob.ProgressListener progress) {
+        List<Section> snapshot = List.copyOf(sections);
+        boolean zip = target.getFileName().toString().toLowerCase().endsWith(".zip");
+        return BackgroundJob.start("history-export", job -> {
+            try {
+                return zip ? exportZip(job, snapshot, target, progress) : exportDirectory(job, snapshot, target, progress);
+            } catch (IOException e) {
+                throw new IllegalStateException("Export failed: " + e.getMessage(), e);
+            }
+        });
+    }
+
+    private int exportZip(BackgroundJob<?> job, List<Section> sections, Path target,
+            BackgroundJob.ProgressListener progress) throws IOException {
+        Path part = target.resolveSibling(target.getFileName() + ".part");
+        int written = 0;
+        try {
+            try (ZipOutputStream zip = new ZipOutputStream(new BufferedOutputStream(Files.newOutputStream(part)))) {
+                int total = countItems(sections);
+                int done = 0;
+                Set<String> folders = new HashSet<>();
+                for (Section section : sections) {
+                    String folder = uniqueFolder(section.name(), folders);
+                    for (int i = 0; i < section.items().size(); i++) {
+                        if (job.isCancelled())
+                            break;
+                        ClipboardItem item = section.items().get(i);
+                        if (isExportable(item)) {
+                            ZipEntry entry = new ZipEntry(folder + "/" + fileName(item, i));
+                            entry.setTimeLocal(item.getTimestamp());
+                            zip.putNextEntry(entry);
+                            writeItem(item, zip);
+                            zip.closeEntry();
+                            written++;
+                        }
+                        progress.onProgress(++done, total);
+                    }
+                }
+            }
+            if (job.isCancelled()) {
+                Files.deleteIfExists(part);
+                return written;
+            }
+            try {
+                Files.move(part, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(part, target, StandardCopyOption.REPLACE_EXISTING);
+            }
+            return written;
+        } catch (IOException | RuntimeException e) {
+            Files.deleteIfExists(part);
+            throw e;
+        }
+    }
+
+    private int exportDirectory(BackgroundJob<?> job, List<Section> sections, Path target,
+            BackgroundJob.ProgressListener progress) throws IOException {
+        int total = countItems(sections);
+        int done = 0;
+        int written = 0;
+        Set<String> folders = new HashSet<>();
+        // Files and folders that weren't there before, outermost first
+        List<Path> created = new ArrayList<>();
+        try {
+            for (Section section : sections) {
+                Path folder = target.resolve(uniqueFolder(section.name(), folders));
+                createDirectories(folder, created);
+                for (int i = 0; i < section.items().size(); i++) {
+                    if (job.isCancelled()) {
+                        removeCreated(created);
+                        return written;
+                    }
+                    ClipboardItem item = section.items().get(i);
+                    if (isExportable(item)) {
+                        Path file = folder.resolve(fileName(item, i));
+                        if (!Files.exists(file))
+                            created.add(file);
+                        try (OutputStream out = new BufferedOutputStream(Files.newOutputStream(file))) {
+                            writeItem(item, out);
+                        }
+                        Files.setLastModifiedTime(file,
+                                FileTime.from(item.getTimestamp().atZone(ZoneId.systemDefault()).toInstant()));
+                        written++;
+                    }
+                    progress.onProgress(++done, total);
+                }
+            }
+            return written;
+        } catch (IOException | RuntimeException e) {
+            removeCreated(created);
+            throw e;
+        }
+    }
+
+    private static void createDirectories(Path folder, List<Path> created) throws IOException {
+        List<Path> missing = new ArrayList<>();
+        for (Path dir = folder; dir != null && !Files.exists(dir); dir = dir.getParent()) {
+            missing.add(0, dir);
+        }
+        Files.createDirectories(folder);
+        created.addAll(missing);
+    }
+
+    /** Deletes what a directory export created, newest first; a folder someone else wrote into stays. */
+    private static void removeCreated(List<Path> created) {
+        for (int i = created.size() - 1; i >= 0; i--) {
+            try {
+                Files.deleteIfExists(created.get(i));
+            } catch (DirectoryNotEmptyException e) {
+                // Not only ours
+            } catch (IOException e) {
+                System.err.println("Failed to remove " + created.get(i) + ": " + e.getMessage());
+            }
+        }
+    }
+
+    private boolean isExportable(ClipboardItem item) {
+        switch (item.getType()) {
+            case IMAGE:
+                return item.getEncodedImage() != null;
+            case GIF:
+                return item.getGifData() != null;
+            default:
+                return item.isBlobBacked() || item.getText() != null;
+        }
+    }
+
+    private void writeItem(ClipboardItem item, OutputStream out) throws IOException {
+        if (item.isBlobBacked()) {
+            Files.copy(blobStore.pathOf(item.getBlobId()), out);
+            return;
+        }
+        switch (item.getType()) {
+            case IMAGE:
+                // Already PNG, so the pixels never need to be decoded for the export
+                out.write(item.getEncodedImage());
+                break;
+            case GIF:
+                out.write(item.getGifData());
+                break;
+            case HTML:
+                out.write(item.getRichText().getBytes(StandardCharsets.UTF_8));
+                break;
+            case RTF:
+                out.write(item.getRichText().getBytes(StandardCharsets.ISO_8859_1));
+                break;
+            default:
+                out.write(item.getText().getBytes(StandardCharsets.UTF_8));
+        }
+    }
+
+    private static String fileName(ClipboardItem item, int index) {
+        return String.format("%04d_%s.%s", index + 1, item.getTimestamp().format(FILE_TIME), extension(item));
+    }
+
+    private static String extension(ClipboardItem item) {
+        if (item.isBlobBacked())
+            return "txt";
+        switch (item.getType()) {
+            case IMAGE:
+                return "png";
+            case GIF:
+                return "gif";
+            case SVG:
+                return "svg";
+            case HTML:
+                return "html";
+            case RTF:
+                return "rtf";
+            default:
+                return "txt";
+        }
+    }
+
+    private static String uniqueFolder(String tabName, Set<String> used) {
+        String base = tabName == null ? "" : tabName.replaceAll("[\\\\/:*?\"<>|]", "_").trim();
+        if (base.isEmpty())
+            base = "Tab";
+        String folder = base;
+        for (int n = 2; !used.add(folder.toLowerCase()); n++) {
+            folder = base + " (" + n + ")";
+        }
+        return folder;
+    }
+
+    private static int countItems(List<Section> sections) {
+        int total = 0;
+        for (Section section : sections) {
+            total += section.items().size();
+        }
+        return total;
+    }
+}
@@ -0,0 +1,433 @@
+package com.virtualclipboard;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * In-memory metadata of every item in a {@link HistoryLog} and the secondary
+ * indexes {@link HistoryStore} queries with, together under 100 bytes per item.
+ * Items are addressed by slot, their position in log order. Slots never move
+ * until compaction renumbers them, and ids grow with slots, so an id is found
+ * by binary search.
+ * <p>
+ * Time order is kept in {@link SlotList}s: one over everything, one per tab and
+ * one per item type. Deleted slots stay in the lists until a list is more than
+ * an eighth dead, so retention passes that drop thousands of items don't pay
+ * for an array shift each. Content hashes chain slots with equal hashes,
+ * newest first, through an open-addressing table.
+ */
+final class HistoryIndex {
+    private static final int INDEX_MAGIC = 0x56434958; // "VCIX"
+    private static final int INDEX_VERSION = 3;
+
+    private int count;
+    long[] ids = new long[1024];
+    long[] offsets = new long[1024];
+    int[] lengths = new int[1024];
+    long[] times = new long[1024];
+    byte[] types = new byte[1024];
+    int[] tabs = new int[1024];
+    long[] hashes = new long[1024];
+    long[] used = new long[1024]; // Last use in epoch millis from a USED record, 0 when there is none
+    private int[] sameHash = new int[1024];
+    final BitSet dead = new BitSet();
+
+    private final List<String> tabNames = new ArrayList<>();
+    private final Map<String, Integer> tabIds = new HashMap<>();
+    private final SlotList all = new SlotList();
+    private final List<SlotList> byTab = new ArrayList<>();
+    private final SlotList[] byType = new SlotList[ClipboardItem.Type.values().length];
+    private HashTable hashHeads = new HashTable(1024);
+    private long liveBytes;
+
+    HistoryIndex() {
+        for (int i = 0; i < byType.length; i++) {
+            byType[i] = new SlotList();
+        }
+    }
+
+    int size() {
+        return count;
+    }
+
+    long getLiveBytes() {
+        return liveBytes;
+    }
+
+    // ---- Tabs ----
+
+    List<String> getTabNames() {
+        return tabNames;
+    }
+
+    int tabId(String name) {
+        Integer id = tabIds.get(name);
+        return id != null ? id : -1;
+    }
+
+    void defineTab(int id, String name) {
+        while (tabNames.size() <= id) {
+            tabNames.add(null);
+            byTab.add(new SlotList());
+        }
+        tabNames.set(id, name);
+        tabIds.put(name, id);
+    }
+
+    // ---- Updates ----
+
+    int add(long id, long offset, int length, long time, byte type, int tab, long hash) {
+        if (count == ids.length)
+            grow();
+        int slot = count++;
+        ids[slot] = id;
+        offsets[slot] = offset;
+        lengths[slot] = length;
+        times[slot] = time;
+        types[slot] = type;
+        tabs[slot] = tab;
+        hashes[slot] = hash;
+        used[slot] = 0;
+        sameHash[slot] = hashHeads.put(hash, slot);
+        all.insert(slot, times);
+        byTab.get(tab).insert(slot, times);
+        byType[type].insert(slot, times);
+        liveBytes += HistoryLog.HEADER_BYTES + length;
+        return slot;
+    }
+
+    void remove(int slot) {
+        dead.set(slot);
+        liveBytes -= HistoryLog.HEADER_BYTES + lengths[slot];
+        all.markDead();
+        byTab.get(tabs[slot]).markDead();
+        byType[types[slot]].markDead();
+    }
+
+    /** Moves are rare user actions, so the slot is taken out of its old tab list right away. */
+    void move(int slot, int tab) {
+        byTab.get(tabs[slot]).remove(slot, times);
+        byTab.get(tab).insert(slot, times);
+        tabs[slot] = tab;
+    }
+
+    private void grow() {
+        int capacity = ids.length * 2;
+        ids = Arrays.copyOf(ids, capacity);
+        offsets = Arrays.copyOf(offsets, capacity);
+        lengths = Arrays.copyOf(lengths, capacity);
+        times = Arrays.copyOf(times, capacity);
+        types = Arrays.copyOf(types, capacity);
+        tabs = Arrays.copyOf(tabs, capacity);
+        hashes = Arrays.copyOf(hashes, capacity);
+        used = Arrays.copyOf(used, capacity);
+        sameHash = Arrays.copyOf(sameHash, capacity);
+    }
+
+    // ---- Lookups ----
+
+    /** Slot of a live item, or -1. */
+    int slotOf(long id) {
+        int slot = Arrays.binarySearch(ids, 0, count, id);
+        return slot >= 0 && !dead.get(slot) ? slot : -1;
+    }
+
+    /** Newest live slot with this content hash, or -1. */
+    int slotOfHash(long hash) {
+        for (int slot = hashHeads.get(hash); slot >= 0; slot = sameHash[slot]) {
+            if (!dead.get(slot) && hashes[slot] == hash)
+                return slot;
+        }
+        return -1;
+    }
+
+    /** The time-ordered list to walk for a query; {@code tab} and {@code type} may be -1 for any. */
+    SlotList listFor(int tab, int type) {
+        SlotList list;
+        if (tab >= 0 && type >= 0)
+            list = byTab.get(tab).liveCount() <= byType[type].liveCount() ? byTab.get(tab) : byType[type];
+        else if (tab >= 0)
+            list = byTab.get(tab);
+        else if (type >= 0)
+            list = byType[type];
+        else
+            list = all;
+        list.purge(this);
+        return list;
+    }
+
+    boolean matches(int slot, int tab, int type) {
+        return !dead.get(slot) && (tab < 0 || tabs[slot] == tab) && (type < 0 || types[slot] == type);
+    }
+
+    /**
+     * Up to {@code limit} matching slots, newest first, skipping the first
+     * {@code offset} matches. Jumps straight to the offset when every entry of
+     * the walked list matches.
+     */
+    int[] page(int tab, int type, int offset, int limit) {
+        SlotList list = listFor(tab, type);
+        int[] result = new int[Math.max(0, Math.min(limit, count))];
+        int found = 0;
+        boolean exact = list.isClean() && (tab < 0 || type < 0);
+        int i = list.size() - 1;
+        if (exact) {
+            i -= offset;
+            offset = 0;
+        }
+        for (; i >= 0 && found < result.length; i--) {
+            int slot = list.get(i);
+            if (!exact && !matches(slot, tab, type))
+                continue;
+            if (offset > 0) {
+                offset--;
+                continue;
+            }
+            result[found++] = slot;
+        }
+        return Arrays.copyOf(result, found);
+    }
+
+    int count(int tab, int type) {
+        SlotList list = listFor(tab, type);
+        if (list.isClean() && (tab < 0 || type < 0))
+            return list.size();
+        int n = 0;
+        for (int i = 0; i < list.size(); i++) {
+            if (matches(list.get(i), tab, type))
+                n++;
+        }
+        return n;
+    }
+
+    /** Live slots with {@code from <= time < to}, newest first. */
+    int[] between(long from, long to, int limit) {
+        all.purge(this);
+        int end = all.upperBound(to - 1, times);
+        int[] result = new int[Math.max(0, Math.min(limit, end))];
+        int found = 0;
+        for (int i = end - 1; i >= 0 && found < result.length; i--) {
+            int slot = all.get(i);
+            if (times[slot] < from)
+                break;
+            if (!dead.get(slot))
+                result[found++] = slot;
+        }
+        return Arrays.copyOf(result, found);
+    }
+
+    // ---- Checkpoint ----
+
+    /** Writes the columns; the lists and hash chains are rebuilt on read. */
+    void write(DataOutputStream out, long coveredLength, long nextId) throws IOException {
+        out.writeInt(INDEX_MAGIC);
+        out.writeInt(INDEX_VERSION);
+        out.writeLong(coveredLength);
+        out.writeLong(nextId);
+        out.writeInt(tabNames.size());
+        for (String name : tabNames) {
+            out.writeUTF(name != null ? name : "");
+        }
+        out.writeInt(count);
+        for (int i = 0; i < count; i++) {
+            out.writeLong(ids[i]);
+            out.writeLong(offsets[i]);
+            out.writeInt(lengths[i]);
+            out.writeLong(times[i]);
+            out.writeByte(types[i]);
+            out.writeInt(tabs[i]);
+            out.writeLong(hashes[i]);
+            out.writeLong(used[i]);
+        }
+        long[] deadWords = dead.toLongArray();
+        out.writeInt(deadWords.length);
+        for (long word : deadWords) {
+            out.writeLong(word);
+        }
+    }
+
+    /**
+     * Reads a checkpoint into this empty index and returns {@code {coveredLength, nextId}},
+     * or null if the data is not a checkpoint this version understands.
+     */
+    long[] read(DataInputStream in) throws IOException {
+        if (in.readInt() != INDEX_MAGIC || in.readInt() != INDEX_VERSION)
+            return null;
+        long coveredLength = in.readLong();
+        long nextId = in.readLong();
+        int tabCount = in.readInt();
+        for (int i = 0; i < tabCount; i++) {
+            defineTab(i, in.readUTF());
+        }
+        int n = in.readInt();
+        long[] slotIds = new long[n];
+        for (int i = 0; i < n; i++) {
+            slotIds[i] = in.readLong();
+            long offset = in.readLong();
+            int length = in.readInt();
+            long time = in.readLong();
+            byte type = in.readByte();
+            int tab = in.readInt();
+            long hash = in.readLong();
+            long lastUsed = in.readLong();
+            if (tab < 0 || tab >= tabCount || type < 0 || type >= byType.length)
+                return null;
+            used[add(slotIds[i], offset, length, time, type, tab, hash)] = lastUsed;
+        }
+        long[] deadWords = new long[in.readInt()];
+        for (int i = 0; i < deadWords.length; i++) {
+            deadWords[i] = in.readLong();
+        }
+        BitSet deadSlots = BitSet.valueOf(deadWords);
+        for (int slot = deadSlots.nextSetBit(0); slot >= 0 && slot < n; slot = deadSlots.nextSetBit(slot + 1)) {
+            remove(slot);
+        }
+        return new long[] { coveredLength, nextId };
+    }
+
+    /**
+     * Slots ordered by (time, slot). Appends in time order, which is nearly
+     * every insert, go on the end; late arrivals are placed by binary search.
+     */
+    static final class SlotList {
+        private int[] slots = new int[64];
+        private int size;
+        private int deadCount;
+
+        int size() {
+            return size;
+        }
+
+        int get(int index) {
+            return slots[index];
+        }
+
+        int liveCount() {
+            return size - deadCount;
+        }
+
+        boolean isClean() {
+            return deadCount == 0;
+        }
+
+        void markDead() {
+            deadCount++;
+        }
+
+        void insert(int slot, long[] times) {
+            if (size == slots.length)
+                slots = Arrays.copyOf(slots, size * 2);
+            int at = size;
+            if (size > 0 && times[slots[size - 1]] > times[slot])
+                at = upperBound(times[slot], times);
+            System.arraycopy(slots, at, slots, at + 1, size - at);
+            slots[at] = slot;
+            size++;
+        }
+
+        /** First position whose time is greater than {@code time}. */
+        int upperBound(long time, long[] times) {
+            int lo = 0;
+            int hi = size;
+            while (lo < hi) {
+                int mid = (lo + hi) >>> 1;
+                if (times[slots[mid]] <= time)
+                    lo = mid + 1;
+                else
+                    hi = mid;
+            }
+            return lo;
+        }
+
+        void remove(int slot, long[] times) {
+            int i = upperBound(times[slot] - 1, times);
+            while (i < size && slots[i] != slot)
+                i++;
+            if (i == size)
+                return;
+            System.arraycopy(slots, i + 1, slots, i, size - i - 1);
+            size--;
+        }
+
+        /** Drops deleted slots once more than an eighth of the list is dead. */
+        void purge(HistoryIndex index) {
+            if (deadCount == 0 || deadCount * 8L < size)
+                return;
+            int kept = 0;
+            for (int i = 0; i < size; i++) {
+                int slot = slots[i];
+                if (!index.dead.get(slot))
+                    slots[kept++] = slot;
+            }
+            size = kept;
+            deadCount = 0;
+        }
+    }
+
+    /** Open-addressing map from a 64-bit hash to the newest slot with it. Entries are never removed. */
+    static final class HashTable {
+        private long[] keys;
+        private int[] values;
+        private int used;
+
+        HashTable(int capacity) {
+            keys = new long[capacity];
+            values = new int[capacity];
+            Arrays.fill(values, -1);
+        }
+
+        /** Maps {@code key} to {@code slot} and returns the slot it mapped to before, or -1. */
+        int put(long key, int slot) {
+            if ((used + 1) * 4L > keys.length * 3L)
+                rehash();
+            int i = indexOf(key);
+            int previous = values[i];
+            if (previous < 0)
+                used++;
+            keys[i] = key;
+            values[i] = slot;
+            return previous;
+        }
+
+        int get(long key) {
+            return values[indexOf(key)];
+        }
+
+        private int indexOf(long key) {
+            int mask = keys.length - 1;
+            int i = (int) (mix(key) & mask);
+            while (values[i] >= 0 && keys[i] != key)
+                i = (i + 1) & mask;
+            return i;
+        }
+
+        private void rehash() {
+            long[] oldKeys = keys;
+            int[] oldValues = values;
+            keys = new long[oldKeys.length * 2];
+            values = new int[oldKeys.length * 2];
+            Arrays.fill(values, -1);
+            for (int i = 0; i < oldKeys.length; i++) {
+                if (oldValues[i] >= 0) {
+                    int j = indexOf(oldKeys[i]);
+                    keys[j] = oldKeys[i];
+                    values[j] = oldValues[i];
+                }
+            }
+        }
+
+        private static long mix(long key) {
+            key ^= key >>> 33;
+            key *= 0xff51afd7ed558ccdL;
+            key ^= key >>> 33;
+            return key;
+        }
+    }
+}
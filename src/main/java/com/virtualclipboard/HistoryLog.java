@@ -0,0 +1,185 @@
+package com.virtualclipboard;
+
+import java.io.BufferedInputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.function.Consumer;
+import java.util.zip.CRC32C;
+
+/**
+ * The append-only record file behind {@link HistoryStore}. Every record is a
+ * fixed 40-byte header followed by an optional payload:
+ *
+ * <pre>
+ * byte op, byte itemType, short reserved, int payloadLength,
+ * long id, long timestamp, long contentHash, int tabId, int crc32c
+ * </pre>
+ *
+ * A USED record has no payload and carries an item's last use in its
+ * timestamp. The CRC covers the first 36 header bytes and the payload. A scan stops at
+ * the first record that is short or fails its CRC, which is where a crash
+ * mid-append leaves the file; {@link HistoryStore} truncates it there.
+ */
+final class HistoryLog implements Closeable {
+    static final int HEADER_BYTES = 40;
+    static final byte PUT = 1;
+    static final byte DELETE = 2;
+    static final byte MOVE = 3;
+    static final byte TAB = 4;
+    static final byte USED = 5;
+
+    private static final int CRC_OFFSET = 36;
+    private static final int MAX_PAYLOAD = Integer.MAX_VALUE - HEADER_BYTES;
+
+    /** A record as found by {@link #scan}; {@code offset} is where its header starts. */
+    record Header(byte op, byte type, int payloadLength, long id, long timestamp, long hash, int tabId, long offset) {
+    }
+
+    private final Path file;
+    private final FileChannel channel;
+    private final ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES);
+    private long size;
+
+    HistoryLog(Path file) throws IOException {
+        this.file = file;
+        this.channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                StandardOpenOption.WRITE);
+        this.size = channel.size();
+    }
+
+    Path getFile() {
+        return file;
+    }
+
+    long size() {
+        return size;
+    }
+
+    /** Appends a record and returns its offset. Not forced to disk; see {@link #force}. */
+    long append(byte op, byte type, long id, long timestamp, long hash, int tabId, byte[] payload)
+            throws IOException {
+        int length = payload != null ? payload.length : 0;
+        header.clear();
+        header.put(op).put(type).putShort((short) 0).putInt(length)
+                .putLong(id).putLong(timestamp).putLong(hash).putInt(tabId);
+        CRC32C crc = new CRC32C();
+        crc.update(header.array(), 0, CRC_OFFSET);
+        if (payload != null)
+            crc.update(payload);
+        header.putInt((int) crc.getValue());
+        header.flip();
+
+        long offset = size;
+        ByteBuffer body = payload != null ? ByteBuffer.wrap(payload) : ByteBuffer.allocate(0);
+        long position = offset;
+        while (header.hasRemaining())
+            position += channel.write(header, position);
+        while (body.hasRemaining())
+            position += channel.write(body, position);
+        size = position;
+        return offset;
+    }
+
+    /** Reads the payload of the record at {@code offset}, checking its CRC. */
+    byte[] readPayload(long offset, int length) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(HEADER_BYTES + length);
+        long position = offset;
+        while (buffer.hasRemaining()) {
+            int read = channel.read(buffer, position);
+            if (read < 0)
+                throw new EOFException("History record at " + offset + " is cut short");
+            position += read;
+        }
+        byte[] bytes = buffer.array();
+        CRC32C crc = new CRC32C();
+        crc.update(bytes, 0, CRC_OFFSET);
+        crc.update(bytes, HEADER_BYTES, length);
+        if ((int) crc.getValue() != buffer.getInt(CRC_OFFSET))
+            throw new IOException("History record at " + offset + " is corrupt");
+        byte[] payload = new byte[length];
+        System.arraycopy(bytes, HEADER_BYTES, payload, 0, length);
+        return payload;
+    }
+
+    /** The up to {@link #HEADER_BYTES} bytes just before {@code end}, to recognise this log by. */
+    byte[] readTail(long end) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate((int) Math.min(HEADER_BYTES, end));
+        long position = end - buffer.capacity();
+        while (buffer.hasRemaining()) {
+            int read = channel.read(buffer, position);
+            if (read < 0)
+                throw new EOFException("History log ends before " + end);
+            position += read;
+        }
+        return buffer.array();
+    }
+
+    /**
+     * Reads records from {@code from} in order, verifying each, and returns the
+     * offset just past the last intact one.
+     */
+    long scan(long from, Consumer<Header> visitor) throws IOException {
+        long offset = from;
+        byte[] head = new byte[HEADER_BYTES];
+        byte[] payload = new byte[4096];
+        try (InputStream raw = Files.newInputStream(file)) {
+            raw.skipNBytes(from);
+            DataInputStream in = new DataInputStream(new BufferedInputStream(raw, 1 << 16));
+            while (true) {
+                try {
+                    in.readFully(head);
+                } catch (EOFException e) {
+                    return offset;
+                }
+                ByteBuffer h = ByteBuffer.wrap(head);
+                byte op = h.get();
+                byte type = h.get();
+                h.getShort();
+                int length = h.getInt();
+                long id = h.getLong();
+                long timestamp = h.getLong();
+                long hash = h.getLong();
+                int tabId = h.getInt();
+                int expected = h.getInt();
+                if (op < PUT || op > USED || length < 0 || length > MAX_PAYLOAD || offset + HEADER_BYTES + length > size)
+                    return offset;
+                if (payload.length < length)
+                    payload = new byte[Math.max(length, payload.length * 2)];
+                try {
+                    in.readFully(payload, 0, length);
+                } catch (EOFException e) {
+                    return offset;
+                }
+                CRC32C crc = new CRC32C();
+                crc.update(head, 0, CRC_OFFSET);
+                crc.update(payload, 0, length);
+                if ((int) crc.getValue() != expected)
+                    return offset;
+                visitor.accept(new Header(op, type, length, id, timestamp, hash, tabId, offset));
+                offset += HEADER_BYTES + length;
+            }
+        }
+    }
+
+    void truncate(long length) throws IOException {
+        channel.truncate(length);
+        size = length;
+    }
+
+    void force() throws IOException {
+        channel.force(false);
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+}
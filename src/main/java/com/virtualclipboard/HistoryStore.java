@@ -0,0 +1,467 @@
+package com.virtualclipboard;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * File-backed history for collections too large to hold in memory. Items are
+ * appended to a {@link HistoryLog}; only their metadata lives in memory, in a
+ * {@link HistoryIndex} that answers paged queries by tab, type and time and
+ * finds items by content hash. Item bodies are read on demand and the most
+ * recently used few hundred are kept decoded.
+ * <p>
+ * Deletes, moves and uses are appended as records too. {@link #compact} rewrites the
+ * log without dead items, and {@link #open} does so by itself when more than
+ * half the file is garbage. On {@link #close} the index is checkpointed next
+ * to the log so the next open only has to replay what came after it. The
+ * checkpoint keeps the last bytes of the log it covers and is ignored unless
+ * the log still has them there, so one from before a compaction can't be
+ * applied to the log that replaced it.
+ * <p>
+ * Blob-backed text stays in the {@link BlobStore}; the store keeps the item
+ * that refers to it. Next to the log, a small layout file holds whatever the
+ * client keeps about its tabs besides their items; see {@link #writeLayout}.
+ * All methods are synchronized.
+ */
+public class HistoryStore implements Closeable {
+    public static final String DEFAULT_DIR = "history";
+    private static final String LOG_FILE = "items.log";
+    private static final String INDEX_FILE = "items.idx";
+    private static final String LAYOUT_FILE = "tabs.dat";
+    private static final int CACHED_ITEMS = 512;
+    private static final long MIN_COMPACT_GARBAGE = 16L * 1024 * 1024;
+
+    private static final Metrics.Histogram PAGE_TIME = Metrics.timer("store.page");
+    private static final Metrics.Histogram READ_TIME = Metrics.timer("store.read");
+
+    /** Metadata of a stored item; {@link #get} loads the item itself. */
+    public record Entry(long id, String tab, ClipboardItem.Type type, LocalDateTime timestamp, long contentHash) {
+    }
+
+    private final Path dir;
+    private HistoryLog log;
+    private HistoryIndex index = new HistoryIndex();
+    private long nextId = 1;
+    private final Map<Long, ClipboardItem> cache = new LinkedHashMap<>(64, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Long, ClipboardItem> eldest) {
+            return size() > CACHED_ITEMS;
+        }
+    };
+
+    private HistoryStore(Path dir) {
+        this.dir = dir;
+    }
+
+    /** Opens the store in {@code dir}, creating it if needed. */
+    public static HistoryStore open(Path dir) throws IOException {
+        Files.createDirectories(dir);
+        HistoryStore store = new HistoryStore(dir);
+        store.log = new HistoryLog(dir.resolve(LOG_FILE));
+        long from = store.readCheckpoint();
+        long end = store.log.scan(from, store::replay);
+        if (end < store.log.size()) {
+            System.err.println("History store: dropping " + (store.log.size() - end) + " bytes of an interrupted write");
+            store.log.truncate(end);
+        }
+        long garbage = store.getGarbageBytes();
+        if (garbage > MIN_COMPACT_GARBAGE && garbage > store.index.getLiveBytes())
+            store.compact();
+        return store;
+    }
+
+    private void replay(HistoryLog.Header record) {
+        switch (record.op()) {
+            case HistoryLog.TAB -> {
+                try {
+                    index.defineTab((int) record.id(), new String(log.readPayload(record.offset(),
+                            record.payloadLength()), StandardCharsets.UTF_8));
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            }
+            case HistoryLog.PUT -> {
+                nextId = Math.max(nextId, record.id() + 1);
+                index.add(record.id(), record.offset(), record.payloadLength(), record.timestamp(), record.type(),
+                        record.tabId(), record.hash());
+            }
+            case HistoryLog.DELETE -> {
+                int slot = index.slotOf(record.id());
+                if (slot >= 0)
+                    index.remove(slot);
+            }
+            case HistoryLog.MOVE -> {
+                int slot = index.slotOf(record.id());
+                if (slot >= 0)
+                    index.move(slot, record.tabId());
+            }
+            case HistoryLog.USED -> {
+                int slot = index.slotOf(record.id());
+                if (slot >= 0)
+                    index.used[slot] = record.timestamp();
+            }
+            default -> {
+            }
+        }
+    }
+
+    // ---- Updates ----
+
+    /** Appends {@code item} to {@code tab} and returns its id. */
+    public synchronized long put(String tab, ClipboardItem item) throws IOException {
+        int tabId = tabIdFor(tab);
+        byte[] payload = serialize(item);
+        long id = nextId++;
+        long time = toMillis(item.getTimestamp());
+        long hash = contentHash(item);
+        byte type = (byte) item.getType().ordinal();
+        long offset = log.append(HistoryLog.PUT, type, id, time, hash, tabId, payload);
+        index.add(id, offset, payload.length, time, type, tabId, hash);
+        cache.put(id, item);
+        return id;
+    }
+
+    public synchronized boolean delete(long id) throws IOException {
+        int slot = index.slotOf(id);
+        if (slot < 0)
+            return false;
+        log.append(HistoryLog.DELETE, (byte) 0, id, 0, 0, 0, null);
+        index.remove(slot);
+        cache.remove(id);
+        return true;
+    }
+
+    public synchronized boolean move(long id, String tab) throws IOException {
+        int slot = index.slotOf(id);
+        if (slot < 0)
+            return false;
+        int tabId = tabIdFor(tab);
+        log.append(HistoryLog.MOVE, (byte) 0, id, 0, 0, tabId, null);
+        index.move(slot, tabId);
+        return true;
+    }
+
+    /**
+     * Records when an item was last used, as a 40-byte record rather than
+     * storing the item again. {@link #get} hands it back on the item.
+     */
+    public synchronized boolean markUsed(long id, LocalDateTime when) throws IOException {
+        int slot = index.slotOf(id);
+        if (slot < 0)
+            return false;
+        long time = toMillis(when);
+        log.append(HistoryLog.USED, (byte) 0, id, time, 0, 0, null);
+        index.used[slot] = time;
+        return true;
+    }
+
+    private int tabIdFor(String tab) throws IOException {
+        int tabId = index.tabId(tab);
+        if (tabId < 0) {
+            tabId = index.getTabNames().size();
+            log.append(HistoryLog.TAB, (byte) 0, tabId, 0, 0, 0, tab.getBytes(StandardCharsets.UTF_8));
+            index.defineTab(tabId, tab);
+        }
+        return tabId;
+    }
+
+    // ---- Queries ----
+
+    /** Loads a stored item, or returns null if there is none with this id. */
+    public synchronized ClipboardItem get(long id) throws IOException {
+        ClipboardItem item = cache.get(id);
+        if (item != null)
+            return item;
+        int slot = index.slotOf(id);
+        if (slot < 0)
+            return null;
+        long start = System.nanoTime();
+        byte[] payload = log.readPayload(index.offsets[slot], index.lengths[slot]);
+        try (ObjectInputStream in = new ObjectInputStream(new ByteArrayInputStream(payload))) {
+            item = (ClipboardItem) in.readObject();
+        } catch (ClassNotFoundException e) {
+            throw new IOException("History record " + id + " is not a clipboard item", e);
+        }
+        if (index.used[slot] != 0)
+            item.restoreLastUsed(toLocal(index.used[slot]));
+        READ_TIME.recordSince(start);
+        cache.put(id, item);
+        return item;
+    }
+
+    /**
+     * One page of entries, newest first. {@code tab} and {@code type} narrow the
+     * results when not null; an unknown tab matches nothing.
+     */
+    public synchronized List<Entry> page(String tab, ClipboardItem.Type type, int offset, int limit) {
+        long start = System.nanoTime();
+        int tabId = tab != null ? index.tabId(tab) : -1;
+        if (tab != null && tabId < 0)
+            return List.of();
+        List<Entry> entries = entries(index.page(tabId, type != null ? type.ordinal() : -1, offset, limit));
+        PAGE_TIME.recordSince(start);
+        return entries;
+    }
+
+    public synchronized int count(String tab, ClipboardItem.Type type) {
+        int tabId = tab != null ? index.tabId(tab) : -1;
+        if (tab != null && tabId < 0)
+            return 0;
+        return index.count(tabId, type != null ? type.ordinal() : -1);
+    }
+
+    /** Entries captured in {@code [from, to)}, newest first. */
+    public synchronized List<Entry> between(LocalDateTime from, LocalDateTime to, int limit) {
+        return entries(index.between(toMillis(from), toMillis(to), limit));
+    }
+
+    /** The newest stored item with the same content as {@code item}, or null. */
+    public synchronized Entry findByContent(ClipboardItem item) {
+        int slot = index.slotOfHash(contentHash(item));
+        return slot >= 0 ? entry(slot) : null;
+    }
+
+    public synchronized List<String> getTabs() {
+        return new ArrayList<>(index.getTabNames());
+    }
+
+    public synchronized int size() {
+        return index.count(-1, -1);
+    }
+
+    /** Length of the log. */
+    public synchronized long getBytes() {
+        return log.size();
+    }
+
+    /** Bytes in the log not holding a live item: deleted items and the delete, move and tab records. */
+    public synchronized long getGarbageBytes() {
+        return log.size() - index.getLiveBytes();
+    }
+
+    private List<Entry> entries(int[] slots) {
+        List<Entry> entries = new ArrayList<>(slots.length);
+        for (int slot : slots) {
+            entries.add(entry(slot));
+        }
+        return entries;
+    }
+
+    private Entry entry(int slot) {
+        return new Entry(index.ids[slot], index.getTabNames().get(index.tabs[slot]),
+                ClipboardItem.Type.values()[index.types[slot]],
+                toLocal(index.times[slot]),
+                index.hashes[slot]);
+    }
+
+    // ---- Maintenance ----
+
+    /**
+     * Replaces the layout file, which the store keeps for its client without
+     * looking inside. It goes through a forced temporary file and an atomic
+     * rename, so a crash leaves the old layout or the new one. Call {@link #sync}
+     * first when the layout refers to items appended since the last sync.
+     */
+    public synchronized void writeLayout(byte[] layout) throws IOException {
+        Path file = dir.resolve(LAYOUT_FILE);
+        Path temp = dir.resolve(LAYOUT_FILE + ".tmp");
+        try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            ByteBuffer buffer = ByteBuffer.wrap(layout);
+            while (buffer.hasRemaining())
+                channel.write(buffer);
+            channel.force(true);
+        }
+        replace(temp, file);
+    }
+
+    /** The last layout written, or null if there never was one. */
+    public synchronized byte[] readLayout() throws IOException {
+        Path file = dir.resolve(LAYOUT_FILE);
+        return Files.exists(file) ? Files.readAllBytes(file) : null;
+    }
+
+    /** Forces appended records to disk. */
+    public synchronized void sync() throws IOException {
+        log.force();
+    }
+
+    /**
+     * Rewrites the log with only live items, keeping their ids. The old
+     * checkpoint is removed before the new log replaces the old one, so a crash
+     * in between costs a full scan on the next open, not a wrong index.
+     */
+    public synchronized void compact() throws IOException {
+        Path target = log.getFile();
+        Path temp = dir.resolve(LOG_FILE + ".compact");
+        Files.deleteIfExists(temp);
+        HistoryIndex compacted = new HistoryIndex();
+        try (HistoryLog out = new HistoryLog(temp)) {
+            List<String> tabs = index.getTabNames();
+            for (int tabId = 0; tabId < tabs.size(); tabId++) {
+                out.append(HistoryLog.TAB, (byte) 0, tabId, 0, 0, 0, tabs.get(tabId).getBytes(StandardCharsets.UTF_8));
+                compacted.defineTab(tabId, tabs.get(tabId));
+            }
+            for (int slot = 0; slot < index.size(); slot++) {
+                if (index.dead.get(slot))
+                    continue;
+                byte[] payload = log.readPayload(index.offsets[slot], index.lengths[slot]);
+                long offset = out.append(HistoryLog.PUT, index.types[slot], index.ids[slot], index.times[slot],
+                        index.hashes[slot], index.tabs[slot], payload);
+                int kept = compacted.add(index.ids[slot], offset, payload.length, index.times[slot],
+                        index.types[slot], index.tabs[slot], index.hashes[slot]);
+                if (index.used[slot] != 0) {
+                    out.append(HistoryLog.USED, (byte) 0, index.ids[slot], index.used[slot], 0, 0, null);
+                    compacted.used[kept] = index.used[slot];
+                }
+            }
+            out.force();
+        }
+        log.close();
+        Files.deleteIfExists(dir.resolve(INDEX_FILE));
+        replace(temp, target);
+        log = new HistoryLog(target);
+        index = compacted;
+        writeCheckpoint();
+    }
+
+    /** Forces the log and checkpoints the index. The store can't be used afterwards. */
+    @Override
+    public synchronized void close() throws IOException {
+        log.force();
+        writeCheckpoint();
+        log.close();
+    }
+
+    /** Loads the checkpoint if it fits the log and returns the log offset it covers, or 0. */
+    private long readCheckpoint() {
+        Path file = dir.resolve(INDEX_FILE);
+        if (!Files.exists(file))
+            return 0;
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(file), 1 << 16))) {
+            HistoryIndex loaded = new HistoryIndex();
+            long[] state = loaded.read(in);
+            if (state != null && state[0] <= log.size() && Arrays.equals(readTail(in), log.readTail(state[0]))) {
+                index = loaded;
+                nextId = state[1];
+                return state[0];
+            }
+        } catch (IOException | RuntimeException e) {
+            System.err.println("History store: rebuilding index (" + e.getMessage() + ")");
+        }
+        index = new HistoryIndex();
+        return 0;
+    }
+
+    private void writeCheckpoint() throws IOException {
+        Path file = dir.resolve(INDEX_FILE);
+        Path temp = dir.resolve(INDEX_FILE + ".tmp");
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(temp), 1 << 16))) {
+            index.write(out, log.size(), nextId);
+            byte[] tail = log.readTail(log.size());
+            out.writeInt(tail.length);
+            out.write(tail);
+        }
+        replace(temp, file);
+    }
+
+    private static byte[] readTail(DataInputStream in) throws IOException {
+        int length = in.readInt();
+        if (length < 0 || length > HistoryLog.HEADER_BYTES)
+            return null;
+        byte[] tail = new byte[length];
+        in.readFully(tail);
+        return tail;
+    }
+
+    private static void replace(Path temp, Path file) throws IOException {
+        try {
+            Files.move(temp, file, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        } catch (AtomicMoveNotSupportedException e) {
+            Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+
+    // ---- Encoding ----
+
+    private static byte[] serialize(ClipboardItem item) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(256);
+        try (ObjectOutputStream out = new ObjectOutputStream(bytes)) {
+            out.writeObject(item);
+        }
+        return bytes.toByteArray();
+    }
+
+    private static long toMillis(LocalDateTime time) {
+        return time.atZone(ZoneId.systemDefault()).toInstant().toEpochMilli();
+    }
+
+    private static LocalDateTime toLocal(long millis) {
+        return LocalDateTime.ofInstant(Instant.ofEpochMilli(millis), ZoneId.systemDefault());
+    }
+
+    /**
+     * 64-bit FNV-1a over what makes two captures the same: the type plus the text
+     * and rich text, PNG bytes or GIF bytes. Blob-backed text is identified by
+     * its preview and size.
+     */
+    static long contentHash(ClipboardItem item) {
+        long hash = 0xcbf29ce484222325L;
+        hash = fnv(hash, item.getType().ordinal());
+        if (item.isBlobBacked()) {
+            hash = fnv(hash, item.getSizeInBytes());
+        }
+        hash = fnv(hash, item.getText());
+        hash = fnv(hash, item.getRichText());
+        byte[] bytes = item.getType() == ClipboardItem.Type.IMAGE ? item.getEncodedImage() : item.getGifData();
+        if (bytes != null) {
+            for (byte b : bytes) {
+                hash = (hash ^ (b & 0xff)) * 0x100000001b3L;
+            }
+        }
+        return hash;
+    }
+
+    private static long fnv(long hash, String text) {
+        if (text == null)
+            return (hash ^ 0xff) * 0x100000001b3L;
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            hash = (hash ^ (c & 0xff)) * 0x100000001b3L;
+            hash = (hash ^ (c >>> 8)) * 0x100000001b3L;
+        }
+        return hash;
+    }
+
+    private static long fnv(long hash, long value) {
+        for (int i = 0; i < 8; i++) {
+            hash = (hash ^ ((value >>> (i * 8)) & 0xff)) * 0x100000001b3L;
+        }
+        return hash;
+    }
+}
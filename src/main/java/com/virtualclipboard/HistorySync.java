@@ -0,0 +1,237 @@
+package com.virtualclipboard;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Keeps a {@link HistoryStore} in step with the engine's tabs. Each
+ * {@link #write} compares a snapshot of the tabs with what the store already
+ * holds and appends only the difference: new items, moves between tabs, uses,
+ * deletions, and items whose {@link ClipboardItem#getRevision revision} moved
+ * on, which are stored again in place of the old record.
+ * <p>
+ * Tabs are filed in the store under their {@link ClipboardTab#getKey key}.
+ * Names, icons, tab order and the selected tab go in the store's layout,
+ * together with the item order of any tab that is not simply newest first.
+ * Methods are synchronized, so the engine's thread and its {@link StateWriter}
+ * can share one.
+ */
+final class HistorySync implements Closeable {
+    private static final int LAYOUT_MAGIC = 0x5643544C; // "VCTL"
+    private static final int LAYOUT_VERSION = 1;
+    private static final String RECOVERED_TAB = "Recovered";
+
+    /** Where an item is stored, and the revision and last use the store knows of. */
+    private record Stored(long id, String tab, int revision, LocalDateTime used) {
+    }
+
+    private final HistoryStore store;
+    private final Map<ClipboardItem, Stored> stored = new IdentityHashMap<>();
+    private byte[] lastLayout;
+
+    HistorySync(HistoryStore store) {
+        this.store = store;
+    }
+
+    HistoryStore getStore() {
+        return store;
+    }
+
+    /**
+     * The tabs as last written, or null when nothing was ever written. Every
+     * item of every tab is read and deserialized, since the engine keeps them
+     * all in memory. Items of a tab the layout doesn't list, which a crash
+     * between the appends and the layout write can leave, come back in a
+     * tab of their own.
+     */
+    synchronized ClipboardEngine.SavedState read() throws IOException {
+        byte[] layout = store.readLayout();
+        if (layout == null)
+            return null;
+        DataInputStream in = new DataInputStream(new ByteArrayInputStream(layout));
+        if (in.readInt() != LAYOUT_MAGIC || in.readInt() != LAYOUT_VERSION)
+            throw new IOException("History layout is not in a format this version understands");
+        int activeTabIndex = in.readInt();
+        int tabCount = in.readInt();
+        List<ClipboardTab> tabs = new ArrayList<>(tabCount);
+        Set<String> keys = new HashSet<>();
+        for (int i = 0; i < tabCount; i++) {
+            ClipboardTab tab = new ClipboardTab(readNullable(in));
+            tab.key = in.readUTF();
+            tab.iconValue = readNullable(in);
+            tab.isEmoji = in.readBoolean();
+            try {
+                tab.sortOrder = SortedViews.Order.valueOf(in.readUTF());
+            } catch (IllegalArgumentException e) {
+                tab.sortOrder = SortedViews.Order.MANUAL;
+            }
+            long[] order = null;
+            int ordered = in.readInt();
+            if (ordered >= 0) {
+                order = new long[ordered];
+                for (int j = 0; j < ordered; j++) {
+                    order[j] = in.readLong();
+                }
+            }
+            tab.items = new ItemTimeline(load(tab.key, order));
+            keys.add(tab.key);
+            tabs.add(tab);
+        }
+        for (String key : store.getTabs()) {
+            if (!keys.contains(key) && store.count(key, null) > 0) {
+                ClipboardTab tab = new ClipboardTab(RECOVERED_TAB);
+                tab.key = key;
+                tab.items = new ItemTimeline(load(key, null));
+                tabs.add(tab);
+            }
+        }
+        lastLayout = layout;
+        return new ClipboardEngine.SavedState(tabs, activeTabIndex);
+    }
+
+    /**
+     * Items of one tab, newest first, or in {@code order} when given. Items the
+     * order doesn't mention were stored after it was written and go on top.
+     */
+    private List<ClipboardItem> load(String key, long[] order) throws IOException {
+        List<HistoryStore.Entry> entries = store.page(key, null, 0, store.count(key, null));
+        List<ClipboardItem> items = new ArrayList<>(entries.size());
+        if (order == null) {
+            for (HistoryStore.Entry entry : entries) {
+                load(items, entry.id(), key);
+            }
+            return items;
+        }
+        Set<Long> inTab = new HashSet<>();
+        for (HistoryStore.Entry entry : entries) {
+            inTab.add(entry.id());
+        }
+        Set<Long> listed = new HashSet<>();
+        for (long id : order) {
+            listed.add(id);
+        }
+        for (HistoryStore.Entry entry : entries) {
+            if (!listed.contains(entry.id()))
+                load(items, entry.id(), key);
+        }
+        for (long id : order) {
+            if (inTab.contains(id))
+                load(items, id, key);
+        }
+        return items;
+    }
+
+    private void load(List<ClipboardItem> items, long id, String key) throws IOException {
+        ClipboardItem item = store.get(id);
+        if (item == null)
+            return;
+        items.add(item);
+        stored.put(item, new Stored(id, key, item.getRevision(), item.getLastUsed()));
+    }
+
+    /**
+     * Brings the store up to date with {@code state} and forces it to disk.
+     * Returns the number of bytes appended.
+     */
+    synchronized long write(ClipboardEngine.SavedState state) throws IOException {
+        long before = store.getBytes();
+        Set<ClipboardItem> seen = Collections.newSetFromMap(new IdentityHashMap<>());
+        for (ClipboardTab tab : state.tabs()) {
+            String key = tab.getKey();
+            List<ClipboardItem> items = tab.items;
+            // Bottom up, so items stored in the same millisecond page back in this order
+            for (int i = items.size() - 1; i >= 0; i--) {
+                ClipboardItem item = items.get(i);
+                if (!seen.add(item))
+                    continue;
+                Stored previous = stored.get(item);
+                int revision = item.getRevision();
+                LocalDateTime used = item.getLastUsed();
+                if (previous == null || previous.revision() != revision) {
+                    stored.put(item, new Stored(store.put(key, item), key, revision, used));
+                    if (previous != null)
+                        store.delete(previous.id());
+                } else if (!previous.tab().equals(key) || !previous.used().equals(used)) {
+                    if (!previous.tab().equals(key))
+                        store.move(previous.id(), key);
+                    if (!previous.used().equals(used))
+                        store.markUsed(previous.id(), used);
+                    stored.put(item, new Stored(previous.id(), key, revision, used));
+                }
+            }
+        }
+        for (Iterator<Map.Entry<ClipboardItem, Stored>> it = stored.entrySet().iterator(); it.hasNext();) {
+            Map.Entry<ClipboardItem, Stored> entry = it.next();
+            if (!seen.contains(entry.getKey())) {
+                store.delete(entry.getValue().id());
+                it.remove();
+            }
+        }
+
+        long appended = store.getBytes() - before;
+        if (appended > 0)
+            store.sync();
+        byte[] layout = layout(state);
+        if (!Arrays.equals(layout, lastLayout)) {
+            store.writeLayout(layout);
+            lastLayout = layout;
+        }
+        return appended;
+    }
+
+    private byte[] layout(ClipboardEngine.SavedState state) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(256);
+        DataOutputStream out = new DataOutputStream(bytes);
+        out.writeInt(LAYOUT_MAGIC);
+        out.writeInt(LAYOUT_VERSION);
+        out.writeInt(state.activeTabIndex());
+        out.writeInt(state.tabs().size());
+        for (ClipboardTab tab : state.tabs()) {
+            writeNullable(out, tab.name);
+            out.writeUTF(tab.getKey());
+            writeNullable(out, tab.iconValue);
+            out.writeBoolean(tab.isEmoji);
+            out.writeUTF(tab.sortOrder.name());
+            if (tab.items.isNewestFirst()) {
+                out.writeInt(-1);
+            } else {
+                out.writeInt(tab.items.size());
+                for (ClipboardItem item : tab.items) {
+                    out.writeLong(stored.get(item).id());
+                }
+            }
+        }
+        out.flush();
+        return bytes.toByteArray();
+    }
+
+    private static void writeNullable(DataOutputStream out, String value) throws IOException {
+        out.writeBoolean(value != null);
+        if (value != null)
+            out.writeUTF(value);
+    }
+
+    private static String readNullable(DataInputStream in) throws IOException {
+        return in.readBoolean() ? in.readUTF() : null;
+    }
+
+    /** Checkpoints and closes the store. */
+    @Override
+    public synchronized void close() throws IOException {
+        store.close();
+    }
+}
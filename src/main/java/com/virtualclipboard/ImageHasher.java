@@ -0,0 +1,56 @@
+package com.virtualclipboard;
+
+import java.awt.image.BufferedImage;
+import java.awt.image.WritableRaster;
+import java.nio.ByteBuffer;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+
+/**
+ * Exact content hash of an image's pixels. Two images hash equal only when they
+ * have the same dimensions and identical ARGB values, regardless of the
+ * BufferedImage type they are stored in.
+ */
+public class ImageHasher {
+
+    private ImageHasher() {
+    }
+
+    public static String sha256(BufferedImage image) {
+        MessageDigest digest;
+        try {
+            digest = MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+
+        int w = image.getWidth();
+        int h = image.getHeight();
+        ByteBuffer header = ByteBuffer.allocate(8).putInt(w).putInt(h);
+        digest.update(header.array());
+
+        int type = image.getType();
+        boolean packedInts = type == BufferedImage.TYPE_INT_RGB || type == BufferedImage.TYPE_INT_ARGB;
+        WritableRaster raster = image.getRaster();
+        int[] row = new int[w];
+        ByteBuffer rowBytes = ByteBuffer.allocate(w * 4);
+        for (int y = 0; y < h; y++) {
+            if (packedInts) {
+                raster.getDataElements(0, y, w, 1, row);
+                if (type == BufferedImage.TYPE_INT_RGB) {
+                    // getRGB reports RGB pixels as opaque; keep hashes type independent
+                    for (int x = 0; x < w; x++) {
+                        row[x] |= 0xFF000000;
+                    }
+                }
+            } else {
+                image.getRGB(0, y, w, 1, row, 0, w);
+            }
+            rowBytes.clear();
+            rowBytes.asIntBuffer().put(row);
+            digest.update(rowBytes.array());
+        }
+        return HexFormat.of().formatHex(digest.digest());
+    }
+}
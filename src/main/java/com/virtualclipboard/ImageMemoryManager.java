@@ -0,0 +1,102 @@
+package com.virtualclipboard;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Global budget for decoded IMAGE pixels. Items report every decode and access
+ * here; once the decoded total exceeds the budget, the least recently used items
+ * drop their {@code BufferedImage} and keep only the PNG bytes, decoding again
+ * on the next {@link ClipboardItem#getImage()}. PNG encoding happens on a
+ * background thread as soon as an image is captured, so eviction itself never
+ * has to encode.
+ * <p>
+ * Items that were deleted stay in the LRU until they age out, which keeps the
+ * bookkeeping local to this class while the total stays within the budget.
+ */
+public class ImageMemoryManager {
+    private static final ImageMemoryManager SHARED = new ImageMemoryManager(256L * 1024 * 1024);
+
+    // Access-ordered: iteration starts at the least recently used item
+    private final Map<ClipboardItem, Long> resident = new LinkedHashMap<>(64, 0.75f, true);
+    private final Set<ClipboardItem> encoding = new HashSet<>();
+    private final ExecutorService encoder = Executors.newSingleThreadExecutor(r -> {
+        Thread t = new Thread(r, "image-encoder");
+        t.setDaemon(true);
+        t.setPriority(Thread.MIN_PRIORITY);
+        return t;
+    });
+    private long residentBytes;
+    private long budgetBytes;
+
+    public ImageMemoryManager(long budgetBytes) {
+        this.budgetBytes = budgetBytes;
+    }
+
+    public static ImageMemoryManager shared() {
+        return SHARED;
+    }
+
+    public synchronized void setBudgetBytes(long budgetBytes) {
+        this.budgetBytes = budgetBytes;
+        enforceBudget();
+    }
+
+    public synchronized long getResidentBytes() {
+        return residentBytes;
+    }
+
+    /** Called for freshly captured images: accounts for them and starts compressing in the background. */
+    public void register(ClipboardItem item) {
+        touch(item);
+        scheduleEncode(item);
+    }
+
+    /** Marks the item's decoded image as most recently used. */
+    public synchronized void touch(ClipboardItem item) {
+        long bytes = item.getDecodedImageBytes();
+        Long previous = resident.put(item, bytes);
+        residentBytes += bytes - (previous != null ? previous : 0);
+        enforceBudget();
+    }
+
+    private synchronized void enforceBudget() {
+        if (residentBytes <= budgetBytes)
+            return;
+        List<ClipboardItem> unencoded = new ArrayList<>();
+        Iterator<Map.Entry<ClipboardItem, Long>> it = resident.entrySet().iterator();
+        // Never evict the most recently used entry, it is what the caller is about to use
+        int evictable = resident.size() - 1;
+        while (residentBytes > budgetBytes && evictable-- > 0 && it.hasNext()) {
+            Map.Entry<ClipboardItem, Long> eldest = it.next();
+            if (eldest.getKey().releaseDecodedImage()) {
+                residentBytes -= eldest.getValue();
+                it.remove();
+            } else {
+                unencoded.add(eldest.getKey());
+            }
+        }
+        for (ClipboardItem item : unencoded) {
+            scheduleEncode(item);
+        }
+    }
+
+    private synchronized void scheduleEncode(ClipboardItem item) {
+        if (!encoding.add(item))
+            return;
+        encoder.execute(() -> {
+            item.getEncodedImage();
+            synchronized (this) {
+                encoding.remove(item);
+                enforceBudget();
+            }
+        });
+    }
+}
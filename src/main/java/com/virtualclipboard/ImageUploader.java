@@ -0,0 +1,150 @@
+package com.virtualclipboard;
+
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
+import java.io.BufferedOutputStream;
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.util.Properties;
+import java.util.UUID;
+import javax.imageio.ImageIO;
+
+/**
+ * Uploads images for reverse image search. Images are downscaled to what search
+ * engines actually look at, PNG-encoded straight into a chunked multipart request
+ * and the returned URL is cached per pixel hash, so searching the same image again
+ * costs no upload at all. The endpoint comes from {@link ConfigManager} and only
+ * needs to speak the catbox.moe form protocol, so a local stub server works too.
+ */
+public class ImageUploader {
+    private static final String CACHE_FILE = "upload_cache.properties";
+    // Reverse image search engines work on thumbnails; anything larger only costs upload time
+    private static final int MAX_UPLOAD_DIMENSION = 1600;
+    private static final int CHUNK_SIZE = 64 * 1024;
+
+    private final ConfigManager configManager;
+    private final File cacheFile;
+    private final Properties urlCache = new Properties();
+
+    public ImageUploader(ConfigManager configManager) {
+        this(configManager, new File(CACHE_FILE));
+    }
+
+    ImageUploader(ConfigManager configManager, File cacheFile) {
+        this.configManager = configManager;
+        this.cacheFile = cacheFile;
+        if (cacheFile.exists()) {
+            try (InputStream in = new FileInputStream(cacheFile)) {
+                urlCache.load(in);
+            } catch (IOException e) {
+                e.printStackTrace();
+            }
+        }
+    }
+
+    public String upload(BufferedImage image) throws IOException {
+        String endpoint = configManager.getImageUploadUrl();
+        String cacheKey = ImageHasher.sha256(image) + "@" + endpoint;
+        String cached = urlCache.getProperty(cacheKey);
+        if (cached != null) {
+            return cached;
+        }
+
+        String url = post(endpoint, downscale(image));
+        synchronized (urlCache) {
+            urlCache.setProperty(cacheKey, url);
+            try (OutputStream out = new FileOutputStream(cacheFile)) {
+                urlCache.store(out, "Uploaded image URLs by pixel hash");
+            } catch (IOException e) {
+                e.printStackTrace();
+            }
+        }
+        return url;
+    }
+
+    static BufferedImage downscale(BufferedImage image) {
+        int w = image.getWidth();
+        int h = image.getHeight();
+        int longest = Math.max(w, h);
+        if (longest <= MAX_UPLOAD_DIMENSION) {
+            return image;
+        }
+        double scale = (double) MAX_UPLOAD_DIMENSION / longest;
+        int tw = Math.max(1, (int) Math.round(w * scale));
+        int th = Math.max(1, (int) Math.round(h * scale));
+        int type = image.getColorModel().hasAlpha() ? BufferedImage.TYPE_INT_ARGB : BufferedImage.TYPE_INT_RGB;
+        BufferedImage scaled = new BufferedImage(tw, th, type);
+        Graphics2D g2 = scaled.createGraphics();
+        g2.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+        g2.setRenderingHint(RenderingHints.KEY_RENDERING, RenderingHints.VALUE_RENDER_QUALITY);
+        g2.drawImage(image, 0, 0, tw, th, null);
+        g2.dispose();
+        return scaled;
+    }
+
+    private String post(String endpoint, BufferedImage image) throws IOException {
+        String boundary = "---" + UUID.randomUUID();
+        HttpURLConnection connection = (HttpURLConnection) URI.create(endpoint).toURL().openConnection();
+        connection.setDoOutput(true);
+        connection.setRequestMethod("POST");
+        connection.setConnectTimeout(10_000);
+        connection.setReadTimeout(60_000);
+        // Stream the body instead of buffering the whole encoded image first
+        connection.setChunkedStreamingMode(CHUNK_SIZE);
+        connection.setRequestProperty("Content-Type", "multipart/form-data; boundary=" + boundary);
+        connection.setRequestProperty("User-Agent",
+                "Mozilla/5.0 (Windows NT 10.0; Win64; x64) AppleWebKit/537.36 (KHTML, like Gecko) Chrome/120.0.0.0 Safari/537.36");
+
+        try (OutputStream output = new BufferedOutputStream(connection.getOutputStream(), CHUNK_SIZE)) {
+            writeAscii(output, "--" + boundary + "\r\n");
+            writeAscii(output, "Content-Disposition: form-data; name=\"reqtype\"\r\n\r\n");
+            writeAscii(output, "fileupload\r\n");
+
+            writeAscii(output, "--" + boundary + "\r\n");
+            writeAscii(output, "Content-Disposition: form-data; name=\"fileToUpload\"; filename=\"image.png\"\r\n");
+            writeAscii(output, "Content-Type: image/png\r\n\r\n");
+            // ImageIO closes the stream it is given, so shield the connection stream
+            if (!ImageIO.write(image, "png", new FilterOutputStream(output) {
+                @Override
+                public void write(byte[] b, int off, int len) throws IOException {
+                    out.write(b, off, len);
+                }
+
+                @Override
+                public void close() throws IOException {
+                    flush();
+                }
+            })) {
+                throw new IOException("No PNG encoder available");
+            }
+            writeAscii(output, "\r\n--" + boundary + "--\r\n");
+        }
+
+        int responseCode = connection.getResponseCode();
+        if (responseCode == HttpURLConnection.HTTP_OK) {
+            try (BufferedReader reader = new BufferedReader(
+                    new InputStreamReader(connection.getInputStream(), StandardCharsets.UTF_8))) {
+                String uploadedUrl = reader.readLine();
+                if (uploadedUrl != null && !uploadedUrl.isBlank()) {
+                    return uploadedUrl.trim();
+                }
+            }
+        }
+        throw new IOException("Failed to upload image to " + endpoint + ": " + responseCode);
+    }
+
+    private static void writeAscii(OutputStream out, String s) throws IOException {
+        out.write(s.getBytes(StandardCharsets.US_ASCII));
+    }
+}
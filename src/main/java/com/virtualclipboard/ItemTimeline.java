@@ -0,0 +1,202 @@
+package com.virtualclipboard;
+
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.Objects;
+import java.util.RandomAccess;
+import java.util.function.Predicate;
+
+/**
+ * Item list of a tab, newest first, backed by a circular array. Prepending and
+ * dropping from the tail are O(1), which are the two things every capture and
+ * every retention pass do. Inserting elsewhere shifts whichever side of the
+ * insertion point is shorter. {@link #insertByTimestamp} keeps the list in
+ * timestamp order for items that arrive late (imports, moves) without a full
+ * re-sort. {@link #getVersion()} changes on every mutation so derived views
+ * (see {@link SortedViews}) can tell when they are stale.
+ */
+public class ItemTimeline extends AbstractList<ClipboardItem> implements RandomAccess {
+    private static final int MIN_CAPACITY = 16;
+
+    private ClipboardItem[] elements;
+    private int head;
+    private int size;
+    private int version;
+    private int checkedVersion = -1;
+    private boolean newestFirst;
+
+    public ItemTimeline() {
+        elements = new ClipboardItem[MIN_CAPACITY];
+    }
+
+    public ItemTimeline(Collection<? extends ClipboardItem> items) {
+        int capacity = MIN_CAPACITY;
+        while (capacity < items.size())
+            capacity <<= 1;
+        elements = new ClipboardItem[capacity];
+        for (ClipboardItem item : items) {
+            elements[size++] = item;
+        }
+    }
+
+    private int slot(int index) {
+        return (head + index) & (elements.length - 1);
+    }
+
+    @Override
+    public ClipboardItem get(int index) {
+        Objects.checkIndex(index, size);
+        return elements[slot(index)];
+    }
+
+    @Override
+    public ClipboardItem set(int index, ClipboardItem item) {
+        Objects.checkIndex(index, size);
+        int s = slot(index);
+        ClipboardItem previous = elements[s];
+        elements[s] = item;
+        version++;
+        return previous;
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public void add(int index, ClipboardItem item) {
+        Objects.checkIndex(index, size + 1);
+        modCount++;
+        version++;
+        if (size == elements.length)
+            grow();
+        if (index < size / 2) {
+            // Move the front part one slot towards the head
+            head = (head - 1) & (elements.length - 1);
+            for (int i = 0; i < index; i++) {
+                elements[slot(i)] = elements[slot(i + 1)];
+            }
+        } else {
+            for (int i = size; i > index; i--) {
+                elements[slot(i)] = elements[slot(i - 1)];
+            }
+        }
+        elements[slot(index)] = item;
+        size++;
+    }
+
+    @Override
+    public ClipboardItem remove(int index) {
+        Objects.checkIndex(index, size);
+        modCount++;
+        version++;
+        ClipboardItem removed = elements[slot(index)];
+        if (index < size / 2) {
+            for (int i = index; i > 0; i--) {
+                elements[slot(i)] = elements[slot(i - 1)];
+            }
+            elements[head] = null;
+            head = (head + 1) & (elements.length - 1);
+        } else {
+            for (int i = index; i < size - 1; i++) {
+                elements[slot(i)] = elements[slot(i + 1)];
+            }
+            elements[slot(size - 1)] = null;
+        }
+        size--;
+        return removed;
+    }
+
+    /** Single compacting pass instead of one shifting remove per match. */
+    @Override
+    public boolean removeIf(Predicate<? super ClipboardItem> filter) {
+        int kept = 0;
+        for (int i = 0; i < size; i++) {
+            ClipboardItem item = elements[slot(i)];
+            if (!filter.test(item)) {
+                elements[slot(kept++)] = item;
+            }
+        }
+        if (kept == size)
+            return false;
+        for (int i = kept; i < size; i++) {
+            elements[slot(i)] = null;
+        }
+        modCount++;
+        version++;
+        size = kept;
+        return true;
+    }
+
+    @Override
+    public void clear() {
+        modCount++;
+        version++;
+        for (int i = 0; i < size; i++) {
+            elements[slot(i)] = null;
+        }
+        head = 0;
+        size = 0;
+    }
+
+    @Override
+    public void sort(Comparator<? super ClipboardItem> comparator) {
+        ClipboardItem[] sorted = toArray(new ClipboardItem[0]);
+        Arrays.sort(sorted, comparator);
+        for (int i = 0; i < sorted.length; i++) {
+            elements[slot(i)] = sorted[i];
+        }
+        modCount++;
+        version++;
+    }
+
+    public int getVersion() {
+        return version;
+    }
+
+    /** Whether timestamps never increase along the list; the scan is cached until the next mutation. */
+    public boolean isNewestFirst() {
+        if (checkedVersion != version) {
+            newestFirst = true;
+            for (int i = 1; i < size && newestFirst; i++) {
+                newestFirst = !get(i).getTimestamp().isAfter(get(i - 1).getTimestamp());
+            }
+            checkedVersion = version;
+        }
+        return newestFirst;
+    }
+
+    /**
+     * Inserts {@code item} before the first item that is not newer than it. A fresh
+     * capture lands at index 0 after one comparison; older items are placed by
+     * binary search. Returns the index it was inserted at.
+     */
+    public int insertByTimestamp(ClipboardItem item) {
+        int low = 0;
+        int high = size;
+        if (size > 0 && !item.getTimestamp().isBefore(get(0).getTimestamp())) {
+            high = 0;
+        }
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (get(mid).getTimestamp().isAfter(item.getTimestamp()))
+                low = mid + 1;
+            else
+                high = mid;
+        }
+        add(low, item);
+        return low;
+    }
+
+    private void grow() {
+        ClipboardItem[] larger = new ClipboardItem[elements.length << 1];
+        for (int i = 0; i < size; i++) {
+            larger[i] = elements[slot(i)];
+        }
+        elements = larger;
+        head = 0;
+    }
+}
@@ -0,0 +1,244 @@
+package com.virtualclipboard;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongSupplier;
+
+/**
+ * Process-wide counters, histograms and gauges for the hot paths. Recording is
+ * lock-free and allocation-free, so it is cheap enough for the EDT and the
+ * capture poll. Metrics are created on first use and live for the whole run;
+ * names are dotted, e.g. {@code persist.save}.
+ * <p>
+ * {@link #report()} renders everything for the diagnostics dialog, and
+ * {@link #startLog} appends the same text to a local file periodically.
+ */
+public final class Metrics {
+    private static final long LOG_ROTATE_BYTES = 1024 * 1024;
+    private static final DateTimeFormatter LOG_TIME = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
+
+    public enum Unit {
+        NANOS, BYTES, COUNT
+    }
+
+    private static final Map<String, Counter> counters = new ConcurrentSkipListMap<>();
+    private static final Map<String, Histogram> histograms = new ConcurrentSkipListMap<>();
+    private static final Map<String, LongSupplier> gauges = new ConcurrentSkipListMap<>();
+    private static final Map<String, Unit> gaugeUnits = new ConcurrentSkipListMap<>();
+
+    private static ScheduledExecutorService logger;
+    private static ScheduledFuture<?> logTask;
+
+    private Metrics() {
+    }
+
+    public static final class Counter {
+        private final LongAdder value = new LongAdder();
+
+        public void increment() {
+            value.increment();
+        }
+
+        public void add(long delta) {
+            value.add(delta);
+        }
+
+        public long get() {
+            return value.sum();
+        }
+    }
+
+    /**
+     * Power-of-two buckets: bucket {@code b} holds values below {@code 2^b}.
+     * Percentiles are therefore reported to within a factor of two, which is
+     * plenty for spotting where time goes.
+     */
+    public static final class Histogram {
+        private static final int BUCKETS = 64;
+
+        private final Unit unit;
+        private final AtomicLongArray buckets = new AtomicLongArray(BUCKETS);
+        private final LongAdder count = new LongAdder();
+        private final LongAdder sum = new LongAdder();
+        private final AtomicLong max = new AtomicLong();
+
+        private Histogram(Unit unit) {
+            this.unit = unit;
+        }
+
+        public void record(long value) {
+            if (value < 0)
+                value = 0;
+            buckets.incrementAndGet(BUCKETS - Long.numberOfLeadingZeros(value));
+            count.increment();
+            sum.add(value);
+            max.accumulateAndGet(value, Math::max);
+        }
+
+        /** Records the time since {@code startNanos}, a value of {@link System#nanoTime()}. */
+        public void recordSince(long startNanos) {
+            record(System.nanoTime() - startNanos);
+        }
+
+        public Unit getUnit() {
+            return unit;
+        }
+
+        public long getCount() {
+            return count.sum();
+        }
+
+        public long getMax() {
+            return max.get();
+        }
+
+        public double getMean() {
+            long n = count.sum();
+            return n == 0 ? 0 : (double) sum.sum() / n;
+        }
+
+        /** Upper bound of the bucket holding the given quantile, capped at the largest value seen. */
+        public long getPercentile(double quantile) {
+            long n = count.sum();
+            if (n == 0)
+                return 0;
+            long rank = (long) Math.ceil(quantile * n);
+            long seen = 0;
+            for (int b = 0; b < BUCKETS; b++) {
+                seen += buckets.get(b);
+                if (seen >= rank)
+                    return Math.min(b == BUCKETS - 1 ? Long.MAX_VALUE : (1L << b) - 1, max.get());
+            }
+            return max.get();
+        }
+    }
+
+    public static Counter counter(String name) {
+        return counters.computeIfAbsent(name, n -> new Counter());
+    }
+
+    /** A histogram of durations in nanoseconds. */
+    public static Histogram timer(String name) {
+        return histogram(name, Unit.NANOS);
+    }
+
+    public static Histogram histogram(String name, Unit unit) {
+        return histograms.computeIfAbsent(name, n -> new Histogram(unit));
+    }
+
+    /** Registers a gauge read whenever a report is made. Replaces any gauge of the same name. */
+    public static void gauge(String name, Unit unit, LongSupplier value) {
+        gauges.put(name, value);
+        gaugeUnits.put(name, unit);
+    }
+
+    /** A gauge whose value is set by the owner rather than read on demand. */
+    public static AtomicLong gauge(String name, Unit unit) {
+        AtomicLong value = new AtomicLong();
+        gauge(name, unit, value::get);
+        return value;
+    }
+
+    /** One line per metric, sorted by name within each kind. */
+    public static List<String> report() {
+        List<String> lines = new ArrayList<>();
+        for (Map.Entry<String, Histogram> e : histograms.entrySet()) {
+            Histogram h = e.getValue();
+            if (h.getCount() == 0)
+                continue;
+            lines.add(String.format("%-28s n=%-8d mean=%-10s p50=%-10s p95=%-10s p99=%-10s max=%s", e.getKey(),
+                    h.getCount(), format((long) h.getMean(), h.unit), format(h.getPercentile(0.50), h.unit),
+                    format(h.getPercentile(0.95), h.unit), format(h.getPercentile(0.99), h.unit),
+                    format(h.getMax(), h.unit)));
+        }
+        for (Map.Entry<String, Counter> e : counters.entrySet()) {
+            lines.add(String.format("%-28s %d", e.getKey(), e.getValue().get()));
+        }
+        for (Map.Entry<String, LongSupplier> e : gauges.entrySet()) {
+            long value;
+            try {
+                value = e.getValue().getAsLong();
+            } catch (RuntimeException ex) {
+                continue; // Owner is shutting down or not ready yet
+            }
+            lines.add(String.format("%-28s %s", e.getKey(), format(value, gaugeUnits.get(e.getKey()))));
+        }
+        return lines;
+    }
+
+    static String format(long value, Unit unit) {
+        switch (unit) {
+            case NANOS:
+                if (value < 1_000_000)
+                    return String.format("%.1fus", value / 1e3);
+                if (value < 1_000_000_000)
+                    return String.format("%.1fms", value / 1e6);
+                return String.format("%.2fs", value / 1e9);
+            case BYTES:
+                if (value < 1024)
+                    return value + "B";
+                if (value < 1024 * 1024)
+                    return String.format("%.1fKB", value / 1024.0);
+                return String.format("%.1fMB", value / (1024.0 * 1024));
+            default:
+                return String.valueOf(value);
+        }
+    }
+
+    /**
+     * Appends a timestamped report to {@code file} every {@code periodMinutes}.
+     * The file is rotated to {@code <name>.1} once it passes 1 MB. Calling again
+     * replaces the previous schedule; {@link #stopLog} turns it off.
+     */
+    public static synchronized void startLog(Path file, long periodMinutes) {
+        stopLog();
+        if (logger == null) {
+            logger = Executors.newSingleThreadScheduledExecutor(r -> {
+                Thread t = new Thread(r, "metrics-log");
+                t.setDaemon(true);
+                t.setPriority(Thread.MIN_PRIORITY);
+                return t;
+            });
+        }
+        logTask = logger.scheduleAtFixedRate(() -> writeLog(file), periodMinutes, periodMinutes, TimeUnit.MINUTES);
+    }
+
+    public static synchronized void stopLog() {
+        if (logTask != null) {
+            logTask.cancel(false);
+            logTask = null;
+        }
+    }
+
+    private static void writeLog(Path file) {
+        StringBuilder sb = new StringBuilder("=== ").append(LocalDateTime.now().format(LOG_TIME)).append('\n');
+        for (String line : report()) {
+            sb.append(line).append('\n');
+        }
+        try {
+            if (Files.exists(file) && Files.size(file) > LOG_ROTATE_BYTES) {
+                Files.move(file, file.resolveSibling(file.getFileName() + ".1"), StandardCopyOption.REPLACE_EXISTING);
+            }
+            Files.writeString(file, sb, StandardCharsets.UTF_8, StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+        } catch (IOException e) {
+            System.err.println("Failed to write metrics log: " + e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,150 @@
+package com.virtualclipboard;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.attribute.FileTime;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * OCR results keyed by pixel hash and engine version, kept in a small in-memory
+ * LRU and persisted as one file per entry under {@code ocr_cache/}. The folder is
+ * an LRU too: every hit touches the entry's modification time, and once the
+ * entries add up to more than {@code MAX_DISK_BYTES} the least recently used
+ * ones are deleted. Interactive scans and background indexing share the same
+ * instance.
+ */
+public class OcrCache {
+    private static final String CACHE_DIR = "ocr_cache";
+    private static final int MEMORY_ENTRIES = 256;
+    private static final long MAX_DISK_BYTES = 32L << 20;
+
+    private final Path cacheDir;
+    private final long maxDiskBytes;
+    private final Object diskLock = new Object();
+    private long diskBytes = -1; // Unknown until the first write looks at the folder
+    private final Map<String, String> memory = new LinkedHashMap<>(64, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, String> eldest) {
+            return size() > MEMORY_ENTRIES;
+        }
+    };
+
+    public OcrCache() {
+        this(Paths.get(CACHE_DIR), MAX_DISK_BYTES);
+    }
+
+    OcrCache(Path cacheDir, long maxDiskBytes) {
+        this.cacheDir = cacheDir;
+        this.maxDiskBytes = maxDiskBytes;
+    }
+
+    /**
+     * Results from a different tessdata file or preprocessing pipeline are never
+     * reused, since either can change the recognized text.
+     */
+    public static String key(String imageHash, String engineVersion) {
+        return imageHash + "-" + Integer.toHexString(engineVersion.hashCode());
+    }
+
+    public String get(String key) {
+        Path file = cacheDir.resolve(key + ".txt");
+        synchronized (memory) {
+            String text = memory.get(key);
+            if (text != null) {
+                touch(file);
+                return text;
+            }
+        }
+        if (!Files.exists(file))
+            return null;
+        try {
+            String text = Files.readString(file, StandardCharsets.UTF_8);
+            touch(file);
+            synchronized (memory) {
+                memory.put(key, text);
+            }
+            return text;
+        } catch (IOException e) {
+            System.err.println("Failed to read OCR cache entry: " + e.getMessage());
+            return null;
+        }
+    }
+
+    public void put(String key, String text) {
+        synchronized (memory) {
+            memory.put(key, text);
+        }
+        try {
+            Files.createDirectories(cacheDir);
+            // Write then rename so a concurrent reader never sees a partial entry
+            Path tmp = Files.createTempFile(cacheDir, key, ".tmp");
+            Files.writeString(tmp, text, StandardCharsets.UTF_8);
+            Files.move(tmp, cacheDir.resolve(key + ".txt"), StandardCopyOption.REPLACE_EXISTING,
+                    StandardCopyOption.ATOMIC_MOVE);
+            synchronized (diskLock) {
+                diskBytes = diskBytes < 0 ? scan(false) : diskBytes + text.getBytes(StandardCharsets.UTF_8).length;
+                if (diskBytes > maxDiskBytes)
+                    diskBytes = scan(true);
+            }
+        } catch (IOException e) {
+            System.err.println("Failed to write OCR cache entry: " + e.getMessage());
+        }
+    }
+
+    /** Marks an entry as just used, so pruning keeps it. */
+    private static void touch(Path file) {
+        try {
+            Files.setLastModifiedTime(file, FileTime.from(Instant.now()));
+        } catch (IOException e) {
+            // Not on disk (yet), or gone; nothing to keep
+        }
+    }
+
+    /**
+     * Adds up the size of the entries on disk. When {@code prune} is set, deletes
+     * the least recently used ones until a quarter of the budget is free again,
+     * so the next few writes don't each have to prune.
+     */
+    private long scan(boolean prune) throws IOException {
+        record Entry(Path file, long size, FileTime used) {
+        }
+        List<Entry> entries = new ArrayList<>();
+        long total = 0;
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(cacheDir, "*.txt")) {
+            for (Path file : files) {
+                try {
+                    BasicFileAttributes attrs = Files.readAttributes(file, BasicFileAttributes.class);
+                    entries.add(new Entry(file, attrs.size(), attrs.lastModifiedTime()));
+                    total += attrs.size();
+                } catch (IOException e) {
+                    // Deleted while listing
+                }
+            }
+        }
+        if (!prune)
+            return total;
+        entries.sort(Comparator.comparing(Entry::used));
+        long target = maxDiskBytes - maxDiskBytes / 4;
+        int removed = 0;
+        for (Entry entry : entries) {
+            if (total <= target)
+                break;
+            if (Files.deleteIfExists(entry.file()))
+                removed++;
+            total -= entry.size();
+        }
+        System.out.println("Pruned " + removed + " OCR cache entries");
+        return total;
+    }
+}
@@ -0,0 +1,174 @@
+package com.virtualclipboard;
+
+import net.sourceforge.tess4j.Tesseract;
+import net.sourceforge.tess4j.TesseractException;
+
+import java.awt.image.BufferedImage;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.PriorityBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Bounded pool of pre-configured Tesseract engines. A {@link Tesseract} instance
+ * is not thread-safe, so every job borrows an engine exclusively and returns it
+ * when done. Jobs wait in a bounded queue and are rejected once it is full;
+ * interactive jobs are always dequeued ahead of background indexing work.
+ */
+public class OcrEnginePool {
+    public enum Priority {
+        INTERACTIVE, BACKGROUND
+    }
+
+    private final BlockingQueue<Tesseract> engines;
+    private final ThreadPoolExecutor workers;
+    private final int size;
+    private final int queueCapacity;
+    private final AtomicLong jobSequence = new AtomicLong();
+
+    public OcrEnginePool(String datapath, String language, int size, int queueCapacity) {
+        this.size = size;
+        this.queueCapacity = queueCapacity;
+        this.engines = new ArrayBlockingQueue<>(size);
+        for (int i = 0; i < size; i++) {
+            Tesseract engine = new Tesseract();
+            engine.setDatapath(datapath);
+            engine.setLanguage(language);
+            engines.add(engine);
+        }
+
+        AtomicInteger threadCount = new AtomicInteger();
+        this.workers = new ThreadPoolExecutor(size, size, 0L, TimeUnit.MILLISECONDS,
+                new PriorityBlockingQueue<>(), r -> {
+                    Thread t = new Thread(r, "ocr-worker-" + threadCount.incrementAndGet());
+                    t.setDaemon(true);
+                    return t;
+                });
+    }
+
+    /**
+     * Default pool size: leave one core for the UI and capture thread, but never
+     * keep more than four engines resident since each holds its own language data.
+     */
+    public static int defaultSize() {
+        int cores = Runtime.getRuntime().availableProcessors();
+        return Math.max(1, Math.min(4, cores - 1));
+    }
+
+    public int getSize() {
+        return size;
+    }
+
+    public int getQueuedJobs() {
+        return workers.getQueue().size();
+    }
+
+    public Future<String> submit(BufferedImage image, Priority priority) {
+        // PriorityBlockingQueue is unbounded, so the capacity is enforced here
+        if (workers.getQueue().size() >= queueCapacity) {
+            throw new RejectedExecutionException("OCR queue is full");
+        }
+        OcrJob job = new OcrJob(image, priority, jobSequence.incrementAndGet());
+        workers.execute(job);
+        return job;
+    }
+
+    /**
+     * Runs OCR on the pool and waits at most {@code timeout} for the result.
+     * A timed out job is cancelled; the native call cannot be interrupted, so its
+     * engine only returns to the pool once Tesseract finishes on its own.
+     */
+    public String extract(BufferedImage image, Priority priority, long timeout, TimeUnit unit)
+            throws TesseractException {
+        return extractAll(List.of(image), priority, timeout, unit).get(0);
+    }
+
+    /**
+     * Submits every image up front so they run in parallel across the pool, then
+     * collects the results in input order. The timeout covers the whole batch.
+     */
+    public List<String> extractAll(List<BufferedImage> images, Priority priority, long timeout, TimeUnit unit)
+            throws TesseractException {
+        List<Future<String>> futures = new ArrayList<>(images.size());
+        try {
+            for (BufferedImage image : images) {
+                futures.add(submit(image, priority));
+            }
+        } catch (RejectedExecutionException e) {
+            cancelAll(futures);
+            throw new TesseractException("OCR queue is full, try again shortly");
+        }
+
+        long deadline = System.nanoTime() + unit.toNanos(timeout);
+        List<String> results = new ArrayList<>(futures.size());
+        try {
+            for (Future<String> future : futures) {
+                long remaining = Math.max(0, deadline - System.nanoTime());
+                results.add(future.get(remaining, TimeUnit.NANOSECONDS));
+            }
+            return results;
+        } catch (TimeoutException e) {
+            cancelAll(futures);
+            throw new TesseractException("OCR timed out after " + unit.toSeconds(timeout) + " s");
+        } catch (InterruptedException e) {
+            cancelAll(futures);
+            Thread.currentThread().interrupt();
+            throw new TesseractException("OCR interrupted");
+        } catch (ExecutionException e) {
+            cancelAll(futures);
+            Throwable cause = e.getCause();
+            if (cause instanceof TesseractException) {
+                throw (TesseractException) cause;
+            }
+            throw new TesseractException(cause != null ? cause.getMessage() : e.getMessage(), cause);
+        }
+    }
+
+    private void cancelAll(List<Future<String>> futures) {
+        for (Future<String> future : futures) {
+            future.cancel(true);
+        }
+    }
+
+    public void shutdown() {
+        workers.shutdownNow();
+    }
+
+    /**
+     * Queue entry ordered by priority first and submission order second, so jobs of
+     * the same priority still run first-in first-out.
+     */
+    private class OcrJob extends FutureTask<String> implements Comparable<OcrJob> {
+        private final Priority priority;
+        private final long sequence;
+
+        OcrJob(BufferedImage image, Priority priority, long sequence) {
+            super(() -> {
+                Tesseract engine = engines.take();
+                try {
+                    return engine.doOCR(image);
+                } finally {
+                    engines.offer(engine);
+                }
+            });
+            this.priority = priority;
+            this.sequence = sequence;
+        }
+
+        @Override
+        public int compareTo(OcrJob other) {
+            int byPriority = priority.compareTo(other.priority);
+            return byPriority != 0 ? byPriority : Long.compare(sequence, other.sequence);
+        }
+    }
+}
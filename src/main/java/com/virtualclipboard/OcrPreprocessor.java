@@ -0,0 +1,229 @@
+package com.virtualclipboard;
+
+import java.awt.GraphicsEnvironment;
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferByte;
+import java.awt.image.WritableRaster;
+
+/**
+ * Prepares clipboard images for Tesseract: grayscale conversion, Otsu
+ * binarization and cropping of empty margins in {@link #prepare}, then a
+ * DPI-aware rescale in {@link #scale}. The rescale runs on each band
+ * {@link OcrTiler} cuts, so the pixel cap limits one band rather than shrinking
+ * a whole tall capture. Every stage works on whole rows or the backing byte
+ * array instead of per-pixel getRGB calls.
+ */
+public class OcrPreprocessor {
+    private static final double SCREEN_DPI = 96.0;
+    // Tesseract wants an x-height of roughly 10px; 100% scaled UI text sits just below that
+    private static final double TARGET_DPI = 120.0;
+    private static final double MIN_SCALE = 0.5;
+    private static final double MAX_SCALE = 2.0;
+    private static final long MAX_PIXELS = 12_000_000L;
+    private static final int MARGIN_PADDING = 8;
+
+    private static volatile double displayScale = -1;
+
+    private OcrPreprocessor() {
+    }
+
+    /**
+     * Returns a binarized, cropped TYPE_BYTE_GRAY copy of {@code source} at its own
+     * resolution, with dark text on a light background, or null when the image has
+     * no foreground at all.
+     */
+    public static BufferedImage prepare(BufferedImage source) {
+        int w = source.getWidth();
+        int h = source.getHeight();
+        if (w == 0 || h == 0)
+            return null;
+
+        byte[] gray = toGray(source);
+        int[] histogram = new int[256];
+        for (byte b : gray) {
+            histogram[b & 0xFF]++;
+        }
+        int threshold = otsuThreshold(histogram, gray.length);
+
+        // The larger class is the background; dark-mode screenshots get inverted
+        int darkCount = 0;
+        for (int i = 0; i <= threshold; i++) {
+            darkCount += histogram[i];
+        }
+        boolean darkBackground = darkCount > gray.length / 2;
+
+        int[] bounds = foregroundBounds(gray, w, h, threshold, darkBackground);
+        if (bounds == null)
+            return null;
+
+        int x0 = Math.max(0, bounds[0] - MARGIN_PADDING);
+        int y0 = Math.max(0, bounds[1] - MARGIN_PADDING);
+        int x1 = Math.min(w - 1, bounds[2] + MARGIN_PADDING);
+        int y1 = Math.min(h - 1, bounds[3] + MARGIN_PADDING);
+        int cw = x1 - x0 + 1;
+        int ch = y1 - y0 + 1;
+
+        BufferedImage cropped = new BufferedImage(cw, ch, BufferedImage.TYPE_BYTE_GRAY);
+        byte[] croppedData = ((DataBufferByte) cropped.getRaster().getDataBuffer()).getData();
+        for (int y = 0; y < ch; y++) {
+            System.arraycopy(gray, (y0 + y) * w + x0, croppedData, y * cw, cw);
+        }
+
+        binarize(cropped, threshold, darkBackground);
+        return cropped;
+    }
+
+    /**
+     * Rescales a binarized image or band from {@link #prepare} to the size
+     * Tesseract reads best, at most {@code MAX_PIXELS}, and binarizes it again.
+     */
+    public static BufferedImage scale(BufferedImage prepared) {
+        BufferedImage scaled = rescale(prepared, computeScale(prepared.getWidth(), prepared.getHeight()));
+        if (scaled != prepared)
+            binarize(scaled, 127, false); // Smoothing leaves gray along the edges
+        return scaled;
+    }
+
+    private static byte[] toGray(BufferedImage source) {
+        int w = source.getWidth();
+        int h = source.getHeight();
+        byte[] gray = new byte[w * h];
+        int type = source.getType();
+        boolean packedInts = type == BufferedImage.TYPE_INT_RGB || type == BufferedImage.TYPE_INT_ARGB
+                || type == BufferedImage.TYPE_INT_ARGB_PRE;
+        boolean hasAlpha = source.getColorModel().hasAlpha();
+        WritableRaster raster = source.getRaster();
+        int[] row = new int[w];
+
+        for (int y = 0; y < h; y++) {
+            if (packedInts) {
+                raster.getDataElements(0, y, w, 1, row);
+            } else {
+                source.getRGB(0, y, w, 1, row, 0, w);
+            }
+            int offset = y * w;
+            for (int x = 0; x < w; x++) {
+                int argb = row[x];
+                int luma = (((argb >> 16) & 0xFF) * 77 + ((argb >> 8) & 0xFF) * 150 + (argb & 0xFF) * 29) >> 8;
+                if (hasAlpha) {
+                    // Composite transparent areas onto white
+                    int a = (argb >>> 24);
+                    luma = (luma * a + 255 * (255 - a)) / 255;
+                }
+                gray[offset + x] = (byte) luma;
+            }
+        }
+        return gray;
+    }
+
+    private static int otsuThreshold(int[] histogram, int total) {
+        long sumAll = 0;
+        for (int i = 0; i < 256; i++) {
+            sumAll += (long) i * histogram[i];
+        }
+
+        long sumBackground = 0;
+        int weightBackground = 0;
+        double bestVariance = -1;
+        int threshold = 127;
+        for (int t = 0; t < 256; t++) {
+            weightBackground += histogram[t];
+            if (weightBackground == 0)
+                continue;
+            int weightForeground = total - weightBackground;
+            if (weightForeground == 0)
+                break;
+            sumBackground += (long) t * histogram[t];
+            double meanBackground = (double) sumBackground / weightBackground;
+            double meanForeground = (double) (sumAll - sumBackground) / weightForeground;
+            double diff = meanBackground - meanForeground;
+            double variance = (double) weightBackground * weightForeground * diff * diff;
+            if (variance > bestVariance) {
+                bestVariance = variance;
+                threshold = t;
+            }
+        }
+        return threshold;
+    }
+
+    /** Returns {minX, minY, maxX, maxY} of all foreground pixels, or null if there are none. */
+    private static int[] foregroundBounds(byte[] gray, int w, int h, int threshold, boolean darkBackground) {
+        int minX = w, minY = -1, maxX = -1, maxY = -1;
+        for (int y = 0; y < h; y++) {
+            int offset = y * w;
+            int first = -1;
+            int last = -1;
+            for (int x = 0; x < w; x++) {
+                boolean dark = (gray[offset + x] & 0xFF) <= threshold;
+                if (dark != darkBackground) {
+                    if (first < 0)
+                        first = x;
+                    last = x;
+                }
+            }
+            if (first >= 0) {
+                if (minY < 0)
+                    minY = y;
+                maxY = y;
+                minX = Math.min(minX, first);
+                maxX = Math.max(maxX, last);
+            }
+        }
+        return minY < 0 ? null : new int[] { minX, minY, maxX, maxY };
+    }
+
+    private static double computeScale(int w, int h) {
+        double scale = TARGET_DPI / (SCREEN_DPI * getDisplayScale());
+        scale = Math.max(MIN_SCALE, Math.min(MAX_SCALE, scale));
+        double pixels = (double) w * h * scale * scale;
+        if (pixels > MAX_PIXELS) {
+            scale *= Math.sqrt(MAX_PIXELS / pixels);
+        }
+        return scale;
+    }
+
+    /**
+     * Screenshots are captured in device pixels, so on a 200% display the text is
+     * already twice as tall as the 96 DPI baseline.
+     */
+    private static double getDisplayScale() {
+        if (displayScale < 0) {
+            double scale = 1.0;
+            try {
+                if (!GraphicsEnvironment.isHeadless()) {
+                    scale = GraphicsEnvironment.getLocalGraphicsEnvironment().getDefaultScreenDevice()
+                            .getDefaultConfiguration().getDefaultTransform().getScaleX();
+                }
+            } catch (Exception e) {
+                // Fall back to 100%
+            }
+            displayScale = scale > 0 ? scale : 1.0;
+        }
+        return displayScale;
+    }
+
+    private static BufferedImage rescale(BufferedImage image, double scale) {
+        if (Math.abs(scale - 1.0) < 0.05)
+            return image;
+        int tw = Math.max(1, (int) Math.round(image.getWidth() * scale));
+        int th = Math.max(1, (int) Math.round(image.getHeight() * scale));
+        BufferedImage scaled = new BufferedImage(tw, th, BufferedImage.TYPE_BYTE_GRAY);
+        Graphics2D g2 = scaled.createGraphics();
+        g2.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+        g2.drawImage(image, 0, 0, tw, th, null);
+        g2.dispose();
+        return scaled;
+    }
+
+    private static void binarize(BufferedImage image, int threshold, boolean invert) {
+        byte[] data = ((DataBufferByte) image.getRaster().getDataBuffer()).getData();
+        byte light = (byte) 255;
+        byte dark = 0;
+        for (int i = 0; i < data.length; i++) {
+            boolean isLight = (data[i] & 0xFF) > threshold;
+            data[i] = isLight != invert ? light : dark;
+        }
+    }
+}
@@ -1,65 +1,175 @@
 package com.virtualclipboard;
 
-import net.sourceforge.tess4j.Tesseract;
 import net.sourceforge.tess4j.TesseractException;
 
 import java.awt.image.BufferedImage;
-import java.io.*;
-import java.net.HttpURLConnection;
-import java.net.URL;
-import java.nio.file.Files;
-import java.nio.file.Path;
-import java.nio.file.Paths;
-import java.util.UUID;
-import javax.imageio.ImageIO;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
 
 public class OcrService {
-    private final Tesseract tesseract;
-    private static final String TESSDATA_PATH = "tessdata";
-    private static final String DATA_URL = "https://github.com/tesseract-ocr/tessdata_fast/raw/main/eng.traineddata";
-
-    public OcrService() {
-        this.tesseract = new Tesseract();
-        setupTessData();
+    private static final String LANGUAGE = "eng";
+    private static final int OCR_QUEUE_CAPACITY = 32;
+    private static final long OCR_TIMEOUT_SECONDS = 60;
+    // First use may have to download the language data
+    private static final long PROVISION_TIMEOUT_SECONDS = 120;
+    // Bump whenever OcrPreprocessor or OcrTiler changes what Tesseract is given
+    private static final String PIPELINE_VERSION = "prep2-tile2";
+    private static final Metrics.Histogram RECOGNIZE_TIME = Metrics.timer("ocr.recognize");
+    private static final Metrics.Counter CACHE_HITS = Metrics.counter("ocr.cache.hits");
+
+    private final TessdataProvisioner provisioner;
+    private final ImageUploader uploader;
+    private final OcrCache cache = new OcrCache();
+    private volatile OcrEnginePool enginePool;
+    private volatile String engineVersion;
+    // Single low-priority thread so background indexing never competes with capture or the EDT
+    private final ExecutorService indexer = Executors.newSingleThreadExecutor(r -> {
+        Thread t = new Thread(r, "ocr-indexer");
+        t.setDaemon(true);
+        t.setPriority(Thread.MIN_PRIORITY);
+        return t;
+    });
+    private final Set<ClipboardItem> pendingIndex = Collections.newSetFromMap(new ConcurrentHashMap<>());
+
+    /**
+     * Cheap to construct: language data is provisioned and the engines are created
+     * on the first OCR request, never on the caller's (usually the EDT's) thread.
+     */
+    public OcrService(ConfigManager configManager) {
+        this.provisioner = new TessdataProvisioner(configManager, LANGUAGE);
+        this.uploader = new ImageUploader(configManager);
+        Metrics.gauge("ocr.queue", Metrics.Unit.COUNT, () -> {
+            OcrEnginePool pool = enginePool;
+            return pool != null ? pool.getQueuedJobs() : 0;
+        });
+        Metrics.gauge("ocr.pending.index", Metrics.Unit.COUNT, pendingIndex::size);
     }
 
-    private void setupTessData() {
-        File dataDir = new File(TESSDATA_PATH);
-        if (!dataDir.exists()) {
-            dataDir.mkdirs();
+    /**
+     * Blocks the calling worker thread until the language data is ready, then
+     * creates the engine pool once.
+     */
+    private OcrEnginePool getEnginePool() throws TesseractException {
+        OcrEnginePool pool = enginePool;
+        if (pool != null) {
+            return pool;
+        }
+        TessdataProvisioner.Provisioned data;
+        try {
+            data = provisioner.provision().get(PROVISION_TIMEOUT_SECONDS, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new TesseractException("OCR interrupted");
+        } catch (ExecutionException | TimeoutException e) {
+            Throwable cause = e.getCause() != null ? e.getCause() : e;
+            throw new TesseractException("OCR language data unavailable: " + cause.getMessage(), cause);
         }
+        synchronized (this) {
+            if (enginePool == null) {
+                engineVersion = PIPELINE_VERSION + ":" + data.sha256();
+                enginePool = new OcrEnginePool(data.dataDir().toString(), LANGUAGE,
+                        OcrEnginePool.defaultSize(), OCR_QUEUE_CAPACITY);
+            }
+            return enginePool;
+        }
+    }
 
-        File engData = new File(dataDir, "eng.traineddata");
-        if (!engData.exists()) {
-            System.out.println("Downloading Tesseract language data...");
-            downloadData(engData);
+    public String extractText(BufferedImage image) throws TesseractException {
+        return runOcr(image, OcrEnginePool.Priority.INTERACTIVE);
+    }
+
+    private String runOcr(BufferedImage image, OcrEnginePool.Priority priority) throws TesseractException {
+        ClipboardEvents.Ocr event = new ClipboardEvents.Ocr();
+        event.begin();
+        event.width = image.getWidth();
+        event.height = image.getHeight();
+        OcrEnginePool pool = getEnginePool();
+        String key = OcrCache.key(ImageHasher.sha256(image), engineVersion);
+        String cached = cache.get(key);
+        if (cached != null) {
+            CACHE_HITS.increment();
+            event.cached = true;
+            event.chars = cached.length();
+            event.commit();
+            return cached;
         }
+        long start = System.nanoTime();
+        String text = recognize(pool, image, priority);
+        RECOGNIZE_TIME.recordSince(start);
+        cache.put(key, text == null ? "" : text);
+        event.chars = text != null ? text.length() : 0;
+        event.commit();
+        return text;
+    }
 
-        tesseract.setDatapath(dataDir.getAbsolutePath());
-        tesseract.setLanguage("eng");
+    private String recognize(OcrEnginePool pool, BufferedImage image, OcrEnginePool.Priority priority)
+            throws TesseractException {
+        BufferedImage prepared = OcrPreprocessor.prepare(image);
+        if (prepared == null) {
+            return ""; // Blank image, nothing for Tesseract to find
+        }
+        // Tall captures are split into bands so they OCR in parallel across the pool,
+        // and each band is scaled on its own so the pixel cap doesn't shrink the whole capture
+        OcrTiler.Tiles tiles = OcrTiler.split(prepared, pool.getSize());
+        if (tiles.bands().size() == 1) {
+            return pool.extract(OcrPreprocessor.scale(prepared), priority, OCR_TIMEOUT_SECONDS, TimeUnit.SECONDS);
+        }
+        List<BufferedImage> bands = new ArrayList<>(tiles.bands().size());
+        for (BufferedImage band : tiles.bands()) {
+            bands.add(OcrPreprocessor.scale(band));
+        }
+        return OcrTiler.stitch(pool.extractAll(bands, priority, OCR_TIMEOUT_SECONDS, TimeUnit.SECONDS),
+                tiles.overlapped());
     }
 
-    private void downloadData(File target) {
-        try (BufferedInputStream in = new BufferedInputStream(new URL(DATA_URL).openStream());
-                FileOutputStream fileOutputStream = new FileOutputStream(target)) {
-            byte[] dataBuffer = new byte[1024];
-            int bytesRead;
-            while ((bytesRead = in.read(dataBuffer, 0, 1024)) != -1) {
-                fileOutputStream.write(dataBuffer, 0, bytesRead);
-            }
-            System.out.println("Download complete.");
-        } catch (IOException e) {
-            System.err.println("Failed to download Tesseract data: " + e.getMessage());
+    /**
+     * Queues an IMAGE or GIF item for background OCR. Decoding happens on the indexer
+     * thread and the OCR job runs behind any interactive scans. Completes with the
+     * extracted text ("" when nothing was found) or null if the item was skipped or
+     * OCR failed.
+     */
+    public CompletableFuture<String> indexInBackground(ClipboardItem item) {
+        if (item.getOcrText() != null || !pendingIndex.add(item)) {
+            return CompletableFuture.completedFuture(null);
         }
+        return CompletableFuture.supplyAsync(() -> {
+            try {
+                BufferedImage image = item.getAsImage();
+                if (image == null) {
+                    return null;
+                }
+                String text = runOcr(image, OcrEnginePool.Priority.BACKGROUND);
+                return text == null ? "" : text.trim();
+            } catch (TesseractException e) {
+                System.err.println("Background OCR failed: " + e.getMessage());
+                return null;
+            } finally {
+                pendingIndex.remove(item);
+            }
+        }, indexer);
     }
 
-    public String extractText(BufferedImage image) throws TesseractException {
-        return tesseract.doOCR(image);
+    public void shutdown() {
+        indexer.shutdownNow();
+        OcrEnginePool pool = enginePool;
+        if (pool != null) {
+            pool.shutdown();
+        }
     }
 
     public String getSearchUrl(BufferedImage image, String engine) throws IOException {
         // First upload image to get direct URL
-        String imageUrl = uploadImageToCatbox(image);
+        String imageUrl = uploader.upload(image);
 
         // Construct search URL based on engine
         switch (engine) {
@@ -105,57 +215,6 @@ public class OcrService {
         }
     }
 
-    private String uploadImageToCatbox(BufferedImage image) throws IOException {
-        String boundary = "---" + UUID.randomUUID().toString();
-        URL url = new URL("https://catbox.moe/user/api.php");
-        HttpURLConnection connection = (HttpURLConnection) url.openConnection();
-        connection.setDoOutput(true);
-        connection.setRequestMethod("POST");
-        connection.setRequestProperty("Content-Type", "multipart/form-data; boundary=" + boundary);
-        connection.setRequestProperty("User-Agent",
-                "Mozilla/5.0 (Windows NT 10.0; Win64; x64) AppleWebKit/537.36 (KHTML, like Gecko) Chrome/120.0.0.0 Safari/537.36");
-
-        try (DataOutputStream output = new DataOutputStream(connection.getOutputStream());
-                ByteArrayOutputStream imageBytes = new ByteArrayOutputStream()) {
-
-            // Convert image to PNG
-            ImageIO.write(image, "png", imageBytes);
-            byte[] imageData = imageBytes.toByteArray();
-
-            // reqtype parameter
-            output.writeBytes("--" + boundary + "\r\n");
-            output.writeBytes("Content-Disposition: form-data; name=\"reqtype\"\r\n");
-            output.writeBytes("\r\n");
-            output.writeBytes("fileupload\r\n");
-
-            // fileToUpload parameter
-            output.writeBytes("--" + boundary + "\r\n");
-            output.writeBytes("Content-Disposition: form-data; name=\"fileToUpload\"; filename=\"image.png\"\r\n");
-            output.writeBytes("Content-Type: image/png\r\n");
-            output.writeBytes("\r\n");
-            output.write(imageData);
-            output.writeBytes("\r\n");
-
-            // End boundary
-            output.writeBytes("--" + boundary + "--\r\n");
-            output.flush();
-        }
-
-        // Read response
-        int responseCode = connection.getResponseCode();
-        if (responseCode == HttpURLConnection.HTTP_OK) {
-            try (BufferedReader reader = new BufferedReader(
-                    new InputStreamReader(connection.getInputStream()))) {
-                String uploadedUrl = reader.readLine();
-                if (uploadedUrl != null && !uploadedUrl.isEmpty()) {
-                    return uploadedUrl.trim();
-                }
-            }
-        }
-
-        throw new IOException("Failed to upload image to Catbox: " + responseCode);
-    }
-
     private String getYandexSearchUrl(String imageUrl) throws IOException {
         try {
             String encodedUrl = java.net.URLEncoder.encode(imageUrl, "UTF-8");
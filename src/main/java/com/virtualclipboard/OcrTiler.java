@@ -0,0 +1,159 @@
+package com.virtualclipboard;
+
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferByte;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Splits tall preprocessed images into horizontal bands that can be OCR'd in
+ * parallel, and stitches the band text back together in reading order.
+ * Cuts are placed on blank rows whenever one is close to the nominal cut, so no
+ * text line is split. Otherwise neighbouring bands overlap, and lines repeated
+ * at that seam are dropped while stitching. Seams on blank rows are joined as
+ * they are, since text repeated across them really is on the page twice.
+ */
+public class OcrTiler {
+    private static final int MIN_BAND_HEIGHT = 600;
+    private static final int BLANK_ROW_SEARCH = 80;
+    private static final int OVERLAP = 48;
+    private static final int MAX_SEAM_LINES = 3;
+
+    private OcrTiler() {
+    }
+
+    /** Bands in reading order; {@code overlapped[i]} tells whether bands i and i + 1 share rows. */
+    public record Tiles(List<BufferedImage> bands, boolean[] overlapped) {
+    }
+
+    /**
+     * Cuts {@code image} (a binarized TYPE_BYTE_GRAY image from
+     * {@link OcrPreprocessor}) into at most {@code maxBands} bands. Images too short
+     * to be worth splitting are returned as a single band.
+     */
+    public static Tiles split(BufferedImage image, int maxBands) {
+        int w = image.getWidth();
+        int h = image.getHeight();
+        int bandCount = Math.min(maxBands, h / MIN_BAND_HEIGHT);
+        if (bandCount < 2) {
+            return new Tiles(List.of(image), new boolean[0]);
+        }
+
+        byte[] data = ((DataBufferByte) image.getRaster().getDataBuffer()).getData();
+        List<BufferedImage> bands = new ArrayList<>(bandCount);
+        boolean[] overlapped = new boolean[bandCount - 1];
+        int start = 0;
+        for (int i = 1; i <= bandCount; i++) {
+            if (i == bandCount) {
+                bands.add(copyRows(data, w, start, h));
+                break;
+            }
+            int nominal = (int) ((long) h * i / bandCount);
+            int blank = findBlankRow(data, w, h, nominal);
+            if (blank >= 0) {
+                bands.add(copyRows(data, w, start, blank));
+                start = blank;
+            } else {
+                int end = Math.min(h, nominal + OVERLAP / 2);
+                bands.add(copyRows(data, w, start, end));
+                start = Math.max(0, nominal - OVERLAP / 2);
+                overlapped[i - 1] = true;
+            }
+        }
+        return new Tiles(bands, overlapped);
+    }
+
+    /**
+     * Joins band results top to bottom. Across a seam where the bands overlap,
+     * lines ending one band and starting the next come from the shared rows
+     * and are kept only once; every other seam is joined unchanged.
+     */
+    public static String stitch(List<String> bandTexts, boolean[] overlapped) {
+        List<String> lines = new ArrayList<>();
+        int previousBand = -1;
+        for (int i = 0; i < bandTexts.size(); i++) {
+            String text = bandTexts.get(i);
+            if (text == null || text.isBlank())
+                continue;
+            List<String> next = new ArrayList<>(List.of(text.strip().split("\r?\n")));
+            // Only the band right above shares rows with this one
+            int seam = i > 0 && previousBand == i - 1 && overlapped[i - 1] ? seamLength(lines, next) : 0;
+            lines.addAll(next.subList(seam, next.size()));
+            previousBand = i;
+        }
+        return String.join("\n", lines);
+    }
+
+    private static int seamLength(List<String> previous, List<String> next) {
+        List<String> prevLines = nonBlankTail(previous);
+        List<String> nextLines = nonBlankHead(next);
+        for (int k = Math.min(prevLines.size(), nextLines.size()); k > 0; k--) {
+            boolean match = true;
+            for (int j = 0; j < k && match; j++) {
+                match = normalize(prevLines.get(prevLines.size() - k + j)).equals(normalize(nextLines.get(j)));
+            }
+            if (match) {
+                // Skip the duplicated lines plus any blank lines Tesseract put before them
+                int skipped = 0;
+                int seen = 0;
+                while (skipped < next.size() && seen < k) {
+                    if (!next.get(skipped).isBlank())
+                        seen++;
+                    skipped++;
+                }
+                return skipped;
+            }
+        }
+        return 0;
+    }
+
+    private static List<String> nonBlankTail(List<String> lines) {
+        List<String> tail = new ArrayList<>();
+        for (int i = lines.size() - 1; i >= 0 && tail.size() < MAX_SEAM_LINES; i--) {
+            if (!lines.get(i).isBlank())
+                tail.add(0, lines.get(i));
+        }
+        return tail;
+    }
+
+    private static List<String> nonBlankHead(List<String> lines) {
+        List<String> head = new ArrayList<>();
+        for (int i = 0; i < lines.size() && head.size() < MAX_SEAM_LINES; i++) {
+            if (!lines.get(i).isBlank())
+                head.add(lines.get(i));
+        }
+        return head;
+    }
+
+    private static String normalize(String line) {
+        return line.strip().replaceAll("\\s+", " ");
+    }
+
+    /** Nearest fully white row to {@code nominal}, or -1 if none is within reach. */
+    private static int findBlankRow(byte[] data, int w, int h, int nominal) {
+        for (int d = 0; d <= BLANK_ROW_SEARCH; d++) {
+            if (nominal - d > 0 && isBlankRow(data, w, nominal - d))
+                return nominal - d;
+            if (d > 0 && nominal + d < h - 1 && isBlankRow(data, w, nominal + d))
+                return nominal + d;
+        }
+        return -1;
+    }
+
+    private static boolean isBlankRow(byte[] data, int w, int y) {
+        int offset = y * w;
+        for (int x = 0; x < w; x++) {
+            if (data[offset + x] != (byte) 255)
+                return false;
+        }
+        return true;
+    }
+
+    private static BufferedImage copyRows(byte[] data, int w, int fromRow, int toRow) {
+        int rows = toRow - fromRow;
+        BufferedImage band = new BufferedImage(w, rows, BufferedImage.TYPE_BYTE_GRAY);
+        byte[] bandData = ((DataBufferByte) band.getRaster().getDataBuffer()).getData();
+        System.arraycopy(data, fromRow * w, bandData, 0, rows * w);
+        return band;
+    }
+}
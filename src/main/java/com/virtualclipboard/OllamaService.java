@@ -6,23 +6,26 @@ import java.net.http.HttpRequest;
 import java.net.http.HttpResponse;
 import java.time.Duration;
 import java.util.concurrent.CompletableFuture;
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
 import java.util.ArrayList;
 import java.util.List;
 
 public class OllamaService {
     private static final String OLLAMA_API_URL = "http://localhost:11434/api/generate";
+    private static final Metrics.Histogram CAPTION_TIME = Metrics.timer("ollama.caption");
     private final ConfigManager configManager;
     private final HttpClient client;
-    private final ExecutorService executor;
+    private final ThreadPoolExecutor executor;
 
     public OllamaService(ConfigManager configManager) {
         this.configManager = configManager;
         this.client = HttpClient.newBuilder()
                 .connectTimeout(Duration.ofSeconds(5))
                 .build();
-        this.executor = Executors.newFixedThreadPool(2); // Limit concurrent requests
+        this.executor = new ThreadPoolExecutor(2, 2, 0L, TimeUnit.MILLISECONDS, new LinkedBlockingQueue<>()); // Limit concurrent requests
+        Metrics.gauge("ollama.queue", Metrics.Unit.COUNT, () -> executor.getQueue().size());
     }
 
     public CompletableFuture<String> generateCaption(String text) {
@@ -36,9 +39,13 @@ public class OllamaService {
             }
             
             return CompletableFuture.supplyAsync(() -> {
+                long start = System.nanoTime();
+                ClipboardEvents.Caption event = new ClipboardEvents.Caption();
+                event.begin();
                 try {
                     // Truncate input to avoid excessive context
                     String safeText = text.length() > 2000 ? text.substring(0, 2000) : text;
+                    event.inputChars = safeText.length();
                     
                     // Simple JSON escaping
                     String escapedText = safeText.replace("\\", "\\\\")
@@ -54,6 +61,7 @@ public class OllamaService {
                         System.err.println("OllamaService: No valid model found. Configured: " + configuredModel);
                         return null;
                     }
+                    event.model = model;
 
                     System.out.println("OllamaService: Generating caption using model '" + model + "' for text (" + safeText.length() + " chars): " + 
                         (safeText.length() > 50 ? safeText.substring(0, 50) + "..." : safeText));
@@ -80,6 +88,7 @@ public class OllamaService {
 
                     if (response.statusCode() == 200) {
                         String result = extractResponse(response.body());
+                        event.succeeded = result != null;
                         System.out.println("OllamaService: Generated caption: " + result);
                         return result;
                     } else {
@@ -89,6 +98,9 @@ public class OllamaService {
                 } catch (Exception e) {
                     // e.printStackTrace(); // Suppress generic connection errors to avoid console spam if Ollama isn't running
                     return null;
+                } finally {
+                    CAPTION_TIME.recordSince(start);
+                    event.commit();
                 }
             }, executor);
         });
@@ -187,7 +199,7 @@ public class OllamaService {
         }, executor);
     }
 
-    private String extractResponse(String json) {
+    static String extractResponse(String json) {
         // Simple manual parsing for "response": "..."
         try {
             String key = "\"response\":\"";
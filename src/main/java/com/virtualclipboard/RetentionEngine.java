@@ -0,0 +1,292 @@
+package com.virtualclipboard;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.EnumMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+import javax.swing.SwingUtilities;
+
+/**
+ * Decides which history items to drop across all tabs. Policies apply in order:
+ * max age, max items per tab, per-type quotas, then a total size budget. Each
+ * removes the oldest items first. Pinned items are exempt from all of them.
+ * Tabs are normally newest first already, so a pass checks that instead of
+ * sorting them, and merges the tabs when a policy needs all items by age.
+ * <p>
+ * Planning runs on a background thread against a snapshot taken on the EDT;
+ * the resulting removal set is handed back to the EDT and applied in one pass.
+ * Requests that arrive while a run is queued are coalesced into it. Blobs of
+ * removed items are deleted afterwards, off the EDT.
+ * <p>
+ * After planning, the surviving items are swept into or out of the
+ * {@link ColdStorage} tier on the same background thread.
+ */
+public class RetentionEngine {
+    private static final long PERIODIC_MINUTES = 10;
+    private static final Comparator<ClipboardItem> NEWEST_FIRST = Comparator.comparing(ClipboardItem::getTimestamp)
+            .reversed();
+
+    public static final class Policy {
+        final int maxItemsPerTab;
+        final long maxTotalBytes; // 0 = unlimited
+        final Duration maxAge; // null = keep forever
+        final Map<ClipboardItem.Type, Integer> typeQuotas;
+        final Duration coldAfter; // null = never compress
+
+        public Policy(int maxItemsPerTab, long maxTotalBytes, Duration maxAge,
+                Map<ClipboardItem.Type, Integer> typeQuotas, Duration coldAfter) {
+            this.maxItemsPerTab = maxItemsPerTab;
+            this.maxTotalBytes = maxTotalBytes;
+            this.maxAge = maxAge;
+            this.typeQuotas = typeQuotas;
+            this.coldAfter = coldAfter;
+        }
+
+        public static Policy from(ConfigManager configManager) {
+            int days = configManager.getMaxAgeDays();
+            int coldDays = configManager.getColdAfterDays();
+            return new Policy(configManager.getMaxHistory(), configManager.getMaxTotalMb() * 1024L * 1024L,
+                    days > 0 ? Duration.ofDays(days) : null, parseQuotas(configManager.getTypeQuotas()),
+                    coldDays > 0 ? Duration.ofDays(coldDays) : null);
+        }
+
+        /** Parses "IMAGE=100,GIF=20"; unknown types and malformed entries are ignored. */
+        static Map<ClipboardItem.Type, Integer> parseQuotas(String spec) {
+            Map<ClipboardItem.Type, Integer> quotas = new EnumMap<>(ClipboardItem.Type.class);
+            for (String entry : spec.split(",")) {
+                String[] parts = entry.split("=");
+                if (parts.length != 2)
+                    continue;
+                try {
+                    quotas.put(ClipboardItem.Type.valueOf(parts[0].trim().toUpperCase()),
+                            Integer.parseInt(parts[1].trim()));
+                } catch (IllegalArgumentException e) {
+                    System.err.println("Ignoring retention quota '" + entry + "'");
+                }
+            }
+            return quotas;
+        }
+    }
+
+    private static final Map<ClipboardItem.Type, AtomicLong> FOOTPRINT = new EnumMap<>(ClipboardItem.Type.class);
+
+    static {
+        for (ClipboardItem.Type type : ClipboardItem.Type.values()) {
+            FOOTPRINT.put(type, Metrics.gauge("heap." + type.name().toLowerCase(), Metrics.Unit.BYTES));
+        }
+    }
+
+    private final ScheduledExecutorService executor = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread t = new Thread(r, "retention");
+        t.setDaemon(true);
+        t.setPriority(Thread.MIN_PRIORITY);
+        return t;
+    });
+    private final AtomicBoolean pending = new AtomicBoolean();
+    private final BlobStore blobStore;
+    private final Supplier<List<List<ClipboardItem>>> snapshotter;
+    private final Consumer<Set<ClipboardItem>> remover;
+    private volatile Policy policy;
+
+    /**
+     * @param snapshotter called on the EDT; returns copies of every tab's item list
+     * @param remover     called on the EDT with the items to drop from all tabs
+     */
+    public RetentionEngine(BlobStore blobStore, Policy policy, Supplier<List<List<ClipboardItem>>> snapshotter,
+            Consumer<Set<ClipboardItem>> remover) {
+        this.blobStore = blobStore;
+        this.policy = policy;
+        this.snapshotter = snapshotter;
+        this.remover = remover;
+    }
+
+    public void setPolicy(Policy policy) {
+        this.policy = policy;
+        request();
+    }
+
+    /** Re-runs the age policy periodically, since nothing else triggers it on an idle clipboard. */
+    public void start() {
+        executor.scheduleWithFixedDelay(this::request, PERIODIC_MINUTES, PERIODIC_MINUTES, TimeUnit.MINUTES);
+    }
+
+    /** Asks for a retention pass. Safe to call from any thread, as often as needed. */
+    public void request() {
+        if (!pending.compareAndSet(false, true))
+            return;
+        SwingUtilities.invokeLater(() -> {
+            pending.set(false);
+            List<List<ClipboardItem>> snapshot = snapshotter.get();
+            Policy current = policy;
+            executor.execute(() -> {
+                LocalDateTime now = LocalDateTime.now();
+                Set<ClipboardItem> victims = plan(snapshot, current, now);
+                int frozen = ColdStorage.sweep(snapshot, current.coldAfter, now, victims);
+                if (frozen > 0)
+                    System.out.println("Moved " + frozen + " items to the compressed tier");
+                recordFootprint(snapshot);
+                if (victims.isEmpty())
+                    return;
+                SwingUtilities.invokeLater(() -> {
+                    // Pins set while planning still count
+                    victims.removeIf(ClipboardItem::isPinned);
+                    if (victims.isEmpty())
+                        return;
+                    remover.accept(victims);
+                    reclaim(victims);
+                });
+            });
+        });
+    }
+
+    /** Deletes the on-disk storage of items that are gone from every tab. */
+    public void reclaim(Iterable<ClipboardItem> removed) {
+        List<String> blobIds = new ArrayList<>();
+        for (ClipboardItem item : removed) {
+            if (item.isBlobBacked())
+                blobIds.add(item.getBlobId());
+        }
+        if (blobIds.isEmpty())
+            return;
+        executor.execute(() -> {
+            for (String id : blobIds) {
+                blobStore.delete(id);
+            }
+        });
+    }
+
+    /** Publishes the retained bytes per item type, counting items shared by several tabs once. */
+    private static void recordFootprint(List<List<ClipboardItem>> tabs) {
+        Set<ClipboardItem> seen = Collections.newSetFromMap(new IdentityHashMap<>());
+        long[] bytes = new long[ClipboardItem.Type.values().length];
+        for (List<ClipboardItem> tab : tabs) {
+            for (ClipboardItem item : tab) {
+                if (seen.add(item))
+                    bytes[item.getType().ordinal()] += item.getRetainedBytes();
+            }
+        }
+        for (ClipboardItem.Type type : ClipboardItem.Type.values()) {
+            FOOTPRINT.get(type).set(bytes[type.ordinal()]);
+        }
+    }
+
+    static Set<ClipboardItem> plan(List<List<ClipboardItem>> tabs, Policy policy, LocalDateTime now) {
+        Set<ClipboardItem> victims = Collections.newSetFromMap(new IdentityHashMap<>());
+
+        if (policy.maxAge != null) {
+            LocalDateTime cutoff = now.minus(policy.maxAge);
+            for (List<ClipboardItem> tab : tabs) {
+                for (ClipboardItem item : tab) {
+                    if (!item.isPinned() && item.getTimestamp().isBefore(cutoff))
+                        victims.add(item);
+                }
+            }
+        }
+
+        List<List<ClipboardItem>> sortedTabs = new ArrayList<>(tabs.size());
+        for (List<ClipboardItem> tab : tabs) {
+            List<ClipboardItem> sorted = newestFirst(tab);
+            sortedTabs.add(sorted);
+            if (sorted.size() > policy.maxItemsPerTab)
+                keepNewest(sorted, policy.maxItemsPerTab, victims);
+        }
+
+        if (policy.typeQuotas.isEmpty() && policy.maxTotalBytes <= 0)
+            return victims;
+        List<ClipboardItem> all = merge(sortedTabs);
+        for (Map.Entry<ClipboardItem.Type, Integer> quota : policy.typeQuotas.entrySet()) {
+            List<ClipboardItem> ofType = new ArrayList<>();
+            for (ClipboardItem item : all) {
+                if (item.getType() == quota.getKey())
+                    ofType.add(item);
+            }
+            keepNewest(ofType, quota.getValue(), victims);
+        }
+
+        if (policy.maxTotalBytes > 0) {
+            long total = 0;
+            for (ClipboardItem item : all) {
+                if (!victims.contains(item))
+                    total += item.getRetainedBytes();
+            }
+            for (int i = all.size() - 1; i >= 0 && total > policy.maxTotalBytes; i--) {
+                ClipboardItem item = all.get(i);
+                if (!item.isPinned() && victims.add(item))
+                    total -= item.getRetainedBytes();
+            }
+        }
+        return victims;
+    }
+
+    /** {@code tab} itself when it is already newest first, as tabs nearly always are, else a sorted copy. */
+    private static List<ClipboardItem> newestFirst(List<ClipboardItem> tab) {
+        for (int i = 1; i < tab.size(); i++) {
+            if (NEWEST_FIRST.compare(tab.get(i - 1), tab.get(i)) > 0) {
+                List<ClipboardItem> sorted = new ArrayList<>(tab);
+                sorted.sort(NEWEST_FIRST);
+                return sorted;
+            }
+        }
+        return tab;
+    }
+
+    /**
+     * Merges newest-first tabs into one newest-first list. Ties go to the earlier
+     * tab, which is the order a stable sort of all the tabs one after another gives.
+     */
+    private static List<ClipboardItem> merge(List<List<ClipboardItem>> tabs) {
+        int total = 0;
+        for (List<ClipboardItem> tab : tabs) {
+            total += tab.size();
+        }
+        List<ClipboardItem> all = new ArrayList<>(total);
+        // Each cursor is {tab, position}
+        PriorityQueue<int[]> heads = new PriorityQueue<>((a, b) -> {
+            int order = NEWEST_FIRST.compare(tabs.get(a[0]).get(a[1]), tabs.get(b[0]).get(b[1]));
+            return order != 0 ? order : Integer.compare(a[0], b[0]);
+        });
+        for (int t = 0; t < tabs.size(); t++) {
+            if (!tabs.get(t).isEmpty())
+                heads.add(new int[] { t, 0 });
+        }
+        while (!heads.isEmpty()) {
+            int[] head = heads.poll();
+            List<ClipboardItem> tab = tabs.get(head[0]);
+            all.add(tab.get(head[1]));
+            if (++head[1] < tab.size())
+                heads.add(head);
+        }
+        return all;
+    }
+
+    /** Marks everything past the newest {@code limit} surviving, unpinned items of a newest-first list. */
+    private static void keepNewest(List<ClipboardItem> newestFirst, int limit, Set<ClipboardItem> victims) {
+        int kept = 0;
+        for (ClipboardItem item : newestFirst) {
+            if (item.isPinned() || victims.contains(item))
+                continue;
+            if (kept < limit)
+                kept++;
+            else
+                victims.add(item);
+        }
+    }
+
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+}
@@ -0,0 +1,108 @@
+package com.virtualclipboard;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.EnumMap;
+import java.util.EnumSet;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import javax.swing.SwingUtilities;
+
+/**
+ * Display orders of one tab's {@link ItemTimeline}, kept as lazily built
+ * secondary indexes instead of re-sorting the tab itself. A view is sorted on a
+ * background thread the first time it is asked for after the timeline changed;
+ * until then callers get the previous ordering with new items on top, so
+ * switching orders or capturing never sorts on the EDT. Date orders over an
+ * already date-ordered timeline are served directly from it.
+ * <p>
+ * All methods must be called on the EDT.
+ */
+public class SortedViews {
+    public enum Order {
+        MANUAL(null),
+        DATE_NEWEST((a, b) -> b.getTimestamp().compareTo(a.getTimestamp())),
+        DATE_OLDEST((a, b) -> a.getTimestamp().compareTo(b.getTimestamp())),
+        TYPE_AZ((a, b) -> a.getType().toString().compareTo(b.getType().toString())),
+        TYPE_ZA((a, b) -> b.getType().toString().compareTo(a.getType().toString())),
+        SIZE_SMALLEST((a, b) -> Long.compare(a.getSizeInBytes(), b.getSizeInBytes())),
+        SIZE_LARGEST((a, b) -> Long.compare(b.getSizeInBytes(), a.getSizeInBytes()));
+
+        final Comparator<ClipboardItem> comparator;
+
+        Order(Comparator<ClipboardItem> comparator) {
+            this.comparator = comparator;
+        }
+    }
+
+    private static final ExecutorService SORTER = Executors.newSingleThreadExecutor(r -> {
+        Thread t = new Thread(r, "sort-views");
+        t.setDaemon(true);
+        return t;
+    });
+
+    private final ItemTimeline timeline;
+    private final Map<Order, List<ClipboardItem>> materialized = new EnumMap<>(Order.class);
+    private final Map<Order, Integer> materializedVersions = new EnumMap<>(Order.class);
+    private final Set<Order> inFlight = EnumSet.noneOf(Order.class);
+
+    public SortedViews(ItemTimeline timeline) {
+        this.timeline = timeline;
+    }
+
+    /**
+     * Items in {@code order}. If the view is stale a background sort is started and
+     * {@code onReady} runs on the EDT once it lands.
+     */
+    public List<ClipboardItem> get(Order order, Runnable onReady) {
+        if (order == Order.MANUAL)
+            return timeline;
+        if (order == Order.DATE_NEWEST && timeline.isNewestFirst())
+            return timeline;
+        if (order == Order.DATE_OLDEST && timeline.isNewestFirst())
+            return timeline.reversed();
+
+        int version = timeline.getVersion();
+        List<ClipboardItem> cached = materialized.get(order);
+        if (cached != null && materializedVersions.get(order) == version)
+            return cached;
+
+        if (inFlight.add(order)) {
+            List<ClipboardItem> snapshot = new ArrayList<>(timeline);
+            SORTER.execute(() -> {
+                snapshot.sort(order.comparator);
+                SwingUtilities.invokeLater(() -> {
+                    inFlight.remove(order);
+                    materialized.put(order, Collections.unmodifiableList(snapshot));
+                    materializedVersions.put(order, version);
+                    onReady.run();
+                });
+            });
+        }
+        return cached != null ? reconcile(cached) : timeline;
+    }
+
+    /** A stale ordering minus removed items, with items it has not seen yet on top. */
+    private List<ClipboardItem> reconcile(List<ClipboardItem> stale) {
+        Set<ClipboardItem> live = Collections.newSetFromMap(new IdentityHashMap<>());
+        live.addAll(timeline);
+        Set<ClipboardItem> known = Collections.newSetFromMap(new IdentityHashMap<>());
+        known.addAll(stale);
+
+        List<ClipboardItem> result = new ArrayList<>(timeline.size());
+        for (ClipboardItem item : timeline) {
+            if (!known.contains(item))
+                result.add(item);
+        }
+        for (ClipboardItem item : stale) {
+            if (live.contains(item))
+                result.add(item);
+        }
+        return result;
+    }
+}
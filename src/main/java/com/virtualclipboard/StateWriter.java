@@ -0,0 +1,90 @@
+package com.virtualclipboard;
+
+import java.io.IOException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Writes history snapshots to the {@link HistoryStore} on its own thread. Only
+ * the newest snapshot matters: one submitted while another is still waiting
+ * replaces it, so a burst of changes costs at most one write in flight plus
+ * one queued.
+ * <p>
+ * {@link HistorySync} turns each snapshot into appends for what changed since
+ * the one before, so a save costs the changed items rather than the whole
+ * history. The log is forced to disk before the layout that refers to it is
+ * replaced, and a crash mid-append is cut off when the store is next opened.
+ */
+public class StateWriter {
+    private static final Metrics.Histogram SAVE_TIME = Metrics.timer("persist.save");
+    private static final Metrics.Histogram SAVE_BYTES = Metrics.histogram("persist.bytes", Metrics.Unit.BYTES);
+    private static final Metrics.Counter SAVES_COALESCED = Metrics.counter("persist.coalesced");
+
+    private final HistorySync history;
+    private final AtomicReference<ClipboardEngine.SavedState> pending = new AtomicReference<>();
+    private final ExecutorService executor = Executors.newSingleThreadExecutor(r -> {
+        Thread t = new Thread(r, "state-writer");
+        t.setDaemon(true);
+        return t;
+    });
+
+    StateWriter(HistorySync history) {
+        this.history = history;
+    }
+
+    /** Queues a snapshot for writing. The snapshot must not be modified afterwards. */
+    public void submit(ClipboardEngine.SavedState state) {
+        if (pending.getAndSet(state) == null) {
+            executor.execute(this::writePending);
+        } else {
+            SAVES_COALESCED.increment();
+        }
+    }
+
+    private void writePending() {
+        ClipboardEngine.SavedState state = pending.getAndSet(null);
+        if (state == null)
+            return;
+        try {
+            write(history, state);
+        } catch (IOException e) {
+            System.err.println("Failed to save clipboard history: " + e.getMessage());
+            e.printStackTrace();
+        }
+    }
+
+    /** Blocks until every snapshot submitted so far is on disk. */
+    public void flush() {
+        try {
+            executor.submit(() -> {
+            }).get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (ExecutionException e) {
+            e.printStackTrace();
+        }
+    }
+
+    /** Writes what changed in {@code state} to the store behind {@code history}. */
+    static void write(HistorySync history, ClipboardEngine.SavedState state) throws IOException {
+        long start = System.nanoTime();
+        ClipboardEvents.SaveState event = new ClipboardEvents.SaveState();
+        event.begin();
+
+        long bytes = history.write(state);
+
+        SAVE_TIME.recordSince(start);
+        SAVE_BYTES.record(bytes);
+        event.end();
+        if (event.shouldCommit()) {
+            event.tabs = state.tabs().size();
+            for (ClipboardTab tab : state.tabs()) {
+                event.items += tab.items.size();
+            }
+            event.bytes = bytes;
+            event.commit();
+        }
+    }
+}
@@ -0,0 +1,171 @@
+package com.virtualclipboard;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URL;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Locates, verifies and if necessary fetches Tesseract language data off the UI
+ * thread. Sources are tried in order: a side-loaded file in {@code tessdata/}, a
+ * copy already installed in {@code tessdata/managed/}, then a copy bundled on the
+ * classpath or a download, installed into {@code tessdata/managed/}. Every file is
+ * checked against the configured checksum when one is set.
+ * <p>
+ * Side-loaded files belong to the user and are never modified: one that fails
+ * the check is reported and passed over. Only files in the managed directory,
+ * which are always written through a temporary file and an atomic rename, are
+ * replaced. Provisioning runs once; a failed attempt is retried on the next
+ * request.
+ */
+public class TessdataProvisioner {
+    private static final String TESSDATA_PATH = "tessdata";
+    private static final String MANAGED_PATH = "managed";
+    private static final String BUNDLED_RESOURCE = "/tessdata/";
+    private static final String DATA_URL = "https://github.com/tesseract-ocr/tessdata_fast/raw/main/";
+
+    private final ConfigManager configManager;
+    private final String language;
+    private CompletableFuture<Provisioned> provisioning;
+
+    /** Where the language data was found, for {@code setDatapath}, and its SHA-256. */
+    public record Provisioned(Path dataDir, String sha256) {
+    }
+
+    public TessdataProvisioner(ConfigManager configManager, String language) {
+        this.configManager = configManager;
+        this.language = language;
+    }
+
+    private Path getSideLoadDir() {
+        return Paths.get(TESSDATA_PATH).toAbsolutePath();
+    }
+
+    private Path getManagedDir() {
+        return getSideLoadDir().resolve(MANAGED_PATH);
+    }
+
+    /**
+     * Starts provisioning if it has not run yet. Completes once the language data
+     * is on disk and verified.
+     */
+    public synchronized CompletableFuture<Provisioned> provision() {
+        if (provisioning == null || provisioning.isCompletedExceptionally()) {
+            provisioning = CompletableFuture.supplyAsync(() -> {
+                try {
+                    return provisionBlocking();
+                } catch (IOException e) {
+                    throw new IllegalStateException(e.getMessage(), e);
+                }
+            }, r -> {
+                Thread t = new Thread(r, "tessdata-provisioner");
+                t.setDaemon(true);
+                t.start();
+            });
+        }
+        return provisioning;
+    }
+
+    private Provisioned provisionBlocking() throws IOException {
+        String expected = configManager.getTessdataSha256();
+        String fileName = language + ".traineddata";
+
+        Path sideLoaded = getSideLoadDir().resolve(fileName);
+        if (Files.exists(sideLoaded)) {
+            String actual = checksum(sideLoaded);
+            if (matches(expected, actual))
+                return new Provisioned(getSideLoadDir(), actual);
+            System.err.println("Ignoring " + sideLoaded + ": SHA-256 " + actual + " does not match the configured "
+                    + expected);
+        }
+
+        Path managedDir = getManagedDir();
+        Files.createDirectories(managedDir);
+        Path target = managedDir.resolve(fileName);
+        if (Files.exists(target)) {
+            String actual = checksum(target);
+            if (matches(expected, actual))
+                return new Provisioned(managedDir, actual);
+            System.err.println("Installed Tesseract language data does not match the configured checksum, "
+                    + "installing it again");
+        }
+
+        Path part = managedDir.resolve(fileName + ".part");
+        try (InputStream bundled = TessdataProvisioner.class
+                .getResourceAsStream(BUNDLED_RESOURCE + language + ".traineddata")) {
+            if (bundled != null) {
+                System.out.println("Installing bundled Tesseract language data...");
+                transfer(Channels.newChannel(bundled), part);
+            } else {
+                System.out.println("Downloading Tesseract language data...");
+                try (InputStream in = new URL(DATA_URL + language + ".traineddata").openStream()) {
+                    transfer(Channels.newChannel(in), part);
+                }
+                System.out.println("Download complete.");
+            }
+        }
+
+        String actual = checksum(part);
+        if (!matches(expected, actual)) {
+            Files.deleteIfExists(part);
+            throw new IOException("Tesseract language data checksum mismatch (expected " + expected + ", got "
+                    + actual + ")");
+        }
+
+        try {
+            Files.move(part, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (AtomicMoveNotSupportedException e) {
+            Files.move(part, target, StandardCopyOption.REPLACE_EXISTING);
+        }
+        return new Provisioned(managedDir, actual);
+    }
+
+    private static boolean matches(String expected, String actual) {
+        return expected.isEmpty() || expected.equalsIgnoreCase(actual);
+    }
+
+    /** Streams the source straight into the file via FileChannel.transferFrom. */
+    private static void transfer(ReadableByteChannel source, Path target) throws IOException {
+        try (source;
+                FileChannel out = FileChannel.open(target, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                        StandardOpenOption.TRUNCATE_EXISTING)) {
+            long position = 0;
+            long transferred;
+            while ((transferred = out.transferFrom(source, position, 1 << 20)) > 0) {
+                position += transferred;
+            }
+            out.force(true);
+        }
+    }
+
+    private static String checksum(Path file) throws IOException {
+        MessageDigest digest;
+        try {
+            digest = MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            ByteBuffer buffer = ByteBuffer.allocateDirect(1 << 16);
+            while (channel.read(buffer) != -1) {
+                buffer.flip();
+                digest.update(buffer);
+                buffer.clear();
+            }
+        }
+        return HexFormat.of().formatHex(digest.digest());
+    }
+}
@@ -0,0 +1,128 @@
+package com.virtualclipboard;
+
+/**
+ * Single-pass, allocation-free text scanner. Feed it the whole text at once or
+ * in chunks (for blobs decoded window by window), then call {@link #finish()}.
+ * <p>
+ * Words are runs of non-whitespace. Lines follow {@code String.split} on line
+ * breaks: CRLF counts once, and trailing empty lines are not counted. The code
+ * hint fires when brackets and operators are dense or most lines end like
+ * statements.
+ */
+public final class TextAnalyzer {
+    private static final Character.UnicodeScript[] SCRIPTS = Character.UnicodeScript.values();
+
+    private long utf8Bytes;
+    private long chars;
+    private long words;
+    private long breaks;
+    private long breaksAtLastContent;
+    private boolean sawContent;
+    private boolean inWord;
+    private boolean previousWasCr;
+    private boolean pendingHighSurrogate;
+    private long nonWhitespace;
+    private long codeSymbols;
+    private long statementLines;
+    private char lastNonWhitespace;
+    private final int[] scriptCounts = new int[SCRIPTS.length];
+
+    public static TextStats analyze(CharSequence text) {
+        TextAnalyzer analyzer = new TextAnalyzer();
+        analyzer.feed(text);
+        return analyzer.finish();
+    }
+
+    public void feed(CharSequence text) {
+        int length = text.length();
+        for (int i = 0; i < length; i++) {
+            accept(text.charAt(i));
+        }
+    }
+
+    private void accept(char c) {
+        chars++;
+
+        if (pendingHighSurrogate) {
+            pendingHighSurrogate = false;
+            if (Character.isLowSurrogate(c)) {
+                // The pair was already counted as 4 bytes when the high half arrived
+                return;
+            }
+            // Lone high surrogate: the encoder writes it as one replacement byte
+            utf8Bytes -= 3;
+        }
+        if (c < 0x80) {
+            utf8Bytes++;
+        } else if (c < 0x800) {
+            utf8Bytes += 2;
+        } else if (Character.isHighSurrogate(c)) {
+            utf8Bytes += 4;
+            pendingHighSurrogate = true;
+        } else if (Character.isLowSurrogate(c)) {
+            utf8Bytes += 1;
+        } else {
+            utf8Bytes += 3;
+        }
+
+        if (c == '\n' || c == '\r') {
+            if (!(c == '\n' && previousWasCr)) {
+                breaks++;
+                if (lastNonWhitespace == ';' || lastNonWhitespace == '{' || lastNonWhitespace == '}')
+                    statementLines++;
+                lastNonWhitespace = 0;
+            }
+            previousWasCr = c == '\r';
+            inWord = false;
+            return;
+        }
+        previousWasCr = false;
+        sawContent = true;
+        breaksAtLastContent = breaks;
+
+        if (c == ' ' || c == '\t' || c == '\f' || c == 0x0B) {
+            inWord = false;
+            return;
+        }
+        if (!inWord) {
+            words++;
+            inWord = true;
+        }
+        nonWhitespace++;
+        lastNonWhitespace = c;
+
+        switch (c) {
+            case '{': case '}': case '(': case ')': case '[': case ']':
+            case ';': case '=': case '<': case '>':
+                codeSymbols++;
+                break;
+            default:
+                if (c >= 0x80 && Character.isLetter(c)) {
+                    scriptCounts[Character.UnicodeScript.of(c).ordinal()]++;
+                } else if ((c | 0x20) >= 'a' && (c | 0x20) <= 'z') {
+                    scriptCounts[Character.UnicodeScript.LATIN.ordinal()]++;
+                }
+        }
+    }
+
+    public TextStats finish() {
+        if (pendingHighSurrogate) {
+            utf8Bytes -= 3;
+            pendingHighSurrogate = false;
+        }
+        if (lastNonWhitespace == ';' || lastNonWhitespace == '{' || lastNonWhitespace == '}')
+            statementLines++;
+        long lines = sawContent ? breaksAtLastContent + 1 : 0;
+
+        int best = -1;
+        for (int i = 0; i < scriptCounts.length; i++) {
+            if (scriptCounts[i] > 0 && (best < 0 || scriptCounts[i] > scriptCounts[best]))
+                best = i;
+        }
+        String script = best >= 0 ? SCRIPTS[best].name() : null;
+
+        boolean denseSymbols = nonWhitespace >= 20 && codeSymbols * 100 >= nonWhitespace * 6;
+        boolean statements = lines >= 3 && statementLines * 10 >= lines * 3;
+        return new TextStats(utf8Bytes, chars, words, lines, script, lines >= 2 && (denseSymbols || statements));
+    }
+}
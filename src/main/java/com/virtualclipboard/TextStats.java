@@ -0,0 +1,34 @@
+package com.virtualclipboard;
+
+import java.io.Serializable;
+
+/**
+ * Counts and hints about a text payload, computed once by {@link TextAnalyzer}
+ * at ingestion and stored with the item.
+ */
+public final class TextStats implements Serializable {
+    private static final long serialVersionUID = 1L;
+
+    private final long utf8Bytes;
+    private final long chars;
+    private final long words;
+    private final long lines;
+    private final String dominantScript; // Character.UnicodeScript name, or null when there are no letters
+    private final boolean likelyCode;
+
+    TextStats(long utf8Bytes, long chars, long words, long lines, String dominantScript, boolean likelyCode) {
+        this.utf8Bytes = utf8Bytes;
+        this.chars = chars;
+        this.words = words;
+        this.lines = lines;
+        this.dominantScript = dominantScript;
+        this.likelyCode = likelyCode;
+    }
+
+    public long getUtf8Bytes() { return utf8Bytes; }
+    public long getChars() { return chars; }
+    public long getWords() { return words; }
+    public long getLines() { return lines; }
+    public String getDominantScript() { return dominantScript; }
+    public boolean isLikelyCode() { return likelyCode; }
+}
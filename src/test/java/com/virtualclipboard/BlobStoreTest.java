@@ -0,0 +1,45 @@
+package com.virtualclipboard;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class BlobStoreTest {
+    private static final CaptureLimits LIMITS = new CaptureLimits(1024, 1024 * 1024, 1024 * 1024);
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void importsSmallFilesThatAreNotUtf8() throws Exception {
+        Path file = dir.resolve("latin1.txt");
+        Files.write(file, "café crème".getBytes(StandardCharsets.ISO_8859_1));
+
+        ClipboardItem item = new BlobStore(dir.resolve("blobs")).ingestFile(file, LIMITS);
+
+        assertNotNull(item);
+        assertEquals("caf� cr�me", item.getText());
+    }
+
+    @Test
+    void importsAndReadsBackLargeFilesThatAreNotUtf8() throws Exception {
+        Path file = dir.resolve("large.txt");
+        byte[] bytes = ("naïve " .repeat(400)).getBytes(StandardCharsets.ISO_8859_1);
+        Files.write(file, bytes);
+        BlobStore store = new BlobStore(dir.resolve("blobs"));
+
+        ClipboardItem item = store.ingestFile(file, LIMITS);
+
+        assertNotNull(item);
+        assertTrue(item.isBlobBacked());
+        String text = store.readAll(item.getBlobId());
+        assertEquals(bytes.length, text.length());
+        assertTrue(text.startsWith("na�ve na�ve"));
+    }
+}
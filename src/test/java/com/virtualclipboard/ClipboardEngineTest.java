@@ -0,0 +1,183 @@
+package com.virtualclipboard;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class ClipboardEngineTest {
+    @TempDir
+    Path dir;
+
+    private ClipboardEngine open() throws Exception {
+        return open(true);
+    }
+
+    private ClipboardEngine open(boolean autoSortByDate) throws Exception {
+        ClipboardEngine engine = new ClipboardEngine(new BlobStore(dir.resolve("blobs")),
+                dir.resolve(ClipboardEngine.DEFAULT_STATE_FILE), dir.resolve(HistoryStore.DEFAULT_DIR));
+        engine.setAutoSortByDate(autoSortByDate);
+        engine.load();
+        return engine;
+    }
+
+    private static List<String> texts(ClipboardTab tab) {
+        List<String> texts = new ArrayList<>();
+        for (ClipboardItem item : tab.getItems()) {
+            texts.add(item.getText());
+        }
+        return texts;
+    }
+
+    @Test
+    void keepsTheHistoryInTheStore() throws Exception {
+        try (ClipboardEngine engine = open()) {
+            engine.add(null, List.of(new ClipboardItem("one"), new ClipboardItem("two"), new ClipboardItem("three")));
+            ClipboardTab snippets = engine.addTab("Snippets");
+            snippets.iconValue = "*";
+            snippets.isEmoji = true;
+            engine.setActiveTabIndex(1);
+            engine.save();
+        }
+
+        try (ClipboardEngine engine = open()) {
+            assertEquals(2, engine.getTabs().size());
+            assertEquals(List.of("three", "two", "one"), texts(engine.getTabs().get(0)));
+            ClipboardTab snippets = engine.getTabs().get(1);
+            assertEquals("Snippets", snippets.getName());
+            assertEquals("*", snippets.iconValue);
+            assertTrue(snippets.isEmoji);
+            assertEquals(1, engine.getActiveTabIndex());
+            assertEquals(3, engine.getHistoryStore().size());
+        }
+    }
+
+    @Test
+    void savesOnlyWhatChanged() throws Exception {
+        try (ClipboardEngine engine = open()) {
+            engine.add(null, List.of(new ClipboardItem("one"), new ClipboardItem("two"), new ClipboardItem("three")));
+            engine.save();
+            long bytes = engine.getHistoryStore().getBytes();
+            engine.save();
+            assertEquals(bytes, engine.getHistoryStore().getBytes());
+
+            ClipboardTab main = engine.getCurrentTab();
+            ClipboardTab other = engine.addTab("Other");
+            main.getItems().get(0).setPinned(true);
+            engine.moveItem(main.getItems().get(1), main, other);
+            engine.removeItem(main, main.getItems().get(1));
+            engine.save();
+        }
+
+        try (ClipboardEngine engine = open()) {
+            ClipboardTab main = engine.getTabs().get(0);
+            assertEquals(List.of("three"), texts(main));
+            assertTrue(main.getItems().get(0).isPinned());
+            assertEquals(List.of("two"), texts(engine.getTabs().get(1)));
+            assertEquals(2, engine.getHistoryStore().size());
+        }
+    }
+
+    @Test
+    void recordsUsesWithoutStoringTheItemAgain() throws Exception {
+        LocalDateTime used;
+        try (ClipboardEngine engine = open()) {
+            engine.add(null, List.of(new ClipboardItem("x".repeat(10_000))));
+            engine.save();
+            long bytes = engine.getHistoryStore().getBytes();
+            ClipboardItem item = engine.getCurrentTab().getItems().get(0);
+            item.markUsed();
+            used = item.getLastUsed().truncatedTo(ChronoUnit.MILLIS);
+            engine.save();
+            assertEquals(HistoryLog.HEADER_BYTES, engine.getHistoryStore().getBytes() - bytes);
+        }
+
+        try (ClipboardEngine engine = open()) {
+            assertEquals(used, engine.getCurrentTab().getItems().get(0).getLastUsed());
+            engine.getHistoryStore().compact();
+        }
+
+        try (ClipboardEngine engine = open()) {
+            assertEquals(used, engine.getCurrentTab().getItems().get(0).getLastUsed());
+        }
+    }
+
+    @Test
+    void storesFrozenItemsPacked() throws Exception {
+        String text = "The quick brown fox jumps over the lazy dog. ".repeat(200);
+        try (ClipboardEngine engine = open()) {
+            engine.add(null, List.of(new ClipboardItem(text)));
+            engine.save();
+            long bytes = engine.getHistoryStore().getBytes();
+            assertTrue(engine.getCurrentTab().getItems().get(0).freeze() > 0);
+            engine.save();
+            // The packed copy replaces the plain one instead of the plain one being kept
+            long appended = engine.getHistoryStore().getBytes() - bytes;
+            assertTrue(appended < text.length() / 4, "appended " + appended);
+        }
+
+        try (ClipboardEngine engine = open()) {
+            ClipboardItem item = engine.getCurrentTab().getItems().get(0);
+            assertTrue(item.getRetainedBytes() < item.getSizeInBytes() / 4);
+            long bytes = engine.getHistoryStore().getBytes();
+            assertEquals(0, item.freeze());
+            engine.save();
+            assertEquals(bytes, engine.getHistoryStore().getBytes());
+            assertEquals(text, item.getText());
+        }
+    }
+
+    @Test
+    void keepsTheOrderOfTabsThatAreNotNewestFirst() throws Exception {
+        try (ClipboardEngine engine = open(false)) {
+            ClipboardItem older = new ClipboardItem("older");
+            ClipboardItem newer = new ClipboardItem("newer");
+            engine.add(null, List.of(newer, older));
+            assertEquals(List.of("older", "newer"), texts(engine.getCurrentTab()));
+            engine.save();
+        }
+
+        try (ClipboardEngine engine = open(false)) {
+            assertEquals(List.of("older", "newer"), texts(engine.getCurrentTab()));
+        }
+    }
+
+    @Test
+    void importsTheOldStateFileOnce() throws Exception {
+        ClipboardTab legacy = new ClipboardTab("Main");
+        legacy.items.add(new ClipboardItem("kept"));
+        try (OutputStream out = Files.newOutputStream(dir.resolve(ClipboardEngine.DEFAULT_STATE_FILE))) {
+            ClipboardEngine.writeState(out, List.of(legacy), 0);
+        }
+
+        try (ClipboardEngine engine = open()) {
+            assertEquals(List.of("kept"), texts(engine.getCurrentTab()));
+            engine.removeItem(engine.getCurrentTab(), engine.getCurrentTab().getItems().get(0));
+            engine.save();
+        }
+
+        try (ClipboardEngine engine = open()) {
+            assertTrue(Files.exists(dir.resolve(ClipboardEngine.DEFAULT_STATE_FILE)));
+            assertTrue(engine.getCurrentTab().getItems().isEmpty());
+            assertEquals(0, engine.getHistoryStore().size());
+        }
+    }
+
+    @Test
+    void loadsNothingFromAnEmptyFolder() throws Exception {
+        ClipboardEngine engine = new ClipboardEngine(new BlobStore(dir.resolve("blobs")),
+                dir.resolve(ClipboardEngine.DEFAULT_STATE_FILE), dir.resolve(HistoryStore.DEFAULT_DIR));
+        try (engine) {
+            assertFalse(engine.load());
+        }
+    }
+}
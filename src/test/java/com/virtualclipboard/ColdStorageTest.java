@@ -0,0 +1,86 @@
+package com.virtualclipboard;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.awt.image.BufferedImage;
+import java.util.HexFormat;
+import java.util.Random;
+import org.junit.jupiter.api.Test;
+
+class ColdStorageTest {
+    // Packed by the first dictionary. Bytes 2 to 5 are its Adler-32, so this stops inflating when the dictionary changes
+    private static final String PACKED_V1 = "0178f9c1af8bb3034707280928981881230592121494b0846a7e514a6a1124eac0f1a"
+            + "fa08425d72871d50200d9b818b1";
+    private static final String UNPACKED_V1 = "{\n  \"id\": 42,\n  \"name\": \"Thank you for your order\",\n"
+            + "  \"url\": \"https://github.com/\"\n}";
+
+    @Test
+    void packedTextRoundTrips() {
+        StringBuilder noise = new StringBuilder();
+        Random random = new Random(7);
+        for (int i = 0; i < 500; i++) {
+            noise.append((char) ('一' + random.nextInt(2000)));
+        }
+        String[] texts = {
+                "",
+                "x",
+                "SELECT * FROM users WHERE id = 1",
+                noise.toString(), // Nothing the dictionary could match
+                "emoji 😀 and 𝄞 outside the BMP ".repeat(20),
+        };
+        for (String text : texts) {
+            assertEquals(text, ColdStorage.unpack(ColdStorage.pack(text)));
+        }
+    }
+
+    @Test
+    void blocksPackedWithTheFirstDictionaryStillUnpack() {
+        byte[] packed = HexFormat.of().parseHex(PACKED_V1);
+
+        assertEquals(UNPACKED_V1, ColdStorage.unpack(packed));
+    }
+
+    @Test
+    void reducesToAPaletteWithAlphaLosslessly() {
+        BufferedImage image = new BufferedImage(40, 30, BufferedImage.TYPE_INT_ARGB);
+        int[] colours = { 0x00000000, 0x80FF0000, 0xFF00FF00, 0x400000FF, 0xFFFFFFFF };
+        for (int y = 0; y < image.getHeight(); y++) {
+            for (int x = 0; x < image.getWidth(); x++) {
+                image.setRGB(x, y, colours[(x * 7 + y * 3) % colours.length]);
+            }
+        }
+
+        BufferedImage reduced = ColdStorage.reduce(image);
+
+        assertEquals(BufferedImage.TYPE_BYTE_INDEXED, reduced.getType());
+        assertTrue(reduced.getColorModel().hasAlpha());
+        assertSamePixels(image, reduced);
+    }
+
+    @Test
+    void dropsAlphaFromOpaqueImagesLosslessly() {
+        BufferedImage image = new BufferedImage(40, 30, BufferedImage.TYPE_INT_ARGB);
+        for (int y = 0; y < image.getHeight(); y++) {
+            for (int x = 0; x < image.getWidth(); x++) {
+                image.setRGB(x, y, 0xFF000000 | (x * 6 << 16) | (y * 8 << 8) | (x * y & 0xFF));
+            }
+        }
+
+        BufferedImage reduced = ColdStorage.reduce(image);
+
+        assertEquals(BufferedImage.TYPE_INT_RGB, reduced.getType());
+        assertFalse(reduced.getColorModel().hasAlpha());
+        assertSamePixels(image, reduced);
+    }
+
+    private static void assertSamePixels(BufferedImage expected, BufferedImage actual) {
+        int w = expected.getWidth();
+        int h = expected.getHeight();
+        assertEquals(w, actual.getWidth());
+        assertEquals(h, actual.getHeight());
+        assertArrayEquals(expected.getRGB(0, 0, w, h, null, 0, w), actual.getRGB(0, 0, w, h, null, 0, w));
+    }
+}
@@ -0,0 +1,47 @@
+package com.virtualclipboard;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.nio.file.Path;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class ContentClassifierTest {
+    @TempDir
+    Path dir;
+
+    @Test
+    void classifiesSpilledJsonFromItsPreview() throws Exception {
+        StringBuilder json = new StringBuilder("[");
+        for (int i = 0; i < 5000; i++) {
+            json.append(i == 0 ? "" : ",").append("{\"id\":").append(i).append(",\"name\":\"item ").append(i)
+                    .append("\",\"active\":true}");
+        }
+        json.append(']');
+        assertTrue(json.length() > BlobStore.PREVIEW_BYTES);
+        CaptureLimits limits = new CaptureLimits(1024, 1024 * 1024, 1024 * 1024);
+
+        ClipboardItem item = new BlobStore(dir.resolve("blobs")).ingestText(json.toString(), limits);
+
+        assertTrue(item.isBlobBacked());
+        assertEquals(ContentClassifier.Kind.JSON, item.getContentKind());
+        assertTrue(item.hasFacet("json"));
+    }
+
+    @Test
+    void acceptsAnOpenJsonPrefixOnlyWhenTruncated() {
+        String prefix = "{\"items\": [{\"id\": 1, \"tags\": [\"a\", \"b\"]}, {\"id\": 2, \"note\": \"cut he";
+
+        assertEquals(ContentClassifier.Kind.JSON, ContentClassifier.classify(prefix, null, true).kind());
+        assertNotEquals(ContentClassifier.Kind.JSON, ContentClassifier.classify(prefix, null, false).kind());
+    }
+
+    @Test
+    void rejectsTruncatedTextThatIsNotJson() {
+        String prefix = "[INFO] Building project: compiling sources, 42 files {skipped: 0}";
+
+        assertNotEquals(ContentClassifier.Kind.JSON, ContentClassifier.classify(prefix, null, true).kind());
+    }
+}
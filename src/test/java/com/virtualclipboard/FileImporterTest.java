@@ -0,0 +1,102 @@
+package com.virtualclipboard;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import javax.imageio.ImageIO;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class FileImporterTest {
+    @TempDir
+    Path dir;
+
+    @Test
+    void largeDropHoldsOnlyABoundedNumberOfDecodedImages() throws Exception {
+        int count = FileImporter.MAX_IN_FLIGHT * 6;
+        List<File> files = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            File file = dir.resolve(String.format("shot-%03d.%s", i, i % 2 == 0 ? "png" : "bmp")).toFile();
+            ImageIO.write(image(640, 480, new Color(i * 5 % 256, 80, 160)), i % 2 == 0 ? "png" : "bmp", file);
+            files.add(file);
+        }
+        FileImporter importer = new FileImporter(new BlobStore(dir.resolve("blobs")), () -> CaptureLimits.DEFAULT);
+
+        List<ClipboardItem> items = importer.importFiles(files, count, (done, total) -> {
+        }).getResult().get(60, TimeUnit.SECONDS);
+
+        assertEquals(count, items.size());
+        // Process-wide, but no other import holds more than this either
+        long peak = FileImporter.DECODED_HELD.getMax();
+        assertTrue(FileImporter.DECODED_HELD.getCount() >= count);
+        assertTrue(peak >= 1);
+        assertTrue(peak <= FileImporter.MAX_IN_FLIGHT, "peak " + peak);
+        for (ClipboardItem item : items) {
+            assertEquals(ClipboardItem.Type.IMAGE, item.getType());
+            assertFalse(item.hasDecodedImage(), "imported items should only hold PNG bytes");
+        }
+        BufferedImage first = items.get(0).getImage();
+        assertEquals(640, first.getWidth());
+        assertEquals(new Color(0, 80, 160).getRGB(), first.getRGB(10, 10));
+    }
+
+    @Test
+    void collapsesIdenticalImagesWithinOneImport() throws Exception {
+        BufferedImage picture = image(64, 64, Color.ORANGE);
+        File png = dir.resolve("a.png").toFile();
+        File bmp = dir.resolve("b.bmp").toFile();
+        ImageIO.write(picture, "png", png);
+        ImageIO.write(picture, "bmp", bmp);
+        Files.writeString(dir.resolve("note.txt"), "hello");
+        FileImporter importer = new FileImporter(new BlobStore(dir.resolve("blobs")), () -> CaptureLimits.DEFAULT);
+
+        List<ClipboardItem> items = importer.importFiles(List.of(png, bmp, dir.resolve("note.txt").toFile()), 10,
+                (done, total) -> {
+                }).getResult().get(60, TimeUnit.SECONDS);
+
+        assertEquals(2, items.size());
+        assertEquals("hello", items.get(1).getText());
+    }
+
+    @Test
+    void leavesOutHiddenFoldersAndBinaryFiles() throws Exception {
+        Path folder = dir.resolve("project");
+        Files.createDirectories(folder.resolve(".git/objects"));
+        Files.writeString(folder.resolve(".git/config"), "[core]");
+        Files.writeString(folder.resolve(".git/objects/ab"), "object");
+        Files.writeString(folder.resolve(".env"), "SECRET=1");
+        Files.writeString(folder.resolve("README.md"), "# Project");
+        Files.write(folder.resolve("app.class"), new byte[] { (byte) 0xCA, (byte) 0xFE, 0, 0, 0, 65 });
+        Files.createDirectories(folder.resolve("src"));
+        Files.writeString(folder.resolve("src/Main.java"), "class Main {}");
+        FileImporter importer = new FileImporter(new BlobStore(dir.resolve("blobs")), () -> CaptureLimits.DEFAULT);
+
+        List<ClipboardItem> items = importer.importFiles(List.of(folder.toFile()), 10, (done, total) -> {
+        }).getResult().get(60, TimeUnit.SECONDS);
+
+        List<String> texts = new ArrayList<>();
+        for (ClipboardItem item : items) {
+            texts.add(item.getText());
+        }
+        assertEquals(List.of("# Project", "class Main {}"), texts);
+    }
+
+    private static BufferedImage image(int width, int height, Color color) {
+        BufferedImage image = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+        Graphics2D g = image.createGraphics();
+        g.setColor(color);
+        g.fillRect(0, 0, width, height);
+        g.dispose();
+        return image;
+    }
+}
@@ -0,0 +1,117 @@
+package com.virtualclipboard;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.stream.Stream;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipInputStream;
+import javax.imageio.ImageIO;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class HistoryExporterTest {
+    @TempDir
+    Path dir;
+
+    private byte[] png;
+
+    private List<HistoryExporter.Section> sections() throws Exception {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        ImageIO.write(new BufferedImage(8, 8, BufferedImage.TYPE_INT_RGB), "png", bytes);
+        png = bytes.toByteArray();
+        return List.of(
+                new HistoryExporter.Section("Main", List.of(new ClipboardItem("one"), ClipboardItem.fromPng(png, 8, 8))),
+                new HistoryExporter.Section("main", List.of(new ClipboardItem("two"))));
+    }
+
+    private static Map<String, byte[]> files(Path root) throws Exception {
+        Map<String, byte[]> files = new TreeMap<>();
+        try (Stream<Path> walk = Files.walk(root)) {
+            for (Path file : walk.filter(Files::isRegularFile).toList()) {
+                files.put(root.relativize(file).toString().replace('\\', '/'), Files.readAllBytes(file));
+            }
+        }
+        return files;
+    }
+
+    private static void assertExported(Map<String, byte[]> files, byte[] png) {
+        List<String> names = new ArrayList<>(files.keySet());
+        assertEquals(3, names.size(), names.toString());
+        assertTrue(names.get(0).matches("Main/0001_\\d{8}-\\d{6}\\.txt"), names.get(0));
+        assertTrue(names.get(1).matches("Main/0002_\\d{8}-\\d{6}\\.png"), names.get(1));
+        assertTrue(names.get(2).matches("main \\(2\\)/0001_\\d{8}-\\d{6}\\.txt"), names.get(2));
+        assertEquals("one", new String(files.get(names.get(0)), StandardCharsets.UTF_8));
+        assertArrayEquals(png, files.get(names.get(1)));
+        assertEquals("two", new String(files.get(names.get(2)), StandardCharsets.UTF_8));
+    }
+
+    @Test
+    void exportsToADirectory() throws Exception {
+        HistoryExporter exporter = new HistoryExporter(new BlobStore(dir.resolve("blobs")));
+        Path target = dir.resolve("export");
+
+        int written = exporter.export(sections(), target, (done, total) -> {
+        }).getResult().get(60, TimeUnit.SECONDS);
+
+        assertEquals(3, written);
+        assertExported(files(target), png);
+    }
+
+    @Test
+    void exportsToAZip() throws Exception {
+        HistoryExporter exporter = new HistoryExporter(new BlobStore(dir.resolve("blobs")));
+        Path target = dir.resolve("export.zip");
+
+        int written = exporter.export(sections(), target, (done, total) -> {
+        }).getResult().get(60, TimeUnit.SECONDS);
+
+        assertEquals(3, written);
+        assertFalse(Files.exists(dir.resolve("export.zip.part")));
+        Map<String, byte[]> files = new TreeMap<>();
+        try (ZipInputStream zip = new ZipInputStream(Files.newInputStream(target))) {
+            for (ZipEntry entry; (entry = zip.getNextEntry()) != null;) {
+                files.put(entry.getName(), zip.readAllBytes());
+            }
+        }
+        assertExported(files, png);
+    }
+
+    @Test
+    void aCancelledDirectoryExportLeavesNothingBehind() throws Exception {
+        HistoryExporter exporter = new HistoryExporter(new BlobStore(dir.resolve("blobs")));
+        Path existing = Files.createDirectories(dir.resolve("exports"));
+        Files.writeString(existing.resolve("keep.txt"), "kept");
+        Path target = existing.resolve("history");
+        AtomicReference<BackgroundJob<Integer>> job = new AtomicReference<>();
+        CountDownLatch started = new CountDownLatch(1);
+
+        job.set(exporter.export(sections(), target, (done, total) -> {
+            try {
+                started.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            job.get().cancel();
+        }));
+        started.countDown();
+        job.get().getResult().get(60, TimeUnit.SECONDS);
+
+        assertFalse(Files.exists(target));
+        assertEquals(List.of("keep.txt"), new ArrayList<>(files(existing).keySet()));
+    }
+}
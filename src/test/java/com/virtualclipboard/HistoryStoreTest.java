@@ -0,0 +1,138 @@
+package com.virtualclipboard;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class HistoryStoreTest {
+    @TempDir
+    Path dir;
+
+    private Path log() {
+        return dir.resolve("items.log");
+    }
+
+    private Path checkpoint() {
+        return dir.resolve("items.idx");
+    }
+
+    private static List<String> texts(HistoryStore store, String tab) throws Exception {
+        List<String> texts = new ArrayList<>();
+        for (HistoryStore.Entry entry : store.page(tab, null, 0, 100)) {
+            texts.add(store.get(entry.id()).getText());
+        }
+        return texts;
+    }
+
+    private void chop(int bytes) throws Exception {
+        try (FileChannel channel = FileChannel.open(log(), StandardOpenOption.WRITE)) {
+            channel.truncate(channel.size() - bytes);
+        }
+    }
+
+    @Test
+    void dropsATornRecordAtTheEnd() throws Exception {
+        HistoryStore crashed = HistoryStore.open(dir);
+        crashed.put("main", new ClipboardItem("one"));
+        crashed.put("main", new ClipboardItem("two"));
+        crashed.put("main", new ClipboardItem("three"));
+        crashed.sync();
+        chop(5);
+
+        try (HistoryStore store = HistoryStore.open(dir)) {
+            assertEquals(List.of("two", "one"), texts(store, "main"));
+            store.put("main", new ClipboardItem("four"));
+        }
+        try (HistoryStore store = HistoryStore.open(dir)) {
+            assertEquals(List.of("four", "two", "one"), texts(store, "main"));
+        }
+    }
+
+    @Test
+    void replaysTheLogPastTheCheckpoint() throws Exception {
+        long first;
+        long second;
+        try (HistoryStore store = HistoryStore.open(dir)) {
+            first = store.put("main", new ClipboardItem("one"));
+            second = store.put("main", new ClipboardItem("two"));
+        }
+        assertTrue(Files.exists(checkpoint()));
+
+        HistoryStore crashed = HistoryStore.open(dir);
+        long third = crashed.put("main", new ClipboardItem("three"));
+        crashed.delete(first);
+        crashed.move(second, "other");
+        crashed.put("main", new ClipboardItem("torn"));
+        crashed.sync();
+        chop(1);
+
+        try (HistoryStore store = HistoryStore.open(dir)) {
+            assertEquals(List.of("three"), texts(store, "main"));
+            assertEquals(List.of("two"), texts(store, "other"));
+            assertNull(store.get(first));
+            assertTrue(store.put("main", new ClipboardItem("four")) > third);
+        }
+    }
+
+    @Test
+    void compactionKeepsIds() throws Exception {
+        long one;
+        long three;
+        try (HistoryStore store = HistoryStore.open(dir)) {
+            one = store.put("main", new ClipboardItem("one"));
+            long two = store.put("main", new ClipboardItem("two".repeat(1000)));
+            three = store.put("main", new ClipboardItem("three"));
+            store.delete(two);
+            long before = Files.size(log());
+
+            store.compact();
+
+            assertTrue(Files.size(log()) < before);
+            assertEquals(HistoryLog.HEADER_BYTES + "main".length(), store.getGarbageBytes()); // The tab record
+            assertEquals("one", store.get(one).getText());
+            assertEquals("three", store.get(three).getText());
+            assertTrue(store.put("main", new ClipboardItem("four")) > three);
+        }
+        try (HistoryStore store = HistoryStore.open(dir)) {
+            assertEquals(List.of("four", "three", "one"), texts(store, "main"));
+            assertEquals("one", store.get(one).getText());
+        }
+    }
+
+    @Test
+    void ignoresACheckpointLeftFromBeforeCompaction() throws Exception {
+        long keep;
+        try (HistoryStore store = HistoryStore.open(dir)) {
+            long drop = store.put("main", new ClipboardItem("dropped ".repeat(100)));
+            keep = store.put("main", new ClipboardItem("kept"));
+            store.delete(drop);
+        }
+        Path stale = dir.resolve("stale.idx");
+        Files.copy(checkpoint(), stale);
+
+        try (HistoryStore store = HistoryStore.open(dir)) {
+            store.compact();
+            for (int i = 0; i < 20; i++) {
+                store.put("main", new ClipboardItem("later " + i));
+            }
+        }
+        // As if the old checkpoint had survived the compaction
+        Files.copy(stale, checkpoint(), StandardCopyOption.REPLACE_EXISTING);
+
+        try (HistoryStore store = HistoryStore.open(dir)) {
+            assertEquals(21, store.size());
+            assertEquals("kept", store.get(keep).getText());
+            assertEquals("later 19", texts(store, "main").get(0));
+        }
+    }
+}
@@ -0,0 +1,82 @@
+package com.virtualclipboard;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+
+import com.sun.net.httpserver.HttpServer;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import javax.imageio.ImageIO;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class ImageUploaderTest {
+    private static final String UPLOADED = "https://files.example/abc123.png";
+
+    @TempDir
+    Path dir;
+
+    private HttpServer server;
+    private final List<String> transferEncodings = new CopyOnWriteArrayList<>();
+    private final List<BufferedImage> received = new CopyOnWriteArrayList<>();
+
+    @BeforeEach
+    void startServer() throws Exception {
+        server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 0);
+        server.createContext("/upload", exchange -> {
+            transferEncodings.add(String.valueOf(exchange.getRequestHeaders().getFirst("Transfer-Encoding")));
+            byte[] body = exchange.getRequestBody().readAllBytes();
+            received.add(ImageIO.read(new ByteArrayInputStream(png(body))));
+            byte[] reply = UPLOADED.getBytes(StandardCharsets.UTF_8);
+            exchange.sendResponseHeaders(200, reply.length);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(reply);
+            }
+        });
+        server.start();
+    }
+
+    @AfterEach
+    void stopServer() {
+        server.stop(0);
+    }
+
+    /** The fileToUpload part of a multipart body. */
+    private static byte[] png(byte[] body) {
+        String text = new String(body, StandardCharsets.ISO_8859_1);
+        int start = text.indexOf("\r\n\r\n", text.indexOf("filename=")) + 4;
+        int end = text.lastIndexOf("\r\n--");
+        return Arrays.copyOfRange(body, start, end);
+    }
+
+    @Test
+    void uploadsADownscaledPngInChunksOnce() throws Exception {
+        ConfigManager config = new ConfigManager();
+        config.setImageUploadUrl("http://localhost:" + server.getAddress().getPort() + "/upload");
+        ImageUploader uploader = new ImageUploader(config, dir.resolve("cache.properties").toFile());
+        BufferedImage image = new BufferedImage(3200, 1800, BufferedImage.TYPE_INT_RGB);
+        image.setRGB(5, 5, 0xFF8800);
+
+        assertEquals(UPLOADED, uploader.upload(image));
+        assertEquals(UPLOADED, uploader.upload(image));
+
+        assertEquals(List.of("chunked"), transferEncodings);
+        BufferedImage sent = received.get(0);
+        assertNotNull(sent);
+        assertEquals(1600, sent.getWidth());
+        assertEquals(900, sent.getHeight());
+        // The cache is kept on disk, so a new uploader finds it too
+        assertEquals(UPLOADED, new ImageUploader(config, dir.resolve("cache.properties").toFile()).upload(image));
+        assertEquals(1, received.size());
+    }
+}
@@ -0,0 +1,127 @@
+package com.virtualclipboard;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import org.junit.jupiter.api.Test;
+
+class ItemTimelineTest {
+    private static List<ClipboardItem> items(int count) {
+        List<ClipboardItem> items = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            items.add(new ClipboardItem("item" + i));
+        }
+        return items;
+    }
+
+    /** A distinct item with the same timestamp. */
+    private static ClipboardItem copy(ClipboardItem item) throws Exception {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (ObjectOutputStream out = new ObjectOutputStream(bytes)) {
+            out.writeObject(item);
+        }
+        try (ObjectInputStream in = new ObjectInputStream(new ByteArrayInputStream(bytes.toByteArray()))) {
+            return (ClipboardItem) in.readObject();
+        }
+    }
+
+    @Test
+    void matchesAnArrayListThroughWrapsAndGrowth() {
+        List<ClipboardItem> pool = items(64);
+        Random random = new Random(11);
+        ItemTimeline timeline = new ItemTimeline();
+        List<ClipboardItem> expected = new ArrayList<>();
+        for (int step = 0; step < 5000; step++) {
+            int roll = random.nextInt(8);
+            ClipboardItem item = pool.get(random.nextInt(pool.size()));
+            // Drift between about 8 and 40 items, so the head wraps often and the array grows mid-wrap
+            boolean grow = expected.size() < 8 || (expected.size() < 40 && roll < 4);
+            if (grow) {
+                int index = switch (roll % 4) {
+                    case 0 -> 0;
+                    case 1 -> expected.size();
+                    default -> random.nextInt(expected.size() + 1);
+                };
+                timeline.add(index, item);
+                expected.add(index, item);
+            } else {
+                int index = switch (roll % 3) {
+                    case 0 -> 0;
+                    case 1 -> expected.size() - 1;
+                    default -> random.nextInt(expected.size());
+                };
+                assertSame(expected.remove(index), timeline.remove(index));
+            }
+            assertEquals(expected, timeline, "step " + step);
+        }
+    }
+
+    @Test
+    void growsWithTheHeadPartWayRound() {
+        List<ClipboardItem> pool = items(40);
+        ItemTimeline timeline = new ItemTimeline();
+        List<ClipboardItem> expected = new ArrayList<>();
+        for (int i = 0; i < 10; i++) {
+            timeline.add(pool.get(i));
+            expected.add(pool.get(i));
+        }
+        // Prepending moves the head back past slot 0
+        for (int i = 10; i < 40; i++) {
+            timeline.add(0, pool.get(i));
+            expected.add(0, pool.get(i));
+        }
+        assertEquals(expected, timeline);
+    }
+
+    @Test
+    void removeIfCompactsAcrossTheWrap() {
+        List<ClipboardItem> pool = items(12);
+        ItemTimeline timeline = new ItemTimeline();
+        for (int i = 0; i < 6; i++) {
+            timeline.add(pool.get(i));
+        }
+        for (int i = 6; i < 12; i++) {
+            timeline.add(0, pool.get(i));
+        }
+        List<ClipboardItem> expected = new ArrayList<>(timeline);
+        int version = timeline.getVersion();
+
+        assertTrue(timeline.removeIf(item -> item.getText().hashCode() % 2 == 0));
+        expected.removeIf(item -> item.getText().hashCode() % 2 == 0);
+
+        assertEquals(expected, timeline);
+        assertNotEquals(version, timeline.getVersion());
+        assertFalse(timeline.removeIf(item -> false));
+        timeline.add(0, pool.get(0));
+        expected.add(0, pool.get(0));
+        assertEquals(expected, timeline);
+    }
+
+    @Test
+    void insertsAheadOfItemsWithTheSameTimestamp() throws Exception {
+        List<ClipboardItem> captured = new ArrayList<>();
+        for (int i = 0; i < 3; i++) {
+            captured.add(new ClipboardItem("item" + i));
+            Thread.sleep(2);
+        }
+        ItemTimeline timeline = new ItemTimeline(List.of(captured.get(2), captured.get(1), captured.get(0)));
+        ClipboardItem twin = copy(captured.get(1));
+        ClipboardItem newest = copy(captured.get(2));
+
+        assertEquals(1, timeline.insertByTimestamp(twin));
+        assertEquals(0, timeline.insertByTimestamp(newest));
+
+        assertEquals(List.of(newest, captured.get(2), twin, captured.get(1), captured.get(0)), timeline);
+        assertTrue(timeline.isNewestFirst());
+    }
+}
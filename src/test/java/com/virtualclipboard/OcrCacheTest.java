@@ -0,0 +1,43 @@
+package com.virtualclipboard;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.stream.Stream;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class OcrCacheTest {
+    @TempDir
+    Path dir;
+
+    private static long bytes(Path dir) throws Exception {
+        try (Stream<Path> files = Files.list(dir)) {
+            return files.mapToLong(file -> file.toFile().length()).sum();
+        }
+    }
+
+    @Test
+    void dropsTheLeastRecentlyUsedEntriesFromDisk() throws Exception {
+        String text = "x".repeat(100);
+        OcrCache cache = new OcrCache(dir, 450);
+        for (int i = 0; i < 4; i++) {
+            cache.put("entry" + i, text);
+            Thread.sleep(20); // Apart in modification time
+        }
+        assertEquals(text, cache.get("entry0"));
+
+        cache.put("entry4", text);
+
+        assertTrue(bytes(dir) <= 450, "kept " + bytes(dir));
+        OcrCache reopened = new OcrCache(dir, 450);
+        assertEquals(text, reopened.get("entry0"));
+        assertNull(reopened.get("entry1"));
+        assertNull(reopened.get("entry2"));
+        assertEquals(text, reopened.get("entry3"));
+        assertEquals(text, reopened.get("entry4"));
+    }
+}
@@ -0,0 +1,86 @@
+package com.virtualclipboard;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferByte;
+import java.util.Arrays;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+
+class OcrTilerTest {
+
+    @Test
+    void keepsLinesRepeatedAcrossACutOnBlankRows() {
+        String text = OcrTiler.stitch(List.of("if (a) {\n    run();\n}", "}\n}\nreturn;"), new boolean[] { false });
+        assertEquals("if (a) {\n    run();\n}\n}\n}\nreturn;", text);
+    }
+
+    @Test
+    void dropsLinesRepeatedInTheOverlap() {
+        String text = OcrTiler.stitch(List.of("one\ntwo\nthree", "two\nthree\nfour"), new boolean[] { true });
+        assertEquals("one\ntwo\nthree\nfour", text);
+    }
+
+    @Test
+    void onlyTheBandRightAboveCountsForAnOverlap() {
+        String text = OcrTiler.stitch(List.of("INFO ok", "", "INFO ok\nINFO done"), new boolean[] { false, true });
+        assertEquals("INFO ok\nINFO ok\nINFO done", text);
+    }
+
+    @Test
+    void cutsOnBlankRowsDoNotOverlap() {
+        BufferedImage image = grayImage(400, 1800);
+        byte[] data = ((DataBufferByte) image.getRaster().getDataBuffer()).getData();
+        Arrays.fill(data, (byte) 255);
+        // Ink everywhere except a blank strip around each nominal cut
+        for (int y = 0; y < 1800; y++) {
+            if (Math.abs(y - 600) > 5 && Math.abs(y - 1200) > 5)
+                data[y * 400 + 10] = 0;
+        }
+        OcrTiler.Tiles tiles = OcrTiler.split(image, 3);
+        assertEquals(3, tiles.bands().size());
+        assertArrayEquals(new boolean[] { false, false }, tiles.overlapped());
+    }
+
+    @Test
+    void cutsWithoutBlankRowsOverlap() {
+        BufferedImage image = grayImage(400, 1800);
+        byte[] data = ((DataBufferByte) image.getRaster().getDataBuffer()).getData();
+        Arrays.fill(data, (byte) 255);
+        for (int y = 0; y < 1800; y++) {
+            data[y * 400 + 10] = 0;
+        }
+        OcrTiler.Tiles tiles = OcrTiler.split(image, 3);
+        assertEquals(3, tiles.bands().size());
+        assertArrayEquals(new boolean[] { true, true }, tiles.overlapped());
+    }
+
+    @Test
+    void bandsOfATallCaptureAreScaledOnTheirOwn() {
+        // 16 MP in all, over the pixel cap, but each band is well under it
+        BufferedImage image = grayImage(1000, 16_000);
+        byte[] data = ((DataBufferByte) image.getRaster().getDataBuffer()).getData();
+        Arrays.fill(data, (byte) 255);
+        for (int y = 0; y < 16_000; y++) {
+            data[y * 1000 + (y % 1000)] = 0;
+        }
+        BufferedImage prepared = OcrPreprocessor.prepare(image);
+        BufferedImage whole = OcrPreprocessor.scale(prepared);
+
+        OcrTiler.Tiles tiles = OcrTiler.split(prepared, 4);
+
+        assertEquals(4, tiles.bands().size());
+        for (BufferedImage band : tiles.bands()) {
+            BufferedImage scaled = OcrPreprocessor.scale(band);
+            assertTrue(scaled.getWidth() > whole.getWidth(), scaled.getWidth() + " vs " + whole.getWidth());
+            assertTrue((long) scaled.getWidth() * scaled.getHeight() <= 12_000_000L);
+        }
+    }
+
+    private static BufferedImage grayImage(int width, int height) {
+        return new BufferedImage(width, height, BufferedImage.TYPE_BYTE_GRAY);
+    }
+}
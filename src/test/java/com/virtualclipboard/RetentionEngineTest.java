@@ -0,0 +1,112 @@
+package com.virtualclipboard;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import org.junit.jupiter.api.Test;
+
+class RetentionEngineTest {
+    private static final Map<ClipboardItem.Type, Integer> NO_QUOTAS = Map.of();
+
+    /** Text items {@code prefix0}, {@code prefix1}, ..., each captured after the one before. */
+    private static List<ClipboardItem> captured(String prefix, int count) throws Exception {
+        List<ClipboardItem> items = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            items.add(new ClipboardItem(prefix + i));
+            Thread.sleep(2);
+        }
+        return items;
+    }
+
+    private static List<ClipboardItem> newestFirst(List<ClipboardItem> items) {
+        List<ClipboardItem> tab = new ArrayList<>(items);
+        Collections.reverse(tab);
+        return tab;
+    }
+
+    private static Set<String> texts(Set<ClipboardItem> items) {
+        Set<String> texts = new TreeSet<>();
+        for (ClipboardItem item : items) {
+            texts.add(item.getText());
+        }
+        return texts;
+    }
+
+    @Test
+    void dropsItemsOlderThanTheMaxAge() throws Exception {
+        List<ClipboardItem> old = captured("old", 3);
+        LocalDateTime between = LocalDateTime.now();
+        Thread.sleep(2);
+        List<ClipboardItem> recent = captured("new", 2);
+        old.get(0).setPinned(true);
+        List<ClipboardItem> tab = new ArrayList<>(newestFirst(recent));
+        tab.addAll(newestFirst(old));
+        RetentionEngine.Policy policy = new RetentionEngine.Policy(100, 0, Duration.ofDays(1), NO_QUOTAS, null);
+
+        Set<ClipboardItem> victims = RetentionEngine.plan(List.of(tab), policy, between.plusDays(1));
+
+        assertEquals(Set.of("old1", "old2"), texts(victims));
+    }
+
+    @Test
+    void keepsTheNewestItemsOfEachTab() throws Exception {
+        List<ClipboardItem> items = captured("a", 5);
+        items.get(0).setPinned(true);
+        List<ClipboardItem> shuffled = new ArrayList<>(List.of(items.get(2), items.get(4), items.get(0),
+                items.get(1), items.get(3)));
+        List<ClipboardItem> other = newestFirst(captured("b", 2));
+        RetentionEngine.Policy policy = new RetentionEngine.Policy(2, 0, null, NO_QUOTAS, null);
+
+        Set<ClipboardItem> victims = RetentionEngine.plan(List.of(shuffled, other), policy, LocalDateTime.now());
+
+        // The pinned a0 doesn't count towards the two kept
+        assertEquals(Set.of("a1", "a2"), texts(victims));
+    }
+
+    @Test
+    void appliesQuotasPerTypeAcrossTabs() throws Exception {
+        List<ClipboardItem> items = new ArrayList<>();
+        for (int i = 0; i < 4; i++) {
+            items.add(new ClipboardItem(ClipboardItem.Type.HTML, "html" + i, "<b>" + i + "</b>"));
+            Thread.sleep(2);
+            items.add(new ClipboardItem("text" + i));
+            Thread.sleep(2);
+        }
+        List<ClipboardItem> first = newestFirst(items.subList(0, 4));
+        List<ClipboardItem> second = newestFirst(items.subList(4, 8));
+        Map<ClipboardItem.Type, Integer> quotas = new EnumMap<>(ClipboardItem.Type.class);
+        quotas.put(ClipboardItem.Type.HTML, 1);
+        RetentionEngine.Policy policy = new RetentionEngine.Policy(100, 0, null, quotas, null);
+
+        Set<ClipboardItem> victims = RetentionEngine.plan(List.of(first, second), policy, LocalDateTime.now());
+
+        assertEquals(Set.of("html0", "html1", "html2"), texts(victims));
+    }
+
+    @Test
+    void dropsTheOldestItemsOverTheSizeBudget() throws Exception {
+        List<ClipboardItem> items = new ArrayList<>();
+        for (int i = 0; i < 5; i++) {
+            items.add(new ClipboardItem(i + "x".repeat(99)));
+            Thread.sleep(2);
+        }
+        items.get(0).setPinned(true);
+        long each = items.get(1).getRetainedBytes();
+        List<ClipboardItem> first = newestFirst(List.of(items.get(0), items.get(2), items.get(4)));
+        List<ClipboardItem> second = newestFirst(List.of(items.get(1), items.get(3)));
+        RetentionEngine.Policy policy = new RetentionEngine.Policy(100, each * 3, null, NO_QUOTAS, null);
+
+        Set<ClipboardItem> victims = RetentionEngine.plan(List.of(first, second), policy, LocalDateTime.now());
+
+        // The pinned item 0 is the oldest, but stays and still takes its share of the budget
+        assertEquals(Set.of(items.get(1).getText(), items.get(2).getText()), texts(victims));
+    }
+}
@@ -0,0 +1,106 @@
+package com.virtualclipboard;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Random;
+import org.junit.jupiter.api.Test;
+
+class TextAnalyzerTest {
+    private static final List<String> SAMPLES = List.of(
+            "one line",
+            "first\r\nsecond\r\nthird",
+            "mixed\rbreaks\nand\r\nmore\n\n",
+            "a\n\n\nb",
+            "int x = 1;\nif (x > 0) {\n    x++;\n}\n",
+            "tabs\tand\u000Bvertical\ftabs",
+            "emoji 😀 and 𝄞 outside the BMP",
+            "Ελληνικά και English, 中文 too",
+            "trailing spaces   \n   \n");
+
+    private static TextStats chunked(String text, int... cuts) {
+        TextAnalyzer analyzer = new TextAnalyzer();
+        int from = 0;
+        for (int cut : cuts) {
+            analyzer.feed(text.subSequence(from, cut));
+            from = cut;
+        }
+        analyzer.feed(text.subSequence(from, text.length()));
+        return analyzer.finish();
+    }
+
+    private static void assertSameStats(TextStats expected, TextStats actual, String label) {
+        assertEquals(expected.getUtf8Bytes(), actual.getUtf8Bytes(), label + ": bytes");
+        assertEquals(expected.getChars(), actual.getChars(), label + ": chars");
+        assertEquals(expected.getWords(), actual.getWords(), label + ": words");
+        assertEquals(expected.getLines(), actual.getLines(), label + ": lines");
+        assertEquals(expected.getDominantScript(), actual.getDominantScript(), label + ": script");
+        assertEquals(expected.isLikelyCode(), actual.isLikelyCode(), label + ": code");
+    }
+
+    @Test
+    void anySplitIntoTwoChunksGivesTheSameStats() {
+        for (String text : SAMPLES) {
+            TextStats whole = TextAnalyzer.analyze(text);
+            for (int cut = 0; cut <= text.length(); cut++) {
+                assertSameStats(whole, chunked(text, cut), text + " cut at " + cut);
+            }
+        }
+    }
+
+    @Test
+    void randomChunkingGivesTheSameStats() {
+        Random random = new Random(3);
+        for (String text : SAMPLES) {
+            TextStats whole = TextAnalyzer.analyze(text);
+            for (int run = 0; run < 50; run++) {
+                int[] cuts = random.ints(random.nextInt(5), 0, text.length() + 1).sorted().toArray();
+                assertSameStats(whole, chunked(text, cuts), text);
+            }
+        }
+    }
+
+    @Test
+    void crlfSplitAcrossChunksCountsOnce() {
+        String text = "one\r\ntwo";
+        TextStats stats = chunked(text, 4);
+
+        assertEquals(2, stats.getLines());
+        assertEquals(2, stats.getWords());
+    }
+
+    @Test
+    void surrogatePairSplitAcrossChunksIsFourBytes() {
+        String text = "a😀b";
+        TextStats stats = chunked(text, 2);
+
+        assertEquals(6, stats.getUtf8Bytes());
+        assertEquals(text.getBytes(StandardCharsets.UTF_8).length, stats.getUtf8Bytes());
+    }
+
+    @Test
+    void loneSurrogatesCountAsTheEncoderWritesThem() {
+        String[] texts = { "a\uD83D", "\uD83Db", "a\uDE00b", "\uDE00\uD83D", "x\uD83D\uD83D😀" };
+        for (String text : texts) {
+            int bytes = text.getBytes(StandardCharsets.UTF_8).length;
+            assertEquals(bytes, TextAnalyzer.analyze(text).getUtf8Bytes(), text);
+            for (int cut = 0; cut <= text.length(); cut++) {
+                assertEquals(bytes, chunked(text, cut).getUtf8Bytes(), text + " cut at " + cut);
+            }
+        }
+    }
+
+    @Test
+    void countsMatchTheOldSplitBasedCounts() {
+        for (String text : SAMPLES) {
+            TextStats stats = TextAnalyzer.analyze(text);
+            // What ClipboardItem used to compute on every call
+            assertEquals(text.split("\\s+").length, stats.getWords(), text);
+            assertEquals(text.split("\r\n|\r|\n").length, stats.getLines(), text);
+        }
+        // The old word count took leading whitespace for an empty first word
+        assertEquals(2, TextAnalyzer.analyze("  two words").getWords());
+        assertEquals(0, TextAnalyzer.analyze("").getLines());
+    }
+}